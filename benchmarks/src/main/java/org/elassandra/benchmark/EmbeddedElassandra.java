@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.service.ElassandraDaemon;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.network.NetworkModule;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.InternalSettingsPreparer;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.transport.Netty4Plugin;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Single node Elassandra started once per JMH fork, configured by the system properties of the benchmarks run task.
+ * Each fork stores its data in a new sub-directory of cassandra.storagedir.
+ */
+public final class EmbeddedElassandra {
+
+    private static Node node;
+
+    private EmbeddedElassandra() {
+    }
+
+    public static synchronized Node node() {
+        if (node == null) {
+            String storageDir = System.getProperty("cassandra.storagedir", "build/elassandra");
+            System.setProperty("cassandra.storagedir", storageDir + File.separator + "fork-" + System.currentTimeMillis());
+
+            Settings homeSettings = Settings.builder().put(Environment.PATH_HOME_SETTING.getKey(), ElassandraDaemon.getHomeDir()).build();
+            ElassandraDaemon daemon = new ElassandraDaemon(InternalSettingsPreparer.prepareEnvironment(homeSettings, null));
+            Settings settings = daemon.nodeSettings(Settings.builder()
+                .put(homeSettings)
+                .put(NetworkModule.HTTP_ENABLED.getKey(), false)
+                .build());
+            daemon.activate(false, true, settings, new Environment(settings, Paths.get(System.getProperty("cassandra.config.dir"))),
+                Collections.singletonList(Netty4Plugin.class));
+            node = daemon.node();
+            node.client().admin().cluster().prepareHealth().setWaitForGreenStatus().get();
+        }
+        return node;
+    }
+
+    public static ClusterService clusterService() {
+        return node().injector().getInstance(ClusterService.class);
+    }
+
+    public static UntypedResultSet process(String query, Object... values) {
+        return clusterService().process(ConsistencyLevel.ONE, query, values);
+    }
+
+    /**
+     * Create the index mapping the CQL table type if it does not exist, and return its index service.
+     */
+    public static IndexService createIndex(String index, Settings settings, String type, String mapping) {
+        if (!node().client().admin().indices().prepareExists(index).get().isExists()) {
+            node().client().admin().indices().prepareCreate(index)
+                .setSettings(settings)
+                .addMapping(type, mapping, XContentType.JSON)
+                .get();
+            node().client().admin().cluster().prepareHealth(index).setWaitForGreenStatus().get();
+        }
+        IndexMetaData indexMetaData = clusterService().state().metaData().index(index);
+        return node().injector().getInstance(IndicesService.class).indexServiceSafe(indexMetaData.getIndex());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.elassandra.cluster.QueryManager;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.shard.IndexShard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetch phase steps of a search hit on an embedded single node: the CQL fetch query, the CQL row to map
+ * conversion and the _source serialization.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class QueryManagerBenchmark {
+
+    private static final String[] REQUIRED_COLUMNS = new String[] { "name", "value", "ratio", "created", "tags", "attrs" };
+
+    private QueryManager queryManager;
+    private IndexShard indexShard;
+    private DocumentMapper docMapper;
+    private UntypedResultSet.Row row;
+    private Map<String, Object> sourceAsMap;
+
+    @Setup
+    public void setUp() throws IOException {
+        EmbeddedElassandra.process("CREATE KEYSPACE IF NOT EXISTS fetch WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS fetch.t ( id text PRIMARY KEY, name text, value bigint, ratio double, " +
+            "created timestamp, tags list<text>, attrs map<text,int> )");
+        indexShard = EmbeddedElassandra.createIndex("fetch", Settings.EMPTY, "t", "{ \"t\" : { \"discover\" : \".*\" } }").getShard(0);
+        EmbeddedElassandra.process("INSERT INTO fetch.t (id, name, value, ratio, created, tags, attrs) VALUES " +
+            "('1', 'The quick brown fox', 42, 0.5, '2019-01-01T00:00:00Z', ['alpha','beta','gamma'], {'one':1,'two':2})");
+
+        queryManager = EmbeddedElassandra.clusterService().getQueryManager();
+        docMapper = indexShard.mapperService().documentMapper("t");
+        row = EmbeddedElassandra.process("SELECT * FROM fetch.t WHERE id = ?", "1").one();
+        sourceAsMap = queryManager.rowAsMap(indexShard, "t", row);
+    }
+
+    @Benchmark
+    public String buildFetchQuery() throws IOException {
+        Map<String, ColumnDefinition> columnDefs = new HashMap<>();
+        return queryManager.buildFetchQuery(indexShard, "t", REQUIRED_COLUMNS, false, columnDefs);
+    }
+
+    @Benchmark
+    public Map<String, Object> rowAsMap() throws IOException {
+        return queryManager.rowAsMap(indexShard, "t", row);
+    }
+
+    @Benchmark
+    public BytesReference source() throws IOException {
+        return queryManager.source(indexShard, docMapper, sourceAsMap, "1");
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.TupleType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.index.Index;
+import org.apache.cassandra.index.transactions.IndexTransaction;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.elassandra.index.ElasticSecondaryIndex;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rowcument indexing by the {@link ElasticSecondaryIndex} on an embedded single node, for skinny rows, wide rows,
+ * wide rows with a static column and rows with a flat UDT, a UDT nesting another UDT or a list of UDTs. Partition
+ * updates are built once and passed to the index {@link Index.Indexer} as the Cassandra write path does, without the
+ * commitlog and memtable overhead.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class RowcumentIndexingBenchmark {
+
+    private static final int PARTITIONS = 1024;
+
+    @Param({ "skinny", "wide", "static", "udt", "nested_udt", "udt_list" })
+    private String table;
+
+    private Index index;
+    private PartitionUpdate[] updates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        EmbeddedElassandra.process("CREATE KEYSPACE IF NOT EXISTS indexing WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        EmbeddedElassandra.process("CREATE TYPE IF NOT EXISTS indexing.address ( street text, zip int )");
+        EmbeddedElassandra.process("CREATE TYPE IF NOT EXISTS indexing.person ( name text, age int, address frozen<address> )");
+        switch (table) {
+            case "skinny":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.skinny ( id text PRIMARY KEY, name text, value bigint )");
+                break;
+            case "wide":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.wide ( id text, seq int, name text, value bigint, PRIMARY KEY (id, seq) )");
+                break;
+            case "static":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.static ( id text, seq int, label text static, value bigint, PRIMARY KEY (id, seq) )");
+                break;
+            case "udt":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.udt ( id text PRIMARY KEY, name text, address frozen<address> )");
+                break;
+            case "nested_udt":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.nested_udt ( id text PRIMARY KEY, name text, owner frozen<person> )");
+                break;
+            case "udt_list":
+                EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS indexing.udt_list ( id text PRIMARY KEY, name text, addresses list<frozen<address>> )");
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported table [" + table + "]");
+        }
+        EmbeddedElassandra.createIndex("indexing_" + table, Settings.builder()
+                .put("index.keyspace", "indexing")
+                .put("index.index_static_columns", true)
+                .build(),
+            table, "{ \"" + table + "\" : { \"discover\" : \".*\" } }");
+
+        ColumnFamilyStore cfs = Keyspace.open("indexing").getColumnFamilyStore(table);
+        for (Index idx : cfs.indexManager.listIndexes()) {
+            if (idx instanceof ElasticSecondaryIndex)
+                index = idx;
+        }
+        if (index == null)
+            throw new IllegalStateException("No elastic secondary index on table [" + table + "]");
+
+        CFMetaData cfm = cfs.metadata;
+        updates = new PartitionUpdate[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+            updates[i] = partitionUpdate(cfm, "id" + i, i);
+    }
+
+    private PartitionUpdate partitionUpdate(CFMetaData cfm, String id, int i) {
+        PartitionUpdate.SimpleBuilder builder = PartitionUpdate.simpleBuilder(cfm, id);
+        switch (table) {
+            case "skinny":
+                builder.row().add("name", "name" + i).add("value", (long) i);
+                break;
+            case "wide":
+                for (int seq = 0; seq < 10; seq++)
+                    builder.row(seq).add("name", "name" + seq).add("value", (long) i * seq);
+                break;
+            case "static":
+                builder.row().add("label", "label" + i);
+                for (int seq = 0; seq < 10; seq++)
+                    builder.row(seq).add("value", (long) i * seq);
+                break;
+            case "udt":
+                builder.row().add("name", "name" + i).add("address", address(i));
+                break;
+            case "nested_udt":
+                ByteBuffer owner = TupleType.buildValue(new ByteBuffer[] {
+                    UTF8Type.instance.decompose("owner" + i),
+                    Int32Type.instance.decompose(20 + i % 60),
+                    address(i) });
+                builder.row().add("name", "name" + i).add("owner", owner);
+                break;
+            case "udt_list":
+                List<ByteBuffer> addresses = new ArrayList<>();
+                for (int seq = 0; seq < 5; seq++)
+                    addresses.add(address(i * 5 + seq));
+                builder.row().add("name", "name" + i).add("addresses", addresses);
+                break;
+        }
+        return builder.build();
+    }
+
+    private static ByteBuffer address(int i) {
+        return TupleType.buildValue(new ByteBuffer[] {
+            UTF8Type.instance.decompose(i + " Main Street"),
+            Int32Type.instance.decompose(10000 + i) });
+    }
+
+    @Benchmark
+    public void index() {
+        PartitionUpdate update = updates[next++ % PARTITIONS];
+        try (OpOrder.Group opGroup = Keyspace.writeOrder.start()) {
+            Index.Indexer indexer = index.indexerFor(update.partitionKey(), update.columns(), FBUtilities.nowInSeconds(), opGroup,
+                IndexTransaction.Type.UPDATE);
+            indexer.begin();
+            if (!update.staticRow().isEmpty())
+                indexer.insertRow(update.staticRow());
+            for (Row row : update)
+                indexer.insertRow(row);
+            indexer.finish();
+        }
+    }
+}
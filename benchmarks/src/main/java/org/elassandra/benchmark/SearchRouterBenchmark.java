@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.elassandra.cluster.routing.AbstractSearchStrategy;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search router computation on cluster state changes, and route computation on each search request,
+ * on an embedded single node owning num_tokens vnodes.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class SearchRouterBenchmark {
+
+    private ClusterService clusterService;
+    private ClusterState state;
+    private IndexMetaData indexMetaData;
+    private AbstractSearchStrategy.Router router;
+
+    @Setup
+    public void setUp() {
+        EmbeddedElassandra.process("CREATE KEYSPACE IF NOT EXISTS router WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        EmbeddedElassandra.process("CREATE TABLE IF NOT EXISTS router.t ( id text PRIMARY KEY, name text )");
+        EmbeddedElassandra.createIndex("router", Settings.EMPTY, "t", "{ \"t\" : { \"discover\" : \".*\" } }");
+
+        clusterService = EmbeddedElassandra.clusterService();
+        state = clusterService.state();
+        indexMetaData = state.metaData().index("router");
+        router = clusterService.updateRouter(indexMetaData, state);
+    }
+
+    @Benchmark
+    public AbstractSearchStrategy.Router newRouter() {
+        return clusterService.updateRouter(indexMetaData, state);
+    }
+
+    @Benchmark
+    public AbstractSearchStrategy.Router.Route newRoute() {
+        return router.newRoute(null, null);
+    }
+}
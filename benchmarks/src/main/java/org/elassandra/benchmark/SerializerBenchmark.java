@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.apache.cassandra.cql3.FieldIdentifier;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.ListType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.MapType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.marshal.UUIDType;
+import org.apache.cassandra.db.marshal.UserType;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.elassandra.cluster.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CQL value serialization as done when indexing a document through the elasticsearch API and deserialization
+ * as done when building the _source from a CQL row, for native types, collections, UDTs, nested UDTs and lists of
+ * UDTs. Serializer only depends on the CQL type, no node is started.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class SerializerBenchmark {
+
+    @Param({ "text", "bigint", "double", "timestamp", "uuid", "list<text>", "map<text,int>",
+        "frozen<address>", "frozen<person>", "list<frozen<address>>" })
+    private String cqlType;
+
+    private AbstractType<?> type;
+    private Object value;
+    private ByteBuffer serialized;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (cqlType) {
+            case "text":
+                type = UTF8Type.instance;
+                value = "The quick brown fox jumps over the lazy dog";
+                break;
+            case "bigint":
+                type = LongType.instance;
+                value = 1234567890123L;
+                break;
+            case "double":
+                type = DoubleType.instance;
+                value = 3.14159d;
+                break;
+            case "timestamp":
+                type = TimestampType.instance;
+                value = new Date(1546300800000L);
+                break;
+            case "uuid":
+                type = UUIDType.instance;
+                value = UUID.randomUUID();
+                break;
+            case "list<text>":
+                type = ListType.getInstance(UTF8Type.instance, true);
+                value = Arrays.asList("alpha", "beta", "gamma", "delta");
+                break;
+            case "map<text,int>":
+                type = MapType.getInstance(UTF8Type.instance, Int32Type.instance, true);
+                Map<String, Integer> map = new HashMap<>();
+                map.put("one", 1);
+                map.put("two", 2);
+                map.put("three", 3);
+                value = map;
+                break;
+            case "frozen<address>":
+                type = addressType();
+                value = address(1);
+                break;
+            case "frozen<person>":
+                type = userType("person", Arrays.asList("name", "age", "address"),
+                    Arrays.asList(UTF8Type.instance, Int32Type.instance, addressType()));
+                Map<String, Object> person = new HashMap<>();
+                person.put("name", "John Doe");
+                person.put("age", 42);
+                person.put("address", address(1));
+                value = person;
+                break;
+            case "list<frozen<address>>":
+                type = ListType.getInstance(addressType(), true);
+                value = Arrays.asList(address(1), address(2), address(3), address(4));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported CQL type [" + cqlType + "]");
+        }
+        serialized = Serializer.serialize("ks", "t", type, "field", value, null);
+    }
+
+    private static UserType addressType() {
+        return userType("address", Arrays.asList("street", "zip"), Arrays.asList(UTF8Type.instance, Int32Type.instance));
+    }
+
+    private static UserType userType(String name, List<String> fieldNames, List<AbstractType<?>> fieldTypes) {
+        List<FieldIdentifier> fieldIdentifiers = new ArrayList<>(fieldNames.size());
+        for (String fieldName : fieldNames)
+            fieldIdentifiers.add(FieldIdentifier.forUnquoted(fieldName));
+        return new UserType("ks", ByteBufferUtil.bytes(name), fieldIdentifiers, fieldTypes, false);
+    }
+
+    private static Map<String, Object> address(int i) {
+        Map<String, Object> address = new HashMap<>();
+        address.put("street", i + " Main Street");
+        address.put("zip", 10000 + i);
+        return address;
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() throws Exception {
+        return Serializer.serialize("ks", "t", type, "field", value, null);
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return Serializer.deserialize(type, serialized.duplicate());
+    }
+}
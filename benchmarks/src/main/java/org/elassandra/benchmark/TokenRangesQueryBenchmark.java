@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.benchmark;
+
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.search.Query;
+import org.elassandra.index.search.TokenRangesService;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token range filter built for each shard search, depending on the number of vnodes owned by the node.
+ * TokenRangesService only depends on its settings, no node is started.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class TokenRangesQueryBenchmark {
+
+    @Param({ "1", "16", "256" })
+    private int vnodes;
+
+    private List<Range<Token>> tokenRanges;
+    private TokenRangesService cachedService;
+
+    @Setup
+    public void setUp() {
+        // vnodes ranges of a node in a 3 nodes ring.
+        Random random = new Random(42);
+        long[] tokens = new long[vnodes * 3];
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = random.nextLong();
+        Arrays.sort(tokens);
+        tokenRanges = new ArrayList<>(vnodes);
+        for (int i = 0; i < tokens.length; i += 3)
+            tokenRanges.add(new Range<Token>(new LongToken(tokens[i]), new LongToken(tokens[i + 1])));
+
+        cachedService = new TokenRangesService(Settings.EMPTY);
+        cachedService.getTokenRangesQuery(tokenRanges);
+    }
+
+    @State(Scope.Thread)
+    public static class EmptyCache {
+        private TokenRangesService service;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            service = new TokenRangesService(Settings.EMPTY);
+        }
+    }
+
+    @Benchmark
+    public Query cachedQuery() {
+        return cachedService.getTokenRangesQuery(tokenRanges);
+    }
+
+    @Benchmark
+    public Query uncachedQuery(EmptyCache emptyCache) {
+        return emptyCache.service.getTokenRangesQuery(tokenRanges);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.elasticsearch.rest.ChunkedRestResponse;
+
+/**
+ * A HTTP/1.1 response whose content is serialized from a {@link ChunkedRestResponse} as it is written by the
+ * {@link Netty4ChunkedHttpResponseHandler}. It is a full response with an empty content, so that the pipelining handler orders it
+ * like the other responses.
+ */
+final class Netty4ChunkedHttpResponse extends DefaultFullHttpResponse {
+
+    private final ChunkedRestResponse body;
+
+    Netty4ChunkedHttpResponse(ChunkedRestResponse body) {
+        super(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.EMPTY_BUFFER);
+        this.body = body;
+    }
+
+    ChunkedRestResponse body() {
+        return body;
+    }
+}
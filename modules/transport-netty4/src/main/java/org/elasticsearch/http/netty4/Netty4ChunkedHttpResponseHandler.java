@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.ChunkedRestResponse;
+
+/**
+ * Sends the full HTTP/1.1 responses larger than the chunk size with the chunked transfer encoding. The content is written by a
+ * downstream {@link ChunkedWriteHandler} in zero-copy slices of the chunk size, only while the channel is writable, so that a
+ * large response is not pushed at once into the outbound buffer of the channel. The content of a {@link Netty4ChunkedHttpResponse}
+ * is serialized when its chunks are read, so only about a chunk of it is held in memory at a time. The promise of the response is
+ * completed once its last chunk is written.
+ */
+final class Netty4ChunkedHttpResponseHandler extends ChannelOutboundHandlerAdapter {
+
+    private final int chunkSize;
+
+    Netty4ChunkedHttpResponseHandler(int chunkSize) {
+        assert chunkSize > 0 : chunkSize;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof Netty4ChunkedHttpResponse) {
+            final Netty4ChunkedHttpResponse response = (Netty4ChunkedHttpResponse) msg;
+            ctx.write(newChunkedHead(response));
+            ctx.write(new HttpChunkedInput(new RestResponseChunkedInput(response.body(), chunkSize)), promise);
+            return;
+        }
+        if (msg instanceof FullHttpResponse) {
+            final FullHttpResponse response = (FullHttpResponse) msg;
+            if (response.content().readableBytes() > chunkSize && HttpVersion.HTTP_1_1.equals(response.protocolVersion())) {
+                ctx.write(newChunkedHead(response));
+                // the chunked input owns the content of the response from now on
+                ctx.write(new HttpChunkedInput(new ByteBufChunkedInput(response.content(), chunkSize)), promise);
+                return;
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    private static HttpResponse newChunkedHead(FullHttpResponse response) {
+        final HttpResponse head = new DefaultHttpResponse(response.protocolVersion(), response.status(), response.headers());
+        HttpUtil.setTransferEncodingChunked(head, true);
+        return head;
+    }
+
+    /**
+     * Reads retained slices of a buffer, and releases it when closed.
+     */
+    static final class ByteBufChunkedInput implements ChunkedInput<ByteBuf> {
+
+        private final ByteBuf content;
+        private final int chunkSize;
+        private final long length;
+
+        ByteBufChunkedInput(ByteBuf content, int chunkSize) {
+            this.content = content;
+            this.chunkSize = chunkSize;
+            this.length = content.readableBytes();
+        }
+
+        @Override
+        public boolean isEndOfInput() {
+            return content.isReadable() == false;
+        }
+
+        @Override
+        public void close() {
+            content.release();
+        }
+
+        @Override
+        @Deprecated
+        public ByteBuf readChunk(ChannelHandlerContext ctx) {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public ByteBuf readChunk(ByteBufAllocator allocator) {
+            if (content.isReadable() == false) {
+                return null;
+            }
+            return content.readRetainedSlice(Math.min(chunkSize, content.readableBytes()));
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public long progress() {
+            return length - content.readableBytes();
+        }
+    }
+
+    /**
+     * Serializes the content of a chunked rest response in chunks of about the chunk size, as the chunks are read.
+     */
+    static final class RestResponseChunkedInput implements ChunkedInput<ByteBuf> {
+
+        private final ChunkedRestResponse response;
+        private final int chunkSize;
+        private long progress;
+
+        RestResponseChunkedInput(ChunkedRestResponse response, int chunkSize) {
+            this.response = response;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean isEndOfInput() {
+            return response.isDone();
+        }
+
+        @Override
+        public void close() {
+            // the bytes of the response are released by the listener of the response promise
+        }
+
+        @Override
+        @Deprecated
+        public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Override
+        public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+            if (response.isDone()) {
+                return null;
+            }
+            final BytesReference bytes = response.encodeChunk(chunkSize);
+            final ByteBuf chunk = allocator.buffer(bytes.length());
+            boolean success = false;
+            try {
+                final BytesRefIterator iterator = bytes.iterator();
+                BytesRef slice;
+                while ((slice = iterator.next()) != null) {
+                    chunk.writeBytes(slice.bytes, slice.offset, slice.length);
+                }
+                progress += bytes.length();
+                success = true;
+                return chunk;
+            } finally {
+                if (success == false) {
+                    chunk.release();
+                }
+            }
+        }
+
+        @Override
+        public long length() {
+            return -1;
+        }
+
+        @Override
+        public long progress() {
+            return progress;
+        }
+    }
+}
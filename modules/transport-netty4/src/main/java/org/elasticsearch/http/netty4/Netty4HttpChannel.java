@@ -35,6 +35,7 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -43,6 +44,7 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipelinedRequest;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -90,11 +92,16 @@ final class Netty4HttpChannel extends AbstractRestChannel {
 
     @Override
     public void sendResponse(RestResponse response) {
+        // the content of a chunked response is serialized as it is written, when chunks are enabled
+        final boolean chunked = response instanceof ChunkedRestResponse && transport.responseChunkSize > 0 && isHttp10() == false &&
+            HttpMethod.HEAD.equals(nettyRequest.method()) == false;
         // if the response object was created upstream, then use it;
         // otherwise, create a new one
-        ByteBuf buffer = Netty4Utils.toByteBuf(response.content());
+        ByteBuf buffer = chunked ? Unpooled.EMPTY_BUFFER : Netty4Utils.toByteBuf(response.content());
         final FullHttpResponse resp;
-        if (HttpMethod.HEAD.equals(nettyRequest.method())) {
+        if (chunked) {
+            resp = new Netty4ChunkedHttpResponse((ChunkedRestResponse) response);
+        } else if (HttpMethod.HEAD.equals(nettyRequest.method())) {
             resp = newResponse(Unpooled.EMPTY_BUFFER);
         } else {
             resp = newResponse(buffer);
@@ -112,14 +119,16 @@ final class Netty4HttpChannel extends AbstractRestChannel {
         addCustomHeaders(resp, response.getHeaders());
         addCustomHeaders(resp, threadContext.getResponseHeaders());
 
-        BytesReference content = response.content();
+        BytesReference content = chunked ? BytesArray.EMPTY : response.content();
         boolean releaseContent = content instanceof Releasable;
         boolean releaseBytesStreamOutput = bytesOutputOrNull() instanceof ReleasableBytesStreamOutput;
         try {
             // If our response doesn't specify a content-type header, set one
             setHeaderField(resp, HttpHeaderNames.CONTENT_TYPE.toString(), response.contentType(), false);
             // If our response has no content-length, calculate and set one
-            setHeaderField(resp, HttpHeaderNames.CONTENT_LENGTH.toString(), String.valueOf(buffer.readableBytes()), false);
+            if (chunked == false) {
+                setHeaderField(resp, HttpHeaderNames.CONTENT_LENGTH.toString(), String.valueOf(buffer.readableBytes()), false);
+            }
 
             addCookies(resp);
 
@@ -135,6 +144,9 @@ final class Netty4HttpChannel extends AbstractRestChannel {
 
             if (isCloseConnection()) {
                 promise.addListener(ChannelFutureListener.CLOSE);
+            } else if (chunked) {
+                // the head of the response is already sent when the serialization of a chunk fails
+                promise.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
 
             final Object msg;
@@ -40,6 +40,7 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.apache.logging.log4j.LogManager;
@@ -193,6 +194,14 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         byteSizeSetting("http.netty.receive_predictor_max", SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE,
             Property.NodeScope, Property.Deprecated);
 
+    /**
+     * HTTP/1.1 responses larger than this size, and search responses, are sent with the chunked transfer encoding, in chunks of
+     * this size. 0 disables it.
+     */
+    public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RESPONSE_CHUNK_SIZE =
+        Setting.byteSizeSetting("http.netty.response_chunk_size", new ByteSizeValue(1, ByteSizeUnit.MB),
+            new ByteSizeValue(0), new ByteSizeValue(Integer.MAX_VALUE), Property.NodeScope);
+
     private final Settings settings;
     protected final NetworkService networkService;
     protected final BigArrays bigArrays;
@@ -237,6 +246,7 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
     private final int readTimeoutMillis;
 
     protected final int maxCompositeBufferComponents;
+    protected final int responseChunkSize;
     private final Dispatcher dispatcher;
 
     protected volatile ServerBootstrap serverBootstrap;
@@ -269,6 +279,7 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         this.maxInitialLineLength = SETTING_HTTP_MAX_INITIAL_LINE_LENGTH.get(settings);
         this.resetCookies = SETTING_HTTP_RESET_COOKIES.get(settings);
         this.maxCompositeBufferComponents = SETTING_HTTP_NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS.get(settings);
+        this.responseChunkSize = Math.toIntExact(SETTING_HTTP_NETTY_RESPONSE_CHUNK_SIZE.get(settings).getBytes());
         this.workerCount = SETTING_HTTP_WORKER_COUNT.get(settings);
         this.port = SETTING_HTTP_PORT.get(settings);
         // we can't make the network.bind_host a fallback since we already fall back to http.host hence the extra conditional here
@@ -625,6 +636,11 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
             if (SETTING_CORS_ENABLED.get(transport.settings())) {
                 ch.pipeline().addLast("cors", new Netty4CorsHandler(transport.getCorsConfig()));
             }
+            if (transport.responseChunkSize > 0) {
+                // above the compressor, so that the chunks are compressed as they are written
+                ch.pipeline().addLast("chunked_writer", new ChunkedWriteHandler());
+                ch.pipeline().addLast("chunked_response", new Netty4ChunkedHttpResponseHandler(transport.responseChunkSize));
+            }
             if (transport.pipelining) {
                 ch.pipeline().addLast("pipelining", new HttpPipeliningHandler(logger, transport.pipeliningMaxEvents));
             }
@@ -55,6 +55,15 @@ final class ByteBufBytesReference extends BytesReference {
         return new ByteBufBytesReference(buffer.slice(offset + from, length), length);
     }
 
+    @Override
+    public int indexOf(byte marker, int from) {
+        if (from >= length) {
+            return -1;
+        }
+        final int index = buffer.indexOf(offset + from, offset + length, marker);
+        return index == -1 ? -1 : index - offset;
+    }
+
     @Override
     public StreamInput streamInput() {
         return new ByteBufStreamInput(buffer.duplicate(), length);
@@ -20,6 +20,7 @@
 package org.elasticsearch.transport.netty4;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.TooLongFrameException;
@@ -32,6 +33,24 @@ final class Netty4SizeHeaderFrameDecoder extends ByteToMessageDecoder {
 
     private static final int HEADER_SIZE = TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
 
+    /**
+     * Pending bytes above which the network buffers are added to a composite buffer rather than copied into a
+     * single expanding buffer, so that large messages such as search results or bulk requests are not copied
+     * while they are received.
+     */
+    static final int COMPOSITE_CUMULATION_THRESHOLD = 64 * 1024;
+
+    static final Cumulator CUMULATOR = (alloc, cumulation, in) -> {
+        if (cumulation instanceof CompositeByteBuf || cumulation.readableBytes() >= COMPOSITE_CUMULATION_THRESHOLD) {
+            return COMPOSITE_CUMULATOR.cumulate(alloc, cumulation, in);
+        }
+        return MERGE_CUMULATOR.cumulate(alloc, cumulation, in);
+    };
+
+    Netty4SizeHeaderFrameDecoder() {
+        setCumulator(CUMULATOR);
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         try {
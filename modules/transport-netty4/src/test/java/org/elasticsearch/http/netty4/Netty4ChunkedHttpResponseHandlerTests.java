@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class Netty4ChunkedHttpResponseHandlerTests extends ESTestCase {
+
+    private static FullHttpResponse newResponse(HttpVersion version, ByteBuf content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(version, HttpResponseStatus.OK, content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        HttpUtil.setContentLength(response, content.readableBytes());
+        return response;
+    }
+
+    public void testLargeResponseIsChunked() {
+        final int chunkSize = randomIntBetween(16, 1024);
+        final int length = randomIntBetween(2 * chunkSize + 1, 10 * chunkSize);
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new Netty4ChunkedHttpResponseHandler(chunkSize));
+        final byte[] bytes = randomByteArrayOfLength(length);
+        final ByteBuf content = Unpooled.wrappedBuffer(bytes);
+
+        final ChannelPromise promise = channel.newPromise();
+        channel.writeAndFlush(newResponse(HttpVersion.HTTP_1_1, content), promise);
+
+        HttpResponse head = channel.readOutbound();
+        assertThat(head, not(instanceOf(FullHttpResponse.class)));
+        assertThat(head.status(), equalTo(HttpResponseStatus.OK));
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        assertThat(head.headers().get(HttpHeaderNames.CONTENT_LENGTH), nullValue());
+        assertThat(head.headers().get(HttpHeaderNames.CONTENT_TYPE), equalTo("application/json"));
+
+        final ByteBuf received = Unpooled.buffer(length);
+        while (true) {
+            HttpContent chunk = channel.readOutbound();
+            try {
+                assertTrue(chunk.content().readableBytes() <= chunkSize);
+                received.writeBytes(chunk.content());
+            } finally {
+                chunk.release();
+            }
+            if (chunk instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertThat(received, equalTo(Unpooled.wrappedBuffer(bytes)));
+        assertTrue(promise.isSuccess());
+        // the content is released once written
+        assertThat(content.refCnt(), equalTo(0));
+        assertThat(channel.readOutbound(), nullValue());
+        assertFalse(channel.finish());
+    }
+
+    public void testSmallOrHttp10ResponseIsNotChunked() {
+        final int chunkSize = randomIntBetween(16, 1024);
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new Netty4ChunkedHttpResponseHandler(chunkSize));
+
+        FullHttpResponse small = newResponse(HttpVersion.HTTP_1_1, Unpooled.wrappedBuffer(randomByteArrayOfLength(chunkSize)));
+        channel.writeAndFlush(small);
+        FullHttpResponse response = channel.readOutbound();
+        assertSame(small, response);
+        assertThat(HttpUtil.getContentLength(response), equalTo((long) chunkSize));
+        response.release();
+
+        FullHttpResponse http10 = newResponse(HttpVersion.HTTP_1_0, Unpooled.wrappedBuffer(randomByteArrayOfLength(4 * chunkSize)));
+        channel.writeAndFlush(http10);
+        response = channel.readOutbound();
+        assertSame(http10, response);
+        assertFalse(HttpUtil.isTransferEncodingChunked(response));
+        response.release();
+        assertFalse(channel.finish());
+    }
+
+    public void testChunkedRestResponseIsSerializedAsChunksAreRead() throws Exception {
+        final int chunkSize = randomIntBetween(16, 1024);
+        final int numFragments = randomIntBetween(10, 100);
+        final AtomicInteger serialized = new AtomicInteger();
+        final List<ToXContent> fragments = new ArrayList<>();
+        fragments.add((builder, params) -> builder.startObject().startArray("values"));
+        for (int i = 0; i < numFragments; i++) {
+            final String value = randomAlphaOfLengthBetween(1, 64);
+            fragments.add((builder, params) -> {
+                serialized.incrementAndGet();
+                return builder.value(value);
+            });
+        }
+        fragments.add((builder, params) -> builder.endArray().endObject());
+        final BytesReference expected = new ChunkedRestResponse(RestStatus.OK, XContentFactory.jsonBuilder(), fragments.iterator(),
+            ToXContent.EMPTY_PARAMS).content();
+        serialized.set(0);
+
+        // the fragments are serialized as the chunks are read
+        final ChunkedRestResponse response = new ChunkedRestResponse(RestStatus.OK, XContentFactory.jsonBuilder(),
+            fragments.iterator(), ToXContent.EMPTY_PARAMS);
+        final Netty4ChunkedHttpResponseHandler.RestResponseChunkedInput input =
+            new Netty4ChunkedHttpResponseHandler.RestResponseChunkedInput(response, chunkSize);
+        final ByteBuf first = input.readChunk(UnpooledByteBufAllocator.DEFAULT);
+        try {
+            assertThat(first.readableBytes(), greaterThanOrEqualTo(Math.min(chunkSize, expected.length())));
+            if (input.isEndOfInput() == false) {
+                assertThat(serialized.get(), lessThan(numFragments));
+            }
+            assertThat(input.progress(), equalTo((long) first.readableBytes()));
+        } finally {
+            first.release();
+        }
+
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new Netty4ChunkedHttpResponseHandler(chunkSize));
+        final ChannelPromise promise = channel.newPromise();
+        final ChunkedRestResponse restResponse = new ChunkedRestResponse(RestStatus.OK, XContentFactory.jsonBuilder(),
+            fragments.iterator(), ToXContent.EMPTY_PARAMS);
+        channel.writeAndFlush(new Netty4ChunkedHttpResponse(restResponse), promise);
+
+        HttpResponse head = channel.readOutbound();
+        assertThat(head, not(instanceOf(FullHttpResponse.class)));
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        assertThat(head.headers().get(HttpHeaderNames.CONTENT_LENGTH), nullValue());
+
+        final ByteBuf received = Unpooled.buffer(expected.length());
+        while (true) {
+            HttpContent chunk = channel.readOutbound();
+            try {
+                received.writeBytes(chunk.content());
+            } finally {
+                chunk.release();
+            }
+            if (chunk instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertThat(received, equalTo(Netty4Utils.toByteBuf(expected)));
+        assertTrue(restResponse.isDone());
+        assertTrue(promise.isSuccess());
+        assertFalse(channel.finish());
+    }
+}
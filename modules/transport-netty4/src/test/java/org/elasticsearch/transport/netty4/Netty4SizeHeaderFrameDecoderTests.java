@@ -19,6 +19,11 @@
 
 package org.elasticsearch.transport.netty4;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.network.NetworkService;
@@ -41,6 +46,8 @@ import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -106,4 +113,29 @@ public class Netty4SizeHeaderFrameDecoderTests extends ESTestCase {
         }
     }
 
+    public void testLargeFramesAreCumulatedWithoutCopies() {
+        EmbeddedChannel channel = new EmbeddedChannel(new Netty4SizeHeaderFrameDecoder());
+        byte[] large = randomByteArrayOfLength(randomIntBetween(2, 4) * Netty4SizeHeaderFrameDecoder.COMPOSITE_CUMULATION_THRESHOLD);
+        byte[] small = randomByteArrayOfLength(randomIntBetween(1, 128));
+        ByteBuf frames = Unpooled.buffer();
+        for (byte[] message : new byte[][] { large, small }) {
+            frames.writeByte('E').writeByte('S').writeInt(message.length).writeBytes(message);
+        }
+        // receive the frames by network buffers of 16k
+        while (frames.isReadable()) {
+            channel.writeInbound(frames.readBytes(Math.min(16 * 1024, frames.readableBytes())));
+        }
+        frames.release();
+
+        ByteBuf frame = channel.readInbound();
+        assertThat(ByteBufUtil.getBytes(frame), equalTo(large));
+        assertThat(frame.unwrap(), instanceOf(CompositeByteBuf.class));
+        frame.release();
+        frame = channel.readInbound();
+        assertThat(ByteBufUtil.getBytes(frame), equalTo(small));
+        frame.release();
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
 }
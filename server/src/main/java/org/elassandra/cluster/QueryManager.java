@@ -59,6 +59,7 @@ import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndVers
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.engine.Engine;
@@ -233,10 +234,16 @@ public class QueryManager extends AbstractComponent {
 
     public Token getToken(final String ksName, final String type, final String routing) throws JsonParseException, JsonMappingException, IOException {
         DocPrimaryKey pk = parseElasticRouting(ksName, type, routing);
-        CFMetaData cfm = SchemaManager.getCFMetaData(ksName, type);
+        return getToken(SchemaManager.getCFMetaData(ksName, type), pk.values);
+    }
+
+    /**
+     * Token of the partition key values, in the partition key columns order.
+     */
+    public Token getToken(final CFMetaData cfm, final Object[] values) {
         CBuilder builder = CBuilder.create(cfm.getKeyValidatorAsClusteringComparator());
         for (int i = 0; i < cfm.partitionKeyColumns().size(); i++)
-            builder.add(pk.values[i]);
+            builder.add(values[i]);
         return cfm.partitioner.getToken(CFMetaData.serializePartitionKey(builder.build()));
     }
 
@@ -315,7 +322,6 @@ public class QueryManager extends AbstractComponent {
                 AbstractType<?> atype = cd.type;
                 names[i] = cd.name.toString();
                 values[i] = atype.compose( Serializer.fromString(atype, elements[i].toString()) );
-                i++;
             }
             return new DocPrimaryKey(names, values) ;
         } else {
@@ -695,6 +701,41 @@ public class QueryManager extends AbstractComponent {
         return upsertDocument(indexShard, request, indexMetaData, false);
     }
 
+    /**
+     * Result of the parse and serialize stages of an {@link IndexRequest}: either a required mapping update,
+     * or a CQL insert query with its bound values ready to be executed by {@link #insertDocument(IndexShard, IndexRequest, PreparedDocument)}.
+     */
+    public static class PreparedDocument {
+        private final DocumentMapper docMapper;
+        private final Mapping mappingUpdate;
+        private final String query;
+        private final ByteBuffer[] values;
+        private final boolean ifNotExists;
+
+        PreparedDocument(DocumentMapper docMapper, Mapping mappingUpdate) {
+            this(docMapper, mappingUpdate, null, null, false);
+        }
+
+        PreparedDocument(DocumentMapper docMapper, Mapping mappingUpdate, String query, ByteBuffer[] values, boolean ifNotExists) {
+            this.docMapper = docMapper;
+            this.mappingUpdate = mappingUpdate;
+            this.query = query;
+            this.values = values;
+            this.ifNotExists = ifNotExists;
+        }
+
+        /**
+         * @return the document mapper used to parse and serialize the document.
+         */
+        public DocumentMapper docMapper() {
+            return docMapper;
+        }
+
+        public Mapping mappingUpdate() {
+            return mappingUpdate;
+        }
+    }
+
     private Map<String, Object> updateField(Map<String, Object> node, String fieldName, Object fieldValue) {
         int idx;
         if ((idx = fieldName.indexOf(".")) == -1) {
@@ -710,6 +751,14 @@ public class QueryManager extends AbstractComponent {
      * Convert an IndexRequest to a CQL insert
      */
     private Engine.IndexResult upsertDocument(final IndexShard indexShard, final IndexRequest request, final IndexMetaData indexMetaData, boolean updateOperation) throws IOException {
+        return insertDocument(indexShard, request, prepareDocument(indexShard, request, indexMetaData));
+    }
+
+    /**
+     * Parse and serialize an IndexRequest to a CQL insert query without executing it.
+     * This CPU bound stage does not depend on other documents and may run concurrently for several requests.
+     */
+    public PreparedDocument prepareDocument(final IndexShard indexShard, final IndexRequest request, final IndexMetaData indexMetaData) throws IOException {
         final SourceToParse sourceToParse = SourceToParse.source(request.index(), request.type(), request.id(), request.source(), request.getContentType());
         if (request.routing() != null)
             sourceToParse.routing(request.routing());
@@ -732,7 +781,7 @@ public class QueryManager extends AbstractComponent {
                 logger.debug("Document source={} require a blocking mapping update of [{}] mapping={}",
                     request.sourceAsMap(), indexShard.shardId().getIndex().getName(), mappingUpdate);
             // retry done by the caller once the mapping is updated
-            return new Engine.IndexResult(mappingUpdate);
+            return new PreparedDocument(docMapper, mappingUpdate);
         }
 
         final String keyspaceName = indexMetaData.keyspace();
@@ -759,7 +808,9 @@ public class QueryManager extends AbstractComponent {
         Map<String, ByteBuffer> map = new HashMap<String, ByteBuffer>();
         if (indexMetaData.isOpaqueStorage()) {
             map.put(IdFieldMapper.NAME, Serializer.serialize(request.index(), cfName, cfm.getColumnDefinition(docMapper.idFieldMapper().cqlName()).type, IdFieldMapper.NAME, id, docMapper.idFieldMapper()));
-            map.put(SourceFieldMapper.NAME, Serializer.serialize(request.index(), cfName, cfm.getColumnDefinition(docMapper.sourceMapper().cqlName()).type, SourceFieldMapper.NAME, request.source(), docMapper.sourceMapper()));
+            // store _source in the binary opaque_storage_format to avoid JSON tokenization when indexing on replicas.
+            final BytesReference source = XContentHelper.convert(request.source(), request.getContentType(), indexMetaData.opaqueStorageFormat());
+            map.put(SourceFieldMapper.NAME, Serializer.serialize(request.index(), cfName, cfm.getColumnDefinition(docMapper.sourceMapper().cqlName()).type, SourceFieldMapper.NAME, source, docMapper.sourceMapper()));
         } else {
             if (request.parent() != null)
                 sourceMap.put(ParentFieldMapper.NAME, request.parent());
@@ -854,9 +905,7 @@ public class QueryManager extends AbstractComponent {
             query = buildInsertQuery(keyspaceName, cfName, map, id,
                     true,
                     values, 0);
-            final boolean applied = this.clusterService.processWriteConditional(request.waitForActiveShards().toCassandraConsistencyLevel(), ConsistencyLevel.LOCAL_SERIAL, query, (Object[])values);
-            if (!applied)
-                throw new VersionConflictEngineException(indexShard.shardId(), cfName, request.id(), "PAXOS insert failed, document already exists");
+            return new PreparedDocument(docMapper, null, query, values, true);
         } else {
             ElasticSecondaryIndex esi = ElasticSecondaryIndex.elasticSecondayIndices.get(keyspaceName+"."+cfName);
             ByteBuffer NULL_VALUE = (esi == null || !esi.isInsertOnly()) ? null : ByteBufferUtil.UNSET_BYTE_BUFFER;
@@ -871,7 +920,23 @@ public class QueryManager extends AbstractComponent {
             }
             values = new ByteBuffer[map.size()];
             query = buildInsertQuery(keyspaceName, cfName, map, id, false, values, 0);
-            this.clusterService.process(request.waitForActiveShards().toCassandraConsistencyLevel(), query, (Object[])values);
+            return new PreparedDocument(docMapper, null, query, values, false);
+        }
+    }
+
+    /**
+     * Execute the CQL insert of a prepared IndexRequest.
+     */
+    public Engine.IndexResult insertDocument(final IndexShard indexShard, final IndexRequest request, final PreparedDocument prepared) throws IOException {
+        if (prepared.mappingUpdate != null)
+            return new Engine.IndexResult(prepared.mappingUpdate);
+
+        if (prepared.ifNotExists) {
+            final boolean applied = this.clusterService.processWriteConditional(request.waitForActiveShards().toCassandraConsistencyLevel(), ConsistencyLevel.LOCAL_SERIAL, prepared.query, (Object[])prepared.values);
+            if (!applied)
+                throw new VersionConflictEngineException(indexShard.shardId(), SchemaManager.typeToCfName(indexShard.mapperService().keyspace(), request.type()), request.id(), "PAXOS insert failed, document already exists");
+        } else {
+            this.clusterService.process(request.waitForActiveShards().toCassandraConsistencyLevel(), prepared.query, (Object[])prepared.values);
         }
 
         assert request.versionType().validateVersionForWrites(request.version());
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.cluster.routing;
+
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.logging.log4j.Logger;
+import org.elassandra.cluster.QueryManager;
+import org.elassandra.cluster.SchemaManager;
+import org.elassandra.index.mapper.internal.TokenFieldMapper;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.mapper.BooleanFieldMapper;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.IpFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.IdsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compute the token ranges a search query can match from partition key equality (term, terms and ids queries)
+ * and _token range clauses, so that the coordinator only sends the search to nodes owning these tokens.
+ * Term values are converted to partition key values through the mapped field type, and the search is broadcasted
+ * when a term may match several partition keys (normalized keywords, date strings, CIDR or half_float terms).
+ * Only support Murmur3 Long Token.
+ */
+public final class TokenAwareRouting {
+    private static final Logger logger = Loggers.getLogger(TokenAwareRouting.class);
+
+    /**
+     * Maximum number of partition keys resolved from a query, above this limit the query is broadcasted.
+     */
+    public static final int MAX_PARTITION_KEYS = 1024;
+
+    private TokenAwareRouting() {
+    }
+
+    /**
+     * Return the token ranges matching the query for all the searched types, or null if the query is not restricted
+     * to some partitions. Each partition key is returned as the range (token - 1, token].
+     */
+    @Nullable
+    public static Collection<Range<Token>> tokenRanges(QueryManager queryManager, @Nullable MapperService mapperService, IndexMetaData indexMetaData,
+            @Nullable String[] types, @Nullable QueryBuilder query) {
+        if (query == null || mapperService == null)
+            return null;
+
+        List<String> searchedTypes = new ArrayList<>();
+        if (types != null && types.length > 0) {
+            for (String type : types)
+                searchedTypes.add(type);
+        } else {
+            for (ObjectCursor<String> cursor : indexMetaData.getMappings().keys()) {
+                if (!MapperService.DEFAULT_MAPPING.equals(cursor.value))
+                    searchedTypes.add(cursor.value);
+            }
+        }
+        if (searchedTypes.isEmpty())
+            return null;
+
+        final String ksName = indexMetaData.keyspace();
+        final List<Range<Token>> ranges = new ArrayList<>();
+        for (String type : searchedTypes) {
+            try {
+                CFMetaData cfm = SchemaManager.getCFMetaData(ksName, SchemaManager.typeToCfName(ksName, type));
+                if (cfm == null)
+                    return null;
+                Collection<Range<Token>> typeRanges = tokenRanges(queryManager, mapperService, ksName, type, cfm, query);
+                if (typeRanges == null)
+                    return null;
+                ranges.addAll(typeRanges);
+            } catch (Exception e) {
+                logger.debug("Failed to compute token ranges for index [{}] type [{}], broadcasting search: {}",
+                        indexMetaData.getIndex().getName(), type, e.toString());
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    private static Collection<Range<Token>> tokenRanges(QueryManager queryManager, MapperService mapperService, String ksName, String type,
+            CFMetaData cfm, QueryBuilder query) throws Exception {
+        if (query instanceof ConstantScoreQueryBuilder)
+            return tokenRanges(queryManager, mapperService, ksName, type, cfm, ((ConstantScoreQueryBuilder) query).innerQuery());
+
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+            List<QueryBuilder> clauses = new ArrayList<>(boolQuery.must());
+            clauses.addAll(boolQuery.filter());
+            if (clauses.isEmpty())
+                return null;
+
+            // partition key columns may be constrained by distinct clauses.
+            Map<String, Set<Object>> columnValues = new HashMap<>();
+            for (QueryBuilder clause : clauses)
+                collectColumnValues(clause, columnValues);
+            Collection<Range<Token>> ranges = partitionKeyRanges(queryManager, mapperService, cfm, columnValues);
+            if (ranges != null)
+                return ranges;
+
+            for (QueryBuilder clause : clauses) {
+                ranges = tokenRanges(queryManager, mapperService, ksName, type, cfm, clause);
+                if (ranges != null)
+                    return ranges;
+            }
+            return null;
+        }
+
+        if (query instanceof IdsQueryBuilder) {
+            // _id is the partition key when there are no clustering columns.
+            if (!cfm.clusteringColumns().isEmpty())
+                return null;
+            IdsQueryBuilder idsQuery = (IdsQueryBuilder) query;
+            if (idsQuery.types().length > 0 && !Arrays.asList(idsQuery.types()).contains(type))
+                return null;
+            if (idsQuery.ids().size() > MAX_PARTITION_KEYS)
+                return null;
+            List<Range<Token>> ranges = new ArrayList<>(idsQuery.ids().size());
+            for (String id : idsQuery.ids())
+                ranges.add(tokenRange(queryManager.getToken(ksName, type, id)));
+            return ranges;
+        }
+
+        if (query instanceof RangeQueryBuilder && TokenFieldMapper.NAME.equals(((RangeQueryBuilder) query).fieldName()))
+            return tokenRange((RangeQueryBuilder) query);
+
+        Map<String, Set<Object>> columnValues = new HashMap<>();
+        collectColumnValues(query, columnValues);
+        return partitionKeyRanges(queryManager, mapperService, cfm, columnValues);
+    }
+
+    private static void collectColumnValues(QueryBuilder query, Map<String, Set<Object>> columnValues) {
+        if (query instanceof TermQueryBuilder) {
+            TermQueryBuilder termQuery = (TermQueryBuilder) query;
+            if (!columnValues.containsKey(termQuery.fieldName()) && termQuery.value() != null) {
+                Set<Object> values = new HashSet<>();
+                values.add(termQuery.value());
+                columnValues.put(termQuery.fieldName(), values);
+            }
+        } else if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder termsQuery = (TermsQueryBuilder) query;
+            if (!columnValues.containsKey(termsQuery.fieldName()) && termsQuery.termsLookup() == null && termsQuery.values() != null)
+                columnValues.put(termsQuery.fieldName(), new HashSet<>(termsQuery.values()));
+        }
+    }
+
+    private static Collection<Range<Token>> partitionKeyRanges(QueryManager queryManager, MapperService mapperService, CFMetaData cfm,
+            Map<String, Set<Object>> columnValues) throws Exception {
+        List<List<Object>> partitionKeys = new ArrayList<>();
+        partitionKeys.add(new ArrayList<>());
+        for (ColumnDefinition cd : cfm.partitionKeyColumns()) {
+            Set<Object> values = columnValues.get(cd.name.toString());
+            if (values == null || values.isEmpty() || partitionKeys.size() * values.size() > MAX_PARTITION_KEYS)
+                return null;
+            MappedFieldType fieldType = mapperService.fullName(cd.name.toString());
+            if (fieldType == null)
+                return null;
+            List<Object> cqlValues = new ArrayList<>(values.size());
+            for (Object value : values) {
+                Object cqlValue = exactCqlValue(fieldType, cd.type, value);
+                if (cqlValue == null)
+                    return null;
+                cqlValues.add(cqlValue);
+            }
+            List<List<Object>> product = new ArrayList<>(partitionKeys.size() * cqlValues.size());
+            for (List<Object> partitionKey : partitionKeys) {
+                for (Object cqlValue : cqlValues) {
+                    List<Object> pk = new ArrayList<>(partitionKey);
+                    pk.add(cqlValue);
+                    product.add(pk);
+                }
+            }
+            partitionKeys = product;
+        }
+
+        List<Range<Token>> ranges = new ArrayList<>(partitionKeys.size());
+        for (List<Object> partitionKey : partitionKeys)
+            ranges.add(tokenRange(queryManager.getToken(cfm, partitionKey.toArray())));
+        return ranges;
+    }
+
+    /**
+     * Convert a term value to the partition key value indexed with this term, or return null when the term
+     * may match several partition key values or cannot be converted to the cassandra type.
+     */
+    @Nullable
+    static Object exactCqlValue(MappedFieldType fieldType, AbstractType<?> atype, Object value) {
+        Object cqlValue = null;
+        try {
+            if (fieldType instanceof KeywordFieldMapper.KeywordFieldType) {
+                // a normalized term matches all the keys having the same normalized form.
+                if (((KeywordFieldMapper.KeywordFieldType) fieldType).normalizer() == null)
+                    cqlValue = fieldType.cqlValue(value.toString(), atype);
+            } else if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+                // a half_float term matches all the values rounded to the same half_float.
+                if (!NumberFieldMapper.NumberType.HALF_FLOAT.typeName().equals(fieldType.typeName()))
+                    cqlValue = fieldType.cqlValue(value, atype);
+            } else if (fieldType instanceof DateFieldMapper.DateFieldType) {
+                // a date string is rounded to the precision of its format, epoch millis are exact.
+                if (value instanceof Long || value instanceof Integer)
+                    cqlValue = fieldType.cqlValue(value, atype);
+            } else if (fieldType instanceof BooleanFieldMapper.BooleanFieldType) {
+                if (value instanceof Boolean)
+                    cqlValue = value;
+            } else if (fieldType instanceof IpFieldMapper.IpFieldType) {
+                // a CIDR term matches a range of addresses.
+                if (value.toString().indexOf('/') == -1)
+                    cqlValue = fieldType.cqlValue(value.toString(), atype);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (cqlValue == null || !atype.getSerializer().getType().isInstance(cqlValue))
+            return null;
+        return cqlValue;
+    }
+
+    private static Range<Token> tokenRange(Token token) {
+        return new Range<Token>(new LongToken((Long) token.getTokenValue() - 1), token);
+    }
+
+    private static Collection<Range<Token>> tokenRange(RangeQueryBuilder rangeQuery) {
+        long left = Long.MIN_VALUE;
+        long right = Long.MAX_VALUE;
+        try {
+            // cassandra ranges are (left, right]
+            if (rangeQuery.from() != null) {
+                left = Long.parseLong(rangeQuery.from().toString());
+                if (rangeQuery.includeLower() && left > Long.MIN_VALUE)
+                    left--;
+            }
+            if (rangeQuery.to() != null) {
+                right = Long.parseLong(rangeQuery.to().toString());
+                if (!rangeQuery.includeUpper())
+                    right--;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (left >= right)
+            return null;
+        List<Range<Token>> ranges = new ArrayList<>(1);
+        ranges.add(new Range<Token>(new LongToken(left), new LongToken(right)));
+        return ranges;
+    }
+}
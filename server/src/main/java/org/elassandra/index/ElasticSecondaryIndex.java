@@ -2270,9 +2270,12 @@ public class ElasticSecondaryIndex implements Index {
                             if (indexInfo.opaque_storage) {
                                 final DocumentMapper docMapper = indexInfo.indexService.mapperService().documentMapper(typeName);
                                 final ByteBuffer bb = (ByteBuffer) values[indexInfo.indexOf(SourceFieldMapper.NAME)];
-                                final BytesReference source = new BytesArray(bb.array(), bb.position(), bb.limit() - bb.position());
+                                final BytesReference source = new BytesArray(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
 
-                                final SourceToParse sourceToParse = SourceToParse.source(indexInfo.name, typeName, id, source, XContentType.JSON);
+                                // _source may be stored as SMILE or CBOR (see index.index_opaque_storage_format), parsed without JSON tokenization.
+                                final XContentType sourceContentType = XContentFactory.xContentType(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+                                final SourceToParse sourceToParse = SourceToParse.source(indexInfo.name, typeName, id, source,
+                                    sourceContentType == null ? XContentType.JSON : sourceContentType);
                                 sourceToParse.token((Long)key.getToken().getTokenValue());
 
                                 if ((this instanceof WideRowcument || docMapper.routingFieldMapper().fieldType().hasDocValues()) &&  baseCfs.metadata.partitionKeyColumns().size() > 1)
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.histogram.InternalDateHistogram;
+import org.elasticsearch.search.aggregations.bucket.terms.InternalTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.avg.InternalAvg;
+import org.elasticsearch.search.aggregations.metrics.sum.InternalSum;
+import org.elasticsearch.search.aggregations.metrics.valuecount.InternalValueCount;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.NUM_MOMENTS;
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.SUM_M;
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.SUM_M2;
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.SUM_Y;
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.SUM_Y2;
+import static org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregator.SUM_YM;
+
+/**
+ * Result of the token_sampler aggregation, the doc count of the sample and the estimated doc count of the whole
+ * data set with its 95% confidence error. Sub-aggregations are computed on the sample, and scaled up to the whole
+ * data set on the final reduce, with the 95% confidence intervals of the terms and date_histogram bucket counts, of
+ * the value_count, and of the sum and avg sub-aggregations.
+ */
+public class InternalTokenSampler extends InternalSingleBucketAggregation {
+    public static final String SAMPLE_FRACTION = "sample_fraction";
+    public static final String ESTIMATED_DOC_COUNT = "estimated_doc_count";
+    public static final String ESTIMATED_DOC_COUNT_ERROR = "estimated_doc_count_error";
+    public static final String CONFIDENCE_INTERVALS = "confidence_intervals";
+    public static final String LOWER = "lower";
+    public static final String UPPER = "upper";
+
+    // two-sided 95% quantile of the normal distribution
+    private static final double Z = 1.96;
+
+    private final double fraction;
+    private final Map<String, double[]> moments;
+    private final Map<String, Object> confidenceIntervals;
+
+    InternalTokenSampler(String name, long docCount, double fraction, InternalAggregations subAggregations,
+                         Map<String, double[]> moments, Map<String, Object> confidenceIntervals,
+                         List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, docCount, subAggregations, pipelineAggregators, metaData);
+        this.fraction = fraction;
+        this.moments = moments;
+        this.confidenceIntervals = confidenceIntervals;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalTokenSampler(StreamInput in) throws IOException {
+        super(in);
+        fraction = in.readDouble();
+        moments = in.readMap(StreamInput::readString, StreamInput::readDoubleArray);
+        confidenceIntervals = in.readMap();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        super.doWriteTo(out);
+        out.writeDouble(fraction);
+        out.writeMap(moments, StreamOutput::writeString, StreamOutput::writeDoubleArray);
+        out.writeMap(confidenceIntervals);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return TokenSamplerAggregationBuilder.NAME;
+    }
+
+    @Override
+    protected InternalSingleBucketAggregation newAggregation(String name, long docCount, InternalAggregations subAggregations) {
+        return new InternalTokenSampler(name, docCount, fraction, subAggregations, moments, confidenceIntervals, pipelineAggregators(),
+            getMetaData());
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        long docCount = 0L;
+        final Map<String, double[]> moments = new HashMap<>();
+        final List<InternalAggregations> subAggregationsList = new ArrayList<>(aggregations.size());
+        for (InternalAggregation aggregation : aggregations) {
+            final InternalTokenSampler sampler = (InternalTokenSampler) aggregation;
+            docCount += sampler.getDocCount();
+            subAggregationsList.add(sampler.getAggregations());
+            for (Map.Entry<String, double[]> entry : sampler.moments.entrySet()) {
+                final double[] sum = moments.computeIfAbsent(entry.getKey(), k -> new double[NUM_MOMENTS]);
+                for (int i = 0; i < NUM_MOMENTS; i++) {
+                    sum[i] += entry.getValue()[i];
+                }
+            }
+        }
+        final InternalAggregations subAggregations = InternalAggregations.reduce(subAggregationsList, reduceContext);
+        if (reduceContext.isFinalReduce() == false) {
+            return new InternalTokenSampler(name, docCount, fraction, subAggregations, moments, Collections.emptyMap(),
+                pipelineAggregators(), getMetaData());
+        }
+        // intervals are computed from the sample, before the sub-aggregations are scaled up to the whole data set.
+        return new InternalTokenSampler(name, docCount, fraction, InternalAggregations.finalizeSampling(subAggregations, fraction),
+            Collections.emptyMap(), confidenceIntervals(subAggregations, moments), pipelineAggregators(), getMetaData());
+    }
+
+    /**
+     * Confidence intervals of the sub-aggregations, assuming independently sampled docs. The variance of a sum is
+     * estimated by (1 - fraction) * sum(y^2) / fraction^2, and the one of an average by the ratio estimator
+     * (1 - fraction) * sum((y - avg * m)^2) / sum(m)^2, y being the sum of the values of a doc and m their count.
+     */
+    private Map<String, Object> confidenceIntervals(InternalAggregations subAggregations, Map<String, double[]> moments) {
+        final Map<String, Object> intervals = new LinkedHashMap<>();
+        for (Aggregation aggregation : subAggregations) {
+            final double[] m = moments.get(aggregation.getName());
+            if (aggregation instanceof InternalSum && m != null) {
+                intervals.put(aggregation.getName(), interval(m[SUM_Y] / fraction, Z * Math.sqrt((1 - fraction) * m[SUM_Y2]) / fraction));
+            } else if (aggregation instanceof InternalAvg && m != null && m[SUM_M] > 0) {
+                final double avg = m[SUM_Y] / m[SUM_M];
+                final double residuals = Math.max(0, m[SUM_Y2] - 2 * avg * m[SUM_YM] + avg * avg * m[SUM_M2]);
+                intervals.put(aggregation.getName(), interval(avg, Z * Math.sqrt((1 - fraction) * residuals) / m[SUM_M]));
+            } else if (aggregation instanceof InternalValueCount) {
+                intervals.put(aggregation.getName(), countInterval(((InternalValueCount) aggregation).getValue()));
+            } else if (aggregation instanceof InternalTerms) {
+                final Map<String, Object> buckets = new LinkedHashMap<>();
+                for (Terms.Bucket bucket : ((InternalTerms<?, ?>) aggregation).getBuckets()) {
+                    buckets.put(bucket.getKeyAsString(), countInterval(bucket.getDocCount()));
+                }
+                intervals.put(aggregation.getName(), buckets);
+            } else if (aggregation instanceof InternalDateHistogram) {
+                final Map<String, Object> buckets = new LinkedHashMap<>();
+                for (Histogram.Bucket bucket : ((InternalDateHistogram) aggregation).getBuckets()) {
+                    buckets.put(bucket.getKeyAsString(), countInterval(bucket.getDocCount()));
+                }
+                intervals.put(aggregation.getName(), buckets);
+            }
+        }
+        return intervals;
+    }
+
+    private Map<String, Object> countInterval(long sampleCount) {
+        return interval(sampleCount / fraction, Z * Math.sqrt(sampleCount * (1 - fraction)) / fraction);
+    }
+
+    private static Map<String, Object> interval(double estimate, double error) {
+        final Map<String, Object> interval = new LinkedHashMap<>(2);
+        interval.put(LOWER, estimate - error);
+        interval.put(UPPER, estimate + error);
+        return interval;
+    }
+
+    /**
+     * Sampled fraction of the token ring, the sub-aggregations are scaled up by its inverse on the final reduce.
+     */
+    public double getSampleFraction() {
+        return fraction;
+    }
+
+    public long getEstimatedDocCount() {
+        return Math.round(getDocCount() / fraction);
+    }
+
+    /**
+     * Half width of the 95% confidence interval of the estimated doc count, assuming independently sampled docs.
+     */
+    public long getEstimatedDocCountError() {
+        return Math.round(Z * Math.sqrt(getDocCount() * (1 - fraction)) / fraction);
+    }
+
+    /**
+     * 95% confidence intervals of the sub-aggregations by name, a <code>lower</code> and <code>upper</code> bound for the
+     * sum, avg and value_count aggregations, and the bounds of each bucket doc count by key for the terms and date_histogram
+     * aggregations. Empty until the final reduce.
+     */
+    public Map<String, Object> getConfidenceIntervals() {
+        return confidenceIntervals;
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(CommonFields.DOC_COUNT.getPreferredName(), getDocCount());
+        builder.field(SAMPLE_FRACTION, fraction);
+        builder.field(ESTIMATED_DOC_COUNT, getEstimatedDocCount());
+        builder.field(ESTIMATED_DOC_COUNT_ERROR, getEstimatedDocCountError());
+        if (confidenceIntervals.isEmpty() == false) {
+            builder.field(CONFIDENCE_INTERVALS, confidenceIntervals);
+        }
+        getAggregations().toXContentInternal(builder, params);
+        return builder;
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        InternalTokenSampler other = (InternalTokenSampler) obj;
+        return super.doEquals(obj) && Objects.equals(fraction, other.fraction) && momentsEquals(other.moments)
+            && Objects.equals(confidenceIntervals, other.confidenceIntervals);
+    }
+
+    private boolean momentsEquals(Map<String, double[]> otherMoments) {
+        if (moments.keySet().equals(otherMoments.keySet()) == false) {
+            return false;
+        }
+        for (Map.Entry<String, double[]> entry : moments.entrySet()) {
+            if (Arrays.equals(entry.getValue(), otherMoments.get(entry.getKey())) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(super.doHashCode(), fraction, confidenceIntervals);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValueType;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregate a sample of the documents, selected by _token in a fraction of each stratum of the Cassandra token ring.
+ */
+public class TokenSamplerAggregationBuilder extends AbstractAggregationBuilder<TokenSamplerAggregationBuilder> {
+    public static final String NAME = "token_sampler";
+
+    public static final ParseField FRACTION_FIELD = new ParseField("fraction");
+    public static final ParseField STRATA_FIELD = new ParseField("strata");
+
+    public static final double DEFAULT_FRACTION = 0.1;
+    public static final int DEFAULT_STRATA = 256;
+    public static final int MAX_STRATA = 1 << 16;
+
+    private static final ObjectParser<TokenSamplerAggregationBuilder, Void> PARSER;
+    static {
+        PARSER = new ObjectParser<>(TokenSamplerAggregationBuilder.NAME);
+        PARSER.declareDouble(TokenSamplerAggregationBuilder::fraction, FRACTION_FIELD);
+        PARSER.declareInt(TokenSamplerAggregationBuilder::strata, STRATA_FIELD);
+    }
+
+    public static AggregationBuilder parse(String aggregationName, XContentParser parser) throws IOException {
+        return PARSER.parse(parser, new TokenSamplerAggregationBuilder(aggregationName), null);
+    }
+
+    private double fraction = DEFAULT_FRACTION;
+    private int strata = DEFAULT_STRATA;
+
+    public TokenSamplerAggregationBuilder(String name) {
+        super(name);
+    }
+
+    protected TokenSamplerAggregationBuilder(TokenSamplerAggregationBuilder clone, Builder factoriesBuilder, Map<String, Object> metaData) {
+        super(clone, factoriesBuilder, metaData);
+        this.fraction = clone.fraction;
+        this.strata = clone.strata;
+    }
+
+    @Override
+    protected AggregationBuilder shallowCopy(Builder factoriesBuilder, Map<String, Object> metaData) {
+        return new TokenSamplerAggregationBuilder(this, factoriesBuilder, metaData);
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public TokenSamplerAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        fraction = in.readDouble();
+        strata = in.readVInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeDouble(fraction);
+        out.writeVInt(strata);
+    }
+
+    /**
+     * Set the fraction of the token ring to sample, in (0, 1].
+     */
+    public TokenSamplerAggregationBuilder fraction(double fraction) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("[" + FRACTION_FIELD.getPreferredName() + "] must be in (0, 1] in [" + name + "]");
+        }
+        this.fraction = fraction;
+        return this;
+    }
+
+    public double fraction() {
+        return fraction;
+    }
+
+    /**
+     * Set the number of strata of the token ring, a power of two. Each stratum is sampled on the same fraction of its token range.
+     */
+    public TokenSamplerAggregationBuilder strata(int strata) {
+        if (strata < 1 || strata > MAX_STRATA || Integer.bitCount(strata) != 1) {
+            throw new IllegalArgumentException("[" + STRATA_FIELD.getPreferredName() + "] must be a power of two between 1 and " +
+                MAX_STRATA + " in [" + name + "]");
+        }
+        this.strata = strata;
+        return this;
+    }
+
+    public int strata() {
+        return strata;
+    }
+
+    @Override
+    protected TokenSamplerAggregatorFactory doBuild(SearchContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
+            throws IOException {
+        return new TokenSamplerAggregatorFactory(name, fraction, strata, momentSources(context, subFactoriesBuilder), context, parent,
+            subFactoriesBuilder, metaData);
+    }
+
+    /**
+     * Values sources of the sum and avg sub-aggregations, whose per document moments give their confidence intervals.
+     */
+    private static Map<String, ValuesSource.Numeric> momentSources(SearchContext context, Builder subFactoriesBuilder)
+            throws IOException {
+        final Map<String, ValuesSource.Numeric> momentSources = new LinkedHashMap<>();
+        for (AggregationBuilder subAggregation : subFactoriesBuilder.getAggregatorFactories()) {
+            if (subAggregation instanceof SumAggregationBuilder || subAggregation instanceof AvgAggregationBuilder) {
+                final ValuesSourceAggregationBuilder<?, ?> metric = (ValuesSourceAggregationBuilder<?, ?>) subAggregation;
+                final ValuesSourceConfig<ValuesSource> config = ValuesSourceConfig.resolve(context.getQueryShardContext(),
+                    metric.valueType() != null ? metric.valueType() : ValueType.NUMERIC, metric.field(), metric.script(),
+                    metric.missing(), metric.timeZone(), metric.format());
+                final ValuesSource valuesSource = config.toValuesSource(context.getQueryShardContext());
+                // scripts using the score are not supported, the sampler does not collect scores.
+                if (valuesSource instanceof ValuesSource.Numeric && valuesSource.needsScores() == false) {
+                    momentSources.put(metric.getName(), (ValuesSource.Numeric) valuesSource);
+                }
+            }
+        }
+        return momentSources;
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(FRACTION_FIELD.getPreferredName(), fraction);
+        builder.field(STRATA_FIELD.getPreferredName(), strata);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fraction, strata);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        TokenSamplerAggregationBuilder other = (TokenSamplerAggregationBuilder) obj;
+        return Objects.equals(fraction, other.fraction) && Objects.equals(strata, other.strata);
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.search.aggregations.bucket.sampler;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.elassandra.index.mapper.internal.TokenFieldMapper;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate the docs whose _token falls in the sampled part of its token ring stratum. The token ring is split
+ * in strata of equal width, and the first fraction of each stratum is sampled, so that the sample is spread over
+ * all the nodes and all the partitions have the same probability to be sampled.
+ * <p>
+ * When the token_sampler is the only aggregation of a search without hits, the query is restricted to the sampled
+ * token ranges by {@link #sampleQuery(int, double)}, so that the other documents are not visited. The sampled check
+ * of each collected doc remains for the other cases.
+ */
+public class TokenSamplerAggregator extends BucketsAggregator implements SingleBucketAggregator {
+
+    // per document moments of the sum and avg sub-aggregations, y being the sum of the values and m their count.
+    static final int SUM_Y = 0;
+    static final int SUM_Y2 = 1;
+    static final int SUM_M = 2;
+    static final int SUM_M2 = 3;
+    static final int SUM_YM = 4;
+    static final int NUM_MOMENTS = 5;
+
+    private final int shift;
+    private final long threshold;
+    private final double fraction;
+    private final String[] momentNames;
+    private final ValuesSource.Numeric[] momentSources;
+    private DoubleArray moments;
+
+    public TokenSamplerAggregator(String name, AggregatorFactories factories, double fraction, int strata,
+                                  Map<String, ValuesSource.Numeric> momentSources, SearchContext context, Aggregator parent,
+                                  List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.shift = Integer.numberOfTrailingZeros(strata);
+        this.threshold = threshold(fraction);
+        this.fraction = (double) threshold / (1L << 32);
+        this.momentNames = momentSources.keySet().toArray(new String[0]);
+        this.momentSources = momentSources.values().toArray(new ValuesSource.Numeric[0]);
+        this.moments = momentNames.length > 0 ? context.bigArrays().newDoubleArray(NUM_MOMENTS * momentNames.length, true) : null;
+    }
+
+    /**
+     * Sampled width of each stratum, in 1/2^32 of the stratum width. Offsets in a stratum are compared on 32 bits, the
+     * effective fraction is rounded accordingly.
+     */
+    static long threshold(double fraction) {
+        return Math.max(1L, (long) (fraction * (1L << 32)));
+    }
+
+    /**
+     * Returns a query matching the _token of the sampled part of each stratum, or null when the whole token ring is sampled
+     * or when there are more strata than the maximum number of boolean clauses.
+     */
+    static Query sampleQuery(int strata, double fraction) {
+        final long threshold = threshold(fraction);
+        if (threshold >= (1L << 32) || strata > BooleanQuery.getMaxClauseCount()) {
+            return null;
+        }
+        final int shift = Integer.numberOfTrailingZeros(strata);
+        // unsigned width of the sampled part of a stratum, lower than the stratum width 2^(64-shift).
+        final long sampledWidth = threshold << (32 - shift);
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (long stratum = 0; stratum < strata; stratum++) {
+            final long start = shift == 0 ? 0 : stratum << (64 - shift);
+            builder.add(LongPoint.newRangeQuery(TokenFieldMapper.NAME, start ^ Long.MIN_VALUE, (start + sampledWidth - 1) ^ Long.MIN_VALUE),
+                Occur.SHOULD);
+        }
+        builder.setMinimumNumberShouldMatch(1);
+        return builder.build();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        final SortedNumericDoubleValues[] momentValues = new SortedNumericDoubleValues[momentSources.length];
+        for (int i = 0; i < momentSources.length; i++) {
+            momentValues[i] = momentSources[i].doubleValues(ctx);
+        }
+        // _token is indexed as sorted numeric doc values, with a single value per document.
+        final SortedNumericDocValues values = DocValues.getSortedNumeric(ctx.reader(), TokenFieldMapper.NAME);
+        final NumericDocValues tokens = DocValues.unwrapSingleton(values);
+        if (tokens != null) {
+            return new LeafBucketCollectorBase(sub, null) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    if (tokens.advanceExact(doc) && sampled(tokens.longValue())) {
+                        collectBucket(sub, doc, bucket);
+                        collectMoments(momentValues, doc, bucket);
+                    }
+                }
+            };
+        }
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if (values.advanceExact(doc) && sampled(values.nextValue())) {
+                    collectBucket(sub, doc, bucket);
+                    collectMoments(momentValues, doc, bucket);
+                }
+            }
+        };
+    }
+
+    /**
+     * Unsigned token offset in its stratum, on 32 bits, compared to the sampled width.
+     */
+    private boolean sampled(long token) {
+        return (((token ^ Long.MIN_VALUE) << shift) >>> 32) < threshold;
+    }
+
+    private void collectMoments(SortedNumericDoubleValues[] momentValues, int doc, long bucket) throws IOException {
+        for (int i = 0; i < momentValues.length; i++) {
+            if (momentValues[i].advanceExact(doc)) {
+                final int count = momentValues[i].docValueCount();
+                double sum = 0;
+                for (int j = 0; j < count; j++) {
+                    sum += momentValues[i].nextValue();
+                }
+                final long index = (bucket * momentValues.length + i) * NUM_MOMENTS;
+                moments = context.bigArrays().grow(moments, index + NUM_MOMENTS);
+                moments.increment(index + SUM_Y, sum);
+                moments.increment(index + SUM_Y2, sum * sum);
+                moments.increment(index + SUM_M, count);
+                moments.increment(index + SUM_M2, (double) count * count);
+                moments.increment(index + SUM_YM, sum * count);
+            }
+        }
+    }
+
+    private Map<String, double[]> bucketMoments(long owningBucketOrdinal) {
+        if (momentNames.length == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<String, double[]> bucketMoments = new HashMap<>(momentNames.length);
+        for (int i = 0; i < momentNames.length; i++) {
+            final long index = (owningBucketOrdinal * momentNames.length + i) * NUM_MOMENTS;
+            final double[] values = new double[NUM_MOMENTS];
+            if (index < moments.size()) {
+                for (int j = 0; j < NUM_MOMENTS; j++) {
+                    values[j] = moments.get(index + j);
+                }
+            }
+            bucketMoments.put(momentNames[i], values);
+        }
+        return bucketMoments;
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        return new InternalTokenSampler(name, bucketDocCount(owningBucketOrdinal), fraction, bucketAggregations(owningBucketOrdinal),
+            bucketMoments(owningBucketOrdinal), Collections.emptyMap(), pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalTokenSampler(name, 0, fraction, buildEmptySubAggregations(), Collections.emptyMap(), Collections.emptyMap(),
+            pipelineAggregators(), metaData());
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(moments);
+    }
+}
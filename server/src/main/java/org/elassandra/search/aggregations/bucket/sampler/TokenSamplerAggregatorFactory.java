@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra.search.aggregations.bucket.sampler;
+
+import org.apache.lucene.search.Query;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class TokenSamplerAggregatorFactory extends AggregatorFactory<TokenSamplerAggregatorFactory> {
+
+    private final double fraction;
+    private final int strata;
+    private final Map<String, ValuesSource.Numeric> momentSources;
+
+    TokenSamplerAggregatorFactory(String name, double fraction, int strata, Map<String, ValuesSource.Numeric> momentSources,
+            SearchContext context, AggregatorFactory<?> parent, AggregatorFactories.Builder subFactories,
+            Map<String, Object> metaData) throws IOException {
+        super(name, context, parent, subFactories, metaData);
+        this.fraction = fraction;
+        this.strata = strata;
+        this.momentSources = momentSources;
+    }
+
+    /**
+     * Returns the query of the sampled token ranges, or null if the whole token ring is sampled.
+     */
+    public Query sampleQuery() {
+        return TokenSamplerAggregator.sampleQuery(strata, fraction);
+    }
+
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
+    @Override
+    public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
+        return new TokenSamplerAggregator(name, factories, fraction, strata, momentSources, context, parent, pipelineAggregators,
+            metaData);
+    }
+}
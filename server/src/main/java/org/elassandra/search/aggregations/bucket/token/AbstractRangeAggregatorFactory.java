@@ -51,6 +51,11 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
         this.rangeFactory = rangeFactory;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
@@ -60,7 +65,9 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new RangeAggregator(name, factories, valuesSource, config.format(), rangeFactory, ranges, keyed, context, parent,
+        // scripted or missing values cannot be counted from indexed points.
+        final String pointField = (config.fieldContext() == null || config.script() != null || config.missing() != null) ? null : config.fieldContext().field();
+        return new RangeAggregator(name, factories, valuesSource, pointField, config.format(), rangeFactory, ranges, keyed, context, parent,
                 pipelineAggregators, metaData);
     }
 
@@ -19,15 +19,19 @@
 package org.elassandra.search.aggregations.bucket.token;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.xcontent.DeprecationHandler;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
-import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -90,20 +94,20 @@ public class RangeAggregator extends BucketsAggregator {
             out.writeOptionalString(key);
             out.writeOptionalString(fromAsStr);
             out.writeOptionalString(toAsStr);
-            out.writeDouble(from);
-            out.writeDouble(to);
+            out.writeLong(from);
+            out.writeLong(to);
         }
 
 
         protected Range(String key, Long from, String fromAsStr, Long to, String toAsStr) {
             this.key = key;
-            this.from = from == null ? Long.MAX_VALUE : from;
+            this.from = from == null ? Long.MIN_VALUE : from;
             this.fromAsStr = fromAsStr;
-            this.to = to == null ? Long.MIN_VALUE : to;
+            this.to = to == null ? Long.MAX_VALUE : to;
             this.toAsStr = toAsStr;
         }
 
-        boolean matches(double value) {
+        boolean matches(long value) {
             return value >= from && value < to;
         }
 
@@ -205,11 +209,23 @@ public class RangeAggregator extends BucketsAggregator {
     final boolean keyed;
     final InternalRange.Factory rangeFactory;
 
-    final double[] maxTo;
+    final long[] maxTo;
+
+    /**
+     * Indexed point field of the values source, used to count bucket sizes without collecting documents.
+     */
+    final String pointField;
+    final boolean countPoints;
 
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, null, format, rangeFactory, ranges, keyed, context, parent, pipelineAggregators, metaData);
+    }
+
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, @Nullable String pointField,
+            DocValueFormat format, InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, context, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -220,12 +236,20 @@ public class RangeAggregator extends BucketsAggregator {
 
         this.ranges = ranges;
 
-        maxTo = new double[this.ranges.length];
+        maxTo = new long[this.ranges.length];
         maxTo[0] = this.ranges[0].to;
         for (int i = 1; i < this.ranges.length; ++i) {
             maxTo[i] = Math.max(this.ranges[i].to,maxTo[i-1]);
         }
 
+        // when all documents match and there is nothing to collect below, bucket sizes are counted from the BKD tree.
+        this.pointField = pointField;
+        this.countPoints = pointField != null
+                && parent == null
+                && factories.countAggregators() == 0
+                && context.minimumScore() == null
+                && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                && Queries.isMatchAllQuery(context.query());
     }
 
     @Override
@@ -236,20 +260,24 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
-        final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        if (countPoints && countPoints(ctx))
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+
+        // tokens are compared as long, double values would lose precision on range bounds.
+        final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 if (values.advanceExact(doc)) {
                     final int valuesCount = values.docValueCount();
                     for (int i = 0, lo = 0; i < valuesCount; ++i) {
-                        final double value = values.nextValue();
+                        final long value = values.nextValue();
                         lo = collect(doc, value, bucket, lo);
                     }
                 }
             }
 
-    private int collect(int doc, double value, long owningBucketOrdinal, int lowBound) throws IOException {
+    private int collect(int doc, long value, long owningBucketOrdinal, int lowBound) throws IOException {
         int lo = lowBound, hi = ranges.length - 1; // all candidates are between these indexes
         int mid = (lo + hi) >>> 1;
         while (lo <= hi) {
@@ -300,6 +328,52 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Add the number of points in each range to the bucket doc counts, when every live document of the segment
+     * matches and has at most one value. Return false if documents have to be collected.
+     */
+    private boolean countPoints(LeafReaderContext ctx) throws IOException {
+        if (ctx.reader().getLiveDocs() != null)
+            return false;
+        final PointValues pointValues = ctx.reader().getPointValues(pointField);
+        if (pointValues == null || pointValues.getNumDimensions() != 1 || pointValues.getBytesPerDimension() != Long.BYTES || pointValues.size() != pointValues.getDocCount())
+            return false;
+        for (int i = 0; i < ranges.length; i++) {
+            final long from = ranges[i].from;
+            final long to = ranges[i].to;
+            if (from >= to)
+                continue;
+            final long[] count = new long[1];
+            pointValues.intersect(new PointValues.IntersectVisitor() {
+                @Override
+                public void visit(int docID) {
+                    count[0]++;
+                }
+
+                @Override
+                public void visit(int docID, byte[] packedValue) {
+                    final long value = NumericUtils.sortableBytesToLong(packedValue, 0);
+                    if (value >= from && value < to)
+                        count[0]++;
+                }
+
+                @Override
+                public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                    final long min = NumericUtils.sortableBytesToLong(minPackedValue, 0);
+                    final long max = NumericUtils.sortableBytesToLong(maxPackedValue, 0);
+                    if (max < from || min >= to)
+                        return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                    if (min >= from && max < to)
+                        return PointValues.Relation.CELL_INSIDE_QUERY;
+                    return PointValues.Relation.CELL_CROSSES_QUERY;
+                }
+            });
+            if (count[0] > 0)
+                incrementBucketDocCount(subBucketOrdinal(0, i), Math.toIntExact(count[0]));
+        }
+        return true;
+    }
+
     private long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
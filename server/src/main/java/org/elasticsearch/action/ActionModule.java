@@ -294,6 +294,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -337,10 +338,12 @@ public class ActionModule extends AbstractModule {
         actionFilters = setupActionFilters(actionPlugins);
         autoCreateIndex = transportClient ? null : new AutoCreateIndex(settings, clusterSettings, indexNameExpressionResolver);
         destructiveOperations = new DestructiveOperations(settings, clusterSettings);
-        Set<String> headers = Stream.concat(
+        // the headers classifying the tasks of the fair queued thread pools must reach the thread context of the request
+        Set<String> headers = Stream.of(
             actionPlugins.stream().flatMap(p -> p.getRestHeaders().stream()),
+            threadPool.getFairQueueHeaders().stream(),
             Stream.of(Task.X_OPAQUE_ID)
-        ).collect(Collectors.toSet());
+        ).flatMap(Function.identity()).collect(Collectors.toSet());
         UnaryOperator<RestHandler> restWrapper = null;
         for (ActionPlugin plugin : actionPlugins) {
             UnaryOperator<RestHandler> newRestWrapper = plugin.getRestHandlerWrapper(threadPool.getThreadContext());
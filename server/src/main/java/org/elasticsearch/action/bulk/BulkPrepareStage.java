@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.elasticsearch.action.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elassandra.cluster.QueryManager;
+import org.elassandra.cluster.QueryManager.PreparedDocument;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.IndexShard;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Parse and serialize stage of a shard bulk request. Index items are parsed and serialized to CQL inserts
+ * on the {@link org.elasticsearch.threadpool.ThreadPool.Names#WRITE_PREPARE} pool while earlier items are
+ * written to Cassandra by the write thread. CQL writes are still executed one by one in the bulk item order,
+ * so the ordering per _id is preserved.
+ */
+final class BulkPrepareStage {
+
+    private static final Logger logger = LogManager.getLogger(BulkPrepareStage.class);
+
+    private final IndexShard primary;
+    private final IndexMetaData indexMetaData;
+    private final QueryManager queryManager;
+    private final FutureTask<PreparedDocument>[] tasks;
+
+    @SuppressWarnings("unchecked")
+    private BulkPrepareStage(IndexShard primary, QueryManager queryManager, int size) {
+        this.primary = primary;
+        this.indexMetaData = primary.indexSettings().getIndexMetaData();
+        this.queryManager = queryManager;
+        this.tasks = new FutureTask[size];
+    }
+
+    /**
+     * Submit the index items of the request to the executor, or return null when the request
+     * contains less than minItems index items.
+     */
+    static BulkPrepareStage start(BulkShardRequest request, IndexShard primary, QueryManager queryManager, Executor executor, int minItems) {
+        if (minItems <= 0)
+            return null;
+
+        final BulkItemRequest[] items = request.items();
+        int indexItems = 0;
+        for (BulkItemRequest item : items) {
+            if (isIndexRequest(item.request()))
+                indexItems++;
+        }
+        if (indexItems < minItems)
+            return null;
+
+        final BulkPrepareStage stage = new BulkPrepareStage(primary, queryManager, items.length);
+        for (int i = 0; i < items.length; i++) {
+            if (isIndexRequest(items[i].request())) {
+                final IndexRequest indexRequest = (IndexRequest) items[i].request();
+                final FutureTask<PreparedDocument> task = new FutureTask<>(
+                    () -> queryManager.prepareDocument(primary, indexRequest, stage.indexMetaData));
+                try {
+                    executor.execute(task);
+                    stage.tasks[i] = task;
+                } catch (EsRejectedExecutionException e) {
+                    // queue is full, remaining items will be prepared by the write thread.
+                    logger.debug("{} prepare stage rejected bulk item [{}], preparing remaining items on the write thread", primary.shardId(), i);
+                    break;
+                }
+            }
+        }
+        return stage;
+    }
+
+    private static boolean isIndexRequest(DocWriteRequest<?> request) {
+        return request.opType() == DocWriteRequest.OpType.INDEX || request.opType() == DocWriteRequest.OpType.CREATE;
+    }
+
+    /**
+     * Return the prepared document for the bulk item, or prepare it on the calling thread when the item was not submitted,
+     * failed, or was prepared with an outdated mapping. A prepared document is only used once, retries are prepared again.
+     */
+    PreparedDocument take(int itemIndex, IndexRequest request) throws IOException {
+        final FutureTask<PreparedDocument> task = tasks[itemIndex];
+        tasks[itemIndex] = null;
+        if (task != null) {
+            try {
+                final PreparedDocument prepared = task.get();
+                if (prepared.docMapper() == primary.mapperService().documentMapper(request.type()))
+                    return prepared;
+            } catch (ExecutionException e) {
+                logger.debug(() -> new ParameterizedMessage("{} failed to prepare bulk item [{}], retrying on the write thread", primary.shardId(), itemIndex), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return queryManager.prepareDocument(primary, request, indexMetaData);
+    }
+
+    /**
+     * Cancel not yet consumed items.
+     */
+    void close() {
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] != null) {
+                tasks[i].cancel(false);
+                tasks[i] = null;
+            }
+        }
+    }
+}
@@ -128,6 +128,11 @@ class BulkPrimaryExecutionContext {
         return this.getPrimary().indexSettings().getIndexMetaData();
     }
 
+    /** returns the position of the current item in the bulk shard request */
+    public int getCurrentItemIndex() {
+        return currentIndex;
+    }
+
     /** returns the number of times the current operation has been retried */
     public int getRetryCounter() {
         return retryCounter;
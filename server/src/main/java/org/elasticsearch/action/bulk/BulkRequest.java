@@ -20,6 +20,7 @@
 package org.elasticsearch.action.bulk;
 
 import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.CompositeIndicesRequest;
@@ -50,7 +51,6 @@ import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -325,9 +325,7 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
 
             // now parse the action
             // EMPTY is safe here because we never call namedObject
-            try (InputStream stream = data.slice(from, nextMarker - from).streamInput();
-                 XContentParser parser = xContent
-                     .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, stream)) {
+            try (XContentParser parser = createParser(xContent, data.slice(from, nextMarker - from))) {
                 // move pointers
                 from = nextMarker + 1;
 
@@ -467,9 +465,8 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
                                 .routing(routing)
                                 .parent(parent);
                         // EMPTY is safe here because we never call namedObject
-                        try (InputStream dataStream = sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType).streamInput();
-                             XContentParser sliceParser = xContent.createParser(NamedXContentRegistry.EMPTY,
-                                 LoggingDeprecationHandler.INSTANCE, dataStream)) {
+                        try (XContentParser sliceParser = createParser(xContent,
+                                 sliceTrimmingCarriageReturn(data, from, nextMarker, xContentType))) {
                             updateRequest.fromXContent(sliceParser);
                         }
                         if (fetchSourceContext != null) {
@@ -501,6 +498,16 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         return this;
     }
 
+    /**
+     * Creates a parser over the bytes of a line, without copying them when the line is backed by a single array like
+     * the body of a REST bulk request.
+     */
+    private static XContentParser createParser(XContent xContent, BytesReference line) throws IOException {
+        final BytesRef bytes = line.toBytesRef();
+        return xContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE,
+            bytes.bytes, bytes.offset, bytes.length);
+    }
+
     /**
      * Returns the sliced {@link BytesReference}. If the {@link XContentType} is JSON, the byte preceding the marker is checked to see
      * if it is a carriage return and if so, the BytesReference is sliced so that the carriage return is ignored
@@ -585,10 +592,9 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
     }
 
     private int findNextMarker(byte marker, int from, BytesReference data, int length) {
-        for (int i = from; i < length; i++) {
-            if (data.get(i) == marker) {
-                return i;
-            }
+        final int nextMarker = data.indexOf(marker, from);
+        if (nextMarker != -1) {
+            return nextMarker;
         }
         if (from != length) {
             throw new IllegalArgumentException("The bulk request must be terminated by a newline [\n]");
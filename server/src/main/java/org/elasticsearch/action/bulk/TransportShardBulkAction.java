@@ -52,6 +52,8 @@ import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -87,9 +89,17 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     private static final Logger logger = LogManager.getLogger(TransportShardBulkAction.class);
     private static final DeprecationLogger DEPRECATION_LOGGER = new DeprecationLogger(logger);
 
+    /**
+     * Minimum number of index items in a shard bulk request to parse and serialize them on the
+     * {@link ThreadPool.Names#WRITE_PREPARE} pool while earlier items are written to Cassandra, 0 to disable.
+     */
+    public static final Setting<Integer> BULK_PREPARE_MIN_ITEMS_SETTING =
+        Setting.intSetting("bulk.prepare.min_items", 4, 0, Property.NodeScope, Property.Dynamic);
+
     private final UpdateHelper updateHelper;
     private final IndicesService indicesService;
     private final ClusterService clusterService;
+    private volatile int prepareMinItems;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -101,6 +111,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         this.updateHelper = updateHelper;
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.prepareMinItems = BULK_PREPARE_MIN_ITEMS_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(BULK_PREPARE_MIN_ITEMS_SETTING, v -> this.prepareMinItems = v);
     }
 
     @Override
@@ -143,8 +155,15 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             });
             waitingFuture.get();
         };
-        return performOnPrimary(request, primary, updateHelper, false,
-            threadPool::absoluteTimeInMillis, new ConcreteMappingUpdatePerformer(), waitForMappingUpdate, clusterService);
+        final BulkPrepareStage prepareStage = BulkPrepareStage.start(request, primary, clusterService.getQueryManager(),
+            threadPool.executor(ThreadPool.Names.WRITE_PREPARE), prepareMinItems);
+        try {
+            return performOnPrimary(new BulkPrimaryExecutionContext(request, primary), updateHelper, false,
+                threadPool::absoluteTimeInMillis, new ConcreteMappingUpdatePerformer(), waitForMappingUpdate, clusterService, prepareStage);
+        } finally {
+            if (prepareStage != null)
+                prepareStage.close();
+        }
     }
 
     public static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
@@ -157,16 +176,16 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         CheckedRunnable<Exception> waitForMappingUpdate,
         ClusterService clusterService) throws Exception {
         BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
-        return performOnPrimary(context, updateHelper, canUseIfSeqNo, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, clusterService);
+        return performOnPrimary(context, updateHelper, canUseIfSeqNo, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, clusterService, null);
     }
 
     private static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
         BulkPrimaryExecutionContext context, UpdateHelper updateHelper, boolean canUseIfSeqNo, LongSupplier nowInMillisSupplier,
         MappingUpdatePerformer mappingUpdater, CheckedRunnable<Exception> waitForMappingUpdate,
-        ClusterService clusterService ) throws Exception {
+        ClusterService clusterService, BulkPrepareStage prepareStage) throws Exception {
 
         while (context.hasMoreOperationsToExecute()) {
-            executeBulkItemRequest(context, updateHelper, canUseIfSeqNo, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, clusterService);
+            executeBulkItemRequest(context, updateHelper, canUseIfSeqNo, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, clusterService, prepareStage);
             assert context.isInitial(); // either completed and moved to next or reset
         }
         return new WritePrimaryResult<>(context.getBulkShardRequest(), context.buildShardResponse(), context.getLocationToSync(),
@@ -178,6 +197,14 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                                        boolean canUseIfSeqNo, LongSupplier nowInMillisSupplier, MappingUpdatePerformer mappingUpdater,
                                        CheckedRunnable<Exception> waitForMappingUpdate,
                                        ClusterService clusterService) throws Exception {
+        executeBulkItemRequest(context, updateHelper, canUseIfSeqNo, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, clusterService, null);
+    }
+
+    /** Executes bulk item requests, using the prepared CQL insert of the prepare stage when available */
+    static void executeBulkItemRequest(BulkPrimaryExecutionContext context, UpdateHelper updateHelper,
+                                       boolean canUseIfSeqNo, LongSupplier nowInMillisSupplier, MappingUpdatePerformer mappingUpdater,
+                                       CheckedRunnable<Exception> waitForMappingUpdate,
+                                       ClusterService clusterService, BulkPrepareStage prepareStage) throws Exception {
         //validateDocWriteRequest(context.getCurrent(), canUseIfSeqNo);
         final DocWriteRequest.OpType opType = context.getCurrent().opType();
         final UpdateHelper.Result updateResult;
@@ -223,7 +250,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         if (context.getRequestToExecute().opType() == DocWriteRequest.OpType.DELETE) {
             executeDeleteRequestOnPrimary(context, mappingUpdater, clusterService);
         } else {
-            executeIndexRequestOnPrimary(context, mappingUpdater, clusterService);
+            executeIndexRequestOnPrimary(context, mappingUpdater, clusterService, prepareStage);
         }
 
         if (context.requiresWaitingForMappingUpdate()) {
@@ -455,7 +482,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
     /** Executes index operation on primary shard after updates mapping if dynamic mappings are found */
     private static void executeIndexRequestOnPrimary(BulkPrimaryExecutionContext context,
-                                             MappingUpdatePerformer mappingUpdater, ClusterService clusterService) throws Exception {
+                                             MappingUpdatePerformer mappingUpdater, ClusterService clusterService,
+                                             BulkPrepareStage prepareStage) throws Exception {
         final IndexRequest request = context.getRequestToExecute();
         final IndexShard primary = context.getPrimary();
         final SourceToParse sourceToParse =
@@ -465,6 +493,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             (CheckedSupplier<Engine.IndexResult, IOException>) () -> {
                 //primary.applyIndexOperationOnPrimary(request.version(), request.versionType(), sourceToParse,
                 //    request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry())
+                if (prepareStage != null && request == context.getCurrent())
+                    return clusterService.getQueryManager().insertDocument(primary, request, prepareStage.take(context.getCurrentItemIndex(), request));
                 return clusterService.getQueryManager().insertDocument(primary, request, context.getIndexMetaData());
             },
             e -> primary.getFailedIndexResult(e, request.version()),
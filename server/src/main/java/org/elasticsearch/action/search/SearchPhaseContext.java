@@ -22,6 +22,7 @@ import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
@@ -114,4 +115,9 @@ interface SearchPhaseContext extends ActionListener<SearchResponse>, Executor {
      */
     void executeNextPhase(SearchPhase currentPhase, SearchPhase nextPhase);
 
+    /**
+     * Registers a releasable that is released once the search response or failure was sent.
+     */
+    void addReleasable(Releasable releasable);
+
 }
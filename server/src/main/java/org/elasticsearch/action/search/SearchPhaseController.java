@@ -31,14 +31,19 @@ import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -52,6 +57,8 @@ import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -61,19 +68,36 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
 
 public final class SearchPhaseController {
 
     private static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
     private final Function<Boolean, ReduceContext> reduceContextFunction;
+    private final IntSupplier maxBufferedBuckets;
+    private final CircuitBreaker breaker;
 
     /**
      * Constructor.
      * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
      */
     public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction) {
+        this(reduceContextFunction, () -> 0, new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+    }
+
+    /**
+     * Constructor.
+     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
+     * @param maxBufferedBuckets A supplier of the maximum number of aggregation buckets buffered before an incremental reduce,
+     *                           0 to only reduce incrementally every batched reduce size results
+     * @param breaker The request circuit breaker charged with the aggregation results buffered until the search completes
+     */
+    public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction, IntSupplier maxBufferedBuckets,
+                                 CircuitBreaker breaker) {
         this.reduceContextFunction = reduceContextFunction;
+        this.maxBufferedBuckets = maxBufferedBuckets;
+        this.breaker = breaker;
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -584,6 +608,11 @@ public final class SearchPhaseController {
         private int numReducePhases = 0;
         private final TopDocsStats topDocsStats = new TopDocsStats();
         private final boolean performFinalReduce;
+        private final int maxBufferedBuckets;
+        private long bufferedBuckets;
+        private long reducedBuckets;
+        private long breakerBytes;
+        private boolean closed;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
@@ -594,11 +623,25 @@ public final class SearchPhaseController {
          */
         private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
                                          boolean hasTopDocs, boolean hasAggs, boolean performFinalReduce) {
+            this(controller, expectedResultSize, bufferSize, hasTopDocs, hasAggs, performFinalReduce, 0);
+        }
+
+        /**
+         * Creates a new {@link QueryPhaseResultConsumer}
+         * @param controller a controller instance to reduce the query response objects
+         * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
+         * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
+         *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
+         * @param maxBufferedBuckets if greater than 0, buffered aggregation results are also reduced incrementally as soon as
+         *                           they hold more than this number of buckets. The buffer size can then be the expected result size.
+         */
+        private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
+                                         boolean hasTopDocs, boolean hasAggs, boolean performFinalReduce, int maxBufferedBuckets) {
             super(expectedResultSize);
             if (expectedResultSize != 1 && bufferSize < 2) {
                 throw new IllegalArgumentException("buffer size must be >= 2 if there is more than one expected result");
             }
-            if (expectedResultSize <= bufferSize) {
+            if (expectedResultSize < bufferSize || (expectedResultSize == bufferSize && (maxBufferedBuckets == 0 || hasAggs == false))) {
                 throw new IllegalArgumentException("buffer size must be less than the expected result size");
             }
             if (hasAggs == false && hasTopDocs == false) {
@@ -612,6 +655,7 @@ public final class SearchPhaseController {
             this.hasAggs = hasAggs;
             this.bufferSize = bufferSize;
             this.performFinalReduce = performFinalReduce;
+            this.maxBufferedBuckets = maxBufferedBuckets;
         }
 
         @Override
@@ -622,15 +666,24 @@ public final class SearchPhaseController {
         }
 
         private synchronized void consumeInternal(QuerySearchResult querySearchResult) {
-            if (index == bufferSize) {
+            // the result of a partial reduce may hold more buckets than the limit, so the buffer is only reduced again once
+            // the following results add a whole batch of buckets
+            if (index == bufferSize || (maxBufferedBuckets > 0 && index > 1 && bufferedBuckets - reducedBuckets > maxBufferedBuckets)) {
                 if (hasAggs) {
                     ReduceContext reduceContext = controller.reduceContextFunction.apply(false);
-                    InternalAggregations reducedAggs = InternalAggregations.reduce(Arrays.asList(aggsBuffer), reduceContext);
+                    InternalAggregations reducedAggs = InternalAggregations.reduce(Arrays.asList(aggsBuffer).subList(0, index),
+                        reduceContext);
                     Arrays.fill(aggsBuffer, null);
                     aggsBuffer[0] = reducedAggs;
+                    bufferedBuckets = reducedBuckets = countBuckets(reducedAggs);
+                    // the reduced aggregations replace the buffered ones on the breaker
+                    final long bufferedBytes = breakerBytes;
+                    breakerBytes = 0;
+                    controller.breaker.addWithoutBreaking(-bufferedBytes);
+                    addToBreaker(reducedAggs, "<reduce_aggs>");
                 }
                 if (hasTopDocs) {
-                    TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
+                    TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer).subList(0, index),
                         // we have to merge here in the same way we collect on a shard
                         querySearchResult.from() + querySearchResult.size(), 0);
                     Arrays.fill(topDocsBuffer, null);
@@ -642,6 +695,10 @@ public final class SearchPhaseController {
             final int i = index++;
             if (hasAggs) {
                 aggsBuffer[i] = (InternalAggregations) querySearchResult.consumeAggs();
+                if (maxBufferedBuckets > 0) {
+                    bufferedBuckets += countBuckets(aggsBuffer[i]);
+                }
+                addToBreaker(aggsBuffer[i], "<query_phase_aggs>");
             }
             if (hasTopDocs) {
                 final TopDocs topDocs = querySearchResult.consumeTopDocs(); // can't be null
@@ -673,6 +730,83 @@ public final class SearchPhaseController {
         }
 
         int getNumReducePhases() { return numReducePhases; }
+
+        /**
+         * Charges the serialized size of buffered aggregations to the request circuit breaker, until the search completes.
+         */
+        private void addToBreaker(InternalAggregations aggregations, String label) {
+            if (closed || controller.breaker instanceof NoopCircuitBreaker) {
+                return;
+            }
+            final long bytes = serializedSize(aggregations);
+            controller.breaker.addEstimateBytesAndMaybeBreak(bytes, label);
+            breakerBytes += bytes;
+        }
+
+        /**
+         * Releases the bytes charged to the request circuit breaker, once the search response or failure was sent.
+         */
+        @Override
+        public synchronized void close() {
+            closed = true;
+            final long bytes = breakerBytes;
+            breakerBytes = 0;
+            controller.breaker.addWithoutBreaking(-bytes);
+        }
+
+        /**
+         * Returns the bytes currently charged to the request circuit breaker
+         */
+        synchronized long getBreakerBytes() {
+            return breakerBytes;
+        }
+
+        private static long serializedSize(InternalAggregations aggregations) {
+            try (CountingStreamOutput out = new CountingStreamOutput()) {
+                aggregations.writeTo(out);
+                return out.size;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static long countBuckets(InternalAggregations aggregations) {
+            long count = 0;
+            for (Aggregation aggregation : aggregations.asList()) {
+                count += InternalMultiBucketAggregation.countInnerBucket(aggregation);
+            }
+            return count;
+        }
+
+        /**
+         * Counts the bytes written without keeping them.
+         */
+        private static final class CountingStreamOutput extends StreamOutput {
+            private long size;
+
+            @Override
+            public void writeByte(byte b) {
+                size++;
+            }
+
+            @Override
+            public void writeBytes(byte[] b, int offset, int length) {
+                size += length;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void reset() {
+                size = 0;
+            }
+        }
     }
 
     /**
@@ -687,10 +821,15 @@ public final class SearchPhaseController {
 
         if (isScrollRequest == false && (hasAggs || hasTopDocs)) {
             // no incremental reduce if scroll is used - we only hit a single shard or sometimes more...
+            final int maxBufferedBuckets = hasAggs ? this.maxBufferedBuckets.getAsInt() : 0;
             if (request.getBatchedReduceSize() < numShards) {
                 // only use this if there are aggs and if there are more shards than we should reduce at once
                 return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), hasTopDocs, hasAggs,
-                    request.isFinalReduce());
+                    request.isFinalReduce(), maxBufferedBuckets);
+            } else if (maxBufferedBuckets > 0 && numShards > 2) {
+                // buffer all the results and reduce them when the buffered buckets exceed the limit
+                return new QueryPhaseResultConsumer(this, numShards, numShards, hasTopDocs, hasAggs,
+                    request.isFinalReduce(), maxBufferedBuckets);
             }
         }
         return new InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult>(numShards) {
@@ -224,6 +224,24 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
     }
 
     public XContentBuilder innerToXContent(XContentBuilder builder, Params params) throws IOException {
+        headerToXContent(builder, params);
+        internalResponse.toXContent(builder, params);
+        return builder;
+    }
+
+    /**
+     * Returns the fragments of {@link #toXContent}, each search hit being a separate fragment, so that a response holding many
+     * hits can be serialized incrementally.
+     */
+    public List<ToXContent> toXContentChunks() {
+        final List<ToXContent> chunks = new ArrayList<>();
+        chunks.add((builder, params) -> headerToXContent(builder.startObject(), params));
+        chunks.addAll(internalResponse.toXContentChunks());
+        chunks.add((builder, params) -> builder.endObject());
+        return chunks;
+    }
+
+    private XContentBuilder headerToXContent(XContentBuilder builder, Params params) throws IOException {
         if (scrollId != null) {
             builder.field(SCROLL_ID.getPreferredName(), scrollId);
         }
@@ -238,7 +256,6 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
         RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getSkippedShards(),
             getFailedShards(), getShardFailures());
         clusters.toXContent(builder, params);
-        internalResponse.toXContent(builder, params);
         return builder;
     }
 
@@ -317,7 +317,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 searchService.getResponseCollectorService(),
                 searchRequest.tokenRanges(),
                 searchRequest.remoteAddress(),
-                nodeSearchCounts);
+                nodeSearchCounts,
+                searchRequest.source() == null ? null : searchRequest.source().query());
         GroupShardsIterator<SearchShardIterator> shardIterators = mergeShardsIterators(localShardsIterator, localIndices,
             searchRequest.getLocalClusterAlias(), remoteShardIterators);
 
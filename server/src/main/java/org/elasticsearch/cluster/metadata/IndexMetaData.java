@@ -61,6 +61,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.gateway.MetaDataStateFormat;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.MapperService;
@@ -375,6 +376,47 @@ public class IndexMetaData implements Diffable<IndexMetaData>, ToXContentFragmen
     public static final Setting<Boolean> INDEX_INDEX_OPAQUE_STORAGE_SETTING =
             Setting.boolSetting(SETTING_INDEX_OPAQUE_STORAGE, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_INDEX_OPAQUE_STORAGE), Property.Final, Property.IndexScope);
 
+    public static final String SETTING_INDEX_OPAQUE_STORAGE_FORMAT = INDEX_SETTING_PREFIX+ClusterService.INDEX_OPAQUE_STORAGE_FORMAT;
+    public static final Setting<XContentType> INDEX_INDEX_OPAQUE_STORAGE_FORMAT_SETTING =
+            new Setting<>(SETTING_INDEX_OPAQUE_STORAGE_FORMAT,
+                System.getProperty(ClusterService.SETTING_SYSTEM_INDEX_OPAQUE_STORAGE_FORMAT, XContentType.JSON.shortName()),
+                IndexMetaData::parseOpaqueStorageFormat, Property.Final, Property.IndexScope);
+
+    public static final String SETTING_FETCH_FROM_DOCVALUES = INDEX_SETTING_PREFIX+ClusterService.FETCH_FROM_DOCVALUES;
+    public static final Setting<Boolean> INDEX_FETCH_FROM_DOCVALUES_SETTING =
+            Setting.boolSetting(SETTING_FETCH_FROM_DOCVALUES, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_FETCH_FROM_DOCVALUES), Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_DOCVALUES_LIVENESS_CHECK = INDEX_SETTING_PREFIX+ClusterService.DOCVALUES_LIVENESS_CHECK;
+    public static final Setting<Boolean> INDEX_DOCVALUES_LIVENESS_CHECK_SETTING =
+            Setting.boolSetting(SETTING_DOCVALUES_LIVENESS_CHECK, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_DOCVALUES_LIVENESS_CHECK), Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_CONCURRENT_SEARCH_SLICES = INDEX_SETTING_PREFIX+ClusterService.CONCURRENT_SEARCH_SLICES;
+    public static final Setting<Integer> INDEX_CONCURRENT_SEARCH_SLICES_SETTING =
+            Setting.intSetting(SETTING_CONCURRENT_SEARCH_SLICES, Integer.getInteger(ClusterService.SETTING_SYSTEM_CONCURRENT_SEARCH_SLICES, 1), 1, Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_COMPOSITE_FILTER_CACHE = INDEX_SETTING_PREFIX+ClusterService.COMPOSITE_FILTER_CACHE;
+    public static final Setting<Boolean> INDEX_COMPOSITE_FILTER_CACHE_SETTING =
+            Setting.boolSetting(SETTING_COMPOSITE_FILTER_CACHE, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_COMPOSITE_FILTER_CACHE), Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_SEGMENT_REQUEST_CACHE = INDEX_SETTING_PREFIX+ClusterService.SEGMENT_REQUEST_CACHE;
+    public static final Setting<Boolean> INDEX_SEGMENT_REQUEST_CACHE_SETTING =
+            Setting.boolSetting(SETTING_SEGMENT_REQUEST_CACHE, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_SEGMENT_REQUEST_CACHE), Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_QUERY_CACHE_WARMER_QUERIES = INDEX_SETTING_PREFIX+ClusterService.QUERY_CACHE_WARMER_QUERIES;
+    public static final Setting<Integer> INDEX_QUERY_CACHE_WARMER_QUERIES_SETTING =
+            Setting.intSetting(SETTING_QUERY_CACHE_WARMER_QUERIES, Integer.getInteger(ClusterService.SETTING_SYSTEM_QUERY_CACHE_WARMER_QUERIES, 0), 0, Property.Dynamic, Property.IndexScope);
+
+    public static final String SETTING_QUERY_CACHE_WARMER_TIMEOUT = INDEX_SETTING_PREFIX+ClusterService.QUERY_CACHE_WARMER_TIMEOUT;
+    public static final Setting<Integer> INDEX_QUERY_CACHE_WARMER_TIMEOUT_SETTING =
+            Setting.intSetting(SETTING_QUERY_CACHE_WARMER_TIMEOUT, Integer.getInteger(ClusterService.SETTING_SYSTEM_QUERY_CACHE_WARMER_TIMEOUT, 1000), 0, Property.Dynamic, Property.IndexScope);
+
+    private static XContentType parseOpaqueStorageFormat(String format) {
+        XContentType xContentType = XContentType.fromMediaTypeOrFormat(format);
+        if (xContentType == null || xContentType == XContentType.YAML)
+            throw new IllegalArgumentException("Unsupported [" + SETTING_INDEX_OPAQUE_STORAGE_FORMAT + "] value [" + format + "], expecting json, smile or cbor");
+        return xContentType;
+    }
+
     // hard-coded hash function as of 2.0
     // older indices will read which hash function to use in their index settings
     //private static final HashFunction MURMUR3_HASH_FUNCTION = new Murmur3HashFunction();
@@ -581,6 +623,13 @@ public class IndexMetaData implements Diffable<IndexMetaData>, ToXContentFragmen
         return getSettings().getAsBoolean(IndexMetaData.SETTING_INDEX_OPAQUE_STORAGE, Boolean.getBoolean(ClusterService.SETTING_SYSTEM_INDEX_OPAQUE_STORAGE));
     }
 
+    /**
+     * @return XContent format of the _source column when {@link #isOpaqueStorage()}.
+     */
+    public XContentType opaqueStorageFormat() {
+        return INDEX_INDEX_OPAQUE_STORAGE_FORMAT_SETTING.get(getSettings());
+    }
+
     public String keyspace() {
         // this code is less smart than getSettings().get(IndexMetaData.SETTING_KEYSPACE, ClusterService.indexToKsName(index.getName()));
         // but in this way, we avoid useless processing and time consuming 'indexToKsName' method call
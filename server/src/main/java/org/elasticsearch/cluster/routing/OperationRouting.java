@@ -23,6 +23,7 @@ import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
  import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
+import org.elassandra.cluster.routing.TokenAwareRouting;
 import org.elassandra.index.search.TokenRangesService;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
@@ -40,6 +41,7 @@ import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
 import org.elasticsearch.node.ResponseCollectorService;
@@ -58,8 +60,16 @@ public class OperationRouting {
             Setting.boolSetting("cluster.routing.use_adaptive_replica_selection", false,
                     Setting.Property.Dynamic, Setting.Property.NodeScope);
 
+    /**
+     * When true, searches restricted to some partition keys or _token ranges are only sent to nodes owning these tokens.
+     */
+    public static final Setting<Boolean> USE_TOKEN_AWARE_SEARCH_SETTING =
+            Setting.boolSetting("cluster.routing.use_token_aware_search", false,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+
     private List<String> awarenessAttributes;
     private boolean useAdaptiveReplicaSelection;
+    private volatile boolean useTokenAwareSearch;
 
     public OperationRouting(Settings settings, ClusterSettings clusterSettings, ClusterService clusterService) {
         this.clusterService = clusterService;
@@ -68,6 +78,12 @@ public class OperationRouting {
         clusterSettings.addSettingsUpdateConsumer(AwarenessAllocationDecider.CLUSTER_ROUTING_ALLOCATION_AWARENESS_ATTRIBUTE_SETTING,
             this::setAwarenessAttributes);
         clusterSettings.addSettingsUpdateConsumer(USE_ADAPTIVE_REPLICA_SELECTION_SETTING, this::setUseAdaptiveReplicaSelection);
+        this.useTokenAwareSearch = USE_TOKEN_AWARE_SEARCH_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(USE_TOKEN_AWARE_SEARCH_SETTING, this::setUseTokenAwareSearch);
+    }
+
+    void setUseTokenAwareSearch(boolean useTokenAwareSearch) {
+        this.useTokenAwareSearch = useTokenAwareSearch;
     }
 
     public ShardIterator shard(Index index) {
@@ -106,7 +122,24 @@ public class OperationRouting {
                                                            @Nullable Collection<Range<Token>> tokenRanges,
                                                            @Nullable TransportAddress src,
                                                            @Nullable Map<String, Long> nodeCounts) {
-        final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, types, routing, preference, tokenRanges, src);
+        return searchShards(clusterState, concreteIndices, types, routing, preference, collectorService, tokenRanges, src, nodeCounts, null);
+    }
+
+    /**
+     * When the search has no routing nor token ranges, the query is used to only target nodes owning
+     * the partition keys or _token ranges it is restricted to.
+     */
+    public GroupShardsIterator<ShardIterator> searchShards(ClusterState clusterState,
+                                                           String[] concreteIndices,
+                                                           @Nullable String[] types,
+                                                           @Nullable Map<String, Set<String>> routing,
+                                                           @Nullable String preference,
+                                                           @Nullable ResponseCollectorService collectorService,
+                                                           @Nullable Collection<Range<Token>> tokenRanges,
+                                                           @Nullable TransportAddress src,
+                                                           @Nullable Map<String, Long> nodeCounts,
+                                                           @Nullable QueryBuilder query) {
+        final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, types, routing, preference, tokenRanges, src, query);
         final Set<ShardIterator> set = new HashSet<>(shards.size());
         for (IndexShardRoutingTable shard : shards) {
             ShardIterator iterator = preferenceActiveShardIterator(shard,
@@ -133,7 +166,8 @@ public class OperationRouting {
                                                               @Nullable Map<String, Set<String>> routing,
                                                               @Nullable String preference,
                                                               @Nullable Collection<Range<Token>> tokenRanges,
-                                                              @Nullable TransportAddress src) {
+                                                              @Nullable TransportAddress src,
+                                                              @Nullable QueryBuilder query) {
         routing = routing == null ? EMPTY_ROUTING : routing; // just use an empty map
         final Set<IndexShardRoutingTable> set = new HashSet<>();
         // we use set here and not list since we might get duplicates
@@ -159,8 +193,16 @@ public class OperationRouting {
                     }
                 }
             } else {
+                Collection<Range<Token>> targetRanges = tokenRanges;
+                if (targetRanges == null && useTokenAwareSearch && query != null) {
+                    IndexService indexService = this.clusterService.indexService(indexMetaData.getIndex());
+                    targetRanges = TokenAwareRouting.tokenRanges(this.clusterService.getQueryManager(),
+                        indexService == null ? null : indexService.mapperService(), indexMetaData, types, query);
+                    if (targetRanges != null && logger.isDebugEnabled())
+                        logger.debug("index [{}] search restricted to token ranges={}", index, targetRanges);
+                }
                 for (IndexShardRoutingTable indexShard : indexRouting) {
-                    if (tokenRanges == null || (TokenRangesService.tokenRangesIntersec(indexShard.primaryShard().tokenRanges(), tokenRanges))) {
+                    if (targetRanges == null || (TokenRangesService.tokenRangesIntersec(indexShard.primaryShard().tokenRanges(), targetRanges))) {
                         set.add(indexShard);
                     }
                 }
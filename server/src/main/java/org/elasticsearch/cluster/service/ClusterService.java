@@ -242,6 +242,46 @@ public class ClusterService extends BaseClusterService {
      */
     public static final String INDEX_OPAQUE_STORAGE = "index_opaque_storage";
 
+    /**
+     * XContent format (json, smile or cbor) of the _source column when index_opaque_storage is enabled.
+     */
+    public static final String INDEX_OPAQUE_STORAGE_FORMAT = "index_opaque_storage_format";
+
+    /**
+     * Rebuild _source and stored fields from Lucene doc values when available rather than reading cassandra.
+     */
+    public static final String FETCH_FROM_DOCVALUES = "fetch_from_docvalues";
+
+    /**
+     * Read a partition key column from cassandra to check that rows rebuilt from doc values still exist.
+     */
+    public static final String DOCVALUES_LIVENESS_CHECK = "docvalues_liveness_check";
+
+    /**
+     * Number of segment slices searched concurrently by the query phase of a shard.
+     */
+    public static final String CONCURRENT_SEARCH_SLICES = "concurrent_search_slices";
+
+    /**
+     * Visit composite aggregation documents in the order of the leading source for any query, caching the query matches per segment.
+     */
+    public static final String COMPOSITE_FILTER_CACHE = "composite_filter_cache";
+
+    /**
+     * Cache the request cache results of aggregations per segment, so that a refresh only recomputes the changed segments.
+     */
+    public static final String SEGMENT_REQUEST_CACHE = "segment_request_cache";
+
+    /**
+     * Number of the most frequently used cacheable filters warmed in the query cache for each new searcher, 0 disables warming.
+     */
+    public static final String QUERY_CACHE_WARMER_QUERIES = "query_cache_warmer_queries";
+
+    /**
+     * Maximum time in milliseconds spent warming the query cache before a refreshed searcher is published.
+     */
+    public static final String QUERY_CACHE_WARMER_TIMEOUT = "query_cache_warmer_timeout";
+
     // system property settings
     public static final String SETTING_SYSTEM_COMPRESS_INDEXES_IN_GOSSIP = SYSTEM_PREFIX+COMPRESS_INDEXES_IN_GOSSIP;
     public static final String SETTING_SYSTEM_MAPPING_UPDATE_TIMEOUT = SYSTEM_PREFIX+MAPPING_UPDATE_TIMEOUT;
@@ -258,6 +298,14 @@ public class ClusterService extends BaseClusterService {
     public static final String SETTING_SYSTEM_TOKEN_RANGES_QUERY_EXPIRE = SYSTEM_PREFIX+TOKEN_RANGES_QUERY_EXPIRE;
     public static final String SETTING_SYSTEM_INDEX_INSERT_ONLY = SYSTEM_PREFIX+INDEX_INSERT_ONLY;
     public static final String SETTING_SYSTEM_INDEX_OPAQUE_STORAGE = SYSTEM_PREFIX+INDEX_OPAQUE_STORAGE;
+    public static final String SETTING_SYSTEM_INDEX_OPAQUE_STORAGE_FORMAT = SYSTEM_PREFIX+INDEX_OPAQUE_STORAGE_FORMAT;
+    public static final String SETTING_SYSTEM_FETCH_FROM_DOCVALUES = SYSTEM_PREFIX+FETCH_FROM_DOCVALUES;
+    public static final String SETTING_SYSTEM_DOCVALUES_LIVENESS_CHECK = SYSTEM_PREFIX+DOCVALUES_LIVENESS_CHECK;
+    public static final String SETTING_SYSTEM_CONCURRENT_SEARCH_SLICES = SYSTEM_PREFIX+CONCURRENT_SEARCH_SLICES;
+    public static final String SETTING_SYSTEM_COMPOSITE_FILTER_CACHE = SYSTEM_PREFIX+COMPOSITE_FILTER_CACHE;
+    public static final String SETTING_SYSTEM_SEGMENT_REQUEST_CACHE = SYSTEM_PREFIX+SEGMENT_REQUEST_CACHE;
+    public static final String SETTING_SYSTEM_QUERY_CACHE_WARMER_QUERIES = SYSTEM_PREFIX+QUERY_CACHE_WARMER_QUERIES;
+    public static final String SETTING_SYSTEM_QUERY_CACHE_WARMER_TIMEOUT = SYSTEM_PREFIX+QUERY_CACHE_WARMER_TIMEOUT;
 
     public static final String SETTING_CLUSTER_INCLUDE_NODE_ID = CLUSTER_PREFIX+INCLUDE_HOST_ID;
 
@@ -74,6 +74,17 @@ public final class BytesArray extends BytesReference {
         return new BytesArray(bytes, offset + from, length);
     }
 
+    @Override
+    public int indexOf(byte marker, int from) {
+        final int to = offset + length;
+        for (int i = offset + from; i < to; i++) {
+            if (bytes[i] == marker) {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
     public byte[] array() {
         return bytes;
     }
@@ -68,6 +68,19 @@ public abstract class BytesReference implements Comparable<BytesReference>, ToXC
      */
     public abstract BytesReference slice(int from, int length);
 
+    /**
+     * Returns the index of the first occurrence of the given marker from the {@code from} index, or -1 if not found.
+     */
+    public int indexOf(byte marker, int from) {
+        final int to = length();
+        for (int i = from; i < to; i++) {
+            if (get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * The amount of memory used by this BytesReference
      */
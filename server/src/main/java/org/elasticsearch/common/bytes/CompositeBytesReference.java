@@ -103,6 +103,21 @@ public final class CompositeBytesReference extends BytesReference {
         return new CompositeBytesReference(inSlice);
     }
 
+    @Override
+    public int indexOf(byte marker, int from) {
+        if (from >= length) {
+            return -1;
+        }
+        // scan each reference from the one holding the from index
+        for (int i = getOffsetIndex(from); i < references.length; i++) {
+            final int index = references[i].indexOf(marker, Math.max(0, from - offsets[i]));
+            if (index != -1) {
+                return offsets[i] + index;
+            }
+        }
+        return -1;
+    }
+
     private int getOffsetIndex(int offset) {
         final int i = Arrays.binarySearch(offsets, offset);
         return i < 0 ? (-(i + 1)) - 1 : i;
@@ -34,6 +34,8 @@ public class CompressorFactory {
 
     public static final Compressor COMPRESSOR = new DeflateCompressor();
 
+    public static final Compressor LZ4_COMPRESSOR = new Lz4Compressor();
+
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
     }
@@ -47,6 +49,10 @@ public class CompressorFactory {
                 assert XContentHelper.xContentType(bytes) == null;
                 return COMPRESSOR;
             }
+            if (LZ4_COMPRESSOR.isCompressed(bytes)) {
+                assert XContentHelper.xContentType(bytes) == null;
+                return LZ4_COMPRESSOR;
+            }
 
         XContentType contentType = XContentHelper.xContentType(bytes);
         if (contentType == null) {
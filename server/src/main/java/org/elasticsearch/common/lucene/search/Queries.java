@@ -24,6 +24,7 @@ import org.apache.lucene.queries.ExtendedCommonTermsQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
@@ -104,6 +105,32 @@ public class Queries {
             .build();
     }
 
+    /**
+     * Return true if the query matches all documents: a {@link MatchAllDocsQuery}, possibly wrapped in constant score queries
+     * or in a conjunction of such queries, as left by type and alias filtering.
+     */
+    public static boolean isMatchAllQuery(Query q) {
+        if (q instanceof MatchAllDocsQuery) {
+            return true;
+        }
+        if (q instanceof ConstantScoreQuery) {
+            return isMatchAllQuery(((ConstantScoreQuery) q).getQuery());
+        }
+        if (q instanceof BooleanQuery) {
+            List<BooleanClause> clauses = ((BooleanQuery) q).clauses();
+            if (clauses.isEmpty()) {
+                return false;
+            }
+            for (BooleanClause clause : clauses) {
+                if (clause.isProhibited() || clause.getOccur() == Occur.SHOULD || isMatchAllQuery(clause.getQuery()) == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     private static boolean isNegativeQuery(Query q) {
         if (!(q instanceof BooleanQuery)) {
             return false;
@@ -20,6 +20,7 @@ package org.elasticsearch.common.settings;
 
 import org.apache.logging.log4j.LogManager;
 import org.elasticsearch.action.admin.indices.close.TransportCloseIndexAction;
+import org.elasticsearch.action.bulk.TransportShardBulkAction;
 import org.elasticsearch.action.search.TransportSearchAction;
 import org.elasticsearch.action.support.AutoCreateIndex;
 import org.elasticsearch.action.support.DestructiveOperations;
@@ -90,8 +91,10 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchModule;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeFilterCache;
 import org.elasticsearch.search.fetch.subphase.highlight.FastVectorHighlighter;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolAutoTuner;
 import org.elasticsearch.transport.RemoteClusterAware;
 import org.elasticsearch.transport.RemoteClusterService;
 import org.elasticsearch.transport.TransportSettings;
@@ -291,6 +294,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
                     SearchService.DEFAULT_ALLOW_PARTIAL_SEARCH_RESULTS,
                     ElectMasterService.DISCOVERY_ZEN_MINIMUM_MASTER_NODES_SETTING,
                     TransportSearchAction.SHARD_COUNT_LIMIT_SETTING,
+                    TransportShardBulkAction.BULK_PREPARE_MIN_ITEMS_SETTING,
                     RemoteClusterAware.REMOTE_CLUSTERS_SEEDS,
                     RemoteClusterAware.SEARCH_REMOTE_CLUSTERS_SEEDS,
                     RemoteClusterAware.REMOTE_CLUSTERS_PROXY,
@@ -324,6 +328,8 @@ public final class ClusterSettings extends AbstractScopedSettings {
                     TransportSettings.PUBLISH_PORT_PROFILE,
                     TransportSettings.OLD_TRANSPORT_COMPRESS,
                     TransportSettings.TRANSPORT_COMPRESS,
+                    TransportSettings.TRANSPORT_COMPRESSION_SCHEME,
+                    TransportSettings.TRANSPORT_COMPRESSED_ACTIONS,
                     TransportSettings.PING_SCHEDULE,
                     TransportSettings.TCP_CONNECT_TIMEOUT,
                     TransportSettings.CONNECT_TIMEOUT,
@@ -410,6 +416,8 @@ public final class ClusterSettings extends AbstractScopedSettings {
                     MultiBucketConsumerService.MAX_BUCKET_SETTING,
                     SearchService.LOW_LEVEL_CANCELLATION_SETTING,
                     SearchService.MAX_OPEN_SCROLL_CONTEXT,
+                    SearchService.MAX_BUFFERED_BUCKETS_SETTING,
+                    CompositeFilterCache.SIZE_SETTING,
                     Node.WRITE_PORTS_FILE_SETTING,
                     Node.NODE_NAME_SETTING,
                     Node.NODE_DATA_SETTING,
@@ -439,6 +447,12 @@ public final class ClusterSettings extends AbstractScopedSettings {
                     JvmGcMonitorService.GC_OVERHEAD_WARN_SETTING,
                     JvmGcMonitorService.GC_OVERHEAD_INFO_SETTING,
                     JvmGcMonitorService.GC_OVERHEAD_DEBUG_SETTING,
+                    ThreadPoolAutoTuner.ENABLED_SETTING,
+                    ThreadPoolAutoTuner.INTERVAL_SETTING,
+                    ThreadPoolAutoTuner.CPU_THRESHOLD_SETTING,
+                    ThreadPoolAutoTuner.CASSANDRA_PENDING_THRESHOLD_SETTING,
+                    ThreadPoolAutoTuner.MIN_SIZE_SETTING,
+                    ThreadPoolAutoTuner.MAX_SIZE_SETTING,
                     PageCacheRecycler.LIMIT_HEAP_SETTING,
                     PageCacheRecycler.WEIGHT_BYTES_SETTING,
                     PageCacheRecycler.WEIGHT_INT_SETTING,
@@ -465,6 +479,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
                     FastVectorHighlighter.SETTING_TV_HIGHLIGHT_MULTI_VALUE,
                     Node.BREAKER_TYPE_KEY,
                     OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING,
+                    OperationRouting.USE_TOKEN_AWARE_SEARCH_SETTING,
                     IndexGraveyard.SETTING_MAX_TOMBSTONES,
                     ClusterService.SETTING_DATCENTER_GROUP,
                     ClusterService.SETTING_DATACENTER_TAGS,
@@ -104,6 +104,14 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexMetaData.INDEX_INDEX_STATIC_DOCUMENT_SETTING,
         IndexMetaData.INDEX_INDEX_INSERT_ONLY_SETTING,
         IndexMetaData.INDEX_INDEX_OPAQUE_STORAGE_SETTING,
+        IndexMetaData.INDEX_INDEX_OPAQUE_STORAGE_FORMAT_SETTING,
+        IndexMetaData.INDEX_FETCH_FROM_DOCVALUES_SETTING,
+        IndexMetaData.INDEX_DOCVALUES_LIVENESS_CHECK_SETTING,
+        IndexMetaData.INDEX_CONCURRENT_SEARCH_SLICES_SETTING,
+        IndexMetaData.INDEX_COMPOSITE_FILTER_CACHE_SETTING,
+        IndexMetaData.INDEX_SEGMENT_REQUEST_CACHE_SETTING,
+        IndexMetaData.INDEX_QUERY_CACHE_WARMER_QUERIES_SETTING,
+        IndexMetaData.INDEX_QUERY_CACHE_WARMER_TIMEOUT_SETTING,
 
         IndexMetaData.INDEX_FORMAT_SETTING,
         SearchSlowLog.INDEX_SEARCH_SLOWLOG_THRESHOLD_FETCH_DEBUG_SETTING,
@@ -171,6 +179,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
         IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING,
         IndexSettings.INDEX_SEARCH_THROTTLED,
         IndexFieldDataService.INDEX_FIELDDATA_CACHE_KEY,
+        IndexFieldDataService.INDEX_FIELDDATA_INCREMENTAL_GLOBAL_ORDINALS,
         FieldMapper.IGNORE_MALFORMED_SETTING,
         FieldMapper.COERCE_SETTING,
         Store.INDEX_STORE_STATS_REFRESH_INTERVAL_SETTING,
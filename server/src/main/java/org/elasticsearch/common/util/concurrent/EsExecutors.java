@@ -81,11 +81,22 @@ public class EsExecutors {
 
     public static EsThreadPoolExecutor newFixed(String name, int size, int queueCapacity,
                                                 ThreadFactory threadFactory, ThreadContext contextHolder) {
+        return newFixed(name, size, queueCapacity, ConcurrentCollections.newBlockingQueue(), threadFactory, contextHolder);
+    }
+
+    /**
+     * Return a new fixed executor queuing its tasks in the given unbounded queue, for example a {@link WeightedFairBlockingQueue}.
+     *
+     * @param queueCapacity maximum number of queued tasks, -1 for unbounded
+     * @param backingQueue unbounded queue holding the queued tasks
+     */
+    public static EsThreadPoolExecutor newFixed(String name, int size, int queueCapacity, BlockingQueue<Runnable> backingQueue,
+                                                ThreadFactory threadFactory, ThreadContext contextHolder) {
         BlockingQueue<Runnable> queue;
         if (queueCapacity < 0) {
-            queue = ConcurrentCollections.newBlockingQueue();
+            queue = backingQueue;
         } else {
-            queue = new SizeBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), queueCapacity);
+            queue = new SizeBlockingQueue<>(backingQueue, queueCapacity);
         }
         return new EsThreadPoolExecutor(name, size, size, 0, TimeUnit.MILLISECONDS,
             queue, threadFactory, new EsAbortPolicy(), contextHolder);
@@ -103,12 +114,24 @@ public class EsExecutors {
     public static EsThreadPoolExecutor newAutoQueueFixed(String name, int size, int initialQueueCapacity, int minQueueSize,
                                                          int maxQueueSize, int frameSize, TimeValue targetedResponseTime,
                                                          ThreadFactory threadFactory, ThreadContext contextHolder) {
+        return newAutoQueueFixed(name, size, initialQueueCapacity, minQueueSize, maxQueueSize, frameSize, targetedResponseTime,
+            ConcurrentCollections.newBlockingQueue(), threadFactory, contextHolder);
+    }
+
+    /**
+     * Return a new executor that will automatically adjust the queue size based on queue throughput, queuing its tasks
+     * in the given unbounded queue, for example a {@link WeightedFairBlockingQueue}.
+     */
+    public static EsThreadPoolExecutor newAutoQueueFixed(String name, int size, int initialQueueCapacity, int minQueueSize,
+                                                         int maxQueueSize, int frameSize, TimeValue targetedResponseTime,
+                                                         BlockingQueue<Runnable> backingQueue,
+                                                         ThreadFactory threadFactory, ThreadContext contextHolder) {
         if (initialQueueCapacity <= 0) {
             throw new IllegalArgumentException("initial queue capacity for [" + name + "] executor must be positive, got: " +
                             initialQueueCapacity);
         }
         ResizableBlockingQueue<Runnable> queue =
-                new ResizableBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), initialQueueCapacity);
+                new ResizableBlockingQueue<>(backingQueue, initialQueueCapacity);
         return new QueueResizingEsThreadPoolExecutor(name, size, size, 0, TimeUnit.MILLISECONDS,
                 queue, minQueueSize, maxQueueSize, TimedRunnable::new, frameSize, targetedResponseTime, threadFactory,
                 new EsAbortPolicy(), contextHolder);
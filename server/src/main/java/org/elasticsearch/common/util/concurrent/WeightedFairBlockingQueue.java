@@ -0,0 +1,367 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * An unbounded blocking queue serving its elements by weighted fair queuing (self-clocked) across classes,
+ * rather than in FIFO order. The class of an element is computed on insertion, so a class with a weight of 4
+ * is served four times as often as a class with a weight of 1 while both have queued elements. Elements of the
+ * same class, and elements of distinct classes having the same virtual finish time, are served in FIFO order.
+ * Each class may be bounded, {@link #offer(Object)} returns false when the class of the element is full while
+ * {@link #put(Object)} ignores the class bounds.
+ * Wrap this queue in a {@link SizeBlockingQueue} to bound the total number of elements.
+ */
+public class WeightedFairBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Function<? super E, String> classifier;
+    private final Map<String, Integer> weights;
+    private final Map<String, Integer> capacities;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // the classes having queued elements
+    private final Map<String, Flow<E>> flows = new HashMap<>();
+    private int count;
+    private long sequence;
+    private double virtualTime;
+
+    /**
+     * @param classifier computes the class of an element when it is inserted, null for the default class
+     * @param weights    the weight of each class, classes without weight have a weight of 1
+     * @param capacities the maximum number of queued elements of each class, classes without capacity are unbounded
+     */
+    public WeightedFairBlockingQueue(Function<? super E, String> classifier, Map<String, Integer> weights,
+                                     Map<String, Integer> capacities) {
+        this.classifier = Objects.requireNonNull(classifier);
+        this.weights = Objects.requireNonNull(weights);
+        this.capacities = Objects.requireNonNull(capacities);
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            if (weight.getValue() <= 0) {
+                throw new IllegalArgumentException("weight of class [" + weight.getKey() + "] must be positive, got " + weight.getValue());
+            }
+        }
+    }
+
+    private static final class Entry<E> {
+        final E element;
+        final double finishTime;
+        final long sequence;
+
+        Entry(E element, double finishTime, long sequence) {
+            this.element = element;
+            this.finishTime = finishTime;
+            this.sequence = sequence;
+        }
+
+        boolean before(Entry<E> other) {
+            return finishTime < other.finishTime || (finishTime == other.finishTime && sequence < other.sequence);
+        }
+    }
+
+    private static final class Flow<E> {
+        final ArrayDeque<Entry<E>> entries = new ArrayDeque<>();
+        final double cost;
+        final int capacity;
+        double lastFinishTime;
+
+        Flow(int weight, int capacity) {
+            this.cost = 1.0d / weight;
+            this.capacity = capacity;
+        }
+    }
+
+    private static String classKey(String clazz) {
+        return clazz == null ? "" : clazz;
+    }
+
+    /**
+     * Enqueue the element in its class if not full, or regardless of the class bound when forced. Called under the lock.
+     */
+    private boolean enqueue(E e, String clazz, boolean force) {
+        Flow<E> flow = flows.get(clazz);
+        if (flow == null) {
+            flow = new Flow<>(weights.getOrDefault(clazz, 1), capacities.getOrDefault(clazz, Integer.MAX_VALUE));
+            if (force == false && flow.capacity <= 0) {
+                return false;
+            }
+            flows.put(clazz, flow);
+        } else if (force == false && flow.entries.size() >= flow.capacity) {
+            return false;
+        }
+        final double finishTime = Math.max(virtualTime, flow.lastFinishTime) + flow.cost;
+        flow.lastFinishTime = finishTime;
+        flow.entries.addLast(new Entry<>(e, finishTime, sequence++));
+        count++;
+        notEmpty.signal();
+        return true;
+    }
+
+    /**
+     * The class serving the element of the smallest virtual finish time. Called under the lock.
+     */
+    private Flow<E> nextFlow() {
+        Flow<E> next = null;
+        for (Flow<E> flow : flows.values()) {
+            if (next == null || flow.entries.peekFirst().before(next.entries.peekFirst())) {
+                next = flow;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Dequeue the next element, called under the lock when the queue is not empty.
+     */
+    private E dequeue() {
+        final Flow<E> flow = nextFlow();
+        final Entry<E> entry = flow.entries.pollFirst();
+        virtualTime = entry.finishTime;
+        if (flow.entries.isEmpty()) {
+            flows.values().remove(flow);
+        }
+        if (--count == 0) {
+            // all classes are idle, restart the virtual clock
+            virtualTime = 0;
+            sequence = 0;
+        }
+        return entry.element;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        final String clazz = classKey(classifier.apply(e));
+        lock.lock();
+        try {
+            return enqueue(e, clazz, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    /**
+     * Inserts the element regardless of the bound of its class.
+     */
+    @Override
+    public void put(E e) {
+        Objects.requireNonNull(e);
+        final String clazz = classKey(classifier.apply(e));
+        lock.lock();
+        try {
+            enqueue(e, clazz, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            return count == 0 ? null : nextFlow().entries.peekFirst().element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of queued elements of a class.
+     */
+    public int size(String clazz) {
+        lock.lock();
+        try {
+            final Flow<E> flow = flows.get(classKey(clazz));
+            return flow == null ? 0 : flow.entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (Iterator<Flow<E>> flowIterator = flows.values().iterator(); flowIterator.hasNext(); ) {
+                final Flow<E> flow = flowIterator.next();
+                for (Iterator<Entry<E>> entries = flow.entries.iterator(); entries.hasNext(); ) {
+                    if (o.equals(entries.next().element)) {
+                        entries.remove();
+                        if (flow.entries.isEmpty()) {
+                            flowIterator.remove();
+                        }
+                        if (--count == 0) {
+                            virtualTime = 0;
+                            sequence = 0;
+                        }
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException("cannot drain a queue to itself");
+        }
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && count > 0) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the queued elements, in no particular order.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final List<E> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(count);
+            for (Flow<E> flow : flows.values()) {
+                for (Entry<E> entry : flow.entries) {
+                    snapshot.add(entry.element);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        final Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            E current;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                current = it.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                WeightedFairBlockingQueue.this.remove(current);
+                current = null;
+            }
+        };
+    }
+}
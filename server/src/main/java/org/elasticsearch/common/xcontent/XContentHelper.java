@@ -182,6 +182,28 @@ public class XContentHelper {
         }
     }
 
+    /**
+     * Converts the given bytes from the provided {@link XContentType} into the target {@link XContentType}.
+     * The bytes are returned as-is when both types are the same.
+     */
+    public static BytesReference convert(BytesReference bytes, XContentType xContentType, XContentType targetType) throws IOException {
+        Objects.requireNonNull(xContentType);
+        Objects.requireNonNull(targetType);
+        if (xContentType == targetType) {
+            return bytes;
+        }
+
+        // It is safe to use EMPTY here because this never uses namedObject
+        try (InputStream stream = bytes.streamInput();
+             XContentParser parser = XContentFactory.xContent(xContentType).createParser(NamedXContentRegistry.EMPTY,
+                 DeprecationHandler.THROW_UNSUPPORTED_OPERATION, stream)) {
+            parser.nextToken();
+            XContentBuilder builder = XContentFactory.contentBuilder(targetType);
+            builder.copyCurrentStructure(parser);
+            return BytesReference.bytes(builder);
+        }
+    }
+
     /**
      * Updates the provided changes into the source. If the key exists in the changes, it overrides the one in source
      * unless both are Maps, in which case it recursively updated it.
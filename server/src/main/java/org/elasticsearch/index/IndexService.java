@@ -308,6 +308,13 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
         }
     }
 
+    /**
+     * Returns the field data service of this index.
+     */
+    public IndexFieldDataService fieldData() {
+        return indexFieldData;
+    }
+
     public SearchProcessorFactory searchProcessorFactory() {
         return this.searchProcessorFactory;
     }
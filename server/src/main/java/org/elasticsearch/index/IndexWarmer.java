@@ -23,7 +23,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.cache.query.QueryHistoryCachingPolicy;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
@@ -33,6 +41,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -53,6 +62,7 @@ public final class IndexWarmer {
         ArrayList<Listener> list = new ArrayList<>();
         final Executor executor = threadPool.executor(ThreadPool.Names.WARMER);
         list.add(new FieldDataWarmer(executor, indexFieldDataService));
+        list.add(new QueryCacheWarmer(executor));
 
         Collections.addAll(list, listeners);
         this.listeners = Collections.unmodifiableList(list);
@@ -120,10 +130,14 @@ public final class IndexWarmer {
         public TerminationHandle warmReader(final IndexShard indexShard, final Engine.Searcher searcher) {
             final MapperService mapperService = indexShard.mapperService();
             final Map<String, MappedFieldType> warmUpGlobalOrdinals = new HashMap<>();
+            // global ordinals loaded for the previous reader are built incrementally while it is still open
+            final boolean incremental =
+                indexShard.indexSettings().getValue(IndexFieldDataService.INDEX_FIELDDATA_INCREMENTAL_GLOBAL_ORDINALS);
 
             for (MappedFieldType fieldType : mapperService.fieldTypes()) {
                 final String indexName = fieldType.name();
-                if (fieldType.eagerGlobalOrdinals() == false) {
+                if (fieldType.eagerGlobalOrdinals() == false
+                        && (incremental == false || indexFieldDataService.hasGlobalOrdinals(indexShard.shardId(), indexName) == false)) {
                     continue;
                 }
                 warmUpGlobalOrdinals.put(indexName, fieldType);
@@ -160,4 +174,87 @@ public final class IndexWarmer {
         }
     }
 
+    /**
+     * Cache the most frequent filters recorded by the {@link QueryHistoryCachingPolicy} of the shard in the query cache,
+     * so that the first searches on new segments do not pay the filter cost. Segments already cached are skipped by the
+     * query cache, and the warming stops when the time budget is exhausted.
+     */
+    private static class QueryCacheWarmer implements IndexWarmer.Listener {
+
+        // queries to warm are already frequent, and warming must not count as a usage.
+        private static final QueryCachingPolicy WARMING_POLICY = new QueryCachingPolicy() {
+            @Override
+            public void onUse(Query query) {
+            }
+
+            @Override
+            public boolean shouldCache(Query query) {
+                return true;
+            }
+        };
+
+        private final Executor executor;
+
+        QueryCacheWarmer(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public TerminationHandle warmReader(final IndexShard indexShard, final Engine.Searcher searcher) {
+            if (indexShard.getQueryCachingPolicy() instanceof QueryHistoryCachingPolicy == false) {
+                return TerminationHandle.NO_WAIT;
+            }
+            final QueryHistoryCachingPolicy cachingPolicy = (QueryHistoryCachingPolicy) indexShard.getQueryCachingPolicy();
+            final int maxQueries = indexShard.indexSettings().getValue(IndexMetaData.INDEX_QUERY_CACHE_WARMER_QUERIES_SETTING);
+            cachingPolicy.recording(maxQueries > 0);
+            final QueryCache queryCache = searcher.searcher().getQueryCache();
+            if (maxQueries == 0 || queryCache == null) {
+                return TerminationHandle.NO_WAIT;
+            }
+
+            final List<Query> queries;
+            try {
+                queries = cachingPolicy.frequentQueries(maxQueries);
+            } catch (IOException e) {
+                indexShard.warmerService().logger().warn("failed to select the queries to warm", e);
+                return TerminationHandle.NO_WAIT;
+            }
+            if (queries.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+
+            final long timeout = TimeUnit.MILLISECONDS.toNanos(
+                indexShard.indexSettings().getValue(IndexMetaData.INDEX_QUERY_CACHE_WARMER_TIMEOUT_SETTING));
+            final long deadline = System.nanoTime() + timeout;
+            final IndexSearcher warmSearcher = new IndexSearcher(searcher.reader());
+            warmSearcher.setQueryCache(queryCache);
+            warmSearcher.setQueryCachingPolicy(WARMING_POLICY);
+            final CountDownLatch latch = new CountDownLatch(queries.size());
+            for (final Query query : queries) {
+                executor.execute(() -> {
+                    try {
+                        final long start = System.nanoTime();
+                        // the caching weight computes and caches the doc id set of each segment when creating its scorer.
+                        final Weight weight = warmSearcher.createNormalizedWeight(query, false);
+                        for (LeafReaderContext ctx : searcher.reader().leaves()) {
+                            if (System.nanoTime() - deadline > 0) {
+                                break;
+                            }
+                            weight.scorer(ctx);
+                        }
+                        if (indexShard.warmerService().logger().isTraceEnabled()) {
+                            indexShard.warmerService().logger().trace("warmed query cache for [{}], took [{}]",
+                                query, TimeValue.timeValueNanos(System.nanoTime() - start));
+                        }
+                    } catch (Exception e) {
+                        indexShard.warmerService().logger().warn(() -> new ParameterizedMessage("failed to warm-up query cache for [{}]",
+                            query), e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            return () -> latch.await(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link QueryCachingPolicy} recording the recent cacheable queries of a shard, so that the most frequent
+ * ones can be cached for the new segments before a refreshed searcher is published.
+ */
+public class QueryHistoryCachingPolicy implements QueryCachingPolicy {
+
+    // same history length as the UsageTrackingQueryCachingPolicy
+    static final int HISTORY_SIZE = 256;
+
+    private final QueryCachingPolicy in;
+    private final Query[] history = new Query[HISTORY_SIZE];
+    private final Map<Query, Integer> frequencies = new HashMap<>();
+    private int position;
+    private volatile boolean recording;
+
+    public QueryHistoryCachingPolicy(QueryCachingPolicy in) {
+        this.in = in;
+    }
+
+    /**
+     * Enable or disable the recording of used queries, disabling clears the history.
+     */
+    public void recording(boolean recording) {
+        if (this.recording != recording) {
+            this.recording = recording;
+            if (recording == false) {
+                clear();
+            }
+        }
+    }
+
+    private synchronized void clear() {
+        frequencies.clear();
+        for (int i = 0; i < history.length; i++) {
+            history[i] = null;
+        }
+        position = 0;
+    }
+
+    @Override
+    public void onUse(Query query) {
+        in.onUse(query);
+        if (recording) {
+            record(query);
+        }
+    }
+
+    private synchronized void record(Query query) {
+        final Query evicted = history[position];
+        if (evicted != null) {
+            frequencies.computeIfPresent(evicted, (q, count) -> count == 1 ? null : count - 1);
+        }
+        history[position] = query;
+        frequencies.merge(query, 1, Integer::sum);
+        position = (position + 1) % HISTORY_SIZE;
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+        return in.shouldCache(query);
+    }
+
+    /**
+     * Return at most max recorded queries by decreasing frequency, among those the wrapped policy would cache.
+     */
+    public List<Query> frequentQueries(int max) throws IOException {
+        final List<Map.Entry<Query, Integer>> entries = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Query, Integer> entry : frequencies.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+        }
+        entries.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+        final List<Query> queries = new ArrayList<>(Math.min(max, entries.size()));
+        for (Map.Entry<Query, Integer> entry : entries) {
+            if (queries.size() >= max) {
+                break;
+            }
+            if (in.shouldCache(entry.getKey())) {
+                queries.add(entry.getKey());
+            }
+        }
+        return queries;
+    }
+}
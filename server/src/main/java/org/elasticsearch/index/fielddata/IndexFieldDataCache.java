@@ -22,6 +22,7 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Accountable;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.shard.ShardId;
 
 /**
@@ -34,6 +35,15 @@ public interface IndexFieldDataCache {
     <FD extends AtomicFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(DirectoryReader indexReader, IFD indexFieldData)
         throws Exception;
 
+    /**
+     * Returns the global field data last loaded in this cache for a reader of the provided shard that is still open, or null
+     * if there is none. Global field data of a refreshed reader of the shard may be built incrementally from it.
+     */
+    @Nullable
+    default IndexFieldData.Global<?> getLastGlobal(@Nullable ShardId shardId) {
+        return null;
+    }
+
     /**
      * Clears all the field data stored cached in on this index.
      */
@@ -52,6 +52,8 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Clo
                     throw new IllegalArgumentException("failed to parse [" + s + "] must be one of [node,none]");
             }
         }, Property.IndexScope);
+    public static final Setting<Boolean> INDEX_FIELDDATA_INCREMENTAL_GLOBAL_ORDINALS =
+        Setting.boolSetting("index.fielddata.incremental_global_ordinals", true, Property.IndexScope, Property.Dynamic);
 
     private final CircuitBreakerService circuitBreakerService;
 
@@ -93,6 +95,15 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Clo
         ExceptionsHelper.maybeThrowRuntimeAndSuppress(exceptions);
     }
 
+    /**
+     * Returns true if global ordinals of the provided field are cached for a reader of the provided shard, that global
+     * ordinals of a refreshed reader can be built incrementally from.
+     */
+    public synchronized boolean hasGlobalOrdinals(ShardId shardId, String fieldName) {
+        final IndexFieldDataCache cache = fieldDataCaches.get(fieldName);
+        return cache != null && cache.getLastGlobal(shardId) != null;
+    }
+
     public synchronized void clearField(final String fieldName) {
         List<Exception> exceptions = new ArrayList<>(0);
         final IndexFieldDataCache cache = fieldDataCaches.remove(fieldName);
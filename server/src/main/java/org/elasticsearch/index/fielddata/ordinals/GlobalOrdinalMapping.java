@@ -19,7 +19,6 @@
 
 package org.elasticsearch.index.fielddata.ordinals;
 
-import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
@@ -32,16 +31,17 @@ import java.io.IOException;
 final class GlobalOrdinalMapping extends SortedSetDocValues {
 
     private final SortedSetDocValues values;
-    private final OrdinalMap ordinalMap;
+    private final IncrementalOrdinalMap ordinalMap;
     private final LongValues mapping;
     private final SortedSetDocValues[] bytesValues;
 
-    GlobalOrdinalMapping(OrdinalMap ordinalMap, SortedSetDocValues[] bytesValues, int segmentIndex) {
+    GlobalOrdinalMapping(IncrementalOrdinalMap ordinalMap, SortedSetDocValues[] bytesValues, SortedSetDocValues values,
+                         LongValues mapping) {
         super();
-        this.values = bytesValues[segmentIndex];
+        this.values = values;
         this.bytesValues = bytesValues;
         this.ordinalMap = ordinalMap;
-        this.mapping = ordinalMap.getGlobalOrds(segmentIndex);
+        this.mapping = mapping;
     }
 
     @Override
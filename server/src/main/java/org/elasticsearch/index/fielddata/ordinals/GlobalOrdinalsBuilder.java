@@ -22,14 +22,15 @@ package org.elasticsearch.index.fielddata.ordinals;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.Accountable;
-import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
@@ -48,11 +49,14 @@ public enum GlobalOrdinalsBuilder {
     ;
 
     /**
-     * Build global ordinals for the provided {@link IndexReader}.
+     * Build global ordinals for the provided {@link IndexReader}. If global ordinals of the field were built for a previous
+     * reader of the shard, and the segments holding values are still leaves of the provided reader, their ordinal map is
+     * extended with the new segments instead of being built from scratch.
      */
     public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
             IndexSettings indexSettings, CircuitBreakerService breakerService, Logger logger,
-            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) throws IOException {
+            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction,
+            @Nullable IndexFieldData.Global<?> previous) throws IOException {
         assert indexReader.leaves().size() > 1;
         long startTimeNS = System.nanoTime();
 
@@ -62,20 +66,33 @@ public enum GlobalOrdinalsBuilder {
             atomicFD[i] = indexFieldData.load(indexReader.leaves().get(i));
             subs[i] = atomicFD[i].getOrdinalsValues();
         }
-        final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        final int[] leafSegments = new int[subs.length];
+        IncrementalOrdinalMap ordinalMap = null;
+        if (previous instanceof GlobalOrdinalsIndexFieldData
+                && indexSettings.getValue(IndexFieldDataService.INDEX_FIELDDATA_INCREMENTAL_GLOBAL_ORDINALS)) {
+            final IncrementalOrdinalMap previousMap = ((GlobalOrdinalsIndexFieldData) previous).getIncrementalOrdinalMap();
+            if (previousMap != null) {
+                ordinalMap = previousMap.extend(indexReader, subs, leafSegments);
+            }
+        }
+        final boolean extended = ordinalMap != null;
+        if (extended == false) {
+            ordinalMap = IncrementalOrdinalMap.build(indexReader, subs, leafSegments);
+        }
         final long memorySizeInBytes = ordinalMap.ramBytesUsed();
         breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(memorySizeInBytes);
 
         if (logger.isDebugEnabled()) {
             logger.debug(
-                    "global-ordinals [{}][{}] took [{}]",
+                    "global-ordinals [{}][{}] {} took [{}]",
                     indexFieldData.getFieldName(),
                     ordinalMap.getValueCount(),
+                    extended ? "extended" : "built",
                     new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS)
             );
         }
         return new GlobalOrdinalsIndexFieldData(indexSettings, indexFieldData.getFieldName(),
-                atomicFD, ordinalMap, memorySizeInBytes, scriptFunction
+                atomicFD, ordinalMap, leafSegments, memorySizeInBytes, scriptFunction
         );
     }
 
@@ -108,9 +125,10 @@ public enum GlobalOrdinalsBuilder {
             };
             subs[i] = atomicFD[i].getOrdinalsValues();
         }
-        final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        final int[] leafSegments = new int[subs.length];
+        final IncrementalOrdinalMap ordinalMap = IncrementalOrdinalMap.build(indexReader, subs, leafSegments);
         return new GlobalOrdinalsIndexFieldData(indexSettings, indexFieldData.getFieldName(),
-                atomicFD, ordinalMap, 0, AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
+                atomicFD, ordinalMap, leafSegments, 0, AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
         );
     }
 
@@ -19,11 +19,14 @@
 package org.elasticsearch.index.fielddata.ordinals;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.IndexSettings;
@@ -35,6 +38,8 @@ import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
 import org.elasticsearch.search.MultiValueMode;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.function.Function;
@@ -47,25 +52,44 @@ public class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent impleme
     private final String fieldName;
     private final long memorySizeInBytes;
 
-    private final OrdinalMap ordinalMap;
+    private final IncrementalOrdinalMap ordinalMap;
+    private final int[] leafSegments;
+    private final AtomicOrdinalsFieldData[] segmentAfd;
     private final Atomic[] atomicReaders;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
+    // whether a lucene ordinal map was requested for this field, the next global ordinals of the field are then built from scratch
+    private volatile boolean ordinalMapRequested;
 
-
-    protected GlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, AtomicOrdinalsFieldData[] segmentAfd,
-                                           OrdinalMap ordinalMap, long memorySizeInBytes, Function<SortedSetDocValues,
-                                           ScriptDocValues<?>> scriptFunction) {
+    GlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, AtomicOrdinalsFieldData[] leafAfd,
+                                 IncrementalOrdinalMap ordinalMap, int[] leafSegments, long memorySizeInBytes,
+                                 Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
         super(indexSettings);
         this.fieldName = fieldName;
         this.memorySizeInBytes = memorySizeInBytes;
         this.ordinalMap = ordinalMap;
-        this.atomicReaders = new Atomic[segmentAfd.length];
-        for (int i = 0; i < segmentAfd.length; i++) {
-            atomicReaders[i] = new Atomic(segmentAfd[i], ordinalMap, i);
+        this.leafSegments = leafSegments;
+        this.segmentAfd = new AtomicOrdinalsFieldData[ordinalMap.getSegmentCount()];
+        for (int i = 0; i < leafAfd.length; i++) {
+            if (leafSegments[i] >= 0) {
+                segmentAfd[leafSegments[i]] = leafAfd[i];
+            }
+        }
+        this.atomicReaders = new Atomic[leafAfd.length];
+        for (int i = 0; i < leafAfd.length; i++) {
+            atomicReaders[i] = new Atomic(leafAfd[i], leafSegments[i]);
         }
         this.scriptFunction = scriptFunction;
     }
 
+    /**
+     * Returns the map of these global ordinals, that global ordinals of a refreshed reader may extend, or null if a lucene
+     * {@link OrdinalMap} was requested for the field and global ordinals must be built from scratch.
+     */
+    @Nullable
+    IncrementalOrdinalMap getIncrementalOrdinalMap() {
+        return ordinalMapRequested ? null : ordinalMap;
+    }
+
     @Override
     public AtomicOrdinalsFieldData loadDirect(LeafReaderContext context) throws Exception {
         return load(context);
@@ -114,20 +138,40 @@ public class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent impleme
 
     @Override
     public OrdinalMap getOrdinalMap() {
-        return ordinalMap;
+        // the next global ordinals of the field are built from scratch so that they have a lucene ordinal map
+        ordinalMapRequested = true;
+        final OrdinalMap luceneOrdinalMap = ordinalMap.getOrdinalMap();
+        if (luceneOrdinalMap != null) {
+            return luceneOrdinalMap;
+        }
+        // the segments of extended global ordinals are not the leaves of the reader, build the lucene ordinal map for this request
+        final SortedSetDocValues[] subs = new SortedSetDocValues[atomicReaders.length];
+        for (int i = 0; i < subs.length; i++) {
+            subs[i] = atomicReaders[i].afd.getOrdinalsValues();
+        }
+        try {
+            return OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public LongValues getGlobalOrds(LeafReaderContext context) {
+        final int segment = leafSegments[context.ord];
+        // leaves without values have no segment
+        return segment < 0 ? LongValues.IDENTITY : ordinalMap.getGlobalOrds(segment);
     }
 
     private final class Atomic extends AbstractAtomicOrdinalsFieldData {
 
         private final AtomicOrdinalsFieldData afd;
-        private final OrdinalMap ordinalMap;
-        private final int segmentIndex;
+        private final int segment;
 
-        private Atomic(AtomicOrdinalsFieldData afd, OrdinalMap ordinalMap, int segmentIndex) {
+        private Atomic(AtomicOrdinalsFieldData afd, int segment) {
             super(scriptFunction);
             this.afd = afd;
-            this.ordinalMap = ordinalMap;
-            this.segmentIndex = segmentIndex;
+            this.segment = segment;
         }
 
         @Override
@@ -137,11 +181,12 @@ public class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent impleme
                 // segment ordinals match global ordinals
                 return values;
             }
-            final SortedSetDocValues[] bytesValues = new SortedSetDocValues[atomicReaders.length];
+            final SortedSetDocValues[] bytesValues = new SortedSetDocValues[segmentAfd.length];
             for (int i = 0; i < bytesValues.length; i++) {
-                bytesValues[i] = atomicReaders[i].afd.getOrdinalsValues();
+                bytesValues[i] = segmentAfd[i] == null ? DocValues.emptySortedSet() : segmentAfd[i].getOrdinalsValues();
             }
-            return new GlobalOrdinalMapping(ordinalMap, bytesValues, segmentIndex);
+            final LongValues mapping = segment < 0 ? LongValues.IDENTITY : ordinalMap.getGlobalOrds(segment);
+            return new GlobalOrdinalMapping(ordinalMap, bytesValues, values, mapping);
         }
 
         @Override
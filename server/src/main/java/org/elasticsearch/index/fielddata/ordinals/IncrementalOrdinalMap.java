@@ -0,0 +1,321 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the ordinals of segments to global ordinals like Lucene's {@link OrdinalMap}, and can be extended with the new
+ * segments of a refreshed reader. Extending only looks up the terms of the new segments in the global terms, instead of
+ * merging the terms of all the segments again, and remaps the ordinals of the unchanged segments without reading their
+ * terms.
+ *
+ * Segments are numbered in the order they were added to the map, the leaves of a reader are mapped to these segment
+ * numbers by the {@code leafSegments} computed by {@link #build} and {@link #extend}.
+ */
+final class IncrementalOrdinalMap implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IncrementalOrdinalMap.class);
+
+    // core cache key and value count of each segment
+    private final IndexReader.CacheKey[] segmentKeys;
+    private final long[] segmentValueCounts;
+    private final long valueCount;
+    // the lucene ordinal map of a map built from scratch, whose segments are the leaves of the reader
+    private final OrdinalMap ordinalMap;
+    // the global ordinals of each segment, first segment and ordinal in this segment of each global ordinal of an extended map
+    private final LongValues[] globalOrds;
+    private final PackedLongValues firstSegments;
+    private final PackedLongValues firstSegmentOrds;
+    private final long ramBytesUsed;
+
+    private IncrementalOrdinalMap(IndexReader.CacheKey[] segmentKeys, long[] segmentValueCounts, OrdinalMap ordinalMap) {
+        this.segmentKeys = segmentKeys;
+        this.segmentValueCounts = segmentValueCounts;
+        this.valueCount = ordinalMap.getValueCount();
+        this.ordinalMap = ordinalMap;
+        this.globalOrds = null;
+        this.firstSegments = null;
+        this.firstSegmentOrds = null;
+        this.ramBytesUsed = BASE_RAM_BYTES_USED + ordinalMap.ramBytesUsed() + RamUsageEstimator.sizeOf(segmentValueCounts)
+            + RamUsageEstimator.shallowSizeOf(segmentKeys);
+    }
+
+    private IncrementalOrdinalMap(IndexReader.CacheKey[] segmentKeys, long[] segmentValueCounts, long valueCount,
+                                  PackedLongValues[] globalOrds, PackedLongValues firstSegments, PackedLongValues firstSegmentOrds) {
+        this.segmentKeys = segmentKeys;
+        this.segmentValueCounts = segmentValueCounts;
+        this.valueCount = valueCount;
+        this.ordinalMap = null;
+        this.globalOrds = globalOrds;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrds = firstSegmentOrds;
+        long ramBytesUsed = BASE_RAM_BYTES_USED + firstSegments.ramBytesUsed() + firstSegmentOrds.ramBytesUsed()
+            + RamUsageEstimator.sizeOf(segmentValueCounts) + RamUsageEstimator.shallowSizeOf(segmentKeys)
+            + RamUsageEstimator.shallowSizeOf(globalOrds);
+        for (PackedLongValues segmentGlobalOrds : globalOrds) {
+            ramBytesUsed += segmentGlobalOrds.ramBytesUsed();
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Builds the map of all the leaves of the provided reader, whose values are {@code subs}. The segment number of each
+     * leaf is its ordinal, and is set in {@code leafSegments}.
+     */
+    static IncrementalOrdinalMap build(IndexReader indexReader, SortedSetDocValues[] subs, int[] leafSegments) throws IOException {
+        final List<LeafReaderContext> leaves = indexReader.leaves();
+        final IndexReader.CacheKey[] segmentKeys = new IndexReader.CacheKey[leaves.size()];
+        final long[] segmentValueCounts = new long[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            final IndexReader.CacheHelper cacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+            segmentKeys[i] = cacheHelper == null ? null : cacheHelper.getKey();
+            segmentValueCounts[i] = subs[i].getValueCount();
+            leafSegments[i] = i;
+        }
+        return new IncrementalOrdinalMap(segmentKeys, segmentValueCounts, OrdinalMap.build(null, subs, PackedInts.DEFAULT));
+    }
+
+    /**
+     * Extends this map with the new segments of the provided reader, whose values are {@code subs}, and sets the segment
+     * number of each leaf in {@code leafSegments}, -1 for leaves without values. Returns null if the map cannot be extended
+     * because a segment holding values is not a leaf of the reader anymore, as after a merge, or if the new segments hold
+     * more terms than the map, in which case it is as cheap to build the map from scratch.
+     */
+    @Nullable
+    IncrementalOrdinalMap extend(IndexReader indexReader, SortedSetDocValues[] subs, int[] leafSegments) throws IOException {
+        final Map<IndexReader.CacheKey, Integer> segments = new HashMap<>();
+        for (int i = 0; i < segmentKeys.length; i++) {
+            if (segmentValueCounts[i] > 0) {
+                if (segmentKeys[i] == null) {
+                    return null;
+                }
+                segments.put(segmentKeys[i], i);
+            }
+        }
+        final List<LeafReaderContext> leaves = indexReader.leaves();
+        final SortedSetDocValues[] segmentValues = new SortedSetDocValues[segmentKeys.length];
+        final List<Integer> newLeaves = new ArrayList<>();
+        for (int i = 0; i < leaves.size(); i++) {
+            leafSegments[i] = -1;
+            final long leafValueCount = subs[i].getValueCount();
+            if (leafValueCount == 0) {
+                continue;
+            }
+            final IndexReader.CacheHelper cacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+            if (cacheHelper == null) {
+                return null;
+            }
+            final Integer segment = segments.remove(cacheHelper.getKey());
+            if (segment == null) {
+                newLeaves.add(i);
+            } else if (segmentValueCounts[segment] != leafValueCount) {
+                return null;
+            } else {
+                leafSegments[i] = segment;
+                segmentValues[segment] = subs[i];
+            }
+        }
+        if (segments.isEmpty() == false) {
+            // some terms may not exist anymore
+            return null;
+        }
+        if (newLeaves.isEmpty()) {
+            return this;
+        }
+
+        // the sorted terms of the new segments
+        final SortedSetDocValues[] newSubs = new SortedSetDocValues[newLeaves.size()];
+        for (int i = 0; i < newSubs.length; i++) {
+            newSubs[i] = subs[newLeaves.get(i)];
+        }
+        final OrdinalMap newOrdinalMap = newSubs.length == 1 ? null : OrdinalMap.build(null, newSubs, PackedInts.DEFAULT);
+        final long newValueCount = newOrdinalMap == null ? newSubs[0].getValueCount() : newOrdinalMap.getValueCount();
+        if (newValueCount > valueCount || newValueCount > ArrayUtil.MAX_ARRAY_LENGTH) {
+            return null;
+        }
+
+        // the number of global terms before each new term, and whether the new term is not a global term yet
+        final int numNewTerms = (int) newValueCount;
+        final long[] positions = new long[numNewTerms];
+        final FixedBitSet added = new FixedBitSet(numNewTerms);
+        long low = 0;
+        for (int i = 0; i < numNewTerms; i++) {
+            final BytesRef term;
+            if (newOrdinalMap == null) {
+                term = BytesRef.deepCopyOf(newSubs[0].lookupOrd(i));
+            } else {
+                final SortedSetDocValues values = newSubs[newOrdinalMap.getFirstSegmentNumber(i)];
+                term = BytesRef.deepCopyOf(values.lookupOrd(newOrdinalMap.getFirstSegmentOrd(i)));
+            }
+            long high = valueCount;
+            while (low < high) {
+                final long mid = (low + high) >>> 1;
+                if (lookupOrd(segmentValues, mid).compareTo(term) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            positions[i] = low;
+            if (low == valueCount || lookupOrd(segmentValues, low).bytesEquals(term) == false) {
+                added.set(i);
+            }
+        }
+        final long[] addedPositions = new long[added.cardinality()];
+        final long[] newGlobalOrds = new long[numNewTerms];
+        for (int i = 0, numAdded = 0; i < numNewTerms; i++) {
+            newGlobalOrds[i] = positions[i] + numAdded;
+            if (added.get(i)) {
+                addedPositions[numAdded++] = positions[i];
+            }
+        }
+
+        final int numSegments = segmentKeys.length + newSubs.length;
+        final IndexReader.CacheKey[] newSegmentKeys = Arrays.copyOf(segmentKeys, numSegments);
+        final long[] newSegmentValueCounts = Arrays.copyOf(segmentValueCounts, numSegments);
+        final PackedLongValues[] newSegmentGlobalOrds = new PackedLongValues[numSegments];
+        // unchanged segments, global ordinals are shifted by the added terms before them
+        for (int segment = 0; segment < segmentKeys.length; segment++) {
+            final LongValues mapping = getGlobalOrds(segment);
+            final PackedLongValues.Builder builder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+            int numAddedBefore = 0;
+            for (long ord = 0; ord < segmentValueCounts[segment]; ord++) {
+                final long globalOrd = mapping.get(ord);
+                while (numAddedBefore < addedPositions.length && addedPositions[numAddedBefore] <= globalOrd) {
+                    numAddedBefore++;
+                }
+                builder.add(globalOrd + numAddedBefore);
+            }
+            newSegmentGlobalOrds[segment] = builder.build();
+        }
+        // new segments
+        for (int i = 0; i < newSubs.length; i++) {
+            final int segment = segmentKeys.length + i;
+            final int leaf = newLeaves.get(i);
+            newSegmentKeys[segment] = leaves.get(leaf).reader().getCoreCacheHelper().getKey();
+            newSegmentValueCounts[segment] = newSubs[i].getValueCount();
+            leafSegments[leaf] = segment;
+            final LongValues mapping = newOrdinalMap == null ? LongValues.IDENTITY : newOrdinalMap.getGlobalOrds(i);
+            final PackedLongValues.Builder builder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+            for (long ord = 0; ord < newSegmentValueCounts[segment]; ord++) {
+                builder.add(newGlobalOrds[(int) mapping.get(ord)]);
+            }
+            newSegmentGlobalOrds[segment] = builder.build();
+        }
+        // first segment of the global terms, merged with the added terms
+        final PackedLongValues.Builder firstSegmentsBuilder = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+        final PackedLongValues.Builder firstSegmentOrdsBuilder = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+        long globalOrd = 0;
+        for (int i = 0; i < numNewTerms; i++) {
+            if (added.get(i) == false) {
+                continue;
+            }
+            for (; globalOrd < positions[i]; globalOrd++) {
+                firstSegmentsBuilder.add(getFirstSegmentNumber(globalOrd));
+                firstSegmentOrdsBuilder.add(getFirstSegmentOrd(globalOrd));
+            }
+            if (newOrdinalMap == null) {
+                firstSegmentsBuilder.add(segmentKeys.length);
+                firstSegmentOrdsBuilder.add(i);
+            } else {
+                firstSegmentsBuilder.add(segmentKeys.length + newOrdinalMap.getFirstSegmentNumber(i));
+                firstSegmentOrdsBuilder.add(newOrdinalMap.getFirstSegmentOrd(i));
+            }
+        }
+        for (; globalOrd < valueCount; globalOrd++) {
+            firstSegmentsBuilder.add(getFirstSegmentNumber(globalOrd));
+            firstSegmentOrdsBuilder.add(getFirstSegmentOrd(globalOrd));
+        }
+        return new IncrementalOrdinalMap(newSegmentKeys, newSegmentValueCounts, valueCount + addedPositions.length,
+            newSegmentGlobalOrds, firstSegmentsBuilder.build(), firstSegmentOrdsBuilder.build());
+    }
+
+    private BytesRef lookupOrd(SortedSetDocValues[] segmentValues, long globalOrd) throws IOException {
+        return segmentValues[getFirstSegmentNumber(globalOrd)].lookupOrd(getFirstSegmentOrd(globalOrd));
+    }
+
+    /**
+     * Returns the Lucene ordinal map of a map built from scratch, or null for an extended map.
+     */
+    @Nullable
+    OrdinalMap getOrdinalMap() {
+        return ordinalMap;
+    }
+
+    /**
+     * Returns the number of segments of the map.
+     */
+    int getSegmentCount() {
+        return segmentKeys.length;
+    }
+
+    /**
+     * Returns the number of global ordinals.
+     */
+    long getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * Returns the mapping from the ordinals of the provided segment to global ordinals.
+     */
+    LongValues getGlobalOrds(int segment) {
+        return ordinalMap == null ? globalOrds[segment] : ordinalMap.getGlobalOrds(segment);
+    }
+
+    /**
+     * Returns the first segment holding the term of the provided global ordinal.
+     */
+    int getFirstSegmentNumber(long globalOrd) {
+        return ordinalMap == null ? (int) firstSegments.get(globalOrd) : ordinalMap.getFirstSegmentNumber(globalOrd);
+    }
+
+    /**
+     * Returns the ordinal of the term of the provided global ordinal in its {@link #getFirstSegmentNumber first segment}.
+     */
+    long getFirstSegmentOrd(long globalOrd) {
+        return ordinalMap == null ? firstSegmentOrds.get(globalOrd) : ordinalMap.getFirstSegmentOrd(globalOrd);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+}
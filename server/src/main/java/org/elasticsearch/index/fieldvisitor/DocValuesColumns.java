@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fieldvisitor;
+
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.CQL3Type;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.BooleanFieldMapper;
+import org.elasticsearch.index.mapper.CqlMapper;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.IpFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.Mapper;
+import org.elasticsearch.index.mapper.MetadataFieldMapper;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.DocValueFormat;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Rebuilds cassandra columns from Lucene doc values when index.fetch_from_docvalues is true, for the search fetch phase
+ * and the non-realtime GET requests. Only single-valued keyword, numeric, date, boolean and ip fields having doc values
+ * qualify, and only when the _source is not stored in a cassandra column, so the rebuilt _source matches the one read
+ * from cassandra. Fields whose doc values may differ from the cassandra value (null_value, keyword ignore_above or
+ * normalizer, half_float) are still read from cassandra.
+ */
+public final class DocValuesColumns {
+
+    private DocValuesColumns() {
+    }
+
+    /**
+     * Returns true if the columns of the documents of this type may be rebuilt from doc values.
+     */
+    public static boolean isEnabled(IndexSettings indexSettings, DocumentMapper docMapper, boolean staticDocument) {
+        return !staticDocument &&
+            indexSettings.getValue(IndexMetaData.INDEX_FETCH_FROM_DOCVALUES_SETTING) &&
+            !indexSettings.getIndexMetaData().isOpaqueStorage() &&
+            !docMapper.sourceMapper().enabled();
+    }
+
+    /**
+     * Returns true if a row read from cassandra must back the columns rebuilt from doc values, so that rows deleted
+     * in cassandra but not yet refreshed out of the searcher are not returned.
+     */
+    public static boolean checkLiveness(IndexSettings indexSettings) {
+        return indexSettings.getValue(IndexMetaData.INDEX_DOCVALUES_LIVENESS_CHECK_SETTING);
+    }
+
+    /**
+     * Returns true if the column can be rebuilt from doc values.
+     */
+    public static boolean isDocValuesColumn(DocumentMapper docMapper, String column) {
+        final Mapper mapper = docMapper.mappers().getMapper(column);
+        return mapper instanceof FieldMapper && isDocValuesField((FieldMapper) mapper);
+    }
+
+    /**
+     * Returns true if all the columns can be rebuilt from doc values.
+     */
+    public static boolean areDocValuesColumns(DocumentMapper docMapper, Collection<String> columns) {
+        for (String column : columns) {
+            if (!isDocValuesColumn(docMapper, column))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isDocValuesField(FieldMapper mapper) {
+        if (mapper instanceof MetadataFieldMapper || !mapper.cqlCollection().equals(CqlMapper.CqlCollection.SINGLETON))
+            return false;
+        MappedFieldType fieldType = mapper.fieldType();
+        if (!fieldType.hasDocValues() || fieldType.nullValue() != null)
+            return false;
+        if (fieldType instanceof KeywordFieldMapper.KeywordFieldType)
+            return ((KeywordFieldMapper.KeywordFieldType) fieldType).normalizer() == null &&
+                   ((KeywordFieldMapper) mapper).ignoreAbove() == KeywordFieldMapper.Defaults.IGNORE_ABOVE;
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType)
+            return !NumberFieldMapper.NumberType.HALF_FLOAT.typeName().equals(fieldType.typeName());
+        if (fieldType instanceof DateFieldMapper.DateFieldType)
+            return !CQL3Type.Native.TIMEUUID.equals(fieldType.CQL3Type());
+        return fieldType instanceof BooleanFieldMapper.BooleanFieldType ||
+               fieldType instanceof IpFieldMapper.IpFieldType;
+    }
+
+    /**
+     * Put doc values of the provided columns in mapObject, values are converted like cassandra values in {@code QueryManager.rowAsMap}.
+     */
+    public static void load(DocumentMapper docMapper, Function<MappedFieldType, IndexFieldData<?>> fieldData,
+                            LeafReaderContext readerContext, int docId, Collection<String> columns,
+                            Map<String, Object> mapObject) throws IOException {
+        final Map<String, ColumnDefinition> columnDefs = docMapper.getColumnDefinitions();
+        for (String column : columns) {
+            final MappedFieldType fieldType = ((FieldMapper) docMapper.mappers().getMapper(column)).fieldType();
+            final IndexFieldData<?> indexFieldData = fieldData.apply(fieldType);
+            final AtomicFieldData data = indexFieldData.load(readerContext);
+            final DocValueFormat format = fieldType.docValueFormat(null, null);
+            Object value = null;
+            if (indexFieldData instanceof IndexNumericFieldData) {
+                if (((IndexNumericFieldData) indexFieldData).getNumericType().isFloatingPoint()) {
+                    SortedNumericDoubleValues doubleValues = ((AtomicNumericFieldData) data).getDoubleValues();
+                    if (doubleValues.advanceExact(docId))
+                        value = format.format(doubleValues.nextValue());
+                } else {
+                    SortedNumericDocValues longValues = ((AtomicNumericFieldData) data).getLongValues();
+                    if (longValues.advanceExact(docId))
+                        value = (fieldType instanceof DateFieldMapper.DateFieldType) ? longValues.nextValue() : format.format(longValues.nextValue());
+                }
+            } else {
+                SortedBinaryDocValues binaryValues = data.getBytesValues();
+                if (binaryValues.advanceExact(docId))
+                    value = format.format(binaryValues.nextValue());
+            }
+            if (value != null)
+                mapObject.put(column, fieldType.cqlValue(value, columnDefs.get(column).type));
+        }
+    }
+}
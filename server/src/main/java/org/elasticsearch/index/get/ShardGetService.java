@@ -46,6 +46,7 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
+import org.elasticsearch.index.fieldvisitor.DocValuesColumns;
 import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
@@ -223,12 +224,21 @@ public final class ShardGetService extends AbstractIndexShardComponent {
 
         // In elassandra, Engine does not store the source any more, but fetch it from cassandra.
         try {
-            UntypedResultSet result = clusterService.getQueryManager().fetchRow(this.indexShard, type, docPk, columns.toArray(new String[columns.size()]),
-                    docMapper.getColumnDefinitions());
-            if (result.isEmpty()) {
-                return new GetResult(shardId.getIndexName(), type, id, UNASSIGNED_SEQ_NO, UNASSIGNED_PRIMARY_TERM, -1, false, null, null);
+            if (realtime == false && DocValuesColumns.isEnabled(indexSettings, docMapper, docPk.isStaticDocument) &&
+                DocValuesColumns.checkLiveness(indexSettings) == false && DocValuesColumns.areDocValuesColumns(docMapper, columns)) {
+                // rebuild the row from doc values, rows deleted in cassandra are hidden by the Lucene live docs after a refresh.
+                sourceAsMap = docValuesRow(type, id, docMapper, columns);
+                if (sourceAsMap == null) {
+                    return new GetResult(shardId.getIndexName(), type, id, UNASSIGNED_SEQ_NO, UNASSIGNED_PRIMARY_TERM, -1, false, null, null);
+                }
+            } else {
+                UntypedResultSet result = clusterService.getQueryManager().fetchRow(this.indexShard, type, docPk, columns.toArray(new String[columns.size()]),
+                        docMapper.getColumnDefinitions());
+                if (result.isEmpty()) {
+                    return new GetResult(shardId.getIndexName(), type, id, UNASSIGNED_SEQ_NO, UNASSIGNED_PRIMARY_TERM, -1, false, null, null);
+                }
+                sourceAsMap = clusterService.getQueryManager().rowAsMap(this.indexShard, type, result.one());
             }
-            sourceAsMap = clusterService.getQueryManager().rowAsMap(this.indexShard, type, result.one());
             if (fetchSourceContext.fetchSource()) {
                 sourceToBeReturned = clusterService.getQueryManager().source(this.indexShard, docMapper, sourceAsMap, id);
             }
@@ -268,6 +278,27 @@ public final class ShardGetService extends AbstractIndexShardComponent {
         return new GetResult(shardId.getIndexName(), type, id, 1L, 1L, 1L, true, sourceToBeReturned, fields);
     }
 
+    /**
+     * Rebuild the row of a document from the doc values of the current searcher when index.fetch_from_docvalues is true,
+     * returns null if the document is not found.
+     */
+    private Map<String, Object> docValuesRow(String type, String id, DocumentMapper docMapper, Collection<String> columns) throws IOException {
+        final Term uidTerm = mapperService.createUidTerm(type, id);
+        if (uidTerm == null) {
+            return null;
+        }
+        try (Engine.GetResult get = indexShard.get(new Engine.Get(false, false, type, id, uidTerm))) {
+            if (get.exists() == false) {
+                return null;
+            }
+            final DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
+            final Map<String, Object> row = new HashMap<>();
+            DocValuesColumns.load(docMapper, indexShard.indexService().fieldData()::getForField, docIdAndVersion.reader.getContext(),
+                docIdAndVersion.docId, columns, row);
+            return row;
+        }
+    }
+
     private GetResult innerGetLoadFromStoredFields(String type, String id, String[] gFields, FetchSourceContext fetchSourceContext, Engine.GetResult get, MapperService mapperService) {
         Map<String, DocumentField> fields = null;
         BytesReference source = null;
@@ -81,6 +81,7 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.bitset.ShardBitsetFilterCache;
+import org.elasticsearch.index.cache.query.QueryHistoryCachingPolicy;
 import org.elasticsearch.index.cache.request.ShardRequestCache;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.engine.*;
@@ -330,8 +331,10 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
 
         // the query cache is a node-level thing, however we want the most popular filters
         // to be computed on a per-shard basis
+        // the query history is recorded to warm the most frequent filters on new segments
+        final QueryHistoryCachingPolicy queryHistoryCachingPolicy;
         if (IndexModule.INDEX_QUERY_CACHE_EVERYTHING_SETTING.get(settings)) {
-            cachingPolicy = new QueryCachingPolicy() {
+            queryHistoryCachingPolicy = new QueryHistoryCachingPolicy(new QueryCachingPolicy() {
                 @Override
                 public void onUse(Query query) {
 
@@ -340,10 +343,12 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 public boolean shouldCache(Query query) {
                     return true;
                 }
-            };
+            });
         } else {
-            cachingPolicy = new UsageTrackingQueryCachingPolicy();
+            queryHistoryCachingPolicy = new QueryHistoryCachingPolicy(new UsageTrackingQueryCachingPolicy());
         }
+        queryHistoryCachingPolicy.recording(indexSettings.getValue(IndexMetaData.INDEX_QUERY_CACHE_WARMER_QUERIES_SETTING) > 0);
+        cachingPolicy = queryHistoryCachingPolicy;
         indexShardOperationPermits = new IndexShardOperationPermits(shardId, logger, threadPool);
         searcherWrapper = indexSearcherWrapper;
         refreshListeners = buildRefreshListeners();
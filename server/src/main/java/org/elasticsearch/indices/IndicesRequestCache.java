@@ -25,9 +25,13 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Numbers;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.cache.CacheLoader;
@@ -48,6 +52,7 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -114,17 +119,36 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
     BytesReference getOrCompute(CacheEntity cacheEntity, Supplier<BytesReference> loader,
             DirectoryReader reader, BytesReference cacheKey) throws Exception {
         assert reader.getReaderCacheHelper() != null;
-        final Key key =  new Key(cacheEntity, reader.getReaderCacheHelper().getKey(), cacheKey);
+        return getOrCompute(cacheEntity, loader, reader.getReaderCacheHelper().getKey(), cacheKey,
+            cleanupKey -> ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey));
+    }
+
+    /**
+     * Same as {@link #getOrCompute(CacheEntity, Supplier, DirectoryReader, BytesReference)} for a result computed on a single
+     * segment. Refreshes open new readers for unchanged segments, so the entry is keyed on the segment core and its number of
+     * live docs, deletes only grow in a segment, and is kept as long as the segment core is open.
+     */
+    BytesReference getOrCompute(CacheEntity cacheEntity, Supplier<BytesReference> loader,
+            LeafReader segment, BytesReference cacheKey) throws Exception {
+        final IndexReader.CacheHelper coreCacheHelper = segment.getCoreCacheHelper();
+        assert coreCacheHelper != null;
+        final BytesReference segmentKey = new CompositeBytesReference(cacheKey, new BytesArray(Numbers.intToBytes(segment.numDocs())));
+        return getOrCompute(cacheEntity, loader, coreCacheHelper.getKey(), segmentKey, coreCacheHelper::addClosedListener);
+    }
+
+    private BytesReference getOrCompute(CacheEntity cacheEntity, Supplier<BytesReference> loader, IndexReader.CacheKey readerCacheKey,
+            BytesReference cacheKey, Consumer<IndexReader.ClosedListener> closedListenerRegistry) throws Exception {
+        final Key key =  new Key(cacheEntity, readerCacheKey, cacheKey);
         Loader cacheLoader = new Loader(cacheEntity, loader);
         BytesReference value = cache.computeIfAbsent(key, cacheLoader);
         if (cacheLoader.isLoaded()) {
             key.entity.onMiss();
             // see if its the first time we see this reader, and make sure to register a cleanup key
-            CleanupKey cleanupKey = new CleanupKey(cacheEntity, reader.getReaderCacheHelper().getKey());
+            CleanupKey cleanupKey = new CleanupKey(cacheEntity, readerCacheKey);
             if (!registeredClosedListeners.containsKey(cleanupKey)) {
                 Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
                 if (previous == null) {
-                    ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey);
+                    closedListenerRegistry.accept(cleanupKey);
                 }
             }
         } else {
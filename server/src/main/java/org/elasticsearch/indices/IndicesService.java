@@ -23,6 +23,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.RamUsageEstimator;
@@ -55,6 +59,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.DeprecationLogger;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -113,7 +118,11 @@ import org.elasticsearch.indices.recovery.PeerRecoveryTargetService;
 import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QueryPhase;
@@ -122,6 +131,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -1241,6 +1251,10 @@ public class IndicesService extends AbstractLifecycleComponent
      */
     public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
         assert canCache(request, context);
+        if (canCacheSegments(context)) {
+            loadSegmentsIntoContext(request, context);
+            return;
+        }
         final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
 
         boolean[] loadedFromCache = new boolean[] { true };
@@ -1274,6 +1288,71 @@ public class IndicesService extends AbstractLifecycleComponent
         }
     }
 
+    /**
+     * Can the aggregations of the cached request be cached segment by segment? Only the hit count and the aggregations
+     * are returned by such requests, and the aggregations must support a partial reduce of segment results.
+     */
+    private boolean canCacheSegments(SearchContext context) {
+        return context.indexShard().indexSettings().getValue(IndexMetaData.INDEX_SEGMENT_REQUEST_CACHE_SETTING)
+            && context.size() == 0
+            && context.trackTotalHits()
+            && context.suggest() == null
+            && context.parsedPostFilter() == null
+            && context.minimumScore() == null
+            && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+            && (context.timeout() == null || context.timeout().equals(SearchService.NO_TIMEOUT))
+            && context.getProfilers() == null
+            && context.searchProcessor() == null
+            && AggregationPhase.supportsSegmentCollection(context);
+    }
+
+    /**
+     * Loads the hit count and the aggregations of each segment from the cache, computing them for the new or changed
+     * segments only, and reduces them into the {@link SearchContext#queryResult() context's query result}. Segment
+     * results are kept in the cache as long as the segment core is open, so a refresh adding new segments or deleting
+     * documents from some segments only recomputes the results of the new or changed segments.
+     */
+    private void loadSegmentsIntoContext(ShardSearchRequest request, SearchContext context) throws Exception {
+        final ContextIndexSearcher searcher = context.searcher();
+        final BytesReference cacheKey = request.cacheKey();
+        final IndexShardCacheEntity cacheEntity = new IndexShardCacheEntity(context.indexShard());
+        final Weight weight = searcher.createNormalizedWeight(context.query(), false);
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        final List<InternalAggregations> segmentAggregations = new ArrayList<>(leaves.size());
+        long totalHits = 0;
+        try {
+            for (LeafReaderContext leaf : leaves) {
+                Supplier<BytesReference> loader = () -> {
+                    // most segment results are small, see cacheShardLevelResult
+                    try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+                        TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+                        InternalAggregations aggregations = AggregationPhase.collectSegment(context, leaf, weight, hitCountCollector);
+                        out.writeVInt(hitCountCollector.getTotalHits());
+                        aggregations.writeTo(out);
+                        return out.bytes();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                BytesReference bytesReference = leaf.reader().getCoreCacheHelper() == null ? loader.get() :
+                    indicesRequestCache.getOrCompute(cacheEntity, loader, leaf.reader(), cacheKey);
+                try (StreamInput in = new NamedWriteableAwareStreamInput(bytesReference.streamInput(), namedWriteableRegistry)) {
+                    totalHits += in.readVInt();
+                    segmentAggregations.add(InternalAggregations.readAggregations(in));
+                }
+            }
+        } finally {
+            context.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+
+        final QuerySearchResult result = context.queryResult();
+        result.searchTimedOut(false);
+        result.from(context.from());
+        result.size(context.size());
+        result.topDocs(new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0), null);
+        AggregationPhase.reduceSegments(context, segmentAggregations);
+    }
+
     public ByteSizeValue getTotalIndexingBufferBytes() {
         return indexingMemoryController.indexingBufferSize();
     }
@@ -39,6 +39,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData;
@@ -49,6 +50,7 @@ import org.elasticsearch.index.shard.ShardUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -90,6 +92,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         assert key != null && key.listeners != null;
         IndexFieldCache indexCache = key.indexCache;
         final Accountable value = notification.getValue();
+        indexCache.onRemoval(value);
         for (IndexFieldDataCache.Listener listener : key.listeners) {
             try {
                 listener.onRemoval(
@@ -120,6 +123,8 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         final String fieldName;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        // last global field data loaded per shard, kept while its reader is open and it is cached
+        private final Map<ShardId, LastGlobal> lastGlobals = ConcurrentCollections.newConcurrentMap();
 
         IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
             this.logger = logger;
@@ -170,6 +175,9 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
                 ElasticsearchDirectoryReader.addReaderCloseListener(indexReader, IndexFieldCache.this);
                 Collections.addAll(k.listeners, this.listeners);
                 final Accountable ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                if (shardId != null) {
+                    lastGlobals.put(shardId, new LastGlobal(cacheHelper.getKey(), (IndexFieldData.Global<?>) ifd));
+                }
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, ifd);
@@ -183,14 +191,26 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
             return (IFD) accountable;
         }
 
+        @Override
+        public IndexFieldData.Global<?> getLastGlobal(ShardId shardId) {
+            final LastGlobal lastGlobal = shardId == null ? null : lastGlobals.get(shardId);
+            return lastGlobal == null ? null : lastGlobal.global;
+        }
+
+        private void onRemoval(Accountable value) {
+            lastGlobals.values().removeIf(lastGlobal -> lastGlobal.global == value);
+        }
+
         @Override
         public void onClose(CacheKey key) throws IOException {
+            lastGlobals.values().removeIf(lastGlobal -> lastGlobal.readerKey == key);
             cache.invalidate(new Key(this, key, null));
             // don't call cache.cleanUp here as it would have bad performance implications
         }
 
         @Override
         public void clear() {
+            lastGlobals.clear();
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     cache.invalidate(key);
@@ -202,6 +222,9 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
 
         @Override
         public void clear(String fieldName) {
+            if (this.fieldName.equals(fieldName)) {
+                lastGlobals.clear();
+            }
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     if (key.indexCache.fieldName.equals(fieldName)) {
@@ -216,6 +239,16 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         }
     }
 
+    private static final class LastGlobal {
+        final IndexReader.CacheKey readerKey;
+        final IndexFieldData.Global<?> global;
+
+        LastGlobal(IndexReader.CacheKey readerKey, IndexFieldData.Global<?> global) {
+            this.readerKey = readerKey;
+            this.global = global;
+        }
+    }
+
     public static class Key {
         public final IndexFieldCache indexCache;
         public final IndexReader.CacheKey readerKey;
@@ -28,6 +28,7 @@ import org.elasticsearch.monitor.jvm.JvmService;
 import org.elasticsearch.monitor.os.OsService;
 import org.elasticsearch.monitor.process.ProcessService;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolAutoTuner;
 import org.elasticsearch.cluster.ClusterInfoService;
 
 import java.io.IOException;
@@ -35,6 +36,7 @@ import java.io.IOException;
 public class MonitorService extends AbstractLifecycleComponent {
 
     private final JvmGcMonitorService jvmGcMonitorService;
+    private final ThreadPoolAutoTuner threadPoolAutoTuner;
     private final OsService osService;
     private final ProcessService processService;
     private final JvmService jvmService;
@@ -43,6 +45,7 @@ public class MonitorService extends AbstractLifecycleComponent {
     public MonitorService(Settings settings, NodeEnvironment nodeEnvironment, ThreadPool threadPool,
                           ClusterInfoService clusterInfoService) throws IOException {
         this.jvmGcMonitorService = new JvmGcMonitorService(settings, threadPool);
+        this.threadPoolAutoTuner = new ThreadPoolAutoTuner(settings, threadPool);
         this.osService = new OsService(settings);
         this.processService = new ProcessService(settings);
         this.jvmService = new JvmService(settings);
@@ -68,16 +71,19 @@ public class MonitorService extends AbstractLifecycleComponent {
     @Override
     protected void doStart() {
         jvmGcMonitorService.start();
+        threadPoolAutoTuner.start();
     }
 
     @Override
     protected void doStop() {
         jvmGcMonitorService.stop();
+        threadPoolAutoTuner.stop();
     }
 
     @Override
     protected void doClose() {
         jvmGcMonitorService.close();
+        threadPoolAutoTuner.close();
     }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStream;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * A response whose content is serialized from a sequence of xcontent fragments as it is sent, so that a large response, such as a
+ * search response holding many hits, can be sent in chunks without being fully serialized in memory. The fragments are serialized
+ * into the bytes stream of the builder, which is reset before each chunk. Channels that do not send chunks send the whole
+ * {@link #content()} instead.
+ */
+public final class ChunkedRestResponse extends RestResponse {
+
+    private final RestStatus status;
+    private final XContentBuilder builder;
+    private final BytesStream output;
+    private final Iterator<? extends ToXContent> fragments;
+    private final ToXContent.Params params;
+    private boolean done;
+    private BytesReference content;
+
+    /**
+     * Creates a response serializing the fragments with a builder created by the channel, such as the one of
+     * {@link RestChannel#newBuilder()}, that is not written yet.
+     */
+    public ChunkedRestResponse(RestStatus status, XContentBuilder builder, Iterator<? extends ToXContent> fragments,
+                               ToXContent.Params params) {
+        this.status = status;
+        this.builder = builder;
+        this.output = (BytesStream) builder.getOutputStream();
+        this.fragments = fragments;
+        this.params = params;
+    }
+
+    @Override
+    public String contentType() {
+        return builder.contentType().mediaType();
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+
+    /**
+     * Returns true once all the fragments are serialized.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Serializes the next fragments, until at least <code>sizeHint</code> bytes are serialized or all the fragments are. The
+     * returned bytes are only valid until the next call.
+     */
+    public BytesReference encodeChunk(int sizeHint) throws IOException {
+        assert done == false : "the response is already serialized";
+        output.reset();
+        while (fragments.hasNext() && output.bytes().length() < sizeHint) {
+            fragments.next().toXContent(builder, params);
+            builder.flush();
+        }
+        if (fragments.hasNext() == false) {
+            builder.close();
+            done = true;
+        }
+        return output.bytes();
+    }
+
+    /**
+     * Serializes all the fragments at once, for the channels that do not send chunks.
+     */
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            try {
+                content = encodeChunk(Integer.MAX_VALUE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return content;
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.lucene.util.Counter;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasables;
@@ -73,6 +74,7 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -176,6 +178,11 @@ final class DefaultSearchContext extends SearchContext {
         this.indexService = indexService;
         this.clusterService = clusterService;
         this.searcher = new ContextIndexSearcher(engineSearcher, indexService.cache().query(), indexShard.getQueryCachingPolicy());
+        // one shard per node, so search segment slices concurrently to use more than one core per search.
+        final int concurrentSearchSlices = indexService.getIndexSettings().getValue(IndexMetaData.INDEX_CONCURRENT_SEARCH_SLICES_SETTING);
+        if (concurrentSearchSlices > 1) {
+            this.searcher.setConcurrentSearch(indexShard.getThreadPool().executor(ThreadPool.Names.SEARCH_SLICE), concurrentSearchSlices);
+        }
         this.timeEstimateCounter = timeEstimateCounter;
         this.timeout = timeout;
         this.minNodeVersion = minNodeVersion;
@@ -259,6 +266,12 @@ final class DefaultSearchContext extends SearchContext {
             parsedQuery(new ParsedQuery(new FunctionScoreQuery(query(), new WeightFactorFunction(queryBoost)), parsedQuery()));
         }
         this.query = buildFilteredQuery(query);
+        // a search without hits only aggregating a token_sampler only needs to visit the sampled documents.
+        final Query tokenSamplerQuery = size() == 0 && aggregations != null && aggregations.factories() != null ?
+            aggregations.factories().tokenSamplerQuery() : null;
+        if (tokenSamplerQuery != null) {
+            this.query = new BooleanQuery.Builder().add(query, Occur.MUST).add(tokenSamplerQuery, Occur.FILTER).build();
+        }
         if (rewrite) {
             try {
                 this.query = searcher.rewrite(query);
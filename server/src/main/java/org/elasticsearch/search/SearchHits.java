@@ -26,6 +26,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -145,6 +146,26 @@ public final class SearchHits implements Streamable, ToXContentFragment, Iterabl
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        startHitsToXContent(builder);
+        for (SearchHit hit : hits) {
+            hit.toXContent(builder, params);
+        }
+        return endHitsToXContent(builder);
+    }
+
+    /**
+     * Returns the fragments of {@link #toXContent}: the start of the hits, each hit and the end of the hits, so that the hits
+     * can be serialized one by one.
+     */
+    public List<ToXContent> toXContentChunks() {
+        final List<ToXContent> chunks = new ArrayList<>(hits.length + 2);
+        chunks.add((builder, params) -> startHitsToXContent(builder));
+        chunks.addAll(Arrays.asList(hits));
+        chunks.add((builder, params) -> endHitsToXContent(builder));
+        return chunks;
+    }
+
+    private XContentBuilder startHitsToXContent(XContentBuilder builder) throws IOException {
         builder.startObject(Fields.HITS);
         builder.field(Fields.TOTAL, totalHits);
         if (Float.isNaN(maxScore)) {
@@ -153,13 +174,12 @@ public final class SearchHits implements Streamable, ToXContentFragment, Iterabl
             builder.field(Fields.MAX_SCORE, maxScore);
         }
         builder.field(Fields.HITS);
-        builder.startArray();
-        for (SearchHit hit : hits) {
-            hit.toXContent(builder, params);
-        }
+        return builder.startArray();
+    }
+
+    private static XContentBuilder endHitsToXContent(XContentBuilder builder) throws IOException {
         builder.endArray();
-        builder.endObject();
-        return builder;
+        return builder.endObject();
     }
 
     public static SearchHits fromXContent(XContentParser parser) throws IOException {
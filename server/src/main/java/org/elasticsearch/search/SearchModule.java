@@ -22,6 +22,8 @@ package org.elasticsearch.search;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.util.SetOnce;
 import org.elassandra.index.ElasticQueryHandler;
+import org.elassandra.search.aggregations.bucket.sampler.InternalTokenSampler;
+import org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregationBuilder;
 import org.elassandra.search.aggregations.bucket.token.InternalTokenRange;
 import org.elassandra.search.aggregations.bucket.token.TokenRangeAggregationBuilder;
 import org.elasticsearch.cluster.service.ClusterService;
@@ -447,6 +449,8 @@ public class SearchModule {
                 IpRangeAggregationBuilder::parse).addResultReader(InternalBinaryRange::new));
         registerAggregation(new AggregationSpec(TokenRangeAggregationBuilder.NAME, TokenRangeAggregationBuilder::new,
                 TokenRangeAggregationBuilder::parse).addResultReader(InternalTokenRange::new));
+        registerAggregation(new AggregationSpec(TokenSamplerAggregationBuilder.NAME, TokenSamplerAggregationBuilder::new,
+                TokenSamplerAggregationBuilder::parse).addResultReader(InternalTokenSampler::new));
         registerAggregation(new AggregationSpec(HistogramAggregationBuilder.NAME, HistogramAggregationBuilder::new,
                 HistogramAggregationBuilder::parse).addResultReader(InternalHistogram::new));
         registerAggregation(new AggregationSpec(DateHistogramAggregationBuilder.NAME, DateHistogramAggregationBuilder::new,
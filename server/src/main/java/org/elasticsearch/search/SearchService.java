@@ -69,6 +69,7 @@ import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeFilterCache;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.dfs.DfsPhase;
@@ -153,6 +154,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public static final Setting<Integer> MAX_OPEN_SCROLL_CONTEXT =
         Setting.intSetting("search.max_open_scroll_context", Integer.MAX_VALUE, 0, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Maximum number of aggregation buckets the coordinating node buffers from shard responses before reducing them,
+     * so that wide aggregations are reduced incrementally even when there are less shards than the batched reduce size.
+     * 0 only reduces every batched reduce size responses.
+     */
+    public static final Setting<Integer> MAX_BUFFERED_BUCKETS_SETTING =
+        Setting.intSetting("search.max_buffered_buckets", 100000, 0, Property.Dynamic, Property.NodeScope);
+
 
     private final ThreadPool threadPool;
 
@@ -184,6 +193,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile int maxOpenScrollContext;
 
+    private volatile int maxBufferedBuckets;
+
     private final Cancellable keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
@@ -192,6 +203,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final MultiBucketConsumerService multiBucketConsumerService;
 
+    private final CompositeFilterCache compositeFilterCache;
+
     private final AtomicInteger openScrollContexts = new AtomicInteger();
 
     public SearchService(ClusterService clusterService, IndicesService indicesService,
@@ -207,6 +220,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.queryPhase = new QueryPhase();
         this.fetchPhase = fetchPhase;
         this.multiBucketConsumerService = new MultiBucketConsumerService(clusterService, settings);
+        this.compositeFilterCache = new CompositeFilterCache(settings, indicesService.getCircuitBreakerService());
 
         TimeValue keepAliveInterval = KEEPALIVE_INTERVAL_SETTING.get(settings);
         setKeepAlives(DEFAULT_KEEPALIVE_SETTING.get(settings), MAX_KEEPALIVE_SETTING.get(settings));
@@ -228,6 +242,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
         lowLevelCancellation = LOW_LEVEL_CANCELLATION_SETTING.get(settings);
         clusterService.getClusterSettings().addSettingsUpdateConsumer(LOW_LEVEL_CANCELLATION_SETTING, this::setLowLevelCancellation);
+
+        maxBufferedBuckets = MAX_BUFFERED_BUCKETS_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(MAX_BUFFERED_BUCKETS_SETTING, this::setMaxBufferedBuckets);
     }
 
     private void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
@@ -264,6 +281,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.lowLevelCancellation = lowLevelCancellation;
     }
 
+    private void setMaxBufferedBuckets(int maxBufferedBuckets) {
+        this.maxBufferedBuckets = maxBufferedBuckets;
+    }
+
+    /**
+     * Returns the maximum number of aggregation buckets buffered by the coordinating node before an incremental reduce.
+     */
+    public int getMaxBufferedBuckets() {
+        return maxBufferedBuckets;
+    }
+
     @Override
     public void afterIndexRemoved(Index index, IndexSettings indexSettings, IndexRemovalReason reason) {
         // once an index is removed due to deletion or closing, we can just clean up all the pending search context information
@@ -301,6 +329,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     protected void doClose() {
         doStop();
         keepAliveReaper.cancel();
+        compositeFilterCache.close();
     }
 
     public void executeDfsPhase(ShardSearchRequest request, SearchTask task, ActionListener<SearchPhaseResult> listener) {
@@ -371,7 +400,11 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     private <T> void runAsync(long id, Supplier<T> executable, ActionListener<T> listener) {
-        getExecutor(id).execute(new AbstractRunnable() {
+        runAsync(getExecutor(id), executable, listener);
+    }
+
+    private <T> void runAsync(Executor executor, Supplier<T> executable, ActionListener<T> listener) {
+        executor.execute(new AbstractRunnable() {
             @Override
             public void onFailure(Exception e) {
                 listener.onFailure(e);
@@ -504,6 +537,19 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return threadPool.executor(indexShard.indexSettings().isSearchThrottled() ? Names.SEARCH_THROTTLED : Names.SEARCH);
     }
 
+    /**
+     * The fetch phase mostly waits on Cassandra reads, so it runs on the larger search_fetch pool
+     * and does not hold the search threads executing the query phases.
+     */
+    final Executor getFetchExecutor(long id) {
+        SearchContext context = activeContexts.get(id);
+        if (context == null) {
+            throw new SearchContextMissingException(id);
+        }
+        final IndexShard indexShard = context.indexShard();
+        return threadPool.executor(indexShard.indexSettings().isSearchThrottled() ? Names.SEARCH_THROTTLED : Names.SEARCH_FETCH);
+    }
+
     public void executeFetchPhase(InternalScrollSearchRequest request, SearchTask task,
                                   ActionListener<ScrollQueryFetchSearchResult> listener) {
         runAsync(request.id(), () -> {
@@ -528,7 +574,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     public void executeFetchPhase(ShardFetchRequest request, SearchTask task, ActionListener<FetchSearchResult> listener) {
-        runAsync(request.id(), () -> {
+        runAsync(getFetchExecutor(request.id()), () -> {
             final SearchContext context = findContext(request.id(), request);
             context.incRef();
             try {
@@ -685,6 +731,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         final DefaultSearchContext searchContext = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget,
             engineSearcher, clusterService, indexService, indexShard, bigArrays, threadPool.estimatedTimeInMillisCounter(), timeout,
             fetchPhase, clusterService.state().nodes().getMinNodeVersion());
+        searchContext.compositeFilterCache(compositeFilterCache);
         boolean success = false;
         try {
             // we clone the query shard context here just for rewriting otherwise we
@@ -18,11 +18,16 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Weight;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -33,6 +38,8 @@ import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -60,8 +67,9 @@ public class AggregationPhase implements SearchPhase {
                 }
                 context.aggregations().aggregators(aggregators);
                 if (!collectors.isEmpty()) {
-                    Collector collector = MultiBucketCollector.wrap(collectors);
-                    ((BucketCollector)collector).preCollection();
+                    BucketCollector bucketCollector = batch(context, MultiBucketCollector.wrap(collectors));
+                    bucketCollector.preCollection();
+                    Collector collector = bucketCollector;
                     if (context.getProfilers() != null) {
                         collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
                                 // TODO: report on child aggs as well
@@ -75,6 +83,61 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns a {@link CollectorManager} collecting the aggregations of the context along with the collectors of
+     * {@code in}, each segment slice into its own top level aggregators, or null if some aggregations or other query
+     * collectors need a single collector. The first slice is collected by the aggregators created in
+     * {@link #preProcess(SearchContext)}, slice aggregations are reduced at shard level by {@link #execute(SearchContext)}.
+     */
+    public static <C extends Collector> CollectorManager<Collector, Void> createCollectorManager(SearchContext context,
+                                                                                            CollectorManager<C, Void> in) {
+        final Collector aggregationCollector = context.queryCollectors().get(AggregationPhase.class);
+        if (aggregationCollector == null || context.queryCollectors().size() > 1
+                || context.aggregations().factories().supportsConcurrentCollection() == false) {
+            return null;
+        }
+        final List<C> collectors = new ArrayList<>();
+        return new CollectorManager<Collector, Void>() {
+            @Override
+            public Collector newCollector() throws IOException {
+                final C collector = in.newCollector();
+                collectors.add(collector);
+                if (collectors.size() == 1) {
+                    return MultiCollector.wrap(collector, aggregationCollector);
+                }
+                // slices do not apply the shard level limits, they are applied when the slices are reduced
+                context.aggregations().partialCollection(true);
+                final Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+                context.aggregations().addSliceAggregators(aggregators);
+                final List<Aggregator> sliceCollectors = new ArrayList<>(aggregators.length);
+                for (Aggregator aggregator : aggregators) {
+                    if (aggregator instanceof GlobalAggregator == false) {
+                        sliceCollectors.add(aggregator);
+                    }
+                }
+                final BucketCollector sliceCollector = batch(context, MultiBucketCollector.wrap(sliceCollectors));
+                sliceCollector.preCollection();
+                return MultiCollector.wrap(collector, sliceCollector);
+            }
+
+            @Override
+            public Void reduce(Collection<Collector> ignored) throws IOException {
+                return in.reduce(collectors);
+            }
+        };
+    }
+
+    /**
+     * Collect the docs of the top level aggregators by batches when they do not need scores.
+     */
+    private static BucketCollector batch(SearchContext context, BucketCollector collector) {
+        BucketCollector batchCollector = BatchBucketCollector.wrap(collector);
+        if (batchCollector instanceof BatchBucketCollector) {
+            context.aggregations().addBatchCollector((BatchBucketCollector) batchCollector);
+        }
+        return batchCollector;
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -122,17 +185,42 @@ public class AggregationPhase implements SearchPhase {
             }
         }
 
+        for (BatchBucketCollector batchCollector : context.aggregations().batchCollectors()) {
+            try {
+                batchCollector.flush();
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to collect the last batch of documents", e);
+            }
+        }
+
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         context.aggregations().resetBucketMultiConsumer();
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
+        List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        for (int i = 0; i < aggregators.length; i++) {
+            Aggregator aggregator = aggregators[i];
             try {
                 aggregator.postCollection();
-                aggregations.add(aggregator.buildAggregation(0));
+                final int bucketCount = context.aggregations().multiBucketConsumer().getCount();
+                InternalAggregation aggregation = aggregator.buildAggregation(0);
+                if (sliceAggregators.isEmpty() == false) {
+                    // global aggregators collect all the segments alone, but their sub-aggregators apply the shard limits too
+                    aggregation = reduceSlices(context, aggregation,
+                        aggregator instanceof GlobalAggregator ? Collections.emptyList() : sliceAggregators, i, bucketCount);
+                }
+                aggregations.add(aggregation);
             } catch (IOException e) {
                 throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
             }
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
+        context.queryResult().pipelineAggregators(siblingPipelineAggregators(context));
+
+        // disable aggregations so that they don't run on next pages in case of scrolling
+        context.aggregations(null);
+        context.queryCollectors().remove(AggregationPhase.class);
+    }
+
+    private static List<SiblingPipelineAggregator> siblingPipelineAggregators(SearchContext context) {
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -145,14 +233,105 @@ public class AggregationPhase implements SearchPhase {
                             + "allowed at the top level");
                 }
             }
-            context.queryResult().pipelineAggregators(siblingPipelineAggregators);
+            return siblingPipelineAggregators;
         } catch (IOException e) {
             throw new AggregationExecutionException("Failed to build top level pipeline aggregators", e);
         }
+    }
 
-        // disable aggregations so that they don't run on next pages in case of scrolling
+    /**
+     * Returns true if the top level aggregations of the context can be collected segment by segment and partially
+     * reduced, see {@link #collectSegment} and {@link #reduceSegments}. This is checked on the factories, like the
+     * collection of segment slices: aggregations trimming their buckets to a shard size only support it if they
+     * build all their buckets on a partial collection and trim them on the shard reduce, like terms.
+     */
+    public static boolean supportsSegmentCollection(SearchContext context) {
+        return context.aggregations() != null
+            && context.aggregations().factories().supportsConcurrentCollection()
+            && context.aggregations().factories().hasGlobalAggregation() == false
+            && context.aggregations().factories().needsScores() == false;
+    }
+
+    /**
+     * Collect the top level aggregations of the context on a single segment, along with {@code hitsCollector}, and
+     * return their partial results. Buckets are counted against the limit of the segment only, and the aggregators
+     * of the segment are released once their results are built.
+     */
+    public static InternalAggregations collectSegment(SearchContext context, LeafReaderContext leaf, Weight weight,
+                                                      Collector hitsCollector) throws IOException {
+        final int releasables = context.countReleasables(SearchContext.Lifetime.PHASE);
+        try {
+            context.aggregations().partialCollection(true);
+            final Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+            final BucketCollector collector = BatchBucketCollector.wrap(MultiBucketCollector.wrap(Arrays.asList(aggregators)));
+            collector.preCollection();
+            context.searcher().search(leaf, weight, MultiCollector.wrap(hitsCollector, collector));
+            collector.postCollection();
+            context.aggregations().resetBucketMultiConsumer();
+            final List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+            for (Aggregator aggregator : aggregators) {
+                aggregations.add(aggregator.buildAggregation(0));
+            }
+            return new InternalAggregations(aggregations);
+        } finally {
+            context.clearReleasables(SearchContext.Lifetime.PHASE, releasables);
+        }
+    }
+
+    /**
+     * Partially reduce the results of {@link #collectSegment} for all the segments into the query result of the
+     * context, instead of {@link #execute(SearchContext)}. Only the buckets of the reduced aggregations are counted.
+     */
+    public static void reduceSegments(SearchContext context, List<InternalAggregations> segmentAggregations) throws IOException {
+        final InternalAggregations aggregations;
+        if (segmentAggregations.isEmpty()) {
+            final int releasables = context.countReleasables(SearchContext.Lifetime.PHASE);
+            try {
+                final Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+                final List<InternalAggregation> emptyAggregations = new ArrayList<>(aggregators.length);
+                for (Aggregator aggregator : aggregators) {
+                    emptyAggregations.add(aggregator.buildEmptyAggregation());
+                }
+                aggregations = new InternalAggregations(emptyAggregations);
+            } finally {
+                context.clearReleasables(SearchContext.Lifetime.PHASE, releasables);
+            }
+        } else {
+            // scripts only run on the final reduce
+            aggregations = InternalAggregations.reduce(segmentAggregations,
+                InternalAggregation.ReduceContext.forShardReduce(context.bigArrays()));
+            final MultiBucketConsumer bucketConsumer = context.aggregations().multiBucketConsumer();
+            context.aggregations().resetBucketMultiConsumer();
+            for (Aggregation aggregation : aggregations) {
+                bucketConsumer.accept(InternalMultiBucketAggregation.countInnerBucket(aggregation));
+            }
+        }
+        context.queryResult().aggregations(aggregations);
+        context.queryResult().pipelineAggregators(siblingPipelineAggregators(context));
         context.aggregations(null);
-        context.queryCollectors().remove(AggregationPhase.class);
     }
 
+    /**
+     * Partially reduce the aggregation of the first segment slice with the same aggregation of the other slices, the
+     * final reduce happens on the coordinating node like for shard results. Each slice is checked alone against the
+     * bucket limit when built, then only the buckets of the reduced aggregation are counted, on top of
+     * {@code bucketCount} buckets of the previous aggregations.
+     */
+    private static InternalAggregation reduceSlices(SearchContext context, InternalAggregation aggregation,
+                                                    List<Aggregator[]> sliceAggregators, int index, int bucketCount) throws IOException {
+        final MultiBucketConsumer bucketConsumer = context.aggregations().multiBucketConsumer();
+        List<InternalAggregation> sliceAggregations = new ArrayList<>(sliceAggregators.size() + 1);
+        sliceAggregations.add(aggregation);
+        for (Aggregator[] aggregators : sliceAggregators) {
+            aggregators[index].postCollection();
+            bucketConsumer.accept(bucketCount - bucketConsumer.getCount());
+            sliceAggregations.add(aggregators[index].buildAggregation(0));
+        }
+        bucketConsumer.accept(bucketCount - bucketConsumer.getCount());
+        // scripts only run on the final reduce
+        InternalAggregation reduced = aggregation.reduce(sliceAggregations,
+            InternalAggregation.ReduceContext.forShardReduce(context.bigArrays()));
+        bucketConsumer.accept(InternalMultiBucketAggregation.countInnerBucket(reduced));
+        return reduced;
+    }
 }
@@ -18,6 +18,8 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.search.Query;
+import org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregatorFactory;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -28,6 +30,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregatorFactory;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
@@ -191,6 +194,17 @@ public class AggregatorFactories {
         return factories.length > 0 && (factories[0] instanceof org.elassandra.search.aggregations.bucket.token.RangeAggregatorFactory);
     }
 
+    /**
+     * Returns the query of the sampled token ranges when the only aggregation is a token_sampler, so that the documents out of
+     * the sample are not visited, or null.
+     */
+    public Query tokenSamplerQuery() {
+        if (factories.length == 1 && factories[0] instanceof TokenSamplerAggregatorFactory) {
+            return ((TokenSamplerAggregatorFactory) factories[0]).sampleQuery();
+        }
+        return null;
+    }
+
     /**
      * Create all aggregators so that they can be consumed with multiple
      * buckets.
@@ -229,6 +243,43 @@ public class AggregatorFactories {
         return aggregators;
     }
 
+    /**
+     * Returns true if all the factories and their sub-factories support concurrent collection of segment slices.
+     */
+    public boolean supportsConcurrentCollection() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.supportsConcurrentCollection() == false || factory.factories.supportsConcurrentCollection() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if any of the factories needs scores.
+     */
+    public boolean needsScores() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.needsScores()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if any of the factories is a {@link GlobalAggregatorFactory}, whose aggregator collects all the
+     * documents of the shard rather than those matching the query.
+     */
+    public boolean hasGlobalAggregation() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory instanceof GlobalAggregatorFactory) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
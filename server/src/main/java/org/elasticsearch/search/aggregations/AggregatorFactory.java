@@ -220,6 +220,21 @@ public abstract class AggregatorFactory<AF extends AggregatorFactory<AF>> {
         return parent;
     }
 
+    /**
+     * Returns true if segment slices can be collected concurrently by distinct aggregators created by this factory,
+     * and their aggregations reduced at shard level with {@link InternalAggregation#reduce}.
+     */
+    public boolean supportsConcurrentCollection() {
+        return false;
+    }
+
+    /**
+     * Returns true if the aggregators created by this factory or by its sub-factories need scores, without creating them.
+     */
+    public boolean needsScores() {
+        return factories.needsScores();
+    }
+
     /**
      * Utility method. Given an {@link AggregatorFactory} that creates
      * {@link Aggregator}s that only know how to collect bucket {@code 0}, this
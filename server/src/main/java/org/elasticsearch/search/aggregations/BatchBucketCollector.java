@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+/**
+ * A {@link BucketCollector} buffering the collected doc ids of a segment and passing them to the wrapped collector by
+ * batches of {@link #BATCH_SIZE} docs, see {@link LeafBucketCollector#collect(int[], int, long)}. Lucene does not notify
+ * collectors at the end of a segment, so the last batch of a segment is collected when moving to the next segment, and
+ * the last batch of the search must be collected by {@link #flush()} before the post collection of the aggregators.
+ */
+public class BatchBucketCollector extends BucketCollector {
+
+    public static final int BATCH_SIZE = 128;
+
+    /**
+     * Wrap the collector to collect batches of docs, unless it needs scores.
+     */
+    public static BucketCollector wrap(BucketCollector collector) {
+        if (collector == NO_OP_COLLECTOR || collector.needsScores()) {
+            return collector;
+        }
+        return new BatchBucketCollector(collector);
+    }
+
+    private final BucketCollector in;
+    private final int[] docs = new int[BATCH_SIZE];
+    private int count;
+    private long bucket;
+    private LeafBucketCollector leafCollector;
+
+    private BatchBucketCollector(BucketCollector in) {
+        this.in = in;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flush();
+        leafCollector = in.getLeafCollector(ctx);
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorer scorer) throws IOException {
+                leafCollector.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long owningBucket) throws IOException {
+                if (count > 0 && owningBucket != bucket) {
+                    collectBatch();
+                }
+                bucket = owningBucket;
+                docs[count++] = doc;
+                if (count == BATCH_SIZE) {
+                    collectBatch();
+                }
+            }
+        };
+    }
+
+    private void collectBatch() throws IOException {
+        final int batchCount = count;
+        // reset before collecting, the leaf collector may terminate the collection of the segment
+        count = 0;
+        leafCollector.collect(docs, batchCount, bucket);
+    }
+
+    /**
+     * Collect the buffered docs of the current segment.
+     */
+    public void flush() throws IOException {
+        if (count > 0) {
+            try {
+                collectBatch();
+            } catch (CollectionTerminatedException e) {
+                // the segment is already fully visited
+            }
+        }
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        in.preCollection();
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        flush();
+        in.postCollection();
+    }
+
+    @Override
+    public boolean needsScores() {
+        return in.needsScores();
+    }
+
+    @Override
+    public String toString() {
+        return "batch(" + in + ")";
+    }
+}
@@ -46,16 +46,31 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         private final ScriptService scriptService;
         private final IntConsumer multiBucketConsumer;
         private final boolean isFinalReduce;
+        private final boolean isShardReduce;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
             this(bigArrays, scriptService, (s) -> {}, isFinalReduce);
         }
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce) {
+            this(bigArrays, scriptService, multiBucketConsumer, isFinalReduce, false);
+        }
+
+        private ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce,
+                              boolean isShardReduce) {
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
             this.multiBucketConsumer = multiBucketConsumer;
             this.isFinalReduce = isFinalReduce;
+            this.isShardReduce = isShardReduce;
+        }
+
+        /**
+         * Creates the context of a partial reduce of the aggregations of the parts of a shard, such as its segment slices,
+         * into the aggregation of the shard.
+         */
+        public static ReduceContext forShardReduce(BigArrays bigArrays) {
+            return new ReduceContext(bigArrays, null, (s) -> {}, false, true);
         }
 
         /**
@@ -67,6 +82,15 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
             return isFinalReduce;
         }
 
+        /**
+         * Returns <code>true</code> iff the current reduce phase reduces the aggregations of the parts of a shard into the
+         * aggregation of the shard. The parts do not apply the shard level limits, like the shard size of the terms
+         * aggregations, which are applied by this reduce.
+         */
+        public boolean isShardReduce() {
+            return isShardReduce;
+        }
+
         public BigArrays bigArrays() {
             return bigArrays;
         }
@@ -151,6 +175,15 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         return true;
     }
 
+    /**
+     * Returns this aggregation scaled up to the whole data set when it was computed on a sample of <code>fraction</code> of the
+     * documents, such as the sub-aggregations of a token_sampler. Counts and sums are divided by the fraction, the aggregations
+     * that do not depend on the number of documents are returned as is.
+     */
+    public InternalAggregation finalizeSampling(double fraction) {
+        return this;
+    }
+
     /**
      * Get the value of specified path in the aggregation.
      *
@@ -82,6 +82,18 @@ public final class InternalAggregations extends Aggregations implements Streamab
         return topLevelPipelineAggregators;
     }
 
+    /**
+     * Scales up the aggregations computed on a sample of <code>fraction</code> of the documents,
+     * see {@link InternalAggregation#finalizeSampling(double)}.
+     */
+    public static InternalAggregations finalizeSampling(InternalAggregations aggregations, double fraction) {
+        List<InternalAggregation> sampled = new ArrayList<>(aggregations.aggregations.size());
+        for (Aggregation aggregation : aggregations.aggregations) {
+            sampled.add(((InternalAggregation) aggregation).finalizeSampling(fraction));
+        }
+        return new InternalAggregations(sampled, aggregations.topLevelPipelineAggregators);
+    }
+
     /**
      * Reduces the given list of aggregations as well as the top-level pipeline aggregators extracted from the first
      * {@link InternalAggregations} object found in the list.
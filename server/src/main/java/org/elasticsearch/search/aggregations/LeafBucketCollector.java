@@ -68,6 +68,13 @@ public abstract class LeafBucketCollector implements LeafCollector {
                     }
                 }
 
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    for (LeafBucketCollector c : colls) {
+                        c.collect(docs, count, bucket);
+                    }
+                }
+
             };
         }
     }
@@ -77,6 +84,18 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long bucket) throws IOException;
 
+    /**
+     * Collect the first {@code count} docs of {@code docs}, in increasing order, in the given bucket. Collectors
+     * can override this method to decode the values of the whole batch in one pass, the default implementation
+     * collects each doc with {@link #collect(int, long)}. The scorer is not positioned on the collected docs, so
+     * batches are only collected by aggregations that do not need scores, see {@link BatchBucketCollector}.
+     */
+    public void collect(int[] docs, int count, long bucket) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], bucket);
+        }
+    }
+
     @Override
     public final void collect(int doc) throws IOException {
         collect(doc, 0);
@@ -18,6 +18,9 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 
 /**
@@ -28,6 +31,9 @@ public class SearchContextAggregations {
     private final AggregatorFactories factories;
     private final MultiBucketConsumer multiBucketConsumer;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+    private final List<BatchBucketCollector> batchCollectors = new ArrayList<>();
+    private boolean partialCollection;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -54,6 +60,47 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Returns the top level aggregators of the additional segment slices collected concurrently, in slice order.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    /**
+     * Registers the top level aggregators collecting an additional segment slice.
+     */
+    public void addSliceAggregators(Aggregator[] aggregators) {
+        sliceAggregators.add(aggregators);
+    }
+
+    /**
+     * Returns true if the aggregators only collect a part of the segments of the shard, such as a segment slice, and
+     * their aggregations are reduced into the aggregation of the shard. The shard level limits, like the shard size of
+     * the terms aggregations, are then applied by the reduce instead of the aggregators.
+     */
+    public boolean partialCollection() {
+        return partialCollection;
+    }
+
+    void partialCollection(boolean partialCollection) {
+        this.partialCollection = partialCollection;
+    }
+
+    /**
+     * Returns the collectors buffering batches of docs for the top level aggregators, flushed before post collection.
+     */
+    public List<BatchBucketCollector> batchCollectors() {
+        return batchCollectors;
+    }
+
+    /**
+     * Registers a collector buffering batches of docs for the top level aggregators.
+     */
+    public void addBatchCollector(BatchBucketCollector collector) {
+        batchCollectors.add(collector);
+    }
+
     /**
      * Returns a consumer for multi bucket aggregation that checks the total number of buckets
      * created in the response
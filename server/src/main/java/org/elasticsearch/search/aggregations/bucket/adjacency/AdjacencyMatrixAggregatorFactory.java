@@ -55,6 +55,11 @@ public class AdjacencyMatrixAggregatorFactory extends AggregatorFactory<Adjacenc
         }
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
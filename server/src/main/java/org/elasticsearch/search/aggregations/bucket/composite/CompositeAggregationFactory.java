@@ -43,6 +43,17 @@ class CompositeAggregationFactory extends AggregatorFactory<CompositeAggregation
         this.afterKey = afterKey;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        for (CompositeValuesSourceConfig source : sources) {
+            if (source.fieldType() == null) {
+                // scripts share the search lookup of the context
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     protected Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket,
                                         List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -25,12 +25,17 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.RoaringDocIdSet;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -94,7 +99,51 @@ final class CompositeAggregator extends BucketsAggregator {
             this.sources[i] = createValuesSource(context.bigArrays(), context.searcher().getIndexReader(), sourceConfigs[i], size);
         }
         this.queue = new CompositeValuesCollectorQueue(context.bigArrays(), sources, size, rawAfterKey);
-        this.sortedDocsProducer = sources[0].createSortedDocsProducerOrNull(context.searcher().getIndexReader(), context.query());
+        this.sortedDocsProducer = createSortedDocsProducerOrNull(context, sources[0]);
+    }
+
+    private static SortedDocsProducer createSortedDocsProducerOrNull(SearchContext context, SingleDimensionValuesSource<?> leadSource) {
+        SortedDocsProducer producer = leadSource.createSortedDocsProducerOrNull(context.searcher().getIndexReader(), context.query());
+        if (producer == null && context.query() != null && useFilterCache(context)) {
+            // visit the documents in the order of the leading source and keep the ones matching the query.
+            producer = leadSource.createSortedDocsProducerOrNull(context.searcher().getIndexReader(), null);
+            if (producer != null) {
+                producer.setFilter(queryBitSetProducer(context));
+            }
+        }
+        return producer;
+    }
+
+    /**
+     * Produces the documents of each segment matching the query of this request. The matches are kept in the node
+     * {@link CompositeFilterCache} so that the following pages reuse them, the bitset filter cache is not used since it
+     * is unbounded and only meant for nested and parent filters.
+     */
+    private static BitSetProducer queryBitSetProducer(SearchContext context) {
+        final CompositeFilterCache cache = context.compositeFilterCache();
+        if (cache != null) {
+            return cache.getBitSetProducer(context.searcher(), context.query());
+        }
+        final IndexSearcher searcher = context.searcher();
+        final Query query = context.query();
+        return new BitSetProducer() {
+            private Weight weight;
+
+            @Override
+            public BitSet getBitSet(LeafReaderContext context) throws IOException {
+                if (weight == null) {
+                    weight = searcher.createNormalizedWeight(query, false);
+                }
+                final Scorer scorer = weight.scorer(context);
+                return scorer == null ? null : BitSet.of(scorer.iterator(), context.reader().maxDoc());
+            }
+        };
+    }
+
+    private static boolean useFilterCache(SearchContext context) {
+        final QueryShardContext queryShardContext = context.getQueryShardContext();
+        return queryShardContext != null && queryShardContext.getIndexSettings() != null
+            && queryShardContext.getIndexSettings().getValue(IndexMetaData.INDEX_COMPOSITE_FILTER_CACHE_SETTING);
     }
 
     @Override
@@ -167,7 +216,8 @@ final class CompositeAggregator extends BucketsAggregator {
               and terminates when the leading source value is guaranteed to be greater than the lowest
               composite bucket in the queue.
              */
-            DocIdSet docIdSet = sortedDocsProducer.processLeaf(context.query(), queue, ctx, fillDocIdSet);
+            DocIdSet docIdSet = sortedDocsProducer.hasMatches(ctx) ?
+                sortedDocsProducer.processLeaf(context.query(), queue, ctx, fillDocIdSet) : DocIdSet.EMPTY;
             if (fillDocIdSet) {
                 entries.add(new Entry(ctx, docIdSet));
             }
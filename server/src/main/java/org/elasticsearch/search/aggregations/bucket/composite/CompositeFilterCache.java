@@ -0,0 +1,201 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A node level cache of the query matches of each segment, used by the composite aggregations visiting the documents
+ * in the order of their leading source so that the following pages of a request do not evaluate the query again.
+ * <p>
+ * Entries are keyed by the segment core and the query, so they survive refreshes and deletes (live docs are applied
+ * when the matches are visited) and are invalidated when the segment is closed. The cache is bounded by
+ * {@link #SIZE_SETTING} with a LRU eviction, and the cached bitsets are charged to the accounting circuit breaker.
+ */
+public final class CompositeFilterCache implements RemovalListener<CompositeFilterCache.Key, CompositeFilterCache.Value>, Closeable {
+
+    public static final Setting<ByteSizeValue> SIZE_SETTING =
+        Setting.memorySizeSetting("indices.composite_filter_cache.size", "1%", Property.NodeScope);
+
+    // same estimate as the Lucene query cache for queries that do not report their memory usage
+    private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+
+    private final Cache<Key, Value> cache;
+    private final CircuitBreakerService breakerService;
+    private final Set<IndexReader.CacheKey> registeredClosedListeners = ConcurrentCollections.newConcurrentSet();
+
+    public CompositeFilterCache(Settings settings, CircuitBreakerService breakerService) {
+        this.breakerService = Objects.requireNonNull(breakerService);
+        this.cache = CacheBuilder.<Key, Value>builder()
+            .setMaximumWeight(SIZE_SETTING.get(settings).getBytes())
+            .weigher((k, v) -> v.ramBytesUsed)
+            .removalListener(this)
+            .build();
+    }
+
+    /**
+     * Returns a producer of the documents of each segment matching <code>query</code>, reusing the matches cached by
+     * previous requests. The weight of the query is only created for the segments missing from the cache.
+     */
+    BitSetProducer getBitSetProducer(IndexSearcher searcher, Query query) {
+        return new BitSetProducer() {
+            private Weight weight;
+
+            @Override
+            public BitSet getBitSet(LeafReaderContext context) throws IOException {
+                final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+                if (cacheHelper == null) {
+                    return load(context);
+                }
+                final Key key = new Key(cacheHelper.getKey(), query);
+                try {
+                    return cache.computeIfAbsent(key, k -> {
+                        if (registeredClosedListeners.add(k.readerKey)) {
+                            cacheHelper.addClosedListener(CompositeFilterCache.this::onClose);
+                        }
+                        final BitSet bitSet = load(context);
+                        final long ramBytesUsed = (bitSet == null ? 0 : bitSet.ramBytesUsed()) + (query instanceof Accountable ?
+                            ((Accountable) query).ramBytesUsed() : QUERY_DEFAULT_RAM_BYTES_USED) + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+                        breaker().addEstimateBytesAndMaybeBreak(ramBytesUsed, "<composite_filter_cache>");
+                        return new Value(bitSet, ramBytesUsed);
+                    }).bitSet;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw ExceptionsHelper.convertToRuntime((Exception) cause);
+                }
+            }
+
+            private BitSet load(LeafReaderContext context) throws IOException {
+                if (weight == null) {
+                    weight = searcher.createNormalizedWeight(query, false);
+                }
+                final Scorer scorer = weight.scorer(context);
+                return scorer == null ? null : BitSet.of(scorer.iterator(), context.reader().maxDoc());
+            }
+        };
+    }
+
+    private CircuitBreaker breaker() {
+        return breakerService.getBreaker(CircuitBreaker.ACCOUNTING);
+    }
+
+    private void onClose(IndexReader.CacheKey readerKey) {
+        registeredClosedListeners.remove(readerKey);
+        for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().readerKey == readerKey) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, Value> notification) {
+        breaker().addWithoutBreaking(-notification.getValue().ramBytesUsed);
+    }
+
+    /**
+     * The number of cached segment matches.
+     */
+    int count() {
+        return cache.count();
+    }
+
+    /**
+     * The memory used by the cached segment matches, in bytes.
+     */
+    long ramBytesUsed() {
+        return cache.weight();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    static final class Key {
+        final IndexReader.CacheKey readerKey;
+        final Query query;
+
+        Key(IndexReader.CacheKey readerKey, Query query) {
+            this.readerKey = readerKey;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return readerKey == key.readerKey && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * readerKey.hashCode() + query.hashCode();
+        }
+    }
+
+    static final class Value {
+        @Nullable
+        final BitSet bitSet;
+        final long ramBytesUsed;
+
+        Value(@Nullable BitSet bitSet, long ramBytesUsed) {
+            this.bitSet = bitSet;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.join.BitSetProducer;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.DocIdSetBuilder;
 import org.elasticsearch.common.Nullable;
@@ -38,10 +39,42 @@ import java.io.IOException;
 abstract class SortedDocsProducer {
     protected final String field;
 
+    private BitSetProducer filter;
+    private LeafReaderContext filterContext;
+    private Bits filterBits;
+
     SortedDocsProducer(String field) {
         this.field = field;
     }
 
+    /**
+     * Restricts the visited documents to the documents matching <code>filter</code>, so that the producer
+     * can be used with any query. Each page of the composite aggregation then seeks the after key in the
+     * leading source of each segment instead of collecting all the documents matching the query.
+     */
+    void setFilter(@Nullable BitSetProducer filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Returns false if no document of the leaf matches the filter.
+     */
+    boolean hasMatches(LeafReaderContext context) throws IOException {
+        return filter == null || filterBits(context) instanceof Bits.MatchNoBits == false;
+    }
+
+    private Bits filterBits(LeafReaderContext context) throws IOException {
+        if (filter == null) {
+            return null;
+        }
+        if (filterContext != context) {
+            Bits bits = filter.getBitSet(context);
+            filterBits = bits == null ? new Bits.MatchNoBits(context.reader().maxDoc()) : bits;
+            filterContext = context;
+        }
+        return filterBits;
+    }
+
     /**
      * Visits all non-deleted documents in <code>iterator</code> and fills the provided <code>queue</code>
      * with the top composite buckets extracted from the collection.
@@ -84,10 +117,12 @@ abstract class SortedDocsProducer {
             }
         };
         final Bits liveDocs = context.reader().getLiveDocs();
+        final Bits filterBits = filterBits(context);
         final LeafBucketCollector collector = queue.getLeafCollector(leadSourceBucket, context, queueCollector);
         while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
-            if (liveDocs == null || liveDocs.get(iterator.docID())) {
-                collector.collect(iterator.docID());
+            final int doc = iterator.docID();
+            if ((liveDocs == null || liveDocs.get(doc)) && (filterBits == null || filterBits.get(doc))) {
+                collector.collect(doc);
             }
         }
         if (queue.isFull() &&
@@ -51,10 +51,10 @@ public class FilterAggregatorFactory extends AggregatorFactory<FilterAggregatorF
      * if the aggregation collects documents reducing the overhead of the
      * aggregation in the case where no documents are collected.
      * 
-     * Note that as aggregations are initialsed and executed in a serial manner,
-     * no concurrency considerations are necessary here.
+     * Note that segment slices may be collected concurrently by distinct
+     * aggregators sharing this factory.
      */
-    public Weight getWeight() {
+    public synchronized Weight getWeight() {
         if (weight == null) {
             IndexSearcher contextSearcher = context.searcher();
             try {
@@ -66,6 +66,11 @@ public class FilterAggregatorFactory extends AggregatorFactory<FilterAggregatorF
         return weight;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
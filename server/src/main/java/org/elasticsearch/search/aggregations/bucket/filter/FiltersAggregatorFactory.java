@@ -65,17 +65,18 @@ public class FiltersAggregatorFactory extends AggregatorFactory<FiltersAggregato
      * created if the aggregation collects documents reducing the overhead of
      * the aggregation in the case where no documents are collected.
      * 
-     * Note that as aggregations are initialsed and executed in a serial manner,
-     * no concurrency considerations are necessary here.
+     * Note that segment slices may be collected concurrently by distinct
+     * aggregators sharing this factory.
      */
-    public Weight[] getWeights() {
+    public synchronized Weight[] getWeights() {
         if (weights == null) {
             try {
                 IndexSearcher contextSearcher = context.searcher();
-                weights = new Weight[filters.length];
+                Weight[] weights = new Weight[filters.length];
                 for (int i = 0; i < filters.length; ++i) {
-                    this.weights[i] = contextSearcher.createNormalizedWeight(filters[i], false);
+                    weights[i] = contextSearcher.createNormalizedWeight(filters[i], false);
                 }
+                this.weights = weights;
             } catch (IOException e) {
                 throw new AggregationInitializationException("Failed to initialse filters for aggregation [" + name() + "]", e);
             }
@@ -83,6 +84,11 @@ public class FiltersAggregatorFactory extends AggregatorFactory<FiltersAggregato
         return weights;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
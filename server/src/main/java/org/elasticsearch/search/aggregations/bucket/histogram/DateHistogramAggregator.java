@@ -19,10 +19,20 @@
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.util.CollectionUtil;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.search.DocValueFormat;
@@ -65,10 +75,14 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
+    private final String pointField;
+    // the [min, max] range of the values matched by the query, or null when documents have to be collected
+    private final long[] pointRange;
+
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding shardRounding,
             long offset, BucketOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            DocValueFormat formatter, SearchContext aggregationContext,
+            @Nullable String pointField, DocValueFormat formatter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
@@ -83,6 +97,67 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.formatter = formatter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+
+        // when all documents, or all documents in a range of this field, match and there is nothing to collect below,
+        // bucket sizes are counted from the BKD tree.
+        this.pointField = pointField;
+        this.pointRange = valuesSource != null
+                && pointField != null
+                && parent == null
+                && factories.countAggregators() == 0
+                && aggregationContext.minimumScore() == null
+                && aggregationContext.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                ? pointRange(aggregationContext.query(), pointField) : null;
+    }
+
+    /**
+     * Returns the [min, max] range of the values of <code>field</code> matched by the query if it matches all the documents
+     * having a value in this range, like a match_all or a range query on this field, possibly in a conjunction with type
+     * and alias filters matching all documents. Returns null otherwise.
+     */
+    static long[] pointRange(Query query, String field) {
+        if (Queries.isMatchAllQuery(query)) {
+            return new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        }
+        if (query instanceof ConstantScoreQuery) {
+            return pointRange(((ConstantScoreQuery) query).getQuery(), field);
+        }
+        if (query instanceof BoostQuery) {
+            return pointRange(((BoostQuery) query).getQuery(), field);
+        }
+        if (query instanceof IndexOrDocValuesQuery) {
+            return pointRange(((IndexOrDocValuesQuery) query).getIndexQuery(), field);
+        }
+        if (query instanceof PointRangeQuery) {
+            final PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) == false || rangeQuery.getNumDims() != 1
+                    || rangeQuery.getBytesPerDim() != Long.BYTES) {
+                return null;
+            }
+            return new long[] {
+                NumericUtils.sortableBytesToLong(rangeQuery.getLowerPoint(), 0),
+                NumericUtils.sortableBytesToLong(rangeQuery.getUpperPoint(), 0) };
+        }
+        if (query instanceof BooleanQuery) {
+            final BooleanQuery booleanQuery = (BooleanQuery) query;
+            if (booleanQuery.clauses().isEmpty() || booleanQuery.getMinimumNumberShouldMatch() != 0) {
+                return null;
+            }
+            final long[] range = new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                if (clause.isRequired() == false) {
+                    return null;
+                }
+                final long[] clauseRange = pointRange(clause.getQuery(), field);
+                if (clauseRange == null) {
+                    return null;
+                }
+                range[0] = Math.max(range[0], clauseRange[0]);
+                range[1] = Math.min(range[1], clauseRange[1]);
+            }
+            return range;
+        }
+        return null;
     }
 
     @Override
@@ -96,7 +171,11 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointRange != null && countPoints(ctx)) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
+        final BucketRounding bucketRounding = new BucketRounding();
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -109,7 +188,7 @@ class DateHistogramAggregator extends BucketsAggregator {
                         long value = values.nextValue();
                         // We can use shardRounding here, which is sometimes more efficient
                         // if daylight saving times are involved.
-                        long rounded = shardRounding.round(value - offset) + offset;
+                        long rounded = bucketRounding.round(value);
                         assert rounded >= previousRounded;
                         if (rounded == previousRounded) {
                             continue;
@@ -128,6 +207,116 @@ class DateHistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Add the number of points in the query range of each bucket to the bucket doc counts, when the segment has no
+     * deleted documents and every document has at most one value. Cells of the BKD tree outside of the query range are
+     * skipped, and cells inside of it whose bounds round to the same bucket are counted without decoding their values.
+     * Return false if documents have to be collected.
+     */
+    private boolean countPoints(LeafReaderContext ctx) throws IOException {
+        if (ctx.reader().getLiveDocs() != null) {
+            return false;
+        }
+        final PointValues pointValues = ctx.reader().getPointValues(pointField);
+        if (pointValues == null || pointValues.getNumDimensions() != 1 || pointValues.getBytesPerDimension() != Long.BYTES
+                || pointValues.size() != pointValues.getDocCount()) {
+            return false;
+        }
+        final PointCounter counter = new PointCounter();
+        pointValues.intersect(counter);
+        counter.flush();
+        return true;
+    }
+
+    /**
+     * Counts the points of consecutive cells and values that fall in the same bucket.
+     */
+    private final class PointCounter implements PointValues.IntersectVisitor {
+        private final BucketRounding bucketRounding = new BucketRounding();
+        private long bucket = Long.MIN_VALUE;
+        private int count = 0;
+
+        private void setBucket(long rounded) {
+            if (rounded != bucket) {
+                flush();
+                bucket = rounded;
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                long bucketOrd = bucketOrds.add(bucket);
+                if (bucketOrd < 0) { // already seen
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, count);
+                count = 0;
+            }
+        }
+
+        @Override
+        public void visit(int docID) {
+            // the cell is inside the current bucket
+            count++;
+        }
+
+        @Override
+        public void visit(int docID, byte[] packedValue) {
+            final long value = NumericUtils.sortableBytesToLong(packedValue, 0);
+            if (value < pointRange[0] || value > pointRange[1]) {
+                return;
+            }
+            setBucket(bucketRounding.round(value));
+            count++;
+        }
+
+        @Override
+        public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+            final long minValue = NumericUtils.sortableBytesToLong(minPackedValue, 0);
+            final long maxValue = NumericUtils.sortableBytesToLong(maxPackedValue, 0);
+            if (maxValue < pointRange[0] || minValue > pointRange[1]) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            }
+            if (minValue < pointRange[0] || maxValue > pointRange[1]) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+            final long min = bucketRounding.round(minValue);
+            final long max = bucketRounding.round(maxValue);
+            if (min != max) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+            setBucket(min);
+            return PointValues.Relation.CELL_INSIDE_QUERY;
+        }
+    }
+
+    /**
+     * Rounds values with the shard rounding and remembers the bounds of the last bucket, so that consecutive values
+     * in the same bucket, like time ordered documents or the values of a BKD leaf, are not rounded again.
+     */
+    private final class BucketRounding {
+        private long bucket = Long.MIN_VALUE;
+        private long start = 0;
+        private long end = 0;
+
+        long round(long value) {
+            if (value >= start && value < end) {
+                return bucket;
+            }
+            final long rounded = shardRounding.round(value - offset) + offset;
+            if (rounded == bucket) {
+                // a second value of this bucket, compute its end once
+                final long next = shardRounding.nextRoundingValue(rounded - offset) + offset;
+                start = rounded;
+                end = next > rounded && shardRounding.round(next - offset) + offset == next ? next : rounded;
+            } else {
+                start = end = rounded;
+            }
+            bucket = rounded;
+            return rounded;
+        }
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
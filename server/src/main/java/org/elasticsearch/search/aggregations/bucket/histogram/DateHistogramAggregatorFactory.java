@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -76,8 +77,17 @@ public final class DateHistogramAggregatorFactory
 
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        // scripted or missing values cannot be counted from indexed points.
+        final boolean indexedDates = config.fieldContext() != null && config.script() == null && config.missing() == null
+                && config.fieldContext().fieldType() instanceof DateFieldMapper.DateFieldType;
+        final String pointField = indexedDates ? config.fieldContext().field() : null;
         return new DateHistogramAggregator(name, factories, rounding, shardRounding, offset, order, keyed, minDocCount, extendedBounds,
-                valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
+                valuesSource, pointField, config.format(), context, parent, pipelineAggregators, metaData);
+    }
+
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
     }
 
     @Override
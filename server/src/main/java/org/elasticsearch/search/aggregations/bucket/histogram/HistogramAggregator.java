@@ -36,6 +36,7 @@ import org.elasticsearch.search.aggregations.bucket.histogram.InternalHistogram.
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalOrder;
+import org.elasticsearch.search.aggregations.support.DoubleValuesBatch;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -62,6 +63,7 @@ class HistogramAggregator extends BucketsAggregator {
     private final double minBound, maxBound;
 
     private final LongHash bucketOrds;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
     HistogramAggregator(String name, AggregatorFactories factories, double interval, double offset,
             BucketOrder order, boolean keyed, long minDocCount, double minBound, double maxBound,
@@ -125,6 +127,39 @@ class HistogramAggregator extends BucketsAggregator {
                     }
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                assert bucket == 0;
+                final int valuesCount = batch.load(values, docs, count);
+                final double[] keys = batch.values();
+                final int[] valueDocs = batch.docs();
+                for (int i = 0; i < valuesCount; i++) {
+                    keys[i] = Math.floor((keys[i] - offset) / interval);
+                }
+
+                int previousDoc = -1;
+                double previousKey = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < valuesCount; i++) {
+                    final int doc = valueDocs[i];
+                    final double key = keys[i];
+                    if (doc == previousDoc) {
+                        assert key >= previousKey;
+                        if (key == previousKey) {
+                            continue;
+                        }
+                    }
+                    long bucketOrd = bucketOrds.add(Double.doubleToLongBits(key));
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                        collectExistingBucket(sub, doc, bucketOrd);
+                    } else {
+                        collectBucket(sub, doc, bucketOrd);
+                    }
+                    previousDoc = doc;
+                    previousKey = key;
+                }
+            }
         };
     }
 
@@ -76,6 +76,11 @@ public final class HistogramAggregatorFactory extends ValuesSourceAggregatorFact
                 config.format(), context, parent, pipelineAggregators, metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
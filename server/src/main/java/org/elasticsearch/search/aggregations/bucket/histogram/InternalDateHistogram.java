@@ -464,6 +464,16 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
                 format, keyed, pipelineAggregators(), getMetaData());
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(double fraction) {
+        List<Bucket> sampledBuckets = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            sampledBuckets.add(new Bucket(bucket.key, Math.round(bucket.docCount / fraction), keyed, format,
+                InternalAggregations.finalizeSampling(bucket.aggregations, fraction)));
+        }
+        return create(sampledBuckets);
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         if (keyed) {
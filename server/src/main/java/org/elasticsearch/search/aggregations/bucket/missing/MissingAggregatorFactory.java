@@ -39,6 +39,11 @@ public class MissingAggregatorFactory extends ValuesSourceAggregatorFactory<Valu
         super(name, config, context, parent, subFactoriesBuilder, metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected MissingAggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
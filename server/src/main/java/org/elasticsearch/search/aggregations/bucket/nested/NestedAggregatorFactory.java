@@ -45,6 +45,11 @@ public class NestedAggregatorFactory extends AggregatorFactory<NestedAggregatorF
         this.childObjectMapper = childObjectMapper;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
@@ -46,6 +46,11 @@ public class ReverseNestedAggregatorFactory extends AggregatorFactory<ReverseNes
         this.parentObjectMapper = parentObjectMapper;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
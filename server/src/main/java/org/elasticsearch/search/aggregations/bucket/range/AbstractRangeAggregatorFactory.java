@@ -51,6 +51,11 @@ public class AbstractRangeAggregatorFactory<AF extends AbstractRangeAggregatorFa
         this.rangeFactory = rangeFactory;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
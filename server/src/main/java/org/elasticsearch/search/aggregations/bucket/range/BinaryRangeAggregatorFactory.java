@@ -48,6 +48,11 @@ public class BinaryRangeAggregatorFactory
         this.keyed = keyed;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent,
             List<PipelineAggregator> pipelineAggregators,
@@ -52,6 +52,19 @@ public class DiversifiedAggregatorFactory extends ValuesSourceAggregatorFactory<
         this.executionHint = executionHint;
     }
 
+    /**
+     * The sample is made of the best scoring documents of the shard, not of each segment slice.
+     */
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return false;
+    }
+
+    @Override
+    public boolean needsScores() {
+        return true;
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -39,6 +39,11 @@ public class SamplerAggregatorFactory extends AggregatorFactory<SamplerAggregato
         this.shardSize = shardSize;
     }
 
+    @Override
+    public boolean needsScores() {
+        return true;
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
@@ -173,6 +173,14 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         };
     }
 
+    /**
+     * Background frequencies are computed on the whole shard by each aggregator, they would be summed per slice.
+     */
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return false;
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -239,7 +239,8 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             }
             otherDocCount += terms.getSumOfOtherDocCounts();
             final long thisAggDocCountError;
-            if (terms.getBuckets().size() < getShardSize() || InternalOrder.isKeyOrder(order)) {
+            // the parts of a shard build all their buckets, their counts are exact
+            if (reduceContext.isShardReduce() || terms.getBuckets().size() < getShardSize() || InternalOrder.isKeyOrder(order)) {
                 thisAggDocCountError = 0;
             } else if (InternalOrder.isCountDesc(order)) {
                 if (terms.getDocCountError() > 0) {
@@ -280,7 +281,17 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             }
         }
 
-        final int size = reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the buckets, except for key orders without min_doc_count: keys after the first
+        // required size keys cannot reach the final top buckets whatever the counts of the next shards. The reduce of
+        // the parts of a shard keeps the top shard size buckets, like the aggregator of the whole shard.
+        final int size;
+        if (reduceContext.isShardReduce()) {
+            size = Math.min(getShardSize(), buckets.size());
+        } else if (reduceContext.isFinalReduce() || (InternalOrder.isKeyOrder(order) && minDocCount <= 1)) {
+            size = Math.min(requiredSize, buckets.size());
+        } else {
+            size = buckets.size();
+        }
         final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
         for (List<B> sameTermBuckets : buckets.values()) {
             final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
@@ -314,6 +325,21 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(double fraction) {
+        List<B> buckets = new ArrayList<>(getBuckets().size());
+        for (B bucket : getBuckets()) {
+            buckets.add(bucket.newBucket(Math.round(bucket.docCount / fraction),
+                InternalAggregations.finalizeSampling(bucket.aggregations, fraction), scaleDocCountError(bucket.docCountError, fraction)));
+        }
+        return create(name, buckets, scaleDocCountError(getDocCountError(), fraction), Math.round(getSumOfOtherDocCounts() / fraction));
+    }
+
+    private static long scaleDocCountError(long docCountError, double fraction) {
+        // -1 means that the error is unknown
+        return docCountError < 0 ? docCountError : Math.round(docCountError / fraction);
+    }
+
     protected abstract void setDocCountError(long docCountError);
 
     protected abstract int getShardSize();
@@ -124,7 +124,7 @@ public class LongTermsAggregator extends TermsAggregator {
             }
         }
 
-        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        final int size = (int) Math.min(bucketOrds.size(), shardSize());
         long otherDocCount = 0;
         BucketPriorityQueue<LongTerms.Bucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
         LongTerms.Bucket spare = null;
@@ -129,7 +129,7 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
             }
         }
 
-        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        final int size = (int) Math.min(bucketOrds.size(), shardSize());
 
         long otherDocCount = 0;
         BucketPriorityQueue<StringTerms.Bucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
@@ -34,6 +34,7 @@ import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.InternalOrder.Aggregation;
 import org.elasticsearch.search.aggregations.InternalOrder.CompoundOrder;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.bucket.DeferableBucketAggregator;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation.Bucket;
@@ -213,6 +214,16 @@ public abstract class TermsAggregator extends DeferableBucketAggregator {
         }
     }
 
+    /**
+     * Returns the number of buckets to build per owning bucket. All the buckets are built when the aggregator only collects
+     * a part of the shard, since a term out of the top buckets of a part may be in the top buckets of the shard: the shard
+     * size is then applied when the parts are reduced, see {@link SearchContextAggregations#partialCollection()}.
+     */
+    protected final long shardSize() {
+        final SearchContextAggregations aggregations = context.aggregations();
+        return aggregations != null && aggregations.partialCollection() ? Long.MAX_VALUE : bucketCountThresholds.getShardSize();
+    }
+
     static boolean descendsFromNestedAggregator(Aggregator parent) {
         while (parent != null) {
             if (parent.getClass() == NestedAggregator.class) {
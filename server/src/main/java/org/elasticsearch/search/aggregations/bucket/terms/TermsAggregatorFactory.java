@@ -79,6 +79,15 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         this.showTermDocCountError = showTermDocCountError;
     }
 
+    /**
+     * Segment slices build all their buckets, trimmed to the shard size when the slices are reduced. The shard_min_doc_count
+     * only applies to the counts of the whole shard, so it disables the concurrent collection.
+     */
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return bucketCountThresholds.getShardMinDocCount() == 0 && valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
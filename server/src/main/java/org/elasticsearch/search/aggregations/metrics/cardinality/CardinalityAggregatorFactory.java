@@ -43,6 +43,11 @@ public class CardinalityAggregatorFactory extends ValuesSourceAggregatorFactory<
         this.precisionThreshold = precisionThreshold;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
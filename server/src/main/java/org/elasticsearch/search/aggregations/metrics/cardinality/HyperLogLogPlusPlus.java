@@ -19,7 +19,6 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -28,12 +27,10 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -157,7 +154,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    // dense registers of the buckets using hyperloglog, indexed by denseSlots
     private ByteArray runLens;
+    // 1 + the index of the dense registers of each bucket, 0 while the bucket uses linear counting
+    private IntArray denseSlots;
+    private int denseCount;
     private final Hashset hashSet;
     private final int p, m;
     private final double alphaMM;
@@ -173,7 +174,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
+        runLens = bigArrays.newByteArray(0);
+        denseSlots = bigArrays.newIntArray(initialBucketCount);
         hashSet = new Hashset(initialBucketCount);
         final double alpha;
         switch (p) {
@@ -195,11 +197,33 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return denseSlots.size();
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        denseSlots = bigArrays.grow(denseSlots, numBuckets);
+    }
+
+    /**
+     * Index of the first dense register of a bucket using hyperloglog.
+     */
+    private long registersStart(long bucket) {
+        final int slot = denseSlots.get(bucket);
+        assert slot > 0;
+        return ((long) slot - 1) << p;
+    }
+
+    /**
+     * Allocate zeroed dense registers for a bucket, dense registers are only allocated
+     * when the bucket switches to hyperloglog.
+     */
+    private long allocateRegisters(long bucket) {
+        assert denseSlots.get(bucket) == 0;
+        final long start = ((long) denseCount) << p;
+        runLens = bigArrays.grow(runLens, start + m);
+        runLens.fill(start, start + m, (byte) 0);
+        denseSlots.set(bucket, ++denseCount);
+        return start;
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -225,8 +249,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = registersStart(thisBucket);
+            final long otherStart = other.registersStart(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -267,7 +291,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = registersStart(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
@@ -288,7 +312,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -314,12 +338,13 @@ public final class HyperLogLogPlusPlus implements Releasable {
         ensureCapacity(bucket + 1);
         final IntArray values = hashSet.values(bucket);
         try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
+            allocateRegisters(bucket);
             for (long i = 0; i < values.size(); ++i) {
                 final int encoded = values.get(i);
                 collectHllEncoded(bucket, encoded);
             }
             algorithm.set(bucket);
+            hashSet.clear(bucket);
         } finally {
             Releasables.close(values);
         }
@@ -422,7 +447,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        Releasables.close(runLens, denseSlots, hashSet);
     }
 
     private Object getComparableData(long bucket) {
@@ -436,8 +461,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return values;
         } else {
             Map<Byte, Integer> values = new HashMap<>();
-            for (long i = 0; i < runLens.size(); i++) {
-                byte runLength = runLens.get((bucket << p) + i);
+            for (long i = registersStart(bucket), end = i + m; i < end; i++) {
+                byte runLength = runLens.get(i);
                 Integer numOccurances = values.get(runLength);
                 if (numOccurances == null) {
                     values.put(runLength, 1);
@@ -460,46 +485,32 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * Sparse representation of the buckets using linear counting: one open addressing hash
+     * table of encoded hashes per bucket, that starts small and doubles until the linear
+     * counting threshold is reached. Buckets with a small cardinality only use a few bytes
+     * instead of the <code>m</code> bytes of dense registers.
      */
-    private class Hashset {
+    private class Hashset implements Releasable {
+
+        private static final int INITIAL_CAPACITY = 8;
 
-        private final int capacity;
+        private final int maxCapacity;
         private final int threshold;
-        private final int mask;
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
+        private ObjectArray<IntArray> tables;
 
         Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
+            maxCapacity = m / 4; // same memory as the dense registers, because ints take 4 bytes
+            threshold = (int) (maxCapacity * MAX_LOAD_FACTOR);
             sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-        }
-
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
-        }
-
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
-        }
-
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+            tables = bigArrays.newObjectArray(initialBucketCount);
         }
 
         private int recomputedSize(long bucket) {
+            final IntArray table = tables.get(bucket);
             int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
+            for (long i = 0; table != null && i < table.size(); ++i) {
+                if (table.get(i) != 0) {
                     ++size;
                 }
             }
@@ -521,17 +532,59 @@ public final class HyperLogLogPlusPlus implements Releasable {
          */
         public int add(long bucket, int k) {
             sizes = bigArrays.grow(sizes, bucket + 1);
+            tables = bigArrays.grow(tables, bucket + 1);
             assert k != 0;
+            IntArray table = tables.get(bucket);
+            if (table == null) {
+                table = bigArrays.newIntArray(Math.min(INITIAL_CAPACITY, maxCapacity));
+                tables.set(bucket, table);
+            } else if (sizes.get(bucket) + 1 > table.size() * MAX_LOAD_FACTOR && table.size() < maxCapacity) {
+                table = rehash(table, table.size() << 1);
+                tables.set(bucket, table);
+            }
+            if (insert(table, k)) {
+                return sizes.increment(bucket, 1);
+            }
+            // k is already in the set
+            return -1;
+        }
+
+        private boolean insert(IntArray table, int k) {
+            final int mask = (int) table.size() - 1;
             for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
+                final int v = table.get(i);
                 if (v == 0) {
                     // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
+                    table.set(i, k);
+                    return true;
                 } else if (v == k) {
-                    // k is already in the set
-                    return -1;
+                    return false;
+                }
+            }
+        }
+
+        private IntArray rehash(IntArray table, long capacity) {
+            final IntArray newTable = bigArrays.newIntArray(capacity);
+            try {
+                for (long i = 0; i < table.size(); ++i) {
+                    final int k = table.get(i);
+                    if (k != 0) {
+                        insert(newTable, k);
+                    }
                 }
+            } finally {
+                Releasables.close(table);
+            }
+            return newTable;
+        }
+
+        /**
+         * Release the hash table of a bucket that switched to hyperloglog.
+         */
+        public void clear(long bucket) {
+            if (bucket < sizes.size()) {
+                Releasables.close(tables.set(bucket, null));
+                sizes.set(bucket, 0);
             }
         }
 
@@ -541,9 +594,10 @@ public final class HyperLogLogPlusPlus implements Releasable {
             if (size == 0) {
                 return values;
             }
+            final IntArray table = tables.get(bucket);
             int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
+            for (long j = 0; j < table.size(); ++j) {
+                final int k = table.get(j);
                 if (k != 0) {
                     values.set(i++, k);
                 }
@@ -552,6 +606,13 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return values;
         }
 
+        @Override
+        public void close() {
+            for (long i = 0; i < tables.size(); ++i) {
+                Releasables.close(tables.get(i));
+            }
+            Releasables.close(tables, sizes);
+        }
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
@@ -566,7 +627,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -585,8 +646,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             counts.algorithm.set(0);
+            final long start = counts.allocateRegisters(0);
             for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+                counts.runLens.set(start + i, in.readByte());
             }
         }
         return counts;
@@ -43,6 +43,11 @@ public class GeoBoundsAggregatorFactory extends ValuesSourceAggregatorFactory<Va
         this.wrapLongitude = wrapLongitude;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
@@ -40,6 +40,11 @@ class GeoCentroidAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesS
         super(name, config, context, parent, subFactoriesBuilder, metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -37,6 +37,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.DoubleValuesBatch;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
@@ -57,6 +58,7 @@ public class MaxAggregator extends NumericMetricsAggregator.SingleValue {
     final Function<byte[], Number> pointConverter;
 
     DoubleArray maxes;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
     MaxAggregator(String name,
                     ValuesSourceConfig<ValuesSource.Numeric> config,
@@ -130,6 +132,22 @@ public class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= maxes.size()) {
+                    long from = maxes.size();
+                    maxes = bigArrays.grow(maxes, bucket + 1);
+                    maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+                }
+                final int valuesCount = batch.load(values, docs, count);
+                final double[] batchValues = batch.values();
+                double max = maxes.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    max = Math.max(max, batchValues[i]);
+                }
+                maxes.set(bucket, max);
+            }
+
         };
     }
 
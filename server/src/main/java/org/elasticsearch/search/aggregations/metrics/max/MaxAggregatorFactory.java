@@ -40,6 +40,11 @@ public class MaxAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSo
         super(name, config, context, parent, subFactoriesBuilder, metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
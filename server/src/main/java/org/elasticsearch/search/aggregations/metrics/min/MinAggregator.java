@@ -42,6 +42,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.DoubleValuesBatch;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
 import org.elasticsearch.search.internal.SearchContext;
@@ -60,6 +61,7 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
     final Function<byte[], Number> pointConverter;
 
     DoubleArray mins;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
     MinAggregator(String name,
                     ValuesSourceConfig<ValuesSource.Numeric> config,
@@ -133,6 +135,22 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= mins.size()) {
+                    long from = mins.size();
+                    mins = bigArrays.grow(mins, bucket + 1);
+                    mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
+                }
+                final int valuesCount = batch.load(values, docs, count);
+                final double[] batchValues = batch.values();
+                double min = mins.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    min = Math.min(min, batchValues[i]);
+                }
+                mins.set(bucket, min);
+            }
+
         };
     }
 
@@ -48,6 +48,11 @@ public class HDRPercentilesAggregatorFactory extends ValuesSourceAggregatorFacto
         this.keyed = keyed;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
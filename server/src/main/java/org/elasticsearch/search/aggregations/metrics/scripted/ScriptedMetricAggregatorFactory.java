@@ -67,6 +67,11 @@ public class ScriptedMetricAggregatorFactory extends AggregatorFactory<ScriptedM
         this.aggParams = aggParams;
     }
 
+    @Override
+    public boolean needsScores() {
+        return true; // like the aggregator, the scripts may rely on scores
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
@@ -31,6 +31,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.DoubleValuesBatch;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -48,6 +49,7 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
     DoubleArray compensations;
     DoubleArray mins;
     DoubleArray maxes;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
 
     public StatsAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat format,
@@ -126,6 +128,46 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.set(bucket, max);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= counts.size()) {
+                    final long from = counts.size();
+                    final long overSize = BigArrays.overSize(bucket + 1);
+                    counts = bigArrays.resize(counts, overSize);
+                    sums = bigArrays.resize(sums, overSize);
+                    compensations = bigArrays.resize(compensations, overSize);
+                    mins = bigArrays.resize(mins, overSize);
+                    maxes = bigArrays.resize(maxes, overSize);
+                    mins.fill(from, overSize, Double.POSITIVE_INFINITY);
+                    maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
+                }
+
+                final int valuesCount = batch.load(values, docs, count);
+                final double[] batchValues = batch.values();
+                counts.increment(bucket, valuesCount);
+                double min = mins.get(bucket);
+                double max = maxes.get(bucket);
+                double sum = sums.get(bucket);
+                double compensation = compensations.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    double value = batchValues[i];
+                    if (Double.isFinite(value) == false) {
+                        sum += value;
+                    } else if (Double.isFinite(sum)) {
+                        double corrected = value - compensation;
+                        double newSum = sum + corrected;
+                        compensation = (newSum - sum) - corrected;
+                        sum = newSum;
+                    }
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                sums.set(bucket, sum);
+                compensations.set(bucket, compensation);
+                mins.set(bucket, min);
+                maxes.set(bucket, max);
+            }
         };
     }
 
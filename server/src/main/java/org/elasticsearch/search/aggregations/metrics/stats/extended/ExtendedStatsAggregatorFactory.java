@@ -44,6 +44,11 @@ public class ExtendedStatsAggregatorFactory extends ValuesSourceAggregatorFactor
         this.sigma = sigma;
     }
 
+    @Override
+    public boolean supportsConcurrentCollection() {
+        return valuesSourceSupportsConcurrentCollection();
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
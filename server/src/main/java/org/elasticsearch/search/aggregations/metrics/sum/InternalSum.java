@@ -91,6 +91,11 @@ public class InternalSum extends InternalNumericMetricsAggregation.SingleValue i
         return new InternalSum(name, sum, format, pipelineAggregators(), getMetaData());
     }
 
+    @Override
+    public InternalSum finalizeSampling(double fraction) {
+        return new InternalSum(name, sum / fraction, format, pipelineAggregators(), getMetaData());
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(CommonFields.VALUE.getPreferredName(), sum);
@@ -30,6 +30,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.DoubleValuesBatch;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -44,6 +45,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
 
     private DoubleArray sums;
     private DoubleArray compensations;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
     SumAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat formatter, SearchContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -96,6 +98,30 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.set(bucket, sum);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                sums = bigArrays.grow(sums, bucket + 1);
+                compensations = bigArrays.grow(compensations, bucket + 1);
+
+                final int valuesCount = batch.load(values, docs, count);
+                final double[] batchValues = batch.values();
+                double sum = sums.get(bucket);
+                double compensation = compensations.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    double value = batchValues[i];
+                    if (Double.isFinite(value) == false) {
+                        sum += value;
+                    } else if (Double.isFinite(sum)) {
+                        double corrected = value - compensation;
+                        double newSum = sum + corrected;
+                        compensation = (newSum - sum) - corrected;
+                        sum = newSum;
+                    }
+                }
+                compensations.set(bucket, compensation);
+                sums.set(bucket, sum);
+            }
         };
     }
 
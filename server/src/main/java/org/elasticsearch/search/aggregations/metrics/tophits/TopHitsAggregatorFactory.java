@@ -73,6 +73,11 @@ public class TopHitsAggregatorFactory extends AggregatorFactory<TopHitsAggregato
         this.fetchSourceContext = fetchSourceContext;
     }
 
+    @Override
+    public boolean needsScores() {
+        return true; // the sort of the hits is only known by the aggregator
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
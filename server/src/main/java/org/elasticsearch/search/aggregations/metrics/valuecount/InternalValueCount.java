@@ -79,6 +79,11 @@ public class InternalValueCount extends InternalNumericMetricsAggregation.Single
         return new InternalValueCount(name, valueCount, pipelineAggregators(), getMetaData());
     }
 
+    @Override
+    public InternalValueCount finalizeSampling(double fraction) {
+        return new InternalValueCount(name, Math.round(value / fraction), pipelineAggregators(), getMetaData());
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(CommonFields.VALUE.getPreferredName(), value);
@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.support;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.BatchBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * Reusable buffers decoding the values of a batch of docs in one pass, so that aggregators can then compute their
+ * metrics with tight loops over primitive arrays. Values are decoded in doc order, then in value order for each doc.
+ */
+public final class DoubleValuesBatch {
+
+    private double[] values = new double[BatchBucketCollector.BATCH_SIZE];
+    private int[] docs = new int[BatchBucketCollector.BATCH_SIZE];
+    private int count;
+
+    /**
+     * Decode all the values of the first {@code docCount} docs and return the number of values.
+     */
+    public int load(SortedNumericDoubleValues in, int[] docIds, int docCount) throws IOException {
+        count = 0;
+        for (int i = 0; i < docCount; i++) {
+            final int doc = docIds[i];
+            if (in.advanceExact(doc)) {
+                final int valuesCount = in.docValueCount();
+                grow(count + valuesCount);
+                for (int j = 0; j < valuesCount; j++) {
+                    docs[count] = doc;
+                    values[count++] = in.nextValue();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Decode the value of the first {@code docCount} docs and return the number of docs having a value.
+     */
+    public int load(NumericDoubleValues in, int[] docIds, int docCount) throws IOException {
+        count = 0;
+        grow(docCount);
+        for (int i = 0; i < docCount; i++) {
+            final int doc = docIds[i];
+            if (in.advanceExact(doc)) {
+                docs[count] = doc;
+                values[count++] = in.doubleValue();
+            }
+        }
+        return count;
+    }
+
+    private void grow(int minSize) {
+        if (values.length < minSize) {
+            values = ArrayUtil.grow(values, minSize);
+            docs = ArrayUtil.grow(docs, minSize);
+        }
+    }
+
+    /**
+     * The decoded values, only the first {@link #count()} values are valid.
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * The doc of each decoded value.
+     */
+    public int[] docs() {
+        return docs;
+    }
+
+    public int count() {
+        return count;
+    }
+}
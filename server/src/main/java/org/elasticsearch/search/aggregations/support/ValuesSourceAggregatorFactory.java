@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.support;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 import org.joda.time.DateTimeZone;
@@ -49,6 +50,21 @@ public abstract class ValuesSourceAggregatorFactory<VS extends ValuesSource, AF
         return config;
     }
 
+    /**
+     * Factories whose aggregations of segment slices reduce to the aggregation of the whole shard opt in to
+     * {@link #supportsConcurrentCollection()} with this check. Aggregations trimming their buckets to a shard size must
+     * build all their buckets on a {@link SearchContextAggregations#partialCollection()} and trim them on the shard
+     * reduce, like terms. Values sources read per segment, but scripts share the search lookup of the context.
+     */
+    protected final boolean valuesSourceSupportsConcurrentCollection() {
+        return config.script() == null;
+    }
+
+    @Override
+    public boolean needsScores() {
+        return (config.script() != null && config.script().needs_score()) || super.needsScores();
+    }
+
     @Override
     public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.cql3.QueryOptions;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.ResultSet;
@@ -37,11 +38,13 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BitSet;
+import org.elassandra.cluster.SchemaManager;
 import org.elassandra.index.mapper.internal.HostFieldMapper;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.document.DocumentField;
@@ -54,6 +57,7 @@ import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fieldvisitor.CustomFieldsVisitor;
+import org.elasticsearch.index.fieldvisitor.DocValuesColumns;
 import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.search.SearchHit;
@@ -67,6 +71,7 @@ import org.elasticsearch.search.lookup.SourceLookup;
 import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 
@@ -77,6 +82,10 @@ import java.util.*;
 public class FetchPhase implements SearchPhase {
     private static final Logger LOGGER = LogManager.getLogger(FetchPhase.class);
 
+    // estimated heap overhead of a fetched row and of each of its columns (buffer, map entry and decoded value)
+    static final long FETCHED_ROW_OVERHEAD_BYTES = 64;
+    static final long FETCHED_COLUMN_OVERHEAD_BYTES = 96;
+
     protected final FetchSubPhase[] fetchSubPhases;
     protected final ClusterService clusterService;
 
@@ -190,6 +199,8 @@ public class FetchPhase implements SearchPhase {
             context.fetchResult().hits(new SearchHits(hits, context.queryResult().getTotalHits(), context.queryResult().getMaxScore()));
         } catch (IOException e) {
             throw ExceptionsHelper.convertToElastic(e);
+        } finally {
+            context.releaseFetchedBytes();
         }
     }
 
@@ -214,8 +225,6 @@ public class FetchPhase implements SearchPhase {
         if (fieldsVisitor == null) {
             return new SearchHit(docId);
         }
-        loadStoredFields(context, subReaderContext, fieldsVisitor, subDocId);
-        fieldsVisitor.postProcess(context.mapperService());
 
         Map<String, DocumentField> searchFields = getSearchFields(context, fieldsVisitor, subDocId,
             storedToRequestedFields, subReaderContext);
@@ -460,16 +469,36 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
+    /**
+     * Estimate the heap size of the rows fetched from cassandra, including their copy in the row map.
+     */
+    static long estimateFetchedBytes(ResultSet resultSet) {
+        long bytes = 0;
+        for (List<ByteBuffer> row : resultSet.rows) {
+            bytes += FETCHED_ROW_OVERHEAD_BYTES;
+            for (ByteBuffer value : row)
+                bytes += FETCHED_COLUMN_OVERHEAD_BYTES + (value == null ? 0 : 2L * value.remaining());
+        }
+        return bytes;
+    }
+
     protected NavigableSet<String> requiredColumns(SearchContext searchContext, FieldsVisitor fieldVisitor) throws IOException {
         return fieldVisitor.requiredColumns(searchContext);
     }
 
     protected ParsedStatement.Prepared getCqlPreparedStatement(SearchContext searchContext, IndexService indexService, FieldsVisitor fieldVisitor, String typeKey, boolean staticDocument) throws IOException {
+        return getCqlPreparedStatement(searchContext, indexService, fieldVisitor, typeKey, staticDocument, Collections.emptySet());
+    }
+
+    protected ParsedStatement.Prepared getCqlPreparedStatement(SearchContext searchContext, IndexService indexService, FieldsVisitor fieldVisitor, String typeKey, boolean staticDocument,
+            Set<String> docValuesColumns) throws IOException {
         ParsedStatement.Prepared cqlStatement = searchContext.getCqlPreparedStatement( typeKey );
         if (cqlStatement == null) {
             // fetch from requested stored_fields.
             NavigableSet<String> requiredColumns = requiredColumns(searchContext, fieldVisitor);
-            if (requiredColumns.size() > 0) {
+            // columns loaded from doc values are not fetched from cassandra.
+            requiredColumns.removeAll(docValuesColumns);
+            if (requiredColumns.size() > 0 || !docValuesColumns.isEmpty()) {
                 IndexMetaData indexMetaData = clusterService.state().metaData().index(searchContext.request().shardId().getIndexName());
                 if (requiredColumns.contains(HostFieldMapper.NAME)) {
                     searchContext.includeNode(indexMetaData.getSettings().getAsBoolean(IndexMetaData.SETTING_INCLUDE_HOST_ID, clusterService.settings().getAsBoolean(ClusterService.SETTING_CLUSTER_INCLUDE_NODE_ID, false)));
@@ -479,6 +508,10 @@ public class FetchPhase implements SearchPhase {
                 if (fieldVisitor.loadSource() && docMapper.sourceMapper().enabled()) {
                     requiredColumns.add(SourceFieldMapper.NAME);
                 }
+                if (requiredColumns.isEmpty() && !docValuesColumns.isEmpty() && DocValuesColumns.checkLiveness(indexService.getIndexSettings())) {
+                    // read a partition key column so that rows deleted in cassandra are not rebuilt from doc values.
+                    requiredColumns.add(livenessColumn(indexService, fieldVisitor.uid().type()));
+                }
                 if (requiredColumns.size() > 0) {
                     String query = clusterService.getQueryManager().buildFetchQuery(
                             indexService.getShard(0), fieldVisitor.uid().type(),
@@ -494,26 +527,63 @@ public class FetchPhase implements SearchPhase {
         return cqlStatement;
     }
 
+    private static String livenessColumn(IndexService indexService, String type) {
+        String ksName = indexService.mapperService().keyspace();
+        CFMetaData cfm = SchemaManager.getCFMetaData(ksName, SchemaManager.typeToCfName(ksName, type));
+        return cfm.partitionKeyColumns().get(0).name.toString();
+    }
+
     protected void processCqlResultSet(SearchContext searchContext, IndexService indexService, FieldsVisitor fieldVisitor, ResultSet resultSet) throws IOException {
         UntypedResultSet rs = UntypedResultSet.create(resultSet);
         if (!rs.isEmpty()) {
             UntypedResultSet.Row row = rs.one();
             Map<String, Object> mapObject = clusterService.getQueryManager().rowAsMap(indexService.getShard(0), fieldVisitor.uid().type(), row);
-            if (searchContext.includeHost()) {
-                mapObject.put(HostFieldMapper.NAME, clusterService.state().nodes().getLocalNodeId());
+            processRow(searchContext, indexService, fieldVisitor, mapObject);
+        }
+    }
+
+    protected void processRow(SearchContext searchContext, IndexService indexService, FieldsVisitor fieldVisitor, Map<String, Object> mapObject) throws IOException {
+        if (searchContext.includeHost()) {
+            mapObject.put(HostFieldMapper.NAME, clusterService.state().nodes().getLocalNodeId());
+        }
+        if (fieldVisitor.requestedFields() != null && fieldVisitor.requestedFields().size() > 0) {
+            Map<String, List<Object>> flatMap = new HashMap<String, List<Object>>();
+            clusterService.getQueryManager().flattenTree(fieldVisitor.requestedFields(), "", mapObject, flatMap);
+            for (String field :  fieldVisitor.requestedFields()) {
+                if (flatMap.get(field) != null && field != IdFieldMapper.NAME)
+                    fieldVisitor.setValues(field, flatMap.get(field));
             }
-            if (fieldVisitor.requestedFields() != null && fieldVisitor.requestedFields().size() > 0) {
-                Map<String, List<Object>> flatMap = new HashMap<String, List<Object>>();
-                clusterService.getQueryManager().flattenTree(fieldVisitor.requestedFields(), "", mapObject, flatMap);
-                for (String field :  fieldVisitor.requestedFields()) {
-                    if (flatMap.get(field) != null && field != IdFieldMapper.NAME)
-                        fieldVisitor.setValues(field, flatMap.get(field));
+        }
+        if (fieldVisitor.loadSource()) {
+            fieldVisitor.source( clusterService.getQueryManager().source(indexService.getShard(0), searchContext.mapperService().documentMapper(fieldVisitor.uid().type()), mapObject, fieldVisitor.uid()) );
+        }
+    }
+
+    /**
+     * Return the required columns rebuilt from Lucene doc values when index.fetch_from_docvalues is true, see {@link DocValuesColumns}.
+     */
+    protected Set<String> docValuesColumns(SearchContext searchContext, FieldsVisitor fieldVisitor, String typeKey, boolean staticDocument) throws IOException {
+        Set<String> columns = searchContext.getDocValuesColumns(typeKey);
+        if (columns == null) {
+            columns = Collections.emptySet();
+            DocumentMapper docMapper = searchContext.mapperService().documentMapper(fieldVisitor.uid().type());
+            if (DocValuesColumns.isEnabled(searchContext.indexShard().indexSettings(), docMapper, staticDocument)) {
+                columns = new HashSet<>();
+                for (String column : requiredColumns(searchContext, fieldVisitor)) {
+                    if (DocValuesColumns.isDocValuesColumn(docMapper, column))
+                        columns.add(column);
                 }
             }
-            if (fieldVisitor.loadSource()) {
-                fieldVisitor.source( clusterService.getQueryManager().source(indexService.getShard(0), searchContext.mapperService().documentMapper(fieldVisitor.uid().type()), mapObject, fieldVisitor.uid()) );
-            }
+            searchContext.putDocValuesColumns(typeKey, columns);
         }
+        return columns;
+    }
+
+    /**
+     * Put doc values of the provided columns in mapObject, values are converted like cassandra values in {@code QueryManager.rowAsMap}.
+     */
+    protected void loadDocValues(SearchContext searchContext, LeafReaderContext readerContext, int docId, String type, Set<String> columns, Map<String, Object> mapObject) throws IOException {
+        DocValuesColumns.load(searchContext.mapperService().documentMapper(type), searchContext::getForField, readerContext, docId, columns, mapObject);
     }
 
     private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
@@ -533,12 +603,29 @@ public class FetchPhase implements SearchPhase {
             if (docPk.isStaticDocument)
                 typeKey += "_static";
 
-            ParsedStatement.Prepared cqlStatement = getCqlPreparedStatement(searchContext, indexService, fieldVisitor, typeKey, docPk.isStaticDocument);
+            Set<String> docValuesColumns = docValuesColumns(searchContext, fieldVisitor, typeKey, docPk.isStaticDocument);
+            ParsedStatement.Prepared cqlStatement = getCqlPreparedStatement(searchContext, indexService, fieldVisitor, typeKey, docPk.isStaticDocument, docValuesColumns);
             if (cqlStatement != null) {
                 ResultMessage result = cqlStatement.statement.executeInternal(new QueryState(ClientState.forInternalCalls()), QueryOptions.forInternalCalls(ConsistencyLevel.ONE, docPk.serialize(cqlStatement)));
                 if (result instanceof ResultMessage.Rows) {
-                    processCqlResultSet(searchContext, indexService, fieldVisitor, ((ResultMessage.Rows)result).result);
+                    searchContext.addFetchedBytes(estimateFetchedBytes(((ResultMessage.Rows)result).result));
+                    if (docValuesColumns.isEmpty()) {
+                        processCqlResultSet(searchContext, indexService, fieldVisitor, ((ResultMessage.Rows)result).result);
+                    } else {
+                        // merge the remaining columns fetched from cassandra with doc values.
+                        UntypedResultSet rs = UntypedResultSet.create(((ResultMessage.Rows)result).result);
+                        if (!rs.isEmpty()) {
+                            Map<String, Object> mapObject = clusterService.getQueryManager().rowAsMap(indexService.getShard(0), fieldVisitor.uid().type(), rs.one());
+                            loadDocValues(searchContext, readerContext, docId, fieldVisitor.uid().type(), docValuesColumns, mapObject);
+                            processRow(searchContext, indexService, fieldVisitor, mapObject);
+                        }
+                    }
                 }
+            } else if (!docValuesColumns.isEmpty()) {
+                // all required columns are available from doc values, deleted rows are hidden by the Lucene live docs after a refresh.
+                Map<String, Object> mapObject = new HashMap<String, Object>();
+                loadDocValues(searchContext, readerContext, docId, fieldVisitor.uid().type(), docValuesColumns, mapObject);
+                processRow(searchContext, indexService, fieldVisitor, mapObject);
             } else {
                 // when only requesting for field _node
                 if (searchContext.includeHost()) {
@@ -547,6 +634,10 @@ public class FetchPhase implements SearchPhase {
                     fieldVisitor.setValues(HostFieldMapper.NAME, values);
                 }
             }
+            if (fieldVisitor.source() != null)
+                searchContext.addFetchedBytes(fieldVisitor.source().length());
+        } catch (CircuitBreakingException e) {
+            throw e;
         } catch (Exception e) {
             Loggers.getLogger(FetchPhase.class).error("Fetch failed id=" + fieldVisitor.uid().id(), e);
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + fieldVisitor.uid().id() + "] from cassandra", e);
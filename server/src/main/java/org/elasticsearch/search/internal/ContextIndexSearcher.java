@@ -26,6 +26,7 @@ import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -34,7 +35,9 @@ import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.Timer;
@@ -44,8 +47,14 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -66,6 +75,10 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
     private Runnable checkCancelled;
 
+    private Executor sliceExecutor;
+
+    private List<List<LeafReaderContext>> sliceLeaves;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -92,6 +105,54 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.checkCancelled = checkCancelled;
     }
 
+    /**
+     * Search {@link CollectorManager}s over at most {@code maxSlices} slices of contiguous segments, concurrently on the
+     * provided executor. The calling thread searches the first slice.
+     */
+    public void setConcurrentSearch(Executor executor, int maxSlices) {
+        this.sliceLeaves = slices(getIndexReader().leaves(), maxSlices);
+        this.sliceExecutor = sliceLeaves.size() > 1 ? executor : null;
+    }
+
+    /**
+     * Returns true if {@link #search(Query, CollectorManager)} searches segment slices concurrently.
+     */
+    public boolean isConcurrentSearch() {
+        return sliceExecutor != null;
+    }
+
+    /**
+     * Group leaves in at most {@code maxSlices} slices of contiguous leaves with about the same number of documents.
+     * Slices are kept in doc id order, so that top docs merged by slice index break ties like a sequential search.
+     */
+    static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.min(maxSlices, leaves.size());
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long remainingDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            remainingDocs += leaf.reader().maxDoc();
+        }
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext leaf = leaves.get(i);
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            final int remainingSlices = numSlices - slices.size() - 1;
+            // close the slice at its share of the remaining documents, or when remaining slices need all remaining leaves.
+            if (remainingSlices > 0 && (sliceDocs * (remainingSlices + 1) >= remainingDocs || leaves.size() - i - 1 == remainingSlices)) {
+                slices.add(slice);
+                remainingDocs -= sliceDocs;
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (slice.isEmpty() == false) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
     public void setAggregatedDfs(AggregatedDfs aggregatedDfs) {
         this.aggregatedDfs = aggregatedDfs;
     }
@@ -191,6 +252,94 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         super.search(leaves, cancellableWeight, collector);
     }
 
+    /**
+     * Search a single segment with the given weight, with the same cancellation checks as a search over all segments.
+     */
+    public void search(LeafReaderContext leaf, Weight weight, Collector collector) throws IOException {
+        search(Collections.singletonList(leaf), weight, collector);
+    }
+
+    @Override
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        if (sliceExecutor == null) {
+            return super.search(query, collectorManager);
+        }
+
+        final List<C> collectors = new ArrayList<>(sliceLeaves.size());
+        boolean needsScores = false;
+        for (int i = 0; i < sliceLeaves.size(); i++) {
+            final C collector = collectorManager.newCollector();
+            collectors.add(collector);
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+
+        // first failure of a slice, slices that did not start yet are skipped after a failure
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<FutureTask<C>> tasks = new ArrayList<>(sliceLeaves.size() - 1);
+        for (int i = 1; i < sliceLeaves.size(); i++) {
+            final List<LeafReaderContext> leaves = sliceLeaves.get(i);
+            final C collector = collectors.get(i);
+            final FutureTask<C> task = new FutureTask<>(() -> {
+                if (failure.get() == null) {
+                    searchSlice(leaves, weight, collector, failure);
+                }
+                return collector;
+            });
+            tasks.add(task);
+            try {
+                sliceExecutor.execute(task);
+            } catch (EsRejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        searchSlice(sliceLeaves.get(0), weight, collectors.get(0), failure);
+        // wait for all slices to complete before returning, even after a failure: the reader must not be released
+        // while a slice is searched. Started slices are not cancelled, a cancelled FutureTask does not wait for them.
+        InterruptedException interrupted = null;
+        for (FutureTask<C> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (ExecutionException e) {
+                    // already recorded by the slice
+                    break;
+                } catch (InterruptedException e) {
+                    if (interrupted == null) {
+                        interrupted = e;
+                    }
+                }
+            }
+        }
+        if (interrupted != null) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new ThreadInterruptedException(interrupted));
+        }
+        final Throwable firstFailure = failure.get();
+        if (firstFailure != null) {
+            if (firstFailure instanceof IOException) {
+                throw (IOException) firstFailure;
+            } else if (firstFailure instanceof RuntimeException) {
+                throw (RuntimeException) firstFailure;
+            } else if (firstFailure instanceof Error) {
+                throw (Error) firstFailure;
+            }
+            throw new RuntimeException(firstFailure);
+        }
+        return collectorManager.reduce(collectors);
+    }
+
+    private void searchSlice(List<LeafReaderContext> leaves, Weight weight, Collector collector,
+                             AtomicReference<Throwable> failure) {
+        try {
+            search(leaves, weight, collector);
+        } catch (Exception | Error e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         if (aggregatedDfs != null) {
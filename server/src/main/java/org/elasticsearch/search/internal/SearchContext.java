@@ -30,6 +30,8 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.unit.TimeValue;
@@ -47,9 +49,11 @@ import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.search.SearchExtBuilder;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeFilterCache;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchPhase;
@@ -71,6 +75,7 @@ import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -105,8 +110,11 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
 
     protected ClusterState clusterState = null;
     protected SearchProcessor processor = null;
+    protected CompositeFilterCache compositeFilterCache = null;
     protected boolean includeNode;
     protected ConcurrentMap<String, ParsedStatement.Prepared> cqlStatementCache = new ConcurrentHashMap<String, ParsedStatement.Prepared>();
+    protected ConcurrentMap<String, Set<String>> docValuesColumnsCache = new ConcurrentHashMap<String, Set<String>>();
+    protected long fetchedBytes;
 
     @Override
     public final void close() {
@@ -165,6 +173,17 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
         return processor;
     }
 
+    public void compositeFilterCache(CompositeFilterCache compositeFilterCache) {
+        this.compositeFilterCache = compositeFilterCache;
+    }
+
+    /**
+     * The node cache of the query matches of composite aggregation pages, null if the matches must not be cached.
+     */
+    public CompositeFilterCache compositeFilterCache() {
+        return compositeFilterCache;
+    }
+
 
     public ParsedStatement.Prepared getCqlPreparedStatement(String key) {
         return cqlStatementCache.get(key);
@@ -174,6 +193,42 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
         cqlStatementCache.put(key, query);
     }
 
+    public Set<String> getDocValuesColumns(String key) {
+        return docValuesColumnsCache.get(key);
+    }
+
+    public void putDocValuesColumns(String key, Set<String> columns) {
+        docValuesColumnsCache.put(key, columns);
+    }
+
+    /**
+     * Reserve the estimated heap size of data fetched from cassandra on the request circuit breaker,
+     * until {@link #releaseFetchedBytes()} is called at the end of the fetch phase.
+     * @throws CircuitBreakingException if the request circuit breaker limit is exceeded.
+     */
+    public void addFetchedBytes(long bytes) {
+        final CircuitBreakerService breakerService = fetchBreakerService();
+        if (breakerService != null && bytes > 0) {
+            breakerService.getBreaker(CircuitBreaker.REQUEST).addEstimateBytesAndMaybeBreak(bytes, "<fetch>");
+            fetchedBytes += bytes;
+        }
+    }
+
+    /**
+     * Release the bytes reserved by {@link #addFetchedBytes(long)}.
+     */
+    public void releaseFetchedBytes() {
+        if (fetchedBytes > 0) {
+            fetchBreakerService().getBreaker(CircuitBreaker.REQUEST).addWithoutBreaking(-fetchedBytes);
+            fetchedBytes = 0;
+        }
+    }
+
+    private CircuitBreakerService fetchBreakerService() {
+        final BigArrays bigArrays = bigArrays();
+        return bigArrays == null ? null : bigArrays.breakerService();
+    }
+
     /** Automatically apply all required filters to the given query such as
      *  alias filters, types filters, etc. */
     public abstract Query buildFilteredQuery(Query query);
@@ -408,6 +463,31 @@ public abstract class SearchContext extends AbstractRefCounted implements Releas
         releasables.add(releasable);
     }
 
+    /**
+     * Returns the number of resources scheduled for release with the provided {@link Lifetime}, to release the resources
+     * scheduled afterwards with {@link #clearReleasables(Lifetime, int)}.
+     */
+    public int countReleasables(Lifetime lifetime) {
+        List<Releasable> releasables = clearables == null ? null : clearables.get(lifetime);
+        return releasables == null ? 0 : releasables.size();
+    }
+
+    /**
+     * Release the resources scheduled with the provided {@link Lifetime} after the first {@code count} ones, before the
+     * end of their lifetime.
+     */
+    public void clearReleasables(Lifetime lifetime, int count) {
+        List<Releasable> releasables = clearables == null ? null : clearables.get(lifetime);
+        if (releasables != null && releasables.size() > count) {
+            List<Releasable> remove = releasables.subList(count, releasables.size());
+            try {
+                Releasables.close(remove);
+            } finally {
+                remove.clear();
+            }
+        }
+    }
+
     public void clearReleasables(Lifetime lifetime) {
         if (clearables != null) {
             List<List<Releasable>>releasables = new ArrayList<>();
@@ -28,6 +28,7 @@ import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.EarlyTerminatingSortingCollector;
 import org.apache.lucene.search.FieldDoc;
@@ -276,8 +277,24 @@ public class QueryPhase implements SearchPhase {
                queryCollector = QueryCollectorContext.createQueryCollector(collectors);
             }
 
+            // segment slices can be searched concurrently when the top docs and the aggregations are merged per slice,
+            // filtering collectors keep a single collector chain
+            CollectorManager<?, Void> collectorManager = null;
+            if (hasFilterCollector == false && doProfile == false && searcher instanceof ContextIndexSearcher
+                    && ((ContextIndexSearcher) searcher).isConcurrentSearch()) {
+                final boolean hasQueryCollectors = searchContext.queryCollectors().isEmpty() == false;
+                collectorManager = topDocsFactory.createCollectorManager(searchContext.getTask()::isCancelled, hasQueryCollectors);
+                if (collectorManager != null && hasQueryCollectors) {
+                    collectorManager = AggregationPhase.createCollectorManager(searchContext, collectorManager);
+                }
+            }
+
             try {
-                searcher.search(query, queryCollector);
+                if (collectorManager != null) {
+                    searcher.search(query, collectorManager);
+                } else {
+                    searcher.search(query, queryCollector);
+                }
             } catch (EarlyTerminatingCollector.EarlyTerminationException e) {
                 queryResult.terminatedEarly(true);
             } catch (TimeExceededException e) {
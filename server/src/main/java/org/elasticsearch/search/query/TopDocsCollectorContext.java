@@ -24,17 +24,20 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.grouping.CollapsingTopDocsCollector;
@@ -48,7 +51,9 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
@@ -80,9 +85,48 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
         return false;
     }
 
+    /**
+     * Returns a {@link CollectorManager} collecting segment slices concurrently, or null if the top docs can only
+     * be collected by a single collector. The manager reduces the slice results into this context, so that
+     * {@link #postProcess(QuerySearchResult)} applies to both executions.
+     * @param cancelled supplier of the cancellation flag, the supplier will be called for each segment
+     * @param hasQueryCollectors True if other query collectors collect the slices along with the top docs
+     */
+    CollectorManager<SliceCollector, Void> createCollectorManager(BooleanSupplier cancelled, boolean hasQueryCollectors) {
+        return null;
+    }
+
+    /**
+     * Collector of a segment slice, holding the top docs and the hit count collectors of the slice.
+     */
+    static final class SliceCollector extends CancellableCollector {
+        private static final Collector NO_OP_COLLECTOR = new SimpleCollector() {
+            @Override
+            public void collect(int doc) {
+            }
+
+            @Override
+            public boolean needsScores() {
+                return false;
+            }
+        };
+
+        private final TopDocsCollector<?> topDocsCollector;
+        private final TotalHitCountCollector hitCountCollector;
+
+        SliceCollector(BooleanSupplier cancelled,
+                       @Nullable TopDocsCollector<?> topDocsCollector,
+                       @Nullable TotalHitCountCollector hitCountCollector) {
+            super(cancelled, topDocsCollector == null ? (hitCountCollector == null ? NO_OP_COLLECTOR : hitCountCollector) :
+                hitCountCollector == null ? topDocsCollector : MultiCollector.wrap(topDocsCollector, hitCountCollector));
+            this.topDocsCollector = topDocsCollector;
+            this.hitCountCollector = hitCountCollector;
+        }
+    }
+
     static class EmptyTopDocsCollectorContext extends TopDocsCollectorContext {
         private final Collector collector;
-        private final IntSupplier hitCountSupplier;
+        private IntSupplier hitCountSupplier;
 
         /**
          * Ctr
@@ -117,6 +161,44 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             return collector;
         }
 
+        @Override
+        CollectorManager<SliceCollector, Void> createCollectorManager(BooleanSupplier cancelled, boolean hasQueryCollectors) {
+            if (collector instanceof TotalHitCountCollector == false) {
+                // the total hit count is known without collecting documents, slices are only collected by query collectors
+                if (hasQueryCollectors == false) {
+                    return null;
+                }
+                return new CollectorManager<SliceCollector, Void>() {
+                    @Override
+                    public SliceCollector newCollector() {
+                        return new SliceCollector(cancelled, null, null);
+                    }
+
+                    @Override
+                    public Void reduce(Collection<SliceCollector> collectors) {
+                        return null;
+                    }
+                };
+            }
+            return new CollectorManager<SliceCollector, Void>() {
+                @Override
+                public SliceCollector newCollector() {
+                    return new SliceCollector(cancelled, null, new TotalHitCountCollector());
+                }
+
+                @Override
+                public Void reduce(Collection<SliceCollector> collectors) {
+                    int totalHitCount = 0;
+                    for (SliceCollector collector : collectors) {
+                        totalHitCount += collector.hitCountCollector.getTotalHits();
+                    }
+                    final int hitCount = totalHitCount;
+                    hitCountSupplier = () -> hitCount;
+                    return null;
+                }
+            };
+        }
+
         @Override
         void postProcess(QuerySearchResult result) {
             final int totalHitCount = hitCountSupplier.getAsInt();
@@ -161,9 +243,15 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
 
     abstract static class SimpleTopDocsCollectorContext extends TopDocsCollectorContext {
         private final @Nullable SortAndFormats sortAndFormats;
+        private final @Nullable ScoreDoc searchAfter;
+        private final boolean trackMaxScore;
+        // total hit count extracted from the shard statistics, -1 if unknown
+        private final int shortcutHitCount;
+        // whether a counting collector is needed to track the total hit count
+        private final boolean countHits;
         private final Collector collector;
-        private final IntSupplier totalHitsSupplier;
-        private final Supplier<TopDocs> topDocsSupplier;
+        private IntSupplier totalHitsSupplier;
+        private Supplier<TopDocs> topDocsSupplier;
 
         /**
          * Ctr
@@ -186,11 +274,15 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                               boolean hasFilterCollector) throws IOException {
             super(REASON_SEARCH_TOP_HITS, numHits);
             this.sortAndFormats = sortAndFormats;
+            this.searchAfter = searchAfter;
+            this.trackMaxScore = trackMaxScore;
             if (sortAndFormats == null) {
                 final TopDocsCollector<?> topDocsCollector = TopScoreDocCollector.create(numHits, searchAfter);
                 this.collector = topDocsCollector;
                 this.topDocsSupplier = topDocsCollector::topDocs;
                 this.totalHitsSupplier = topDocsCollector::getTotalHits;
+                this.shortcutHitCount = -1;
+                this.countHits = false;
             } else {
                 /**
                  * We explicitly don't track total hits in the topdocs collector, it can early terminate
@@ -202,21 +294,26 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                 if (trackTotalHits) {
                     // implicit total hit counts are valid only when there is no filter collector in the chain
                     int count = hasFilterCollector ? -1 : shortcutTotalHitCount(reader, query);
+                    this.shortcutHitCount = count;
                     if (count != -1) {
                         // we can extract the total count from the shard statistics directly
                         this.totalHitsSupplier = () -> count;
                         this.collector = topDocsCollector;
+                        this.countHits = false;
                     } else {
                         // wrap a collector that counts the total number of hits even
                         // if the top docs collector terminates early
                         final TotalHitCountCollector countingCollector = new TotalHitCountCollector();
                         this.collector = MultiCollector.wrap(topDocsCollector, countingCollector);
                         this.totalHitsSupplier = countingCollector::getTotalHits;
+                        this.countHits = true;
                     }
                 } else {
                     // total hit count is not needed
                     this.collector = topDocsCollector;
                     this.totalHitsSupplier = topDocsCollector::getTotalHits;
+                    this.shortcutHitCount = -1;
+                    this.countHits = false;
                 }
             }
         }
@@ -227,6 +324,45 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
             return collector;
         }
 
+        @Override
+        CollectorManager<SliceCollector, Void> createCollectorManager(BooleanSupplier cancelled, boolean hasQueryCollectors) {
+            return new CollectorManager<SliceCollector, Void>() {
+                @Override
+                public SliceCollector newCollector() throws IOException {
+                    final TopDocsCollector<?> topDocsCollector = sortAndFormats == null ?
+                        TopScoreDocCollector.create(numHits, searchAfter) :
+                        TopFieldCollector.create(sortAndFormats.sort, numHits, (FieldDoc) searchAfter, true, trackMaxScore, trackMaxScore, false);
+                    return new SliceCollector(cancelled, topDocsCollector, countHits ? new TotalHitCountCollector() : null);
+                }
+
+                @Override
+                public Void reduce(Collection<SliceCollector> collectors) throws IOException {
+                    final TopDocs[] sliceTopDocs = sortAndFormats == null ?
+                        new TopDocs[collectors.size()] : new TopFieldDocs[collectors.size()];
+                    int sliceHitCount = 0;
+                    int i = 0;
+                    for (SliceCollector collector : collectors) {
+                        sliceTopDocs[i++] = collector.topDocsCollector.topDocs();
+                        if (collector.hitCountCollector != null) {
+                            sliceHitCount += collector.hitCountCollector.getTotalHits();
+                        }
+                    }
+                    // slices are in doc id order, so breaking ties by slice index gives the sequential order
+                    final TopDocs topDocs = sortAndFormats == null ?
+                        TopDocs.merge(0, numHits, sliceTopDocs, true) :
+                        TopDocs.merge(sortAndFormats.sort, 0, numHits, (TopFieldDocs[]) sliceTopDocs, true);
+                    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                        scoreDoc.shardIndex = -1;
+                    }
+                    final int totalHitCount = countHits ? sliceHitCount :
+                        shortcutHitCount != -1 ? shortcutHitCount : (int) topDocs.totalHits;
+                    topDocsSupplier = () -> topDocs;
+                    totalHitsSupplier = () -> totalHitCount;
+                    return null;
+                }
+            };
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
             final TopDocs topDocs = topDocsSupplier.get();
@@ -27,7 +27,9 @@ import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.node.Node;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -47,10 +49,27 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
     private final Setting<Integer> maxQueueSizeSetting;
     private final Setting<TimeValue> targetedResponseTimeSetting;
     private final Setting<Integer> frameSizeSetting;
+    private final FairQueueSettings fairQueueSettings;
 
     AutoQueueAdjustingExecutorBuilder(final Settings settings, final String name, final int size,
                                       final int initialQueueSize, final int minQueueSize,
                                       final int maxQueueSize, final int frameSize) {
+        this(settings, name, size, initialQueueSize, minQueueSize, maxQueueSize, frameSize, false);
+    }
+
+    /**
+     * Construct an auto queue adjusting executor builder whose queued tasks can be served by weighted fair queuing, see
+     * {@link FairQueueSettings}.
+     */
+    static AutoQueueAdjustingExecutorBuilder fairQueued(final Settings settings, final String name, final int size,
+                                                        final int initialQueueSize, final int minQueueSize,
+                                                        final int maxQueueSize, final int frameSize) {
+        return new AutoQueueAdjustingExecutorBuilder(settings, name, size, initialQueueSize, minQueueSize, maxQueueSize, frameSize, true);
+    }
+
+    private AutoQueueAdjustingExecutorBuilder(final Settings settings, final String name, final int size,
+                                              final int initialQueueSize, final int minQueueSize,
+                                              final int maxQueueSize, final int frameSize, final boolean fairQueue) {
         super(name);
         final String prefix = "thread_pool." + name;
         final String sizeKey = settingsKey(prefix, "size");
@@ -119,12 +138,17 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
                 },
                 Setting.Property.NodeScope);
         this.frameSizeSetting = Setting.intSetting(frameSizeKey, frameSize, 100, Setting.Property.NodeScope);
+        this.fairQueueSettings = fairQueue ? new FairQueueSettings(prefix) : null;
     }
 
     @Override
     public List<Setting<?>> getRegisteredSettings() {
-        return Arrays.asList(sizeSetting, queueSizeSetting, minQueueSizeSetting,
-                maxQueueSizeSetting, frameSizeSetting, targetedResponseTimeSetting);
+        final List<Setting<?>> settings = new ArrayList<>(Arrays.asList(sizeSetting, queueSizeSetting, minQueueSizeSetting,
+                maxQueueSizeSetting, frameSizeSetting, targetedResponseTimeSetting));
+        if (fairQueueSettings != null) {
+            settings.addAll(fairQueueSettings.getRegisteredSettings());
+        }
+        return Collections.unmodifiableList(settings);
     }
 
     @Override
@@ -136,7 +160,9 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
         final int maxQueueSize = maxQueueSizeSetting.get(settings);
         final int frameSize = frameSizeSetting.get(settings);
         final TimeValue targetedResponseTime = targetedResponseTimeSetting.get(settings);
-        return new AutoExecutorSettings(nodeName, size, initialQueueSize, minQueueSize, maxQueueSize, frameSize, targetedResponseTime);
+        final FairQueueSettings.FairQueue fairQueue = fairQueueSettings == null ? null : fairQueueSettings.get(settings);
+        return new AutoExecutorSettings(nodeName, size, initialQueueSize, minQueueSize, maxQueueSize, frameSize, targetedResponseTime,
+            fairQueue);
     }
 
     @Override
@@ -158,6 +184,7 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
                         maxQueueSize,
                         frameSize,
                         targetedResponseTime,
+                        FairQueueSettings.backingQueue(settings.fairQueue, threadContext),
                         threadFactory,
                         threadContext);
         // TODO: in a subsequent change we hope to extend ThreadPool.Info to be more specific for the thread pool type
@@ -185,10 +212,11 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
         final int maxQueueSize;
         final int frameSize;
         final TimeValue targetedResponseTime;
+        final FairQueueSettings.FairQueue fairQueue;
 
         AutoExecutorSettings(final String nodeName, final int size, final int initialQueueSize,
                              final int minQueueSize, final int maxQueueSize, final int frameSize,
-                             final TimeValue targetedResponseTime) {
+                             final TimeValue targetedResponseTime, final FairQueueSettings.FairQueue fairQueue) {
             super(nodeName);
             this.size = size;
             this.initialQueueSize = initialQueueSize;
@@ -196,6 +224,12 @@ public final class AutoQueueAdjustingExecutorBuilder extends ExecutorBuilder<Aut
             this.maxQueueSize = maxQueueSize;
             this.frameSize = frameSize;
             this.targetedResponseTime = targetedResponseTime;
+            this.fairQueue = fairQueue;
+        }
+
+        @Override
+        String fairQueueHeader() {
+            return fairQueue == null ? null : fairQueue.header;
         }
 
     }
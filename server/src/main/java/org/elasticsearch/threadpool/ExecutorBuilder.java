@@ -95,6 +95,13 @@ public abstract class ExecutorBuilder<U extends ExecutorBuilder.ExecutorSettings
             this.nodeName = nodeName;
         }
 
+        /**
+         * The request header classifying the queued tasks of the executor, or {@code null} if it does not use weighted fair queuing.
+         */
+        String fairQueueHeader() {
+            return null;
+        }
+
     }
 
 }
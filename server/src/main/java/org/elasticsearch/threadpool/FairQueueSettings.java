@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.threadpool;
+
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.WeightedFairBlockingQueue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Settings of the weighted fair queuing of a thread pool. When {@code fair_queue.header} is set, the queued tasks are
+ * classified by the value of this request header in the submitting thread context, and each class is served according
+ * to its {@code fair_queue.weight.<class>} and bounded by its {@code fair_queue.queue_size.<class>}.
+ */
+final class FairQueueSettings {
+
+    private final Setting<String> headerSetting;
+    private final Setting<Settings> weightSetting;
+    private final Setting<Settings> queueSizeSetting;
+
+    FairQueueSettings(final String prefix) {
+        final String headerKey = ExecutorBuilder.settingsKey(prefix, "fair_queue.header");
+        final String weightKey = ExecutorBuilder.settingsKey(prefix, "fair_queue.weight.");
+        final String queueSizeKey = ExecutorBuilder.settingsKey(prefix, "fair_queue.queue_size.");
+        this.headerSetting = Setting.simpleString(headerKey, Setting.Property.NodeScope);
+        this.weightSetting = Setting.groupSetting(weightKey, s -> parse(s, weightKey, 1), Setting.Property.NodeScope);
+        this.queueSizeSetting = Setting.groupSetting(queueSizeKey, s -> parse(s, queueSizeKey, 0), Setting.Property.NodeScope);
+    }
+
+    private static Map<String, Integer> parse(final Settings settings, final String key, final int minValue) {
+        final Map<String, Integer> values = new HashMap<>();
+        for (String clazz : settings.keySet()) {
+            values.put(clazz, Setting.parseInt(settings.get(clazz), minValue, key + clazz));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    List<Setting<?>> getRegisteredSettings() {
+        return Arrays.asList(headerSetting, weightSetting, queueSizeSetting);
+    }
+
+    FairQueue get(final Settings settings) {
+        final String header = headerSetting.get(settings);
+        if (header.isEmpty()) {
+            return null;
+        }
+        return new FairQueue(header,
+            parse(weightSetting.get(settings), weightSetting.getKey(), 1),
+            parse(queueSizeSetting.get(settings), queueSizeSetting.getKey(), 0));
+    }
+
+    /**
+     * The unbounded queue holding the tasks of a thread pool, a FIFO queue when fair queuing is disabled.
+     */
+    static BlockingQueue<Runnable> backingQueue(final FairQueue fairQueue, final ThreadContext threadContext) {
+        if (fairQueue == null) {
+            return ConcurrentCollections.newBlockingQueue();
+        }
+        final String header = fairQueue.header;
+        // tasks are classified in the thread submitting them, where the request headers are available
+        return new WeightedFairBlockingQueue<>(r -> threadContext.getHeader(header), fairQueue.weights, fairQueue.queueSizes);
+    }
+
+    static final class FairQueue {
+
+        final String header;
+        final Map<String, Integer> weights;
+        final Map<String, Integer> queueSizes;
+
+        FairQueue(final String header, final Map<String, Integer> weights, final Map<String, Integer> queueSizes) {
+            this.header = header;
+            this.weights = weights;
+            this.queueSizes = queueSizes;
+        }
+
+    }
+
+}
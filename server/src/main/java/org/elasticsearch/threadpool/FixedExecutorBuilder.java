@@ -27,7 +27,9 @@ import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.node.Node;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
@@ -42,6 +44,7 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
     private final Setting<Integer> fallbackSizeSetting;
     private final Setting<Integer> queueSizeSetting;
     private final Setting<Integer> fallbackQueueSizeSetting;
+    private final FairQueueSettings fairQueueSettings;
 
     /**
      * Construct a fixed executor builder; the settings will have the key prefix "thread_pool." followed by the executor name.
@@ -65,7 +68,24 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
      * @param queueSize    the size of the backing queue, -1 for unbounded
      */
     FixedExecutorBuilder(final Settings settings, final String name, final String fallbackName, final int size, final int queueSize) {
-        this(settings, name, fallbackName, size, queueSize, "thread_pool." + name, "thread_pool." + fallbackName, false);
+        this(settings, name, fallbackName, size, queueSize, "thread_pool." + name, "thread_pool." + fallbackName, false, false);
+    }
+
+    /**
+     * Construct a fixed executor builder whose queued tasks can be served by weighted fair queuing, see {@link FairQueueSettings};
+     * the settings will have the key prefix "thread_pool." followed by the executor name.
+     *
+     * @param settings     the node-level settings
+     * @param name         the name of the executor
+     * @param fallbackName the fallback name of the executor (used for transitioning the name of a setting)
+     * @param size         the fixed number of threads
+     * @param queueSize    the size of the backing queue, -1 for unbounded
+     * @return the executor builder
+     */
+    static FixedExecutorBuilder fairQueued(final Settings settings, final String name, final String fallbackName, final int size,
+                                           final int queueSize) {
+        return new FixedExecutorBuilder(settings, name, fallbackName, size, queueSize, "thread_pool." + name,
+            "thread_pool." + fallbackName, false, true);
     }
 
     /**
@@ -78,7 +98,7 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
      * @param deprecated whether or not the thread pool is deprecated
      */
     FixedExecutorBuilder(final Settings settings, final String name, final int size, final int queueSize, final boolean deprecated) {
-        this(settings, name, null, size, queueSize, "thread_pool." + name, null, deprecated);
+        this(settings, name, null, size, queueSize, "thread_pool." + name, null, deprecated, false);
     }
 
     /**
@@ -91,7 +111,7 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
      * @param prefix    the prefix for the settings keys
      */
     public FixedExecutorBuilder(final Settings settings, final String name, final int size, final int queueSize, final String prefix) {
-        this(settings, name, null, size, queueSize, prefix, null, false);
+        this(settings, name, null, size, queueSize, prefix, null, false, false);
     }
 
     /**
@@ -102,6 +122,7 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
      * @param size      the fixed number of threads
      * @param queueSize the size of the backing queue, -1 for unbounded
      * @param prefix    the prefix for the settings keys
+     * @param fairQueue whether or not the queued tasks can be served by weighted fair queuing
      */
     private FixedExecutorBuilder(
             final Settings settings,
@@ -111,7 +132,8 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
             final int queueSize,
             final String prefix,
             final String fallbackPrefix,
-            final boolean deprecated) {
+            final boolean deprecated,
+            final boolean fairQueue) {
         super(name);
         final String sizeKey = settingsKey(prefix, "size");
         final String queueSizeKey = settingsKey(prefix, "queue_size");
@@ -149,6 +171,7 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
                             properties);
             this.fallbackQueueSizeSetting = fallbackQueueSizeSetting;
         }
+        this.fairQueueSettings = fairQueue ? new FairQueueSettings(prefix) : null;
     }
 
     private Setting<Integer> sizeSetting(
@@ -167,12 +190,17 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
 
     @Override
     public List<Setting<?>> getRegisteredSettings() {
+        final List<Setting<?>> settings = new ArrayList<>();
         if (fallbackSizeSetting == null && fallbackQueueSizeSetting == null) {
-            return Arrays.asList(sizeSetting, queueSizeSetting);
+            settings.addAll(Arrays.asList(sizeSetting, queueSizeSetting));
         } else {
             assert fallbackSizeSetting != null && fallbackQueueSizeSetting != null;
-            return Arrays.asList(sizeSetting, fallbackSizeSetting, queueSizeSetting, fallbackQueueSizeSetting);
+            settings.addAll(Arrays.asList(sizeSetting, fallbackSizeSetting, queueSizeSetting, fallbackQueueSizeSetting));
         }
+        if (fairQueueSettings != null) {
+            settings.addAll(fairQueueSettings.getRegisteredSettings());
+        }
+        return Collections.unmodifiableList(settings);
     }
 
     @Override
@@ -180,7 +208,8 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
         final String nodeName = Node.NODE_NAME_SETTING.get(settings);
         final int size = sizeSetting.get(settings);
         final int queueSize = queueSizeSetting.get(settings);
-        return new FixedExecutorSettings(nodeName, size, queueSize);
+        final FairQueueSettings.FairQueue fairQueue = fairQueueSettings == null ? null : fairQueueSettings.get(settings);
+        return new FixedExecutorSettings(nodeName, size, queueSize, fairQueue);
     }
 
     @Override
@@ -189,7 +218,8 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
         int queueSize = settings.queueSize;
         final ThreadFactory threadFactory = EsExecutors.daemonThreadFactory(EsExecutors.threadName(settings.nodeName, name()));
         final ExecutorService executor =
-                EsExecutors.newFixed(settings.nodeName + "/" + name(), size, queueSize, threadFactory, threadContext);
+                EsExecutors.newFixed(settings.nodeName + "/" + name(), size, queueSize,
+                    FairQueueSettings.backingQueue(settings.fairQueue, threadContext), threadFactory, threadContext);
         final String name;
         if ("write".equals(name()) && Booleans.parseBoolean(System.getProperty("es.thread_pool.write.use_bulk_as_display_name", "false"))) {
             name = "bulk";
@@ -215,11 +245,18 @@ public final class FixedExecutorBuilder extends ExecutorBuilder<FixedExecutorBui
 
         private final int size;
         private final int queueSize;
+        private final FairQueueSettings.FairQueue fairQueue;
 
-        FixedExecutorSettings(final String nodeName, final int size, final int queueSize) {
+        FixedExecutorSettings(final String nodeName, final int size, final int queueSize, final FairQueueSettings.FairQueue fairQueue) {
             super(nodeName);
             this.size = size;
             this.queueSize = queueSize;
+            this.fairQueue = fairQueue;
+        }
+
+        @Override
+        String fairQueueHeader() {
+            return fairQueue == null ? null : fairQueue.header;
         }
 
     }
@@ -48,8 +48,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
@@ -74,8 +76,11 @@ public class ThreadPool implements Scheduler, Closeable {
         public static final String ANALYZE = "analyze";
         public static final String INDEX = "index";
         public static final String WRITE = "write";
+        public static final String WRITE_PREPARE = "write_prepare";
         public static final String SEARCH = "search";
         public static final String SEARCH_THROTTLED = "search_throttled";
+        public static final String SEARCH_SLICE = "search_slice";
+        public static final String SEARCH_FETCH = "search_fetch";
         public static final String MANAGEMENT = "management";
         public static final String FLUSH = "flush";
         public static final String REFRESH = "refresh";
@@ -132,7 +137,10 @@ public class ThreadPool implements Scheduler, Closeable {
         map.put(Names.ANALYZE, ThreadPoolType.FIXED);
         map.put(Names.INDEX, ThreadPoolType.FIXED);
         map.put(Names.WRITE, ThreadPoolType.FIXED);
+        map.put(Names.WRITE_PREPARE, ThreadPoolType.FIXED);
         map.put(Names.SEARCH, ThreadPoolType.FIXED_AUTO_QUEUE_SIZE);
+        map.put(Names.SEARCH_SLICE, ThreadPoolType.FIXED);
+        map.put(Names.SEARCH_FETCH, ThreadPoolType.FIXED);
         map.put(Names.MANAGEMENT, ThreadPoolType.SCALING);
         map.put(Names.FLUSH, ThreadPoolType.SCALING);
         map.put(Names.REFRESH, ThreadPoolType.SCALING);
@@ -155,12 +163,22 @@ public class ThreadPool implements Scheduler, Closeable {
 
     private final Map<String, ExecutorBuilder> builders;
 
+    private final Set<String> fairQueueHeaders;
+
     private final ScheduledThreadPoolExecutor scheduler;
 
     public Collection<ExecutorBuilder> builders() {
         return Collections.unmodifiableCollection(builders.values());
     }
 
+    /**
+     * The request headers classifying the queued tasks of the thread pools using weighted fair queuing. These headers must be
+     * copied from the REST requests into the thread context for the tasks to be classified.
+     */
+    public Set<String> getFairQueueHeaders() {
+        return fairQueueHeaders;
+    }
+
     public static Setting<TimeValue> ESTIMATED_TIME_INTERVAL_SETTING =
         Setting.timeSetting("thread_pool.estimated_time_interval", TimeValue.timeValueMillis(200), Setting.Property.NodeScope);
 
@@ -174,13 +192,22 @@ public class ThreadPool implements Scheduler, Closeable {
         final int genericThreadPoolMax = boundedBy(4 * availableProcessors, 128, 512);
         builders.put(Names.GENERIC, new ScalingExecutorBuilder(Names.GENERIC, 4, genericThreadPoolMax, TimeValue.timeValueSeconds(30)));
         builders.put(Names.INDEX, new FixedExecutorBuilder(settings, Names.INDEX, availableProcessors, 200, true));
-        builders.put(Names.WRITE, new FixedExecutorBuilder(settings, Names.WRITE, "bulk", availableProcessors, 200));
-        builders.put(Names.GET, new FixedExecutorBuilder(settings, Names.GET, availableProcessors, 1000));
+        // search and write tasks may be served by weighted fair queuing across tenants, see FairQueueSettings
+        builders.put(Names.WRITE, FixedExecutorBuilder.fairQueued(settings, Names.WRITE, "bulk", availableProcessors, 200));
+        // parse and serialize stage of bulk index items, see TransportShardBulkAction
+        builders.put(Names.WRITE_PREPARE, new FixedExecutorBuilder(settings, Names.WRITE_PREPARE, availableProcessors, 1000));
+        // get operations mostly wait on Cassandra reads, see ShardGetService
+        builders.put(Names.GET, new FixedExecutorBuilder(settings, Names.GET, ioThreadPoolSize(availableProcessors), 1000));
         builders.put(Names.ANALYZE, new FixedExecutorBuilder(settings, Names.ANALYZE, 1, 16));
-        builders.put(Names.SEARCH, new AutoQueueAdjustingExecutorBuilder(settings,
+        builders.put(Names.SEARCH, AutoQueueAdjustingExecutorBuilder.fairQueued(settings,
                         Names.SEARCH, searchThreadPoolSize(availableProcessors), 1000, 1000, 1000, 2000));
         builders.put(Names.SEARCH_THROTTLED, new AutoQueueAdjustingExecutorBuilder(settings,
             Names.SEARCH_THROTTLED, 1, 100, 100, 100, 200));
+        // segment slices of a shard search, see ContextIndexSearcher
+        builders.put(Names.SEARCH_SLICE, new FixedExecutorBuilder(settings, Names.SEARCH_SLICE, availableProcessors, 1000));
+        // fetch phase loading the hits from Cassandra, kept apart from the CPU bound query phase, see SearchService
+        builders.put(Names.SEARCH_FETCH,
+            new FixedExecutorBuilder(settings, Names.SEARCH_FETCH, ioThreadPoolSize(availableProcessors), 1000));
         builders.put(Names.MANAGEMENT, new ScalingExecutorBuilder(Names.MANAGEMENT, 1, 5, TimeValue.timeValueMinutes(5)));
         // no queue as this means clients will need to handle rejections on listener queue even if the operation succeeded
         // the assumption here is that the listeners should be very lightweight on the listeners side
@@ -205,8 +232,12 @@ public class ThreadPool implements Scheduler, Closeable {
         threadContext = new ThreadContext(settings);
 
         final Map<String, ExecutorHolder> executors = new HashMap<>();
+        final Set<String> fairQueueHeaders = new HashSet<>();
         for (@SuppressWarnings("unchecked") final Map.Entry<String, ExecutorBuilder> entry : builders.entrySet()) {
             final ExecutorBuilder.ExecutorSettings executorSettings = entry.getValue().getSettings(settings);
+            if (executorSettings.fairQueueHeader() != null) {
+                fairQueueHeaders.add(executorSettings.fairQueueHeader());
+            }
             final ExecutorHolder executorHolder = entry.getValue().build(executorSettings, threadContext);
             if (executors.containsKey(executorHolder.info.getName())) {
                 throw new IllegalStateException("duplicate executors with name [" + executorHolder.info.getName() + "] registered");
@@ -217,6 +248,7 @@ public class ThreadPool implements Scheduler, Closeable {
 
         executors.put(Names.SAME, new ExecutorHolder(DIRECT_EXECUTOR, new Info(Names.SAME, ThreadPoolType.DIRECT)));
         this.executors = unmodifiableMap(executors);
+        this.fairQueueHeaders = Collections.unmodifiableSet(fairQueueHeaders);
         this.scheduler = Scheduler.initScheduler(settings);
         TimeValue estimatedTimeInterval = ESTIMATED_TIME_INTERVAL_SETTING.get(settings);
         this.cachedTimeThread = new CachedTimeThread(EsExecutors.threadName(settings, "[timer]"), estimatedTimeInterval.millis());
@@ -302,6 +334,7 @@ public class ThreadPool implements Scheduler, Closeable {
             long rejected = -1;
             int largest = -1;
             long completed = -1;
+            int size = -1;
             if (holder.executor() instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) holder.executor();
                 threads = threadPoolExecutor.getPoolSize();
@@ -309,12 +342,16 @@ public class ThreadPool implements Scheduler, Closeable {
                 active = threadPoolExecutor.getActiveCount();
                 largest = threadPoolExecutor.getLargestPoolSize();
                 completed = threadPoolExecutor.getCompletedTaskCount();
+                if (holder.info.getThreadPoolType() == ThreadPoolType.FIXED
+                        || holder.info.getThreadPoolType() == ThreadPoolType.FIXED_AUTO_QUEUE_SIZE) {
+                    size = threadPoolExecutor.getMaximumPoolSize();
+                }
                 RejectedExecutionHandler rejectedExecutionHandler = threadPoolExecutor.getRejectedExecutionHandler();
                 if (rejectedExecutionHandler instanceof XRejectedExecutionHandler) {
                     rejected = ((XRejectedExecutionHandler) rejectedExecutionHandler).rejected();
                 }
             }
-            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed, size));
         }
         return new ThreadPoolStats(stats);
     }
@@ -470,6 +507,13 @@ public class ThreadPool implements Scheduler, Closeable {
         return ((availableProcessors * 3) / 2) + 1;
     }
 
+    /**
+     * Size of the thread pools blocking on Cassandra reads, where most threads wait on I/O rather than use a processor.
+     */
+    public static int ioThreadPoolSize(int availableProcessors) {
+        return boundedBy(4 * availableProcessors, 32, 256);
+    }
+
     class LoggingRunnable implements Runnable {
 
         private final Runnable runnable;
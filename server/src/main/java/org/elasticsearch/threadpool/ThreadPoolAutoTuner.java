@@ -0,0 +1,214 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.threadpool;
+
+import org.apache.cassandra.concurrent.LocalAwareExecutorService;
+import org.apache.cassandra.concurrent.SEPExecutor;
+import org.apache.cassandra.concurrent.Stage;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.monitor.process.ProcessProbe;
+import org.elasticsearch.threadpool.Scheduler.Cancellable;
+import org.elasticsearch.threadpool.ThreadPool.Names;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Periodically resizes the search, get and write thread pools so that Elasticsearch and Cassandra do not starve
+ * each other on the same node. A pool shrinks when the process CPU is saturated or when the Cassandra stage it
+ * reads from or writes to has too many pending tasks, it grows when its own queue backs up while there is spare
+ * capacity, and it otherwise moves back to its configured size. Each decision is logged and the resulting size is
+ * reported by the thread pool stats.
+ */
+public class ThreadPoolAutoTuner extends AbstractLifecycleComponent {
+    private static final Logger logger = LogManager.getLogger(ThreadPoolAutoTuner.class);
+
+    public static final Setting<Boolean> ENABLED_SETTING =
+        Setting.boolSetting("thread_pool.autotune.enabled", false, Property.NodeScope);
+    public static final Setting<TimeValue> INTERVAL_SETTING =
+        Setting.timeSetting("thread_pool.autotune.interval", TimeValue.timeValueSeconds(5), TimeValue.timeValueSeconds(1),
+            Property.NodeScope);
+    public static final Setting<Integer> CPU_THRESHOLD_SETTING =
+        Setting.intSetting("thread_pool.autotune.cpu_threshold", 85, 1, 100, Property.NodeScope);
+    public static final Setting<Integer> CASSANDRA_PENDING_THRESHOLD_SETTING =
+        Setting.intSetting("thread_pool.autotune.cassandra_pending_threshold", 128, 1, Property.NodeScope);
+    public static final Setting.AffixSetting<Integer> MIN_SIZE_SETTING =
+        Setting.affixKeySetting("thread_pool.autotune.", "min_size", key -> Setting.intSetting(key, -1, -1, Property.NodeScope));
+    public static final Setting.AffixSetting<Integer> MAX_SIZE_SETTING =
+        Setting.affixKeySetting("thread_pool.autotune.", "max_size", key -> Setting.intSetting(key, -1, -1, Property.NodeScope));
+
+    /**
+     * The tuned pools and the Cassandra stage their tasks mostly wait on.
+     */
+    static final List<String> TUNED_POOLS = Arrays.asList(Names.SEARCH, Names.GET, Names.WRITE);
+
+    static Stage stage(String pool) {
+        return Names.WRITE.equals(pool) ? Stage.MUTATION : Stage.READ;
+    }
+
+    private final ThreadPool threadPool;
+    private final boolean enabled;
+    private final TimeValue interval;
+    private final int cpuThreshold;
+    private final int pendingThreshold;
+    private final TunedPool[] pools;
+    private final IntSupplier cpuPercent;
+    private final ToLongFunction<Stage> stagePendingTasks;
+
+    private volatile Cancellable scheduledFuture;
+
+    public ThreadPoolAutoTuner(Settings settings, ThreadPool threadPool) {
+        this(settings, threadPool, () -> ProcessProbe.getInstance().getProcessCpuPercent(), ThreadPoolAutoTuner::cassandraPendingTasks);
+    }
+
+    ThreadPoolAutoTuner(Settings settings, ThreadPool threadPool, IntSupplier cpuPercent, ToLongFunction<Stage> stagePendingTasks) {
+        this.threadPool = threadPool;
+        this.enabled = ENABLED_SETTING.get(settings);
+        this.interval = INTERVAL_SETTING.get(settings);
+        this.cpuThreshold = CPU_THRESHOLD_SETTING.get(settings);
+        this.pendingThreshold = CASSANDRA_PENDING_THRESHOLD_SETTING.get(settings);
+        this.cpuPercent = cpuPercent;
+        this.stagePendingTasks = stagePendingTasks;
+        this.pools = new TunedPool[TUNED_POOLS.size()];
+        for (int i = 0; i < pools.length; i++) {
+            String name = TUNED_POOLS.get(i);
+            int size = threadPool.info(name).getMax();
+            int min = MIN_SIZE_SETTING.getConcreteSettingForNamespace(name).get(settings);
+            int max = MAX_SIZE_SETTING.getConcreteSettingForNamespace(name).get(settings);
+            min = min == -1 ? Math.max(1, size / 2) : Math.min(min, size);
+            max = max == -1 ? 2 * size : Math.max(max, size);
+            pools[i] = new TunedPool(name, size, min, max);
+        }
+    }
+
+    static final class TunedPool {
+        final String name;
+        final int size;
+        final int min;
+        final int max;
+        final int step;
+
+        TunedPool(String name, int size, int min, int max) {
+            this.name = name;
+            this.size = size;
+            this.min = min;
+            this.max = max;
+            this.step = Math.max(1, size / 8);
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        if (!enabled) {
+            return;
+        }
+        scheduledFuture = threadPool.scheduleWithFixedDelay(() -> {
+            try {
+                tune();
+            } catch (Exception e) {
+                logger.debug("failed to tune thread pools", e);
+            }
+        }, interval, Names.SAME);
+    }
+
+    @Override
+    protected void doStop() {
+        if (!enabled) {
+            return;
+        }
+        scheduledFuture.cancel();
+        // give back the configured sizes
+        for (TunedPool pool : pools) {
+            resize(threadPool.getThreadPoolExecutor(pool.name), pool.size);
+        }
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    /**
+     * Adjust each tuned pool by at most one step.
+     */
+    void tune() {
+        final int cpu = cpuPercent.getAsInt();
+        for (TunedPool pool : pools) {
+            final ThreadPoolExecutor executor = threadPool.getThreadPoolExecutor(pool.name);
+            final Stage stage = stage(pool.name);
+            final long pending = stagePendingTasks.applyAsLong(stage);
+            final int queue = executor.getQueue().size();
+            final int current = executor.getMaximumPoolSize();
+            final int target;
+            final String reason;
+            if (cpu >= cpuThreshold || pending >= pendingThreshold) {
+                target = Math.max(pool.min, current - pool.step);
+                reason = cpu >= cpuThreshold ? "cpu saturated" : "cassandra stage backlog";
+            } else if (queue >= current && pending < pendingThreshold / 2) {
+                target = Math.min(pool.max, current + pool.step);
+                reason = "queue backlog";
+            } else if (queue == 0 && current != pool.size) {
+                target = current < pool.size ? Math.min(pool.size, current + pool.step) : Math.max(pool.size, current - pool.step);
+                reason = "idle";
+            } else {
+                continue;
+            }
+            if (target != current) {
+                logger.info("[{}] resizing thread pool from [{}] to [{}] threads, {} (cpu [{}%], queue [{}], {} pending [{}])",
+                    pool.name, current, target, reason, cpu, queue, stage, pending);
+                resize(executor, target);
+            }
+        }
+    }
+
+    static void resize(ThreadPoolExecutor executor, int size) {
+        // the core size must never exceed the maximum size
+        if (size > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(size);
+            executor.setCorePoolSize(size);
+        } else {
+            executor.setCorePoolSize(size);
+            executor.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * Tasks waiting in a Cassandra stage, the read and mutation stages are shared executor pools.
+     */
+    static long cassandraPendingTasks(Stage stage) {
+        LocalAwareExecutorService executor = StageManager.getStage(stage);
+        if (executor instanceof SEPExecutor) {
+            return ((SEPExecutor) executor).getPendingTasks();
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return 0;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -42,8 +43,13 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
         private final long rejected;
         private final int largest;
         private final long completed;
+        private final int size;
 
         public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed) {
+            this(name, threads, queue, active, rejected, largest, completed, -1);
+        }
+
+        public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed, int size) {
             this.name = name;
             this.threads = threads;
             this.queue = queue;
@@ -51,6 +57,7 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             this.rejected = rejected;
             this.largest = largest;
             this.completed = completed;
+            this.size = size;
         }
 
         public Stats(StreamInput in) throws IOException {
@@ -61,6 +68,11 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             rejected = in.readLong();
             largest = in.readInt();
             completed = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_6_8_5)) {
+                size = in.readInt();
+            } else {
+                size = -1;
+            }
         }
 
         @Override
@@ -72,6 +84,9 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             out.writeLong(rejected);
             out.writeInt(largest);
             out.writeLong(completed);
+            if (out.getVersion().onOrAfter(Version.V_6_8_5)) {
+                out.writeInt(size);
+            }
         }
 
         public String getName() {
@@ -102,6 +117,14 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             return this.completed;
         }
 
+        /**
+         * The current size of a fixed thread pool, which differs from its configured size when resized by the
+         * {@link ThreadPoolAutoTuner}, or -1 for other thread pools.
+         */
+        public int getSize() {
+            return this.size;
+        }
+
         @Override
         public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
             builder.startObject(name);
@@ -123,6 +146,9 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
             if (completed != -1) {
                 builder.field(Fields.COMPLETED, completed);
             }
+            if (size != -1) {
+                builder.field(Fields.SIZE, size);
+            }
             builder.endObject();
             return builder;
         }
@@ -174,6 +200,7 @@ public class ThreadPoolStats implements Writeable, ToXContentFragment, Iterable<
         static final String REJECTED = "rejected";
         static final String LARGEST = "largest";
         static final String COMPLETED = "completed";
+        static final String SIZE = "size";
     }
 
     @Override
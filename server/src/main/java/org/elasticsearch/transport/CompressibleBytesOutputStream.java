@@ -21,6 +21,7 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStream;
@@ -47,17 +48,29 @@ final class CompressibleBytesOutputStream extends StreamOutput {
     private final StreamOutput stream;
     private final BytesStream bytesStreamOutput;
     private final boolean shouldCompress;
+    private long uncompressedLength;
 
     CompressibleBytesOutputStream(BytesStream bytesStreamOutput, boolean shouldCompress) throws IOException {
+        this(bytesStreamOutput, shouldCompress, CompressorFactory.COMPRESSOR);
+    }
+
+    CompressibleBytesOutputStream(BytesStream bytesStreamOutput, boolean shouldCompress, Compressor compressor) throws IOException {
         this.bytesStreamOutput = bytesStreamOutput;
         this.shouldCompress = shouldCompress;
         if (shouldCompress) {
-            this.stream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(bytesStreamOutput));
+            this.stream = compressor.streamOutput(Streams.flushOnCloseStream(bytesStreamOutput));
         } else {
             this.stream = bytesStreamOutput;
         }
     }
 
+    /**
+     * Returns the number of bytes written to this stream, before compression.
+     */
+    long uncompressedLength() {
+        return uncompressedLength;
+    }
+
     /**
      * This method ensures that compression is complete and returns the underlying bytes.
      *
@@ -77,11 +90,13 @@ final class CompressibleBytesOutputStream extends StreamOutput {
 
     @Override
     public void writeByte(byte b) throws IOException {
+        uncompressedLength++;
         stream.write(b);
     }
 
     @Override
     public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        uncompressedLength += length;
         stream.writeBytes(b, offset, length);
     }
 
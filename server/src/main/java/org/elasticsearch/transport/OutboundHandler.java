@@ -29,6 +29,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.util.BigArrays;
@@ -42,6 +43,9 @@ final class OutboundHandler {
     private static final Logger logger = LogManager.getLogger(OutboundHandler.class);
 
     private final MeanMetric transmittedBytesMetric = new MeanMetric();
+    private final MeanMetric compressedBytesMetric = new MeanMetric();
+    private final CounterMetric uncompressedBytesMetric = new CounterMetric();
+    private final CounterMetric compressionTimeMetric = new CounterMetric();
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
     private final TransportLogger transportLogger;
@@ -65,7 +69,7 @@ final class OutboundHandler {
 
     void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener) throws IOException {
         channel.getChannelStats().markAccessed(threadPool.relativeTimeInMillis());
-        MessageSerializer serializer = new MessageSerializer(networkMessage, bigArrays);
+        MessageSerializer serializer = new MessageSerializer(networkMessage);
         SendContext sendContext = new SendContext(channel, serializer, listener, serializer);
         internalSendMessage(channel, sendContext);
     }
@@ -90,21 +94,48 @@ final class OutboundHandler {
         return transmittedBytesMetric;
     }
 
-    private static class MessageSerializer implements CheckedSupplier<BytesReference, IOException>, Releasable {
+    /**
+     * Returns the count and size after compression of the compressed messages.
+     */
+    MeanMetric getCompressedBytes() {
+        return compressedBytesMetric;
+    }
+
+    /**
+     * Returns the size before compression of the compressed messages.
+     */
+    CounterMetric getUncompressedBytes() {
+        return uncompressedBytesMetric;
+    }
+
+    /**
+     * Returns the time in nanoseconds spent serializing and compressing the compressed messages.
+     */
+    CounterMetric getCompressionTime() {
+        return compressionTimeMetric;
+    }
+
+    private class MessageSerializer implements CheckedSupplier<BytesReference, IOException>, Releasable {
 
         private final OutboundMessage message;
-        private final BigArrays bigArrays;
         private volatile ReleasableBytesStreamOutput bytesStreamOutput;
 
-        private MessageSerializer(OutboundMessage message, BigArrays bigArrays) {
+        private MessageSerializer(OutboundMessage message) {
             this.message = message;
-            this.bigArrays = bigArrays;
         }
 
         @Override
         public BytesReference get() throws IOException {
             bytesStreamOutput = new ReleasableBytesStreamOutput(bigArrays);
-            return message.serialize(bytesStreamOutput);
+            if (message.isCompress() == false) {
+                return message.serialize(bytesStreamOutput);
+            }
+            final long start = System.nanoTime();
+            final BytesReference reference = message.serialize(bytesStreamOutput);
+            compressionTimeMetric.inc(System.nanoTime() - start);
+            compressedBytesMetric.inc(reference.length());
+            uncompressedBytesMetric.inc(message.uncompressedLength());
+            return reference;
         }
 
         @Override
@@ -22,6 +22,8 @@ import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -33,10 +35,20 @@ import java.util.Set;
 abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
     private final Writeable message;
+    private final Compressor compressor;
+    private long uncompressedLength = -1;
 
-    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
+    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message, Compressor compressor) {
         super(threadContext, version, status, requestId);
         this.message = message;
+        this.compressor = compressor;
+    }
+
+    /**
+     * Returns the length of the serialized message before compression, available once the message is serialized.
+     */
+    long uncompressedLength() {
+        return uncompressedLength;
     }
 
     BytesReference serialize(BytesStreamOutput bytesStream) throws IOException {
@@ -46,11 +58,13 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         // The compressible bytes stream will not close the underlying bytes stream
         BytesReference reference;
-        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status),
+                compressor)) {
             stream.setVersion(version);
             threadContext.writeTo(stream);
             writeTo(stream);
             reference = writeMessage(stream);
+            uncompressedLength = TcpHeader.HEADER_SIZE + stream.uncompressedLength();
         }
         bytesStream.seek(0);
         TcpHeader.writeHeader(bytesStream, requestId, status, version, reference.length() - TcpHeader.HEADER_SIZE);
@@ -90,7 +104,12 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         Request(ThreadContext threadContext, String[] features, Writeable message, Version version, String action, long requestId,
                 boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, features, message, version, action, requestId, isHandshake, compress, CompressorFactory.COMPRESSOR);
+        }
+
+        Request(ThreadContext threadContext, String[] features, Writeable message, Version version, String action, long requestId,
+                boolean isHandshake, boolean compress, Compressor compressor) {
+            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message, compressor);
             this.features = features;
             this.action = action;
         }
@@ -123,7 +142,12 @@ abstract class OutboundMessage extends NetworkMessage implements Writeable {
 
         Response(ThreadContext threadContext, Set<String> features, Writeable message, Version version, long requestId,
                  boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, features, message, version, requestId, isHandshake, compress, CompressorFactory.COMPRESSOR);
+        }
+
+        Response(ThreadContext threadContext, Set<String> features, Writeable message, Version version, long requestId,
+                 boolean isHandshake, boolean compress, Compressor compressor) {
+            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message, compressor);
             this.features = features;
         }
 
@@ -35,6 +35,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.component.Lifecycle;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
@@ -43,6 +45,7 @@ import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.network.NetworkUtils;
+import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -140,6 +143,8 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     private final InboundMessage.Reader reader;
     private final OutboundHandler outboundHandler;
     private final String nodeName;
+    private final Compressor compressor;
+    private final String[] compressedActions;
 
     public TcpTransport(String transportName, Settings settings, Version version, ThreadPool threadPool,
                         PageCacheRecycler pageCacheRecycler, CircuitBreakerService circuitBreakerService,
@@ -155,6 +160,9 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         this.transportName = transportName;
         this.transportLogger = new TransportLogger();
         this.outboundHandler = new OutboundHandler(threadPool, bigArrays, transportLogger);
+        this.compressor = "lz4".equals(TransportSettings.TRANSPORT_COMPRESSION_SCHEME.get(settings))
+            ? CompressorFactory.LZ4_COMPRESSOR : CompressorFactory.COMPRESSOR;
+        this.compressedActions = TransportSettings.TRANSPORT_COMPRESSED_ACTIONS.get(settings).toArray(Strings.EMPTY_ARRAY);
         this.handshaker = new TransportHandshaker(version, threadPool,
             (node, channel, requestId, v) -> sendRequestToChannel(node, channel, requestId,
                 TransportHandshaker.HANDSHAKE_ACTION_NAME, new TransportHandshaker.HandshakeRequest(version),
@@ -684,7 +692,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
                                       boolean compressRequest, boolean isHandshake) throws IOException, TransportException {
         Version version = Version.min(this.version, channelVersion);
         OutboundMessage.Request message = new OutboundMessage.Request(threadPool.getThreadContext(), features, request, version, action,
-            requestId, isHandshake, compressRequest);
+            requestId, isHandshake, compressRequest || compressAction(action, isHandshake), compressor);
         ActionListener<Void> listener = ActionListener.wrap(() ->
             messageListener.onRequestSent(node, requestId, action, request, options));
         outboundHandler.sendMessage(channel, message, listener);
@@ -743,11 +751,18 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         boolean isHandshake) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), features, response, version,
-            requestId, isHandshake, compress);
+            requestId, isHandshake, compress || compressAction(action, isHandshake), compressor);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
         outboundHandler.sendMessage(channel, message, listener);
     }
 
+    /**
+     * Returns true if the messages of the given action match a transport.compressed_actions pattern.
+     */
+    private boolean compressAction(String action, boolean isHandshake) {
+        return isHandshake == false && compressedActions.length > 0 && Regex.simpleMatch(compressedActions, action);
+    }
+
     /**
      * Handles inbound message that has been decoded.
      *
@@ -1137,8 +1152,10 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     @Override
     public final TransportStats getStats() {
         MeanMetric transmittedBytes = outboundHandler.getTransmittedBytes();
+        MeanMetric compressedBytes = outboundHandler.getCompressedBytes();
         return new TransportStats(acceptedChannels.size(), readBytesMetric.count(), readBytesMetric.sum(), transmittedBytes.count(),
-            transmittedBytes.sum());
+            transmittedBytes.sum(), compressedBytes.count(), outboundHandler.getUncompressedBytes().count(), compressedBytes.sum(),
+            outboundHandler.getCompressionTime().count());
     }
 
     /**
@@ -68,6 +68,12 @@ public final class TransportSettings {
         boolSetting("transport.tcp.compress", false, Setting.Property.NodeScope);
     public static final Setting<Boolean> TRANSPORT_COMPRESS =
         boolSetting("transport.compress", OLD_TRANSPORT_COMPRESS, Setting.Property.NodeScope);
+    // the compression scheme of compressed messages, all the nodes must support lz4 before enabling it
+    public static final Setting<String> TRANSPORT_COMPRESSION_SCHEME =
+        new Setting<>("transport.compression_scheme", "deflate", TransportSettings::parseCompressionScheme, Setting.Property.NodeScope);
+    // action patterns whose requests and responses are compressed even if transport.compress is false
+    public static final Setting<List<String>> TRANSPORT_COMPRESSED_ACTIONS =
+        listSetting("transport.compressed_actions", emptyList(), Function.identity(), Setting.Property.NodeScope);
     // the scheduled internal ping interval setting, defaults to disabled (-1)
     public static final Setting<TimeValue> PING_SCHEDULE =
         timeSetting("transport.ping_schedule", TimeValue.timeValueSeconds(-1), Setting.Property.NodeScope);
@@ -156,6 +162,13 @@ public final class TransportSettings {
         listSetting("transport.tracer.exclude", Arrays.asList("internal:discovery/zen/fd*", TransportLivenessAction.NAME),
             Function.identity(), Setting.Property.Dynamic, Setting.Property.NodeScope);
 
+    private static String parseCompressionScheme(String scheme) {
+        if ("deflate".equals(scheme) == false && "lz4".equals(scheme) == false) {
+            throw new IllegalArgumentException("unknown transport compression scheme [" + scheme + "], must be [deflate] or [lz4]");
+        }
+        return scheme;
+    }
+
     private TransportSettings() {
     }
 
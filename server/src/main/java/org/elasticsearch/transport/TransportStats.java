@@ -19,15 +19,18 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent.Params;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class TransportStats implements Writeable, ToXContentFragment {
 
@@ -36,13 +39,26 @@ public class TransportStats implements Writeable, ToXContentFragment {
     private final long rxSize;
     private final long txCount;
     private final long txSize;
+    private final long txCompressedCount;
+    private final long txUncompressedSize;
+    private final long txCompressedSize;
+    private final long txCompressionTimeInNanos;
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, 0, 0, 0, 0);
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize,
+                          long txCompressedCount, long txUncompressedSize, long txCompressedSize, long txCompressionTimeInNanos) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.txCompressedCount = txCompressedCount;
+        this.txUncompressedSize = txUncompressedSize;
+        this.txCompressedSize = txCompressedSize;
+        this.txCompressionTimeInNanos = txCompressionTimeInNanos;
     }
 
     public TransportStats(StreamInput in) throws IOException {
@@ -51,6 +67,17 @@ public class TransportStats implements Writeable, ToXContentFragment {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_6_8_5)) {
+            txCompressedCount = in.readVLong();
+            txUncompressedSize = in.readVLong();
+            txCompressedSize = in.readVLong();
+            txCompressionTimeInNanos = in.readVLong();
+        } else {
+            txCompressedCount = 0;
+            txUncompressedSize = 0;
+            txCompressedSize = 0;
+            txCompressionTimeInNanos = 0;
+        }
     }
 
     @Override
@@ -60,6 +87,12 @@ public class TransportStats implements Writeable, ToXContentFragment {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_6_8_5)) {
+            out.writeVLong(txCompressedCount);
+            out.writeVLong(txUncompressedSize);
+            out.writeVLong(txCompressedSize);
+            out.writeVLong(txCompressionTimeInNanos);
+        }
     }
 
     public long serverOpen() {
@@ -102,6 +135,41 @@ public class TransportStats implements Writeable, ToXContentFragment {
         return txSize();
     }
 
+    /**
+     * Returns the number of sent messages that were compressed.
+     */
+    public long getTxCompressedCount() {
+        return txCompressedCount;
+    }
+
+    /**
+     * Returns the size of the compressed sent messages before compression.
+     */
+    public ByteSizeValue getTxUncompressedSize() {
+        return new ByteSizeValue(txUncompressedSize);
+    }
+
+    /**
+     * Returns the size of the compressed sent messages after compression.
+     */
+    public ByteSizeValue getTxCompressedSize() {
+        return new ByteSizeValue(txCompressedSize);
+    }
+
+    /**
+     * Returns the time spent serializing and compressing the compressed sent messages.
+     */
+    public TimeValue getTxCompressionTime() {
+        return new TimeValue(txCompressionTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the ratio of the compressed size to the uncompressed size of the compressed sent messages.
+     */
+    public double getTxCompressionRatio() {
+        return txUncompressedSize == 0 ? 1.0d : (double) txCompressedSize / txUncompressedSize;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSPORT);
@@ -110,6 +178,13 @@ public class TransportStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, new ByteSizeValue(rxSize));
         builder.field(Fields.TX_COUNT, txCount);
         builder.humanReadableField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, new ByteSizeValue(txSize));
+        builder.startObject(Fields.TX_COMPRESSION);
+        builder.field(Fields.COUNT, txCompressedCount);
+        builder.humanReadableField(Fields.UNCOMPRESSED_SIZE_IN_BYTES, Fields.UNCOMPRESSED_SIZE, getTxUncompressedSize());
+        builder.humanReadableField(Fields.COMPRESSED_SIZE_IN_BYTES, Fields.COMPRESSED_SIZE, getTxCompressedSize());
+        builder.field(Fields.RATIO, getTxCompressionRatio());
+        builder.humanReadableField(Fields.TIME_IN_MILLIS, Fields.TIME, getTxCompressionTime());
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -123,5 +198,14 @@ public class TransportStats implements Writeable, ToXContentFragment {
         static final String TX_COUNT = "tx_count";
         static final String TX_SIZE = "tx_size";
         static final String TX_SIZE_IN_BYTES = "tx_size_in_bytes";
+        static final String TX_COMPRESSION = "tx_compression";
+        static final String COUNT = "count";
+        static final String UNCOMPRESSED_SIZE = "uncompressed_size";
+        static final String UNCOMPRESSED_SIZE_IN_BYTES = "uncompressed_size_in_bytes";
+        static final String COMPRESSED_SIZE = "compressed_size";
+        static final String COMPRESSED_SIZE_IN_BYTES = "compressed_size_in_bytes";
+        static final String RATIO = "ratio";
+        static final String TIME = "time";
+        static final String TIME_IN_MILLIS = "time_in_millis";
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test bulk index items parsed and serialized on the write_prepare pool.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.BulkPrepareTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class BulkPrepareTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testBulkOrderingPerId() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("test"));
+        ensureGreen("test");
+
+        BulkRequestBuilder bulk = client().prepareBulk();
+        for (int i = 0; i < 100; i++)
+            bulk.add(client().prepareIndex("test", "t1", Integer.toString(i % 10))
+                .setSource(String.format(Locale.ROOT, "{ \"f1\": %d }", i), XContentType.JSON));
+        // dynamic mapping update in the middle of the bulk
+        bulk.add(client().prepareIndex("test", "t1", "3").setSource("{ \"f1\": 1000, \"f2\": \"new\" }", XContentType.JSON));
+        for (int i = 0; i < 10; i++)
+            bulk.add(client().prepareIndex("test", "t1", "5").setSource(String.format(Locale.ROOT, "{ \"f1\": %d, \"f2\": \"foo\" }", 2000 + i), XContentType.JSON));
+        BulkResponse bulkResponse = bulk.get();
+        assertThat(bulkResponse.hasFailures(), equalTo(false));
+
+        SearchResponse resp = client().prepareSearch().setIndices("test").setQuery(QueryBuilders.matchAllQuery()).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(10L));
+
+        assertThat(((Number) client().prepareGet("test", "t1", "0").get().getSourceAsMap().get("f1")).intValue(), equalTo(90));
+        assertThat(((Number) client().prepareGet("test", "t1", "3").get().getSourceAsMap().get("f1")).intValue(), equalTo(1000));
+        assertThat(((Number) client().prepareGet("test", "t1", "5").get().getSourceAsMap().get("f1")).intValue(), equalTo(2009));
+        assertThat(((Number) client().prepareGet("test", "t1", "9").get().getSourceAsMap().get("f1")).intValue(), equalTo(99));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test composite aggregation pages visited in the order of the leading source with a filtering query.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.CompositeFilterCacheTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class CompositeFilterCacheTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testCompositePages() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b bigint, c text, primary key (a) )");
+        createIndex("test", Settings.builder().put("index.composite_filter_cache", true).build(), "t1", mapping);
+        ensureGreen("test");
+
+        final int N = 100;
+        for (int s = 0; s < 3; s++) {
+            for (int j = s * N; j < (s + 1) * N; j++)
+                process(ConsistencyLevel.ONE,"insert into test.t1 (a,b,c) VALUES (?,?,?)", j, (long) (j % 37), "c" + (j % 23));
+            client().admin().indices().prepareFlush("test").get();
+        }
+
+        List<String> keywordPages = pages("c");
+        List<String> longPages = pages("b");
+        assertAcked(client().admin().indices().prepareUpdateSettings("test").setSettings(Settings.builder().put("index.composite_filter_cache", false)).get());
+        assertThat(keywordPages, equalTo(pages("c")));
+        assertThat(longPages, equalTo(pages("b")));
+        assertThat(keywordPages.size(), equalTo(23));
+        assertThat(longPages.size(), equalTo(32));
+    }
+
+    private List<String> pages(String field) {
+        List<String> buckets = new ArrayList<>();
+        Map<String, Object> after = null;
+        do {
+            CompositeAggregationBuilder composite = AggregationBuilders.composite("pages",
+                Collections.<CompositeValuesSourceBuilder<?>>singletonList(new TermsValuesSourceBuilder(field).field(field)))
+                .size(5)
+                .subAggregation(AggregationBuilders.max("max_a").field("a"));
+            if (after != null)
+                composite.aggregateAfter(after);
+            SearchResponse resp = client().prepareSearch("test").setTypes("t1")
+                .setQuery(QueryBuilders.boolQuery().filter(QueryBuilders.rangeQuery("b").gte(5)))
+                .setSize(0)
+                .addAggregation(composite)
+                .get();
+            CompositeAggregation agg = resp.getAggregations().get("pages");
+            for (CompositeAggregation.Bucket bucket : agg.getBuckets())
+                buckets.add(bucket.getKeyAsString() + ":" + bucket.getDocCount() + ":" + ((Max) bucket.getAggregations().get("max_a")).getValue());
+            after = agg.getBuckets().isEmpty() ? null : agg.afterKey();
+        } while (after != null);
+        return buckets;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Test aggregations collected concurrently per segment slice return the same results as sequential collection.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.ConcurrentAggregationTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class ConcurrentAggregationTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testConcurrentAggregations() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b bigint, c text, primary key (a) )");
+        createIndex("test", Settings.builder().put("index.concurrent_search_slices", 4).build(), "t1", mapping);
+        ensureGreen("test");
+
+        // build several segments
+        final int N = 100;
+        for (int s = 0; s < 5; s++) {
+            for (int j = s * N; j < (s + 1) * N; j++)
+                process(ConsistencyLevel.ONE,"insert into test.t1 (a,b,c) VALUES (?,?,?)", j, (long) (j % 37), "c" + (j % 7));
+            client().admin().indices().prepareFlush("test").get();
+        }
+        assertThat(client().admin().indices().prepareSegments("test").get().getIndices().get("test").getShards().get(0)
+            .getShards()[0].getSegments().size(), greaterThan(1));
+
+        List<String> concurrent = aggregations();
+
+        // buckets of the reduced slices are counted once against the limit
+        assertAcked(client().admin().cluster().prepareUpdateSettings()
+            .setTransientSettings(Settings.builder().put(MultiBucketConsumerService.MAX_BUCKET_SETTING.getKey(), 40)).get());
+        try {
+            SearchResponse resp = client().prepareSearch("test").setSize(0)
+                .addAggregation(AggregationBuilders.histogram("b_histo").field("b").interval(1)).get();
+            assertThat(((Histogram) resp.getAggregations().get("b_histo")).getBuckets().size(), equalTo(37));
+        } finally {
+            assertAcked(client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().putNull(MultiBucketConsumerService.MAX_BUCKET_SETTING.getKey())).get());
+        }
+
+        assertAcked(client().admin().indices().prepareUpdateSettings("test").setSettings(Settings.builder().put("index.concurrent_search_slices", 1)).get());
+        List<String> sequential = aggregations();
+        assertThat(concurrent, equalTo(sequential));
+    }
+
+    private List<String> aggregations() {
+        SearchResponse resp = client().prepareSearch("test")
+            .setQuery(QueryBuilders.rangeQuery("b").gte(5))
+            .setSize(0)
+            .addAggregation(AggregationBuilders.histogram("b_histo").field("b").interval(5))
+            .addAggregation(AggregationBuilders.range("b_range").field("b").addUnboundedTo(10).addRange(10, 20).addUnboundedFrom(20))
+            .addAggregation(AggregationBuilders.cardinality("b_card").field("b"))
+            .addAggregation(AggregationBuilders.stats("b_stats").field("b"))
+            .addAggregation(AggregationBuilders.composite("c_composite",
+                Collections.<CompositeValuesSourceBuilder<?>>singletonList(new TermsValuesSourceBuilder("c").field("c"))).size(3))
+            // slices build all their terms, trimmed to the shard size once reduced
+            .addAggregation(AggregationBuilders.terms("b_terms").field("b").size(5).shardSize(8))
+            .addAggregation(AggregationBuilders.terms("c_terms").field("c").order(BucketOrder.key(true))
+                .subAggregation(AggregationBuilders.terms("b_sub").field("b").size(3)))
+            .get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(430L));
+
+        List<String> results = new ArrayList<>();
+        results.add(resp.getAggregations().get("b_histo").toString());
+        results.add(resp.getAggregations().get("b_range").toString());
+        results.add(resp.getAggregations().get("c_composite").toString());
+        results.add(resp.getAggregations().get("b_terms").toString());
+        results.add(resp.getAggregations().get("c_terms").toString());
+        assertThat(((Cardinality) resp.getAggregations().get("b_card")).getValue(), equalTo(32L));
+        Stats stats = resp.getAggregations().get("b_stats");
+        assertThat(stats.getCount(), equalTo(430L));
+        results.add(Double.toString(stats.getSum()));
+        return results;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Test searches of segment slices executed concurrently return the same hits as sequential searches.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.ConcurrentSegmentSearchTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class ConcurrentSegmentSearchTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testConcurrentSearch() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b bigint, c text, primary key (a) )");
+        createIndex("test", Settings.builder().put("index.concurrent_search_slices", 4).build(), "t1", mapping);
+        ensureGreen("test");
+
+        // build several segments
+        final int N = 100;
+        for (int s = 0; s < 5; s++) {
+            for (int j = s * N; j < (s + 1) * N; j++)
+                process(ConsistencyLevel.ONE,"insert into test.t1 (a,b,c) VALUES (?,?,?)", j, (long) (j % 37), (j % 3 == 0) ? "foo bar" : "foo");
+            client().admin().indices().prepareFlush("test").get();
+        }
+        assertThat(client().admin().indices().prepareSegments("test").get().getIndices().get("test").getShards().get(0)
+            .getShards()[0].getSegments().size(), greaterThan(1));
+
+        List<List<String>> concurrent = searches();
+        assertAcked(client().admin().indices().prepareUpdateSettings("test").setSettings(Settings.builder().put("index.concurrent_search_slices", 1)).get());
+        List<List<String>> sequential = searches();
+        assertThat(concurrent, equalTo(sequential));
+    }
+
+    private List<List<String>> searches() {
+        List<List<String>> results = new ArrayList<>();
+        results.add(hits(client().prepareSearch("test").setQuery(QueryBuilders.matchQuery("c", "bar")).setSize(20), 167L));
+        results.add(hits(client().prepareSearch("test").setQuery(QueryBuilders.rangeQuery("b").gte(10)).addSort("b", SortOrder.DESC).setSize(30), 360L));
+        results.add(hits(client().prepareSearch("test").setQuery(QueryBuilders.rangeQuery("b").lt(10)).setSize(0), 140L));
+        return results;
+    }
+
+    private List<String> hits(SearchRequestBuilder request, long totalHits) {
+        SearchResponse resp = request.get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(totalHits));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < resp.getHits().getHits().length; i++)
+            ids.add(resp.getHits().getHits()[i].getId() + ":" + resp.getHits().getHits()[i].getScore());
+        return ids;
+    }
+}
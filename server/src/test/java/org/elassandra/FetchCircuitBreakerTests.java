@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Test rows fetched from cassandra are charged to the request circuit breaker.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.FetchCircuitBreakerTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class FetchCircuitBreakerTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testFetchCircuitBreaker() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b text, primary key (a) )");
+        createIndex("test", Settings.EMPTY, "t1", mapping);
+        ensureGreen("test");
+
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'x');
+        for (int i = 0; i < 20; i++)
+            process(ConsistencyLevel.ONE,"insert into test.t1 (a,b) VALUES (?,?)", i, new String(chars));
+        client().admin().indices().prepareRefresh("test").get();
+
+        CircuitBreaker breaker = getInstanceFromNode(CircuitBreakerService.class).getBreaker(CircuitBreaker.REQUEST);
+        try {
+            assertAcked(client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().put(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "100kb")));
+            SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class,
+                () -> client().prepareSearch("test").setQuery(QueryBuilders.matchAllQuery()).setSize(20).get());
+            assertThat(ExceptionsHelper.unwrap(e, CircuitBreakingException.class), notNullValue());
+            assertThat(breaker.getUsed(), equalTo(0L));
+
+            // a small fetch is below the limit
+            assertThat(client().prepareSearch("test").setQuery(QueryBuilders.matchAllQuery()).setSize(2).get().getHits().getHits().length,
+                equalTo(2));
+            assertThat(breaker.getUsed(), equalTo(0L));
+        } finally {
+            assertAcked(client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().putNull(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey())));
+        }
+        assertThat(client().prepareSearch("test").setQuery(QueryBuilders.matchAllQuery()).setSize(20).get().getHits().getHits().length,
+            equalTo(20));
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test _source rebuilt from doc values in the fetch phase.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.FetchDocValuesTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class FetchDocValuesTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testFetchFromDocValues() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder()
+            .startObject()
+                .startObject("properties")
+                    .startObject("id").field("type", "keyword").field("cql_collection", "singleton").field("cql_primary_key_order", 0).field("cql_partition_key", true).endObject()
+                    .startObject("name").field("type", "keyword").field("cql_collection", "singleton").endObject()
+                    .startObject("count").field("type", "long").field("cql_collection", "singleton").endObject()
+                    .startObject("ratio").field("type", "double").field("cql_collection", "singleton").endObject()
+                    .startObject("enabled").field("type", "boolean").field("cql_collection", "singleton").endObject()
+                    .startObject("ip").field("type", "ip").field("cql_collection", "singleton").endObject()
+                    .startObject("text").field("type", "text").field("cql_collection", "singleton").endObject()
+                .endObject()
+            .endObject();
+        assertAcked(client().admin().indices().prepareCreate("test")
+            .setSettings(Settings.builder().put("index.fetch_from_docvalues", true))
+            .addMapping("t1", mapping));
+        ensureGreen("test");
+
+        process(ConsistencyLevel.ONE, "INSERT INTO test.t1 (id, name, count, ratio, enabled, ip, text) VALUES ('1', 'foo', 12, 0.5, true, '10.0.0.1', 'hello world')");
+        assertThat(client().prepareSearch().setIndices("test").setQuery(QueryBuilders.matchAllQuery()).get().getHits().getTotalHits(), equalTo(1L));
+
+        // rebuilt _source should be identical to the cassandra one.
+        SearchResponse resp = client().prepareSearch().setIndices("test").setQuery(QueryBuilders.termQuery("name", "foo")).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(1L));
+        Map<String, Object> source = resp.getHits().getHits()[0].getSourceAsMap();
+        assertThat(source.get("name"), equalTo("foo"));
+        assertThat(((Number) source.get("count")).longValue(), equalTo(12L));
+        assertThat(((Number) source.get("ratio")).doubleValue(), equalTo(0.5));
+        assertThat(source.get("enabled"), equalTo(true));
+        assertThat(source.get("ip"), equalTo("10.0.0.1"));
+        assertThat(source.get("text"), equalTo("hello world"));
+        assertThat(source, equalTo(client().prepareGet("test", "t1", "1").get().getSourceAsMap()));
+
+        // doc values only fetch
+        resp = client().prepareSearch().setIndices("test").setQuery(QueryBuilders.matchAllQuery()).setFetchSource(new String[] { "name", "count" }, null).get();
+        assertThat(resp.getHits().getHits()[0].getSourceAsMap().get("name"), equalTo("foo"));
+        assertThat(((Number) resp.getHits().getHits()[0].getSourceAsMap().get("count")).longValue(), equalTo(12L));
+    }
+
+    @Test
+    public void testFetchCqlTypesFromDocValues() throws Exception {
+        process(ConsistencyLevel.ONE, "CREATE KEYSPACE IF NOT EXISTS test2 WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE, "CREATE TABLE IF NOT EXISTS test2.t2 ( id text PRIMARY KEY, u uuid, tu timeuuid, addr inet, price decimal, day date )");
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t2").field("discover", ".*").endObject().endObject();
+        assertAcked(client().admin().indices().prepareCreate("test2")
+            .setSettings(Settings.builder().put("index.fetch_from_docvalues", true).put("index.keyspace", "test2"))
+            .addMapping("t2", mapping));
+        ensureGreen("test2");
+
+        process(ConsistencyLevel.ONE, "INSERT INTO test2.t2 (id, u, tu, addr, price, day) VALUES ('1', 1b4e28ba-2fa1-11d2-883f-0016d3cca427, " +
+            "50554d6e-29bb-11e5-b345-feff819cdc9f, '10.0.0.2', 12.50, '2019-05-04')");
+        SearchResponse resp = client().prepareSearch().setIndices("test2").setQuery(QueryBuilders.matchAllQuery()).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(1L));
+        assertThat(resp.getHits().getHits()[0].getSourceAsMap(), equalTo(client().prepareGet("test2", "t2", "1").get().getSourceAsMap()));
+    }
+
+    @Test
+    public void testDeletedRowLiveness() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder()
+            .startObject()
+                .startObject("properties")
+                    .startObject("id").field("type", "keyword").field("cql_collection", "singleton").field("cql_primary_key_order", 0).field("cql_partition_key", true).endObject()
+                    .startObject("name").field("type", "keyword").field("cql_collection", "singleton").endObject()
+                .endObject()
+            .endObject();
+        assertAcked(client().admin().indices().prepareCreate("test3")
+            .setSettings(Settings.builder().put("index.fetch_from_docvalues", true).put("index.refresh_interval", -1))
+            .addMapping("t3", mapping));
+        ensureGreen("test3");
+
+        process(ConsistencyLevel.ONE, "INSERT INTO test3.t3 (id, name) VALUES ('1', 'foo')");
+        client().admin().indices().prepareRefresh("test3").get();
+
+        // the searcher is not refreshed, the deleted row is still a hit rebuilt from doc values without reading cassandra.
+        process(ConsistencyLevel.ONE, "DELETE FROM test3.t3 WHERE id = '1'");
+        SearchResponse resp = client().prepareSearch().setIndices("test3").setQuery(QueryBuilders.matchAllQuery())
+            .setFetchSource(new String[] { "name" }, null).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(1L));
+        assertThat(resp.getHits().getHits()[0].getSourceAsMap().get("name"), equalTo("foo"));
+
+        // the liveness check reads cassandra, the deleted row is not rebuilt from doc values.
+        assertAcked(client().admin().indices().prepareUpdateSettings("test3")
+            .setSettings(Settings.builder().put("index.docvalues_liveness_check", true)));
+        resp = client().prepareSearch().setIndices("test3").setQuery(QueryBuilders.matchAllQuery())
+            .setFetchSource(new String[] { "name" }, null).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(1L));
+        assertThat(resp.getHits().getHits()[0].hasSource(), equalTo(false));
+
+        // the Lucene live docs hide the deleted row after a refresh.
+        assertAcked(client().admin().indices().prepareUpdateSettings("test3")
+            .setSettings(Settings.builder().put("index.docvalues_liveness_check", false)));
+        client().admin().indices().prepareRefresh("test3").get();
+        resp = client().prepareSearch().setIndices("test3").setQuery(QueryBuilders.matchAllQuery()).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(0L));
+    }
+
+    @Test
+    public void testGetFromDocValues() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder()
+            .startObject()
+                .startObject("properties")
+                    .startObject("id").field("type", "keyword").field("cql_collection", "singleton").field("cql_primary_key_order", 0).field("cql_partition_key", true).endObject()
+                    .startObject("name").field("type", "keyword").field("cql_collection", "singleton").endObject()
+                    .startObject("count").field("type", "long").field("cql_collection", "singleton").endObject()
+                .endObject()
+            .endObject();
+        assertAcked(client().admin().indices().prepareCreate("test4")
+            .setSettings(Settings.builder().put("index.fetch_from_docvalues", true).put("index.refresh_interval", -1))
+            .addMapping("t4", mapping));
+        ensureGreen("test4");
+
+        process(ConsistencyLevel.ONE, "INSERT INTO test4.t4 (id, name, count) VALUES ('1', 'foo', 12)");
+        // not yet refreshed, only realtime gets read the row
+        assertThat(client().prepareGet("test4", "t4", "1").setRealtime(false).get().isExists(), equalTo(false));
+        GetResponse realtime = client().prepareGet("test4", "t4", "1").get();
+        assertThat(realtime.isExists(), equalTo(true));
+
+        client().admin().indices().prepareRefresh("test4").get();
+        GetResponse fromDocValues = client().prepareGet("test4", "t4", "1").setRealtime(false).get();
+        assertThat(fromDocValues.isExists(), equalTo(true));
+        assertThat(fromDocValues.getSourceAsMap(), equalTo(realtime.getSourceAsMap()));
+
+        process(ConsistencyLevel.ONE, "DELETE FROM test4.t4 WHERE id = '1'");
+        assertThat(client().prepareGet("test4", "t4", "1").get().isExists(), equalTo(false));
+        client().admin().indices().prepareRefresh("test4").get();
+        assertThat(client().prepareGet("test4", "t4", "1").setRealtime(false).get().isExists(), equalTo(false));
+    }
+}
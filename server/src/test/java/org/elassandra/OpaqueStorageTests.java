@@ -22,11 +22,13 @@ import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsRespon
 import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
@@ -81,4 +83,25 @@ public class OpaqueStorageTests extends ESSingleNodeTestCase {
         assertThat(resp3.getHits().getTotalHits(), equalTo(2L));
     }
 
+    @Test
+    public void testOpaqueStorageSmileFormat() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put("index.index_opaque_storage", true)
+                .put("index.index_opaque_storage_format", "smile")));
+        ensureGreen("test");
+
+        assertThat(client().prepareIndex("test", "mytype","1").setSource("{ \"foo\":\"bar\",\"big\":\"bang\" }", XContentType.JSON).get().getResult(), equalTo(DocWriteResponse.Result.CREATED));
+        SearchResponse resp = client().prepareSearch().setIndices("test").setQuery(QueryBuilders.termQuery("big", "bang")).get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(1L));
+        assertThat(resp.getHits().getHits()[0].getSourceAsMap().get("foo"), equalTo("bar"));
+
+        // _source column is stored as SMILE
+        Row row = process(ConsistencyLevel.ONE, "SELECT \"_source\" FROM test.mytype WHERE \"_id\" = ?", "1").one();
+        ByteBuffer bb = row.getBlob("_source");
+        assertThat(XContentFactory.xContentType(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining()), equalTo(XContentType.SMILE));
+
+        assertThat(client().prepareGet("test", "mytype", "1").get().getSourceAsMap().get("big"), equalTo("bang"));
+    }
+
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.elassandra.cluster.routing.TokenAwareRouting;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.OperationRouting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Locale;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Test token ranges computed from search queries by the coordinator.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.TokenAwareRoutingTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class TokenAwareRoutingTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testPartitionKeyRouting() throws Exception {
+        createIndex("test");
+        ensureGreen("test");
+
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a text, b text, c int, d text, primary key ((a,b),c) )");
+        assertAcked(client().admin().indices().preparePutMapping("test").setType("t1").setSource("{ \"t1\" : { \"discover\" : \".*\" }}", XContentType.JSON).get());
+        for (int i = 0; i < 10; i++)
+            process(ConsistencyLevel.ONE, String.format(Locale.ROOT, "insert into test.t1 (a,b,c,d) VALUES ('a%d','b%d',%d,'x')", i % 3, i % 2, i));
+
+        IndexMetaData indexMetaData = clusterService().state().metaData().index("test");
+        MapperService mapperService = clusterService().indexServiceSafe(indexMetaData.getIndex()).mapperService();
+        Token token = clusterService().getQueryManager().getToken("test", "t1", "[\"a1\",\"b0\"]");
+
+        Collection<Range<Token>> ranges = TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("a", "a1")).filter(QueryBuilders.termQuery("b", "b0")));
+        assertThat(ranges.size(), equalTo(1));
+        assertThat(ranges.iterator().next().contains(token), equalTo(true));
+
+        ranges = TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, new String[] { "t1" },
+            QueryBuilders.boolQuery().must(QueryBuilders.termsQuery("a", "a0", "a1", "a2")).filter(QueryBuilders.termQuery("b", "b0")));
+        assertThat(ranges.size(), equalTo(3));
+
+        // partition key not fully restricted
+        assertThat(TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.termQuery("a", "a1")), nullValue());
+        assertThat(TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.boolQuery().should(QueryBuilders.termQuery("a", "a1")).should(QueryBuilders.termQuery("b", "b0"))), nullValue());
+
+        ranges = TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.rangeQuery("_token").gte(0L).lte(100L));
+        assertThat(ranges.size(), equalTo(1));
+
+        // search results are unchanged
+        assertAcked(client().admin().cluster().prepareUpdateSettings()
+            .setTransientSettings(Settings.builder().put(OperationRouting.USE_TOKEN_AWARE_SEARCH_SETTING.getKey(), true)).get());
+        assertThat(client().prepareSearch().setIndices("test").setTypes("t1")
+            .setQuery(QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("a", "a1")).filter(QueryBuilders.termQuery("b", "b0")))
+            .get().getHits().getTotalHits(), equalTo(1L));
+        assertThat(client().prepareSearch().setIndices("test")
+            .setQuery(QueryBuilders.boolQuery().filter(QueryBuilders.termsQuery("a", "a0", "a2")).filter(QueryBuilders.termQuery("b", "b1")))
+            .get().getHits().getTotalHits(), equalTo(3L));
+        assertAcked(client().admin().cluster().prepareUpdateSettings()
+            .setTransientSettings(Settings.builder().putNull(OperationRouting.USE_TOKEN_AWARE_SEARCH_SETTING.getKey())).get());
+    }
+
+    @Test
+    public void testInexactTermsAreNotRouted() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder()
+            .startObject()
+                .startObject("properties")
+                    .startObject("a").field("type", "keyword").field("cql_collection", "singleton").field("cql_partition_key", true)
+                        .field("cql_primary_key_order", 0).field("normalizer", "lowercase").endObject()
+                    .startObject("b").field("type", "date").field("cql_collection", "singleton").field("cql_partition_key", true)
+                        .field("cql_primary_key_order", 1).endObject()
+                .endObject()
+            .endObject();
+        assertAcked(client().admin().indices().prepareCreate("test2")
+            .setSettings(Settings.builder().put("analysis.normalizer.lowercase.type", "custom")
+                .putList("analysis.normalizer.lowercase.filter", "lowercase"))
+            .addMapping("t2", mapping));
+        ensureGreen("test2");
+
+        IndexMetaData indexMetaData = clusterService().state().metaData().index("test2");
+        MapperService mapperService = clusterService().indexServiceSafe(indexMetaData.getIndex()).mapperService();
+
+        // a normalized keyword term matches all the keys having the same normalized form
+        assertThat(TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("a", "Foo")).filter(QueryBuilders.termQuery("b", 0L))), nullValue());
+        // a date string is rounded to the precision of its format
+        assertThat(TokenAwareRouting.tokenRanges(clusterService().getQueryManager(), mapperService, indexMetaData, null,
+            QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("a", "foo")).filter(QueryBuilders.termQuery("b", "2020-01-01"))),
+            nullValue());
+    }
+}
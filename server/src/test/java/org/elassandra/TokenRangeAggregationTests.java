@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elassandra.search.aggregations.bucket.token.TokenRangeAggregationBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Test token range aggregation counted from points and collected per document.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.TokenRangeAggregationTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class TokenRangeAggregationTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testTokenRangeCounts() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b bigint, primary key (a) )");
+        createIndex("test", Settings.builder().put("index.token_ranges_bitset_cache", false).build(), "t1", mapping);
+        ensureGreen("test");
+
+        final int N = 500;
+        for (int j = 0; j < N; j++)
+            process(ConsistencyLevel.ONE,"insert into test.t1 (a,b) VALUES (?,?)", j, (long) j);
+        client().admin().indices().prepareFlush("test").get();
+
+        // match_all is counted from the _token points
+        long[] counts = tokenRangeCounts(QueryBuilders.matchAllQuery());
+        assertThat(counts[0] + counts[1] + counts[2], equalTo((long) N));
+
+        // same counts when collecting each document.
+        long[] collected = tokenRangeCounts(QueryBuilders.rangeQuery("b").gte(0));
+        assertThat(collected[0], equalTo(counts[0]));
+        assertThat(collected[1], equalTo(counts[1]));
+        assertThat(collected[2], equalTo(counts[2]));
+    }
+
+    private long[] tokenRangeCounts(QueryBuilder query) {
+        SearchResponse resp = client().prepareSearch("test").setQuery(query).setSize(0)
+            .addAggregation(new TokenRangeAggregationBuilder("tokens").field("_token")
+                .addUnboundedTo(-1L << 62)
+                .addRange(-1L << 62, 1L << 62)
+                .addUnboundedFrom(1L << 62))
+            .get();
+        assertThat(resp.getHits().getTotalHits(), equalTo(500L));
+        Range range = resp.getAggregations().get("tokens");
+        long[] counts = new long[range.getBuckets().size()];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = range.getBuckets().get(i).getDocCount();
+        return counts;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 Strapdata (http://www.strapdata.com)
+ * Contains some code from Elasticsearch (http://www.elastic.co)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.elassandra;
+
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.elassandra.search.aggregations.bucket.sampler.InternalTokenSampler;
+import org.elassandra.search.aggregations.bucket.sampler.TokenSamplerAggregationBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.avg.Avg;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Test sampled aggregations and estimated doc count.
+ */
+//gradle :server:test -Dtests.seed=65E2CF27F286CC89 -Dtests.class=org.elassandra.TokenSamplerAggregationTests -Dtests.security.manager=false -Dtests.locale=en-PH -Dtests.timezone=America/Coral_Harbour
+public class TokenSamplerAggregationTests extends ESSingleNodeTestCase {
+
+    @Test
+    public void testTokenSampler() throws Exception {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject("t1").field("discover", ".*").endObject().endObject();
+        process(ConsistencyLevel.ONE,"CREATE KEYSPACE IF NOT EXISTS test WITH replication={ 'class':'NetworkTopologyStrategy', 'DC1':'1' }");
+        process(ConsistencyLevel.ONE,"CREATE TABLE IF NOT EXISTS test.t1 ( a int, b bigint, primary key (a) )");
+        createIndex("test", Settings.EMPTY, "t1", mapping);
+        ensureGreen("test");
+
+        // rows written through CQL are indexed by the secondary index with _token sorted numeric doc values, in several segments.
+        final int N = 2000;
+        for (int s = 0; s < 2; s++) {
+            for (int j = s * N / 2; j < (s + 1) * N / 2; j++)
+                process(ConsistencyLevel.ONE,"insert into test.t1 (a,b) VALUES (?,?)", j, 1L);
+            client().admin().indices().prepareFlush("test").get();
+        }
+        assertThat(client().admin().indices().prepareSegments("test").get().getIndices().get("test").getShards().get(0)
+            .getShards()[0].getSegments().size(), greaterThan(1));
+
+        InternalTokenSampler sample = sample(new TokenSamplerAggregationBuilder("sample").fraction(0.25).strata(64));
+        assertThat(sample.getDocCount(), greaterThan(0L));
+        assertThat(sample.getDocCount(), lessThan((long) N));
+        assertThat(sample.getSampleFraction(), equalTo(0.25));
+        assertThat(Math.abs(sample.getEstimatedDocCount() - N), lessThanOrEqualTo(2 * sample.getEstimatedDocCountError()));
+
+        // sub-aggregations are computed on the sample and scaled up to the whole data set, with their confidence intervals.
+        Sum sum = sample.getAggregations().get("sum");
+        assertThat(sum.getValue(), equalTo(sample.getDocCount() / 0.25));
+        ValueCount count = sample.getAggregations().get("count");
+        assertThat(count.getValue(), equalTo(sample.getEstimatedDocCount()));
+        Avg avg = sample.getAggregations().get("avg");
+        assertThat(avg.getValue(), equalTo(1.0));
+        assertInterval(sample, "sum", sum.getValue());
+        assertInterval(sample, "count", count.getValue());
+        assertInterval(sample, "avg", avg.getValue());
+
+        // the whole token ring is sampled
+        sample = sample(new TokenSamplerAggregationBuilder("sample").fraction(1.0));
+        assertThat(sample.getDocCount(), equalTo((long) N));
+        assertThat(sample.getEstimatedDocCount(), equalTo((long) N));
+        assertThat(sample.getEstimatedDocCountError(), equalTo(0L));
+        sum = sample.getAggregations().get("sum");
+        assertThat(sum.getValue(), equalTo((double) N));
+    }
+
+    private InternalTokenSampler sample(TokenSamplerAggregationBuilder builder) {
+        SearchResponse resp = client().prepareSearch("test").setSize(0)
+            .addAggregation(builder
+                .subAggregation(AggregationBuilders.sum("sum").field("b"))
+                .subAggregation(AggregationBuilders.count("count").field("b"))
+                .subAggregation(AggregationBuilders.avg("avg").field("b")))
+            .get();
+        InternalTokenSampler sample = resp.getAggregations().get("sample");
+        // the query is restricted to the sampled token ranges.
+        assertThat(resp.getHits().getTotalHits(), equalTo(sample.getDocCount()));
+        return sample;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertInterval(InternalTokenSampler sample, String name, double value) {
+        Map<String, Object> interval = (Map<String, Object>) sample.getConfidenceIntervals().get(name);
+        assertNotNull(interval);
+        assertThat((Double) interval.get(InternalTokenSampler.LOWER), lessThanOrEqualTo(value));
+        assertThat((Double) interval.get(InternalTokenSampler.UPPER), greaterThanOrEqualTo(value));
+    }
+}
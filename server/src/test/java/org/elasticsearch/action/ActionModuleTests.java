@@ -24,6 +24,7 @@ import org.elasticsearch.action.main.TransportMainAction;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.TransportAction;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.settings.ClusterSettings;
@@ -31,26 +32,39 @@ import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.common.settings.SettingsModule;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.plugins.ActionPlugin;
 import org.elasticsearch.plugins.ActionPlugin.ActionHandler;
+import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestRequest.Method;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.RestMainAction;
 import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.usage.UsageService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.startsWith;
 
@@ -111,15 +125,20 @@ public class ActionModuleTests extends ESTestCase {
 
     public void testSetupRestHandlerContainsKnownBuiltin() {
         SettingsModule settings = new SettingsModule(Settings.EMPTY);
-        UsageService usageService = new UsageService();
-        ActionModule actionModule = new ActionModule(false, settings.getSettings(), new IndexNameExpressionResolver(settings.getSettings()),
-                settings.getIndexScopedSettings(), settings.getClusterSettings(), settings.getSettingsFilter(), null, emptyList(), null,
-                null, usageService);
-        actionModule.initRestHandlers(null);
-        // At this point the easiest way to confirm that a handler is loaded is to try to register another one on top of it and to fail
-        Exception e = expectThrows(IllegalArgumentException.class, () ->
-            actionModule.getRestController().registerHandler(Method.GET, "/", null));
-        assertThat(e.getMessage(), startsWith("Cannot replace existing handler for [/] for method: GET"));
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            UsageService usageService = new UsageService();
+            ActionModule actionModule = new ActionModule(false, settings.getSettings(),
+                    new IndexNameExpressionResolver(settings.getSettings()), settings.getIndexScopedSettings(),
+                    settings.getClusterSettings(), settings.getSettingsFilter(), threadPool, emptyList(), null, null, usageService);
+            actionModule.initRestHandlers(null);
+            // At this point the easiest way to confirm that a handler is loaded is to try to register another one on top of it and to fail
+            Exception e = expectThrows(IllegalArgumentException.class, () ->
+                actionModule.getRestController().registerHandler(Method.GET, "/", null));
+            assertThat(e.getMessage(), startsWith("Cannot replace existing handler for [/] for method: GET"));
+        } finally {
+            threadPool.shutdown();
+        }
     }
 
     public void testPluginCantOverwriteBuiltinRestHandler() throws IOException {
@@ -181,4 +200,71 @@ public class ActionModuleTests extends ESTestCase {
             threadPool.shutdown();
         }
     }
+
+    public void testFairQueueHeadersAreCopiedFromRestRequests() throws Exception {
+        SettingsModule settings = new SettingsModule(Settings.EMPTY);
+        ThreadPool threadPool = new TestThreadPool(getTestName(), Settings.builder()
+            .put("thread_pool.write.size", 1)
+            .put("thread_pool.write.fair_queue.header", "X-Tenant")
+            .build());
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            assertThat(threadPool.getFairQueueHeaders(), contains("X-Tenant"));
+            UsageService usageService = new UsageService();
+            ActionModule actionModule = new ActionModule(false, settings.getSettings(),
+                    new IndexNameExpressionResolver(settings.getSettings()), settings.getIndexScopedSettings(),
+                    settings.getClusterSettings(), settings.getSettingsFilter(), threadPool, emptyList(), null,
+                    new NoneCircuitBreakerService(), usageService);
+            final List<String> tenants = Collections.synchronizedList(new ArrayList<>());
+            actionModule.getRestController().registerHandler(Method.POST, "/_tenant", (request, channel, client) ->
+                threadPool.executor(ThreadPool.Names.WRITE).execute(() -> {
+                    tenants.add(threadPool.getThreadContext().getHeader("X-Tenant"));
+                    channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+                }));
+
+            // occupy the single write thread so that the tasks of both tenants are queued
+            threadPool.executor(ThreadPool.Names.WRITE).execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            final int numRequests = randomIntBetween(2, 5);
+            final List<FakeRestChannel> channels = new ArrayList<>();
+            // the first tenant sends all its requests before the second one
+            for (String tenant : Arrays.asList("a", "b")) {
+                for (int i = 0; i < numRequests; i++) {
+                    RestRequest request = new FakeRestRequest.Builder(xContentRegistry())
+                        .withMethod(Method.POST)
+                        .withPath("/_tenant")
+                        .withHeaders(Collections.singletonMap("X-Tenant", Collections.singletonList(tenant)))
+                        .build();
+                    FakeRestChannel channel = new FakeRestChannel(request, false, 1);
+                    try (ThreadContext.StoredContext ignored = threadPool.getThreadContext().stashContext()) {
+                        actionModule.getRestController().dispatchRequest(request, channel, threadPool.getThreadContext());
+                    }
+                    channels.add(channel);
+                }
+            }
+            release.countDown();
+            for (FakeRestChannel channel : channels) {
+                assertTrue(channel.await());
+                assertThat(channel.responses().get(), equalTo(1));
+            }
+
+            // the tenants are served in turns rather than in arrival order
+            assertThat(tenants.size(), equalTo(2 * numRequests));
+            for (int i = 0; i < tenants.size(); i++) {
+                assertThat(tenants.get(i), equalTo(i % 2 == 0 ? "a" : "b"));
+            }
+        } finally {
+            release.countDown();
+            threadPool.shutdown();
+        }
+    }
 }
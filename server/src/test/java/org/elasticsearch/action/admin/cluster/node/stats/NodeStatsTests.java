@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -54,6 +55,35 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 
 public class NodeStatsTests extends ESTestCase {
+    public void testTransportStatsSerializationBwc() throws IOException {
+        // nodes of every 6.8.4.x release use the 6.8.4 wire version and do not know the compression stats
+        assertTransportStatsSerializationBwc(Version.V_6_8_4);
+        assertTransportStatsSerializationBwc(
+            VersionUtils.randomVersionBetween(random(), Version.V_6_0_0, VersionUtils.getPreviousVersion(Version.V_6_8_5)));
+    }
+
+    private void assertTransportStatsSerializationBwc(Version version) throws IOException {
+        TransportStats transportStats = randomTransportStats();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            transportStats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                TransportStats deserializedTransportStats = new TransportStats(in);
+                assertEquals(-1, in.read());
+                assertEquals(transportStats.getServerOpen(), deserializedTransportStats.getServerOpen());
+                assertEquals(transportStats.getRxCount(), deserializedTransportStats.getRxCount());
+                assertEquals(transportStats.getRxSize(), deserializedTransportStats.getRxSize());
+                assertEquals(transportStats.getTxCount(), deserializedTransportStats.getTxCount());
+                assertEquals(transportStats.getTxSize(), deserializedTransportStats.getTxSize());
+                assertEquals(0, deserializedTransportStats.getTxCompressedCount());
+                assertEquals(0, deserializedTransportStats.getTxUncompressedSize().getBytes());
+                assertEquals(0, deserializedTransportStats.getTxCompressedSize().getBytes());
+                assertEquals(0, deserializedTransportStats.getTxCompressionTime().nanos());
+            }
+        }
+    }
+
     public void testSerialization() throws IOException {
         NodeStats nodeStats = createNodeStats();
         try (BytesStreamOutput out = new BytesStreamOutput()) {
@@ -219,6 +249,14 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getTxCompressedCount(),
+                        deserializedNodeStats.getTransport().getTxCompressedCount());
+                    assertEquals(nodeStats.getTransport().getTxUncompressedSize(),
+                        deserializedNodeStats.getTransport().getTxUncompressedSize());
+                    assertEquals(nodeStats.getTransport().getTxCompressedSize(),
+                        deserializedNodeStats.getTransport().getTxCompressedSize());
+                    assertEquals(nodeStats.getTransport().getTxCompressionTime(),
+                        deserializedNodeStats.getTransport().getTxCompressionTime());
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
@@ -316,6 +354,11 @@ public class NodeStatsTests extends ESTestCase {
         }
     }
 
+    private static TransportStats randomTransportStats() {
+        return new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
+
     private static NodeStats createNodeStats() {
         DiscoveryNode node = new DiscoveryNode("test_node", buildNewFakeTransportAddress(),
                 emptyMap(), emptySet(), VersionUtils.randomVersion(random()));
@@ -413,8 +456,7 @@ public class NodeStatsTests extends ESTestCase {
             }
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
-        TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        TransportStats transportStats = frequently() ? randomTransportStats() : null;
         HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
@@ -29,6 +29,7 @@ import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -330,4 +331,27 @@ public class BulkRequestTests extends ESTestCase {
                 XContentType.JSON);
         assertEquals(3, bulkRequestWithNewLine.numberOfActions());
     }
+
+    public void testSourcesShareTheBulkBody() throws Exception {
+        String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk.json");
+        byte[] bytes = bulkAction.getBytes(StandardCharsets.UTF_8);
+        BulkRequest bulkRequest = new BulkRequest();
+        bulkRequest.add(bytes, 0, bytes.length, null, null, XContentType.JSON);
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+        BytesReference source = ((IndexRequest) bulkRequest.requests().get(0)).source();
+        assertThat(source, instanceOf(BytesArray.class));
+        assertSame(bytes, ((BytesArray) source).array());
+
+        // same requests when the body is split in chunks, lines may span several chunks
+        int split1 = randomIntBetween(1, bytes.length - 2);
+        int split2 = randomIntBetween(split1 + 1, bytes.length - 1);
+        BytesReference chunked = new CompositeBytesReference(new BytesArray(bytes, 0, split1),
+            new BytesArray(bytes, split1, split2 - split1), new BytesArray(bytes, split2, bytes.length - split2));
+        BulkRequest chunkedRequest = new BulkRequest();
+        chunkedRequest.add(chunked, null, null, XContentType.JSON);
+        assertThat(chunkedRequest.numberOfActions(), equalTo(3));
+        assertThat(((IndexRequest) chunkedRequest.requests().get(0)).source(), equalTo(new BytesArray("{ \"field1\" : \"value1\" }")));
+        assertThat(chunkedRequest.requests().get(1), instanceOf(DeleteRequest.class));
+        assertThat(((IndexRequest) chunkedRequest.requests().get(2)).source(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }")));
+    }
 }
@@ -22,6 +22,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
@@ -47,6 +48,7 @@ public final class MockSearchPhaseContext implements SearchPhaseContext {
     List<ShardSearchFailure> failures = Collections.synchronizedList(new ArrayList<>());
     SearchTransportService searchTransport;
     Set<Long> releasedSearchContexts = new HashSet<>();
+    List<Releasable> releasables = new ArrayList<>();
     SearchRequest searchRequest = new SearchRequest();
     AtomicInteger phasesExecuted = new AtomicInteger();
 
@@ -144,4 +146,9 @@ public final class MockSearchPhaseContext implements SearchPhaseContext {
     public void sendReleaseSearchContext(long contextId, Transport.Connection connection, OriginalIndices originalIndices) {
         releasedSearchContexts.add(contextId);
     }
+
+    @Override
+    public void addReleasable(Releasable releasable) {
+        releasables.add(releasable);
+    }
 }
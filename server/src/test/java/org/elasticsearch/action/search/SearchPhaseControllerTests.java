@@ -28,20 +28,27 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.LongTerms;
 import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -64,6 +71,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -411,6 +419,89 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertNull(reduce.sortedTopDocs.collapseValues);
     }
 
+    public void testConsumerMaxBufferedBuckets() {
+        int expectedNumResults = randomIntBetween(3, 20);
+        SearchPhaseController controller = new SearchPhaseController(
+            (finalReduce) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce), () -> 15,
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.terms("test")).size(0));
+        request.setBatchedReduceSize(expectedNumResults + randomIntBetween(0, 10));
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        for (int i = 0; i < expectedNumResults; i++) {
+            // each shard returns the terms [i, i + 10[ ordered by key
+            List<LongTerms.Bucket> buckets = new ArrayList<>();
+            for (int term = i; term < i + 10; term++) {
+                buckets.add(new LongTerms.Bucket(term, 1, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+            }
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new Index("a", "b"), i, null));
+            result.topDocs(new TopDocs(10, new ScoreDoc[0], Float.NaN), new DocValueFormat[0]);
+            result.aggregations(new InternalAggregations(Collections.singletonList(new LongTerms("test", BucketOrder.key(true), 5, 1,
+                Collections.emptyList(), Collections.emptyMap(), DocValueFormat.RAW, 10, false, 0, buckets, 0))));
+            result.setShardIndex(i);
+            result.size(0);
+            consumer.consumeResult(result);
+        }
+        // buffered buckets are reduced before the buffer is full, key ordered terms are pruned to the required size
+        assertThat(((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases(), greaterThanOrEqualTo(1));
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        LongTerms terms = (LongTerms) reduce.aggregations.asList().get(0);
+        assertEquals(5, terms.getBuckets().size());
+        long sumDocCount = 0;
+        for (int term = 0; term < 5; term++) {
+            assertEquals(term, terms.getBuckets().get(term).getKeyAsNumber().longValue());
+            assertEquals(Math.min(term + 1, expectedNumResults), terms.getBuckets().get(term).getDocCount());
+            sumDocCount += terms.getBuckets().get(term).getDocCount();
+        }
+        assertEquals(expectedNumResults * 10 - sumDocCount, terms.getSumOfOtherDocCounts());
+        assertEquals(expectedNumResults * 10, reduce.totalHits);
+    }
+
+    public void testConsumerBufferedBucketsBreakerAndHysteresis() {
+        int expectedNumResults = randomIntBetween(5, 20);
+        CircuitBreaker breaker = new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)).getBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(
+            (finalReduce) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce), () -> 15, breaker);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.terms("test")).size(0));
+        request.setBatchedReduceSize(expectedNumResults + randomIntBetween(0, 10));
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        for (int i = 0; i < expectedNumResults; i++) {
+            // each shard returns the same 10 terms, so a partial reduce holds 10 buckets
+            List<LongTerms.Bucket> buckets = new ArrayList<>();
+            for (int term = 0; term < 10; term++) {
+                buckets.add(new LongTerms.Bucket(term, 1, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+            }
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new Index("a", "b"), i, null));
+            result.topDocs(new TopDocs(10, new ScoreDoc[0], Float.NaN), new DocValueFormat[0]);
+            result.aggregations(new InternalAggregations(Collections.singletonList(new LongTerms("test", BucketOrder.count(false), 10, 1,
+                Collections.emptyList(), Collections.emptyMap(), DocValueFormat.RAW, 10, false, 0, buckets, 0))));
+            result.setShardIndex(i);
+            result.size(0);
+            consumer.consumeResult(result);
+            long charged = ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getBreakerBytes();
+            assertThat(charged, greaterThan(0L));
+            assertEquals(charged, breaker.getUsed());
+        }
+        // the buffer is reduced again only once it holds a batch of buckets more than the last partial reduce
+        int numReducePhases = ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases();
+        assertThat(numReducePhases, greaterThanOrEqualTo(1));
+        assertThat(numReducePhases, lessThanOrEqualTo(expectedNumResults / 2));
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        LongTerms terms = (LongTerms) reduce.aggregations.asList().get(0);
+        assertEquals(10, terms.getBuckets().size());
+        for (LongTerms.Bucket bucket : terms.getBuckets()) {
+            assertEquals(expectedNumResults, bucket.getDocCount());
+        }
+        consumer.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
     public void testConsumerOnlyAggs() {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
@@ -31,9 +31,12 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -280,6 +283,19 @@ public class SearchResponseTests extends ESTestCase {
         }
     }
 
+    public void testToXContentChunks() throws IOException {
+        SearchResponse response = createTestItem();
+        BytesReference expected = XContentHelper.toXContent(response, XContentType.JSON, false);
+        ChunkedRestResponse chunkedResponse = new ChunkedRestResponse(RestStatus.OK, XContentFactory.jsonBuilder(),
+            response.toXContentChunks().iterator(), ToXContent.EMPTY_PARAMS);
+        int sizeHint = randomIntBetween(1, 256);
+        BytesStreamOutput received = new BytesStreamOutput();
+        while (chunkedResponse.isDone() == false) {
+            chunkedResponse.encodeChunk(sizeHint).writeTo(received);
+        }
+        assertEquals(expected, received.bytes());
+    }
+
     public void testSerialization() throws IOException {
         SearchResponse searchResponse = createTestItem(false);
         BytesStreamOutput bytesStreamOutput = new BytesStreamOutput();
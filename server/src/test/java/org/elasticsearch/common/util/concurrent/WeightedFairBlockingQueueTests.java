@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class WeightedFairBlockingQueueTests extends ESTestCase {
+
+    private static WeightedFairBlockingQueue<String> queue(Map<String, Integer> weights, Map<String, Integer> capacities) {
+        // elements are named <class>-<sequence>
+        return new WeightedFairBlockingQueue<>(e -> e.substring(0, e.indexOf('-')), weights, capacities);
+    }
+
+    public void testWeightedServing() throws Exception {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("a", 2);
+        WeightedFairBlockingQueue<String> queue = queue(weights, Collections.emptyMap());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer("a-" + i));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer("b-" + i));
+        }
+        assertThat(queue.size(), equalTo(12));
+        assertThat(queue.size("a"), equalTo(8));
+
+        List<String> served = new ArrayList<>();
+        queue.drainTo(served, 8);
+        // "a" is served twice as often as "b", in FIFO order within each class and on ties
+        assertThat(served, contains("a-0", "a-1", "b-0", "a-2", "a-3", "b-1", "a-4", "a-5"));
+        assertThat(queue.take(), equalTo("b-2"));
+        assertThat(queue.poll(), equalTo("a-6"));
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS), equalTo("a-7"));
+        assertThat(queue.peek(), equalTo("b-3"));
+        assertThat(queue.poll(), equalTo("b-3"));
+        assertThat(queue.poll(), nullValue());
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS), nullValue());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testIdleClassDoesNotAccumulateCredit() {
+        WeightedFairBlockingQueue<String> queue = queue(Collections.emptyMap(), Collections.emptyMap());
+        for (int i = 0; i < 4; i++) {
+            queue.offer("a-" + i);
+        }
+        assertThat(queue.poll(), equalTo("a-0"));
+        assertThat(queue.poll(), equalTo("a-1"));
+        // "b" was idle while "a" was served, it is now served in turn with "a"
+        queue.offer("b-0");
+        queue.offer("b-1");
+        List<String> served = new ArrayList<>();
+        queue.drainTo(served);
+        assertThat(served, contains("a-2", "b-0", "a-3", "b-1"));
+    }
+
+    public void testClassCapacity() throws Exception {
+        Map<String, Integer> capacities = new HashMap<>();
+        capacities.put("a", 2);
+        capacities.put("c", 0);
+        WeightedFairBlockingQueue<String> queue = queue(Collections.emptyMap(), capacities);
+        assertTrue(queue.offer("a-0"));
+        assertTrue(queue.offer("a-1"));
+        assertFalse(queue.offer("a-2"));
+        assertFalse(queue.offer("c-0"));
+        // other classes are not affected
+        assertTrue(queue.offer("b-0"));
+        // put ignores the class capacity, as a forced execution
+        queue.put("a-2");
+        assertThat(queue.size("a"), equalTo(3));
+
+        assertTrue(queue.remove("a-1"));
+        assertFalse(queue.remove("a-1"));
+        assertThat(queue.size(), equalTo(3));
+        assertTrue(queue.contains("a-2"));
+        assertThat(queue.remainingCapacity(), equalTo(Integer.MAX_VALUE));
+    }
+
+    public void testSizeBlockingQueueBound() throws Exception {
+        SizeBlockingQueue<String> queue = new SizeBlockingQueue<>(queue(Collections.emptyMap(), Collections.emptyMap()), 2);
+        assertTrue(queue.offer("a-0"));
+        assertTrue(queue.offer("b-0"));
+        assertFalse(queue.offer("c-0"));
+        queue.forcePut("c-0");
+        assertThat(queue.size(), equalTo(3));
+        assertThat(queue.take(), equalTo("a-0"));
+        assertThat(queue.size(), equalTo(2));
+    }
+
+    public void testExecutorClassifiesByHeader() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final Map<String, Integer> weights = new HashMap<>();
+        weights.put("frontend", 2);
+        final WeightedFairBlockingQueue<Runnable> queue =
+            new WeightedFairBlockingQueue<>(r -> threadContext.getHeader("tenant"), weights, Collections.emptyMap());
+        final EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), 1, 100, queue,
+            EsExecutors.daemonThreadFactory("test"), threadContext);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            blocked.await();
+
+            final List<String> served = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(6);
+            for (int i = 0; i < 3; i++) {
+                for (String tenant : new String[] { "analytics", "frontend" }) {
+                    try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+                        threadContext.putHeader("tenant", tenant);
+                        executor.execute(() -> {
+                            served.add(threadContext.getHeader("tenant"));
+                            done.countDown();
+                        });
+                    }
+                }
+            }
+            assertThat(queue.size("analytics"), equalTo(3));
+            assertThat(queue.size("frontend"), equalTo(3));
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertThat(served, contains("frontend", "analytics", "frontend", "frontend", "analytics", "analytics"));
+        } finally {
+            terminate(executor);
+        }
+    }
+}
@@ -24,16 +24,20 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.plain.PagedBytesIndexFieldData;
@@ -41,10 +45,13 @@ import org.elasticsearch.index.fielddata.plain.SortedSetDVOrdinalsIndexFieldData
 import org.elasticsearch.index.mapper.TextFieldMapper;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.FieldMaskingReader;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class FieldDataCacheTests extends ESTestCase {
 
@@ -87,6 +94,87 @@ public class FieldDataCacheTests extends ESTestCase {
         dir.close();
     }
 
+    public void testLoadGlobal_incremental() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        for (int i = 1; i <= 64; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i % 40))));
+            iw.addDocument(doc);
+            if (i % 16 == 0) {
+                iw.commit();
+            }
+        }
+        ShardId shardId = new ShardId("_index", "_na_", 0);
+        DirectoryReader ir = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(iw), shardId);
+
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {});
+        IndexFieldDataCache fieldDataCache = indicesFieldDataCache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {},
+            new Index("_index", "_na_"), "field1");
+        IndexOrdinalsFieldData global = createSortedDV("field1", fieldDataCache).loadGlobal(ir);
+        assertThat(fieldDataCache.getLastGlobal(shardId), sameInstance(global));
+        assertGlobalOrdinals(global, ir, 40);
+
+        // new segments without values
+        for (int i = 1; i <= 32; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("field2", String.valueOf(i), Field.Store.NO));
+            iw.addDocument(doc);
+            if (i % 16 == 0) {
+                iw.commit();
+            }
+        }
+        DirectoryReader ir2 = DirectoryReader.openIfChanged(ir);
+        assertThat(ir2.leaves().size(), equalTo(ir.leaves().size() + 2));
+        IndexOrdinalsFieldData global2 = createSortedDV("field1", fieldDataCache).loadGlobal(ir2);
+        assertThat(fieldDataCache.getLastGlobal(shardId), sameInstance(global2));
+        assertGlobalOrdinals(global2, ir2, 40);
+        // closing the previous reader keeps the global ordinals of the new reader
+        ir.close();
+        assertThat(fieldDataCache.getLastGlobal(shardId), sameInstance(global2));
+
+        // new values are merged in the global ordinals
+        for (int i = 30; i < 50; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        DirectoryReader ir3 = DirectoryReader.openIfChanged(ir2);
+        IndexOrdinalsFieldData global3 = createSortedDV("field1", fieldDataCache).loadGlobal(ir3);
+        assertGlobalOrdinals(global3, ir3, 50);
+        ir2.close();
+
+        // the global ordinals of a closed reader are not kept
+        ir3.close();
+        assertThat(fieldDataCache.getLastGlobal(shardId), nullValue());
+
+        iw.close();
+        indicesFieldDataCache.close();
+        dir.close();
+    }
+
+    private void assertGlobalOrdinals(IndexOrdinalsFieldData global, DirectoryReader reader, long valueCount) throws Exception {
+        for (LeafReaderContext context : reader.leaves()) {
+            SortedSetDocValues segmentValues = DocValues.getSortedSet(context.reader(), "field1");
+            SortedSetDocValues globalValues = global.load(context).getOrdinalsValues();
+            LongValues globalOrds = global.getGlobalOrds(context);
+            assertThat(globalValues.getValueCount(), equalTo(valueCount));
+            for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+                boolean hasValue = segmentValues.advanceExact(doc);
+                assertThat(globalValues.advanceExact(doc), equalTo(hasValue));
+                if (hasValue) {
+                    long ord = segmentValues.nextOrd();
+                    long globalOrd = globalValues.nextOrd();
+                    assertThat(globalOrds.get(ord), equalTo(globalOrd));
+                    assertThat(globalValues.lookupOrd(globalOrd), equalTo(segmentValues.lookupOrd(ord)));
+                }
+            }
+        }
+    }
+
     private SortedSetDVOrdinalsIndexFieldData createSortedDV(String fieldName, IndexFieldDataCache indexFieldDataCache) {
         return new SortedSetDVOrdinalsIndexFieldData(createIndexSettings(), indexFieldDataCache, fieldName, new NoneCircuitBreakerService(),
                 AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class IncrementalOrdinalMapTests extends ESTestCase {
+
+    public void testExtend() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        int numBatches = 0;
+        for (int i = 0; i < 3; i++) {
+            addDocuments(iw, numBatches++, 50, true);
+        }
+        DirectoryReader reader = DirectoryReader.open(iw);
+        int[] leafSegments = new int[reader.leaves().size()];
+        IncrementalOrdinalMap map = IncrementalOrdinalMap.build(reader, subs(reader), leafSegments);
+        assertOrdinalMap(map, reader, leafSegments);
+
+        int iters = randomIntBetween(3, 10);
+        for (int i = 0; i < iters; i++) {
+            final boolean withValues = randomBoolean();
+            addDocuments(iw, numBatches++, randomIntBetween(1, 10), withValues);
+            DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+            reader.close();
+            reader = newReader;
+            leafSegments = new int[reader.leaves().size()];
+            IncrementalOrdinalMap extended = map.extend(reader, subs(reader), leafSegments);
+            assertNotNull(extended);
+            if (withValues) {
+                assertNull(extended.getOrdinalMap());
+            } else {
+                // segments without values do not change the map
+                assertSame(map, extended);
+            }
+            assertOrdinalMap(extended, reader, leafSegments);
+            map = extended;
+        }
+
+        // segments holding values are gone after a merge, the map must be built from scratch
+        iw.deleteDocuments(new Term("batch", "0"));
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        reader = newReader;
+        leafSegments = new int[reader.leaves().size()];
+        assertNull(map.extend(reader, subs(reader), leafSegments));
+
+        reader.close();
+        iw.close();
+        dir.close();
+    }
+
+    public void testExtendWithMoreTerms() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        addDocuments(iw, 0, 2, true);
+        addDocuments(iw, 1, 2, true);
+        DirectoryReader reader = DirectoryReader.open(iw);
+        int[] leafSegments = new int[reader.leaves().size()];
+        IncrementalOrdinalMap map = IncrementalOrdinalMap.build(reader, subs(reader), leafSegments);
+
+        // the new segment holds more terms than the map, it is as cheap to build the map from scratch
+        addDocuments(iw, 2, 100, true);
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        leafSegments = new int[newReader.leaves().size()];
+        assertNull(map.extend(newReader, subs(newReader), leafSegments));
+
+        reader.close();
+        newReader.close();
+        iw.close();
+        dir.close();
+    }
+
+    private void addDocuments(IndexWriter iw, int batch, int numDocs, boolean withValues) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("batch", Integer.toString(batch), Field.Store.NO));
+            if (withValues) {
+                int numValues = randomIntBetween(1, 3);
+                for (int j = 0; j < numValues; j++) {
+                    doc.add(new SortedSetDocValuesField("field", new BytesRef("term-" + randomIntBetween(0, 1000))));
+                }
+            }
+            iw.addDocument(doc);
+        }
+        // one segment per batch
+        iw.commit();
+    }
+
+    private static SortedSetDocValues[] subs(IndexReader reader) throws IOException {
+        final SortedSetDocValues[] subs = new SortedSetDocValues[reader.leaves().size()];
+        for (int i = 0; i < subs.length; i++) {
+            subs[i] = DocValues.getSortedSet(reader.leaves().get(i).reader(), "field");
+        }
+        return subs;
+    }
+
+    private static void assertOrdinalMap(IncrementalOrdinalMap map, IndexReader reader, int[] leafSegments) throws IOException {
+        final SortedSetDocValues[] subs = subs(reader);
+        final OrdinalMap expected = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        assertThat(map.getValueCount(), equalTo(expected.getValueCount()));
+        final SortedSetDocValues[] segmentValues = new SortedSetDocValues[map.getSegmentCount()];
+        for (int i = 0; i < segmentValues.length; i++) {
+            segmentValues[i] = DocValues.emptySortedSet();
+        }
+        for (int leaf = 0; leaf < subs.length; leaf++) {
+            if (subs[leaf].getValueCount() == 0) {
+                continue;
+            }
+            final int segment = leafSegments[leaf];
+            assertTrue(segment >= 0);
+            segmentValues[segment] = subs[leaf];
+            final LongValues globalOrds = map.getGlobalOrds(segment);
+            final LongValues expectedGlobalOrds = expected.getGlobalOrds(leaf);
+            for (long ord = 0; ord < subs[leaf].getValueCount(); ord++) {
+                assertThat(globalOrds.get(ord), equalTo(expectedGlobalOrds.get(ord)));
+            }
+        }
+        for (long globalOrd = 0; globalOrd < map.getValueCount(); globalOrd++) {
+            final SortedSetDocValues values = segmentValues[map.getFirstSegmentNumber(globalOrd)];
+            final BytesRef term = BytesRef.deepCopyOf(values.lookupOrd(map.getFirstSegmentOrd(globalOrd)));
+            final SortedSetDocValues expectedValues = subs[expected.getFirstSegmentNumber(globalOrd)];
+            assertThat(term, equalTo(expectedValues.lookupOrd(expected.getFirstSegmentOrd(globalOrd))));
+        }
+    }
+}
@@ -40,10 +40,13 @@ import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.QueryHistoryCachingPolicy;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
 
 public class IndicesQueryCacheTests extends ESTestCase {
@@ -426,4 +429,30 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.onClose(shard);
         cache.close();
     }
+
+    public void testQueryHistoryCachingPolicy() throws IOException {
+        QueryHistoryCachingPolicy policy = new QueryHistoryCachingPolicy(alwaysCachePolicy());
+        policy.onUse(new DummyQuery(0));
+        assertTrue(policy.frequentQueries(10).isEmpty());
+
+        policy.recording(true);
+        for (int i = 0; i < 3; i++) {
+            policy.onUse(new DummyQuery(1));
+        }
+        for (int i = 0; i < 5; i++) {
+            policy.onUse(new DummyQuery(2));
+        }
+        policy.onUse(new DummyQuery(3));
+        assertEquals(Arrays.asList(new DummyQuery(2), new DummyQuery(1), new DummyQuery(3)), policy.frequentQueries(10));
+        assertEquals(Arrays.asList(new DummyQuery(2), new DummyQuery(1)), policy.frequentQueries(2));
+
+        // the oldest usages leave the history
+        for (int i = 0; i < 256; i++) {
+            policy.onUse(new DummyQuery(4));
+        }
+        assertEquals(Collections.singletonList(new DummyQuery(4)), policy.frequentQueries(10));
+
+        policy.recording(false);
+        assertTrue(policy.frequentQueries(10).isEmpty());
+    }
 }
@@ -26,6 +26,9 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermQuery;
@@ -330,6 +333,72 @@ public class IndicesRequestCacheTests extends ESTestCase {
             StringField.TYPE_STORED));
     }
 
+    public void testCacheSegments() throws Exception {
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = DirectoryReader.open(writer);
+        assertEquals(1, reader.leaves().size());
+        assertSegmentValues(cache, entity, reader, termBytes);
+        assertEquals(0, requestCacheStats.stats().getHitCount());
+        assertEquals(1, requestCacheStats.stats().getMissCount());
+
+        // a refresh adding a segment keeps the entry of the unchanged segment
+        writer.addDocument(newDoc(1, "bar"));
+        writer.addDocument(newDoc(2, "baz"));
+        DirectoryReader secondReader = DirectoryReader.openIfChanged(reader);
+        assertEquals(2, secondReader.leaves().size());
+        assertSegmentValues(cache, entity, secondReader, termBytes);
+        assertEquals(1, requestCacheStats.stats().getHitCount());
+        assertEquals(2, requestCacheStats.stats().getMissCount());
+        assertEquals(2, cache.count());
+
+        // deleting a document only recomputes its segment
+        writer.deleteDocuments(new Term("id", "1"));
+        DirectoryReader thirdReader = DirectoryReader.openIfChanged(secondReader);
+        assertSegmentValues(cache, entity, thirdReader, termBytes);
+        assertEquals(2, requestCacheStats.stats().getHitCount());
+        assertEquals(3, requestCacheStats.stats().getMissCount());
+        assertEquals(3, cache.count());
+
+        // segment cores are still used by the third reader
+        IOUtils.close(reader, secondReader);
+        cache.cleanCache();
+        assertEquals(3, cache.count());
+
+        // the writer pools the segment readers of its NRT readers
+        IOUtils.close(thirdReader, writer);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.numRegisteredCloseListeners());
+        IOUtils.close(dir, cache);
+    }
+
+    private static void assertSegmentValues(IndicesRequestCache cache, TestEntity entity, DirectoryReader reader,
+                                            BytesReference cacheKey) throws Exception {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            LeafReader segment = leaf.reader();
+            BytesReference value = cache.getOrCompute(entity, () -> segmentValue(segment), segment, cacheKey);
+            assertEquals(segment.numDocs(), value.streamInput().readVInt());
+        }
+    }
+
+    private static BytesReference segmentValue(LeafReader reader) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.writeVInt(reader.numDocs());
+            return out.bytes();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static class Loader implements Supplier<BytesReference> {
 
         private final DirectoryReader reader;
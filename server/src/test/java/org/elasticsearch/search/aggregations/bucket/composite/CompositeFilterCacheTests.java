@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.join.BitSetProducer;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BitSet;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class CompositeFilterCacheTests extends ESTestCase {
+
+    public void testMatchesAreReusedAcrossPagesAndRefreshes() throws Exception {
+        CircuitBreakerService breakerService = newBreakerService();
+        CompositeFilterCache cache = new CompositeFilterCache(Settings.EMPTY, breakerService);
+        Directory dir = newDirectory();
+        IndexWriter w = newWriter(dir);
+        addSegment(w, 0);
+        addSegment(w, 1);
+        DirectoryReader reader = DirectoryReader.open(w);
+        Query query = new TermQuery(new Term("even", "true"));
+
+        AtomicInteger weights = new AtomicInteger();
+        List<BitSet> firstPage = bitSets(cache, countingSearcher(reader, weights), query);
+        assertThat(weights.get(), equalTo(1));
+        assertThat(cache.count(), equalTo(2));
+        assertThat(cache.ramBytesUsed(), greaterThan(0L));
+        assertThat(accountingBreaker(breakerService).getUsed(), equalTo(cache.ramBytesUsed()));
+
+        // the next page reuses the matches without creating a weight
+        List<BitSet> secondPage = bitSets(cache, countingSearcher(reader, weights), query);
+        assertThat(weights.get(), equalTo(1));
+        for (int i = 0; i < firstPage.size(); i++) {
+            assertSame(firstPage.get(i), secondPage.get(i));
+        }
+
+        // after a refresh only the new segment is evaluated
+        addSegment(w, 2);
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        bitSets(cache, countingSearcher(newReader, weights), query);
+        assertThat(weights.get(), equalTo(2));
+        assertThat(cache.count(), equalTo(3));
+        assertThat(accountingBreaker(breakerService).getUsed(), equalTo(cache.ramBytesUsed()));
+
+        // closed segments are removed and released from the breaker
+        newReader.close();
+        w.close();
+        assertThat(cache.count(), equalTo(0));
+        assertThat(accountingBreaker(breakerService).getUsed(), equalTo(0L));
+        cache.close();
+        dir.close();
+    }
+
+    public void testBoundedSize() throws Exception {
+        CircuitBreakerService breakerService = newBreakerService();
+        CompositeFilterCache cache = new CompositeFilterCache(
+            Settings.builder().put(CompositeFilterCache.SIZE_SETTING.getKey(), "1b").build(), breakerService);
+        Directory dir = newDirectory();
+        IndexWriter w = newWriter(dir);
+        addSegment(w, 0);
+        DirectoryReader reader = DirectoryReader.open(w);
+        Query query = new TermQuery(new Term("even", "true"));
+
+        List<BitSet> bitSets = bitSets(cache, new IndexSearcher(reader), query);
+        assertNotNull(bitSets.get(0));
+        assertThat(cache.count(), equalTo(0));
+        assertThat(accountingBreaker(breakerService).getUsed(), equalTo(0L));
+
+        reader.close();
+        w.close();
+        cache.close();
+        dir.close();
+    }
+
+    private static CircuitBreakerService newBreakerService() {
+        return new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    private static CircuitBreaker accountingBreaker(CircuitBreakerService breakerService) {
+        return breakerService.getBreaker(CircuitBreaker.ACCOUNTING);
+    }
+
+    private static IndexWriter newWriter(Directory dir) throws IOException {
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        return new IndexWriter(dir, iwc);
+    }
+
+    private void addSegment(IndexWriter w, int segment) throws IOException {
+        int numDocs = randomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("segment", Integer.toString(segment), Field.Store.NO));
+            doc.add(new StringField("even", Boolean.toString(i % 2 == 0), Field.Store.NO));
+            w.addDocument(doc);
+        }
+        w.commit();
+    }
+
+    private static IndexSearcher countingSearcher(IndexReader reader, AtomicInteger weights) {
+        return new IndexSearcher(reader) {
+            @Override
+            public Weight createNormalizedWeight(Query query, boolean needsScores) throws IOException {
+                weights.incrementAndGet();
+                return super.createNormalizedWeight(query, needsScores);
+            }
+        };
+    }
+
+    private static List<BitSet> bitSets(CompositeFilterCache cache, IndexSearcher searcher, Query query) throws IOException {
+        BitSetProducer producer = cache.getBitSetProducer(searcher, query);
+        List<BitSet> bitSets = new ArrayList<>();
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            BitSet bitSet = producer.getBitSet(leaf);
+            assertNotNull(bitSet);
+            assertThat(bitSet.cardinality(), equalTo((leaf.reader().maxDoc() + 1) / 2));
+            bitSets.add(bitSet);
+        }
+        return bitSets;
+    }
+}
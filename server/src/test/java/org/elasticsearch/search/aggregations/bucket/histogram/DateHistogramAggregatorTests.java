@@ -25,6 +25,10 @@ import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
@@ -33,6 +37,7 @@ import org.apache.lucene.store.Directory;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.joda.time.DateTimeZone;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -370,6 +375,78 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
             histogram -> {}, 5));
     }
 
+    public void testMatchingDocsCountedFromPoints() throws IOException {
+        try (Directory directory = newDirectory()) {
+            long start = asLong("2017-01-01T00:00:00");
+            long end = start + 365L * 24 * 3600 * 1000;
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (int i = 0; i < 2000; i++) {
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                    long instant = randomLongBetween(start, end);
+                    Document document = new Document();
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    document.add(new LongPoint(INSTANT_FIELD, instant));
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+
+                long from = randomLongBetween(start, end);
+                long to = randomLongBetween(from, end);
+                Query range = LongPoint.newRangeQuery(DATE_FIELD, from, to);
+                List<Query> queries = Arrays.asList(
+                    new MatchAllDocsQuery(),
+                    range,
+                    new ConstantScoreQuery(new IndexOrDocValuesQuery(range,
+                        SortedNumericDocValuesField.newSlowRangeQuery(DATE_FIELD, from, to))),
+                    new BooleanQuery.Builder()
+                        .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                        .add(range, BooleanClause.Occur.FILTER)
+                        .add(LongPoint.newRangeQuery(DATE_FIELD, randomLongBetween(start, to), Long.MAX_VALUE), BooleanClause.Occur.FILTER)
+                        .build());
+                List<Consumer<DateHistogramAggregationBuilder>> configurations = Arrays.asList(
+                    aggregation -> aggregation.dateHistogramInterval(DateHistogramInterval.MONTH),
+                    aggregation -> aggregation.dateHistogramInterval(DateHistogramInterval.DAY)
+                        .timeZone(DateTimeZone.forID("Europe/Paris")),
+                    aggregation -> aggregation.dateHistogramInterval(DateHistogramInterval.days(3)).offset("+6h"),
+                    aggregation -> aggregation.dateHistogramInterval(DateHistogramInterval.hours(6)));
+                for (Query query : queries) {
+                    assertNotNull(DateHistogramAggregator.pointRange(query, DATE_FIELD));
+                    // a range query on all dates of another field collects every matching document
+                    Query collectedQuery = new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(LongPoint.newRangeQuery(INSTANT_FIELD, Long.MIN_VALUE, Long.MAX_VALUE), BooleanClause.Occur.FILTER)
+                        .build();
+                    assertNull(DateHistogramAggregator.pointRange(collectedQuery, DATE_FIELD));
+
+                    for (Consumer<DateHistogramAggregationBuilder> configure : configurations) {
+                        DateHistogramAggregationBuilder counted = new DateHistogramAggregationBuilder("_name").field(DATE_FIELD);
+                        configure.accept(counted);
+                        InternalDateHistogram fromPoints = search(indexSearcher, query, counted, fieldType);
+
+                        DateHistogramAggregationBuilder collected = new DateHistogramAggregationBuilder("_name").field(DATE_FIELD);
+                        configure.accept(collected);
+                        InternalDateHistogram fromDocs = search(indexSearcher, collectedQuery, collected, fieldType);
+
+                        assertEquals(fromDocs.getBuckets().size(), fromPoints.getBuckets().size());
+                        for (int i = 0; i < fromDocs.getBuckets().size(); i++) {
+                            assertEquals(fromDocs.getBuckets().get(i).getKey(), fromPoints.getBuckets().get(i).getKey());
+                            assertEquals(fromDocs.getBuckets().get(i).getDocCount(), fromPoints.getBuckets().get(i).getDocCount());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<Histogram> verify) throws IOException {
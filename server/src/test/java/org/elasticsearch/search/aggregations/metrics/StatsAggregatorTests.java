@@ -31,6 +31,8 @@ import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.BatchBucketCollector;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregator;
 import org.elasticsearch.search.aggregations.metrics.stats.InternalStats;
 import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
 
@@ -147,6 +149,42 @@ public class StatsAggregatorTests extends AggregatorTestCase {
         verifySummationOfDoubles(largeValues, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 0d);
     }
 
+    public void testBatchCollection() throws IOException {
+        MappedFieldType ft = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        ft.setName("field");
+        try (Directory directory = newDirectory();
+             RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            int numDocs = randomIntBetween(200, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                int numValues = randomIntBetween(0, 3);
+                for (int j = 0; j < numValues; j++) {
+                    double value = randomDoubleBetween(-100d, 100d, true);
+                    doc.add(new SortedNumericDocValuesField("field", NumericUtils.doubleToSortableLong(value)));
+                }
+                indexWriter.addDocument(doc);
+            }
+            try (IndexReader reader = indexWriter.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                StatsAggregationBuilder aggBuilder = new StatsAggregationBuilder("my_agg").field("field");
+                InternalStats expected = search(searcher, new MatchAllDocsQuery(), aggBuilder, ft);
+
+                StatsAggregator aggregator = createAggregator(aggBuilder, searcher, ft);
+                BatchBucketCollector collector = (BatchBucketCollector) BatchBucketCollector.wrap(aggregator);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                collector.flush();
+                aggregator.postCollection();
+                InternalStats stats = (InternalStats) aggregator.buildAggregation(0L);
+
+                assertEquals(expected.getCount(), stats.getCount());
+                assertEquals(expected.getSum(), stats.getSum(), 0d);
+                assertEquals(expected.getMin(), stats.getMin(), 0d);
+                assertEquals(expected.getMax(), stats.getMax(), 0d);
+            }
+        }
+    }
+
     private void verifySummationOfDoubles(double[] values, double expectedSum,
                                           double expectedAvg, double delta) throws IOException {
         MappedFieldType ft = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
@@ -21,9 +21,15 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
 
+import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
@@ -117,6 +123,35 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testSparseBuckets() {
+        // dense registers of 10000 buckets would need 160MB at the default precision
+        HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(
+                Settings.builder()
+                        .put(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), 16, ByteSizeUnit.MB)
+                        .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        BigArrays bigArrays = new BigArrays(null, hcbs, CircuitBreaker.REQUEST).withCircuitBreaking();
+        final int numBuckets = 10000;
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(HyperLogLogPlusPlus.DEFAULT_PRECISION, bigArrays, 1)) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                for (int i = 0; i <= bucket % 10; ++i) {
+                    counts.collect(bucket, BitMixer.mix64(i));
+                }
+            }
+            // a few buckets switch to dense registers
+            for (int i = 0; i < 100000; ++i) {
+                counts.collect(i % 3, BitMixer.mix64(i));
+            }
+            for (int bucket = 3; bucket < numBuckets; ++bucket) {
+                assertEquals(bucket % 10 + 1, counts.cardinality(bucket));
+            }
+            for (int bucket = 0; bucket < 3; ++bucket) {
+                assertThat((double) counts.cardinality(bucket), closeTo(100000 / 3, 0.1 * 100000 / 3));
+            }
+        }
+        assertEquals(0, hcbs.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
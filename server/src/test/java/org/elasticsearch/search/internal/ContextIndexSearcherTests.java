@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    public void testSliceFailureWaitsForRunningSlices() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        for (int i = 0; i < 4; i++) {
+            w.addDocument(new Document());
+            // one segment per document
+            w.commit();
+        }
+        w.close();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader), () -> {});
+        ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null, IndexSearcher.getDefaultQueryCachingPolicy());
+
+        ExecutorService sliceExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+        try {
+            searcher.setConcurrentSearch(sliceExecutor, 2);
+            assertTrue(searcher.isConcurrentSearch());
+
+            final IOException sliceFailure = new IOException("slice failure");
+            final CountDownLatch failed = new CountDownLatch(1);
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicBoolean blockedSliceDone = new AtomicBoolean();
+            final AtomicInteger numCollectors = new AtomicInteger();
+            // the first slice, searched by the calling thread, fails while the second one is blocked
+            CollectorManager<Collector, Void> collectorManager = new CollectorManager<Collector, Void>() {
+                @Override
+                public Collector newCollector() {
+                    final boolean first = numCollectors.getAndIncrement() == 0;
+                    return new Collector() {
+                        @Override
+                        public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+                            try {
+                                if (first) {
+                                    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+                                    failed.countDown();
+                                    throw sliceFailure;
+                                }
+                                blocked.countDown();
+                                release.await();
+                            } catch (InterruptedException e) {
+                                throw new AssertionError(e);
+                            }
+                            blockedSliceDone.set(true);
+                            return new LeafCollector() {
+                                @Override
+                                public void setScorer(Scorer scorer) {
+                                }
+
+                                @Override
+                                public void collect(int doc) {
+                                }
+                            };
+                        }
+
+                        @Override
+                        public boolean needsScores() {
+                            return false;
+                        }
+                    };
+                }
+
+                @Override
+                public Void reduce(Collection<Collector> collectors) {
+                    return null;
+                }
+            };
+
+            final AtomicReference<Exception> searchFailure = new AtomicReference<>();
+            final AtomicBoolean blockedSliceDoneOnReturn = new AtomicBoolean();
+            final CountDownLatch returned = new CountDownLatch(1);
+            searchExecutor.execute(() -> {
+                try {
+                    searcher.search(new MatchAllDocsQuery(), collectorManager);
+                } catch (Exception e) {
+                    searchFailure.set(e);
+                } finally {
+                    blockedSliceDoneOnReturn.set(blockedSliceDone.get());
+                    returned.countDown();
+                }
+            });
+
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            // the search must wait for the blocked slice
+            assertFalse(returned.await(100, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(returned.await(10, TimeUnit.SECONDS));
+            assertTrue(blockedSliceDoneOnReturn.get());
+            assertThat(searchFailure.get(), equalTo(sliceFailure));
+        } finally {
+            ThreadPool.terminate(sliceExecutor, 10, TimeUnit.SECONDS);
+            ThreadPool.terminate(searchExecutor, 10, TimeUnit.SECONDS);
+            reader.close();
+            dir.close();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.threadpool;
+
+import org.apache.cassandra.concurrent.Stage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class ThreadPoolAutoTunerTests extends ESTestCase {
+
+    public void testShrinkOnCpuSaturationAndRestore() throws InterruptedException {
+        final Settings settings = Settings.builder()
+            .put("node.name", "testShrinkOnCpuSaturationAndRestore")
+            .put("thread_pool.get.size", 16)
+            .put("thread_pool.autotune.get.min_size", 4)
+            .build();
+        final ThreadPool threadPool = new ThreadPool(settings);
+        try {
+            final AtomicInteger cpu = new AtomicInteger(95);
+            final ThreadPoolAutoTuner tuner = new ThreadPoolAutoTuner(settings, threadPool, cpu::get, stage -> 0L);
+            tuner.tune();
+            assertThat(threadPool.getThreadPoolExecutor(ThreadPool.Names.GET).getMaximumPoolSize(), equalTo(14));
+            assertThat(threadPool.getThreadPoolExecutor(ThreadPool.Names.GET).getCorePoolSize(), equalTo(14));
+            assertThat(size(threadPool, ThreadPool.Names.GET), equalTo(14));
+            for (int i = 0; i < 10; i++) {
+                tuner.tune();
+            }
+            assertThat(threadPool.getThreadPoolExecutor(ThreadPool.Names.GET).getMaximumPoolSize(), equalTo(4));
+
+            // back to the configured size once idle
+            cpu.set(10);
+            for (int i = 0; i < 10; i++) {
+                tuner.tune();
+            }
+            assertThat(threadPool.getThreadPoolExecutor(ThreadPool.Names.GET).getMaximumPoolSize(), equalTo(16));
+            assertThat(threadPool.getThreadPoolExecutor(ThreadPool.Names.GET).getCorePoolSize(), equalTo(16));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testShrinkOnCassandraStageBacklog() throws InterruptedException {
+        final Settings settings = Settings.builder()
+            .put("node.name", "testShrinkOnCassandraStageBacklog")
+            .put("thread_pool.autotune.cassandra_pending_threshold", 10)
+            .build();
+        final ThreadPool threadPool = new ThreadPool(settings);
+        try {
+            final int searchSize = threadPool.info(ThreadPool.Names.SEARCH).getMax();
+            final int getSize = threadPool.info(ThreadPool.Names.GET).getMax();
+            final int writeSize = threadPool.info(ThreadPool.Names.WRITE).getMax();
+            final ThreadPoolAutoTuner tuner = new ThreadPoolAutoTuner(settings, threadPool, () -> 10,
+                stage -> stage == Stage.READ ? 100L : 0L);
+            tuner.tune();
+            assertThat(size(threadPool, ThreadPool.Names.SEARCH), equalTo(shrunk(searchSize)));
+            assertThat(size(threadPool, ThreadPool.Names.GET), equalTo(shrunk(getSize)));
+            // mutations are not backlogged
+            assertThat(size(threadPool, ThreadPool.Names.WRITE), equalTo(writeSize));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testGrowOnQueueBacklog() throws InterruptedException {
+        final Settings settings = Settings.builder()
+            .put("node.name", "testGrowOnQueueBacklog")
+            .put("thread_pool.write.size", 1)
+            .put("thread_pool.write.queue_size", 10)
+            .put("thread_pool.autotune.write.max_size", 3)
+            .build();
+        final ThreadPool threadPool = new ThreadPool(settings);
+        final CountDownLatch block = new CountDownLatch(1);
+        try {
+            final AtomicLong mutationPending = new AtomicLong();
+            final ThreadPoolAutoTuner tuner = new ThreadPoolAutoTuner(settings, threadPool, () -> 10,
+                stage -> stage == Stage.MUTATION ? mutationPending.get() : 0L);
+            final CountDownLatch started = new CountDownLatch(1);
+            threadPool.executor(ThreadPool.Names.WRITE).execute(() -> {
+                started.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    fail(e.toString());
+                }
+            });
+            started.await();
+            for (int i = 0; i < 5; i++) {
+                threadPool.executor(ThreadPool.Names.WRITE).execute(() -> {
+                    try {
+                        block.await();
+                    } catch (InterruptedException e) {
+                        fail(e.toString());
+                    }
+                });
+            }
+
+            // no growth while cassandra mutations are backlogged
+            mutationPending.set(100);
+            tuner.tune();
+            assertThat(size(threadPool, ThreadPool.Names.WRITE), equalTo(1));
+
+            mutationPending.set(0);
+            tuner.tune();
+            assertThat(size(threadPool, ThreadPool.Names.WRITE), equalTo(2));
+            tuner.tune();
+            tuner.tune();
+            assertThat(size(threadPool, ThreadPool.Names.WRITE), equalTo(3));
+        } finally {
+            block.countDown();
+            terminate(threadPool);
+        }
+    }
+
+    private static int shrunk(int size) {
+        return Math.max(Math.max(1, size / 2), size - Math.max(1, size / 8));
+    }
+
+    private static int size(ThreadPool threadPool, String name) {
+        for (ThreadPoolStats.Stats stats : threadPool.stats()) {
+            if (name.equals(stats.getName())) {
+                return stats.getSize();
+            }
+        }
+        throw new AssertionError("no stats for thread pool [" + name + "]");
+    }
+}
@@ -19,13 +19,16 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -62,6 +65,41 @@ public class ThreadPoolStatsTests extends ESTestCase {
         assertThat(threads, contains(-1, -1, 1, 2, 3,-1,-1));
     }
 
+    public void testThreadPoolStatsSerialization() throws IOException {
+        assertThreadPoolStatsSerialization(Version.CURRENT);
+        // nodes of every 6.8.4.x release use the 6.8.4 wire version and do not know the pool size
+        assertThreadPoolStatsSerialization(Version.V_6_8_4);
+        assertThreadPoolStatsSerialization(
+            VersionUtils.randomVersionBetween(random(), Version.V_6_0_0, VersionUtils.getPreviousVersion(Version.V_6_8_5)));
+    }
+
+    private void assertThreadPoolStatsSerialization(Version version) throws IOException {
+        ThreadPoolStats.Stats stats = new ThreadPoolStats.Stats(ThreadPool.Names.WRITE, randomIntBetween(1, 100),
+            randomIntBetween(0, 100), randomIntBetween(0, 100), randomNonNegativeLong(), randomIntBetween(1, 100),
+            randomNonNegativeLong(), randomIntBetween(1, 100));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            stats.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                ThreadPoolStats.Stats deserializedStats = new ThreadPoolStats.Stats(in);
+                assertEquals(-1, in.read());
+                assertEquals(stats.getName(), deserializedStats.getName());
+                assertEquals(stats.getThreads(), deserializedStats.getThreads());
+                assertEquals(stats.getQueue(), deserializedStats.getQueue());
+                assertEquals(stats.getActive(), deserializedStats.getActive());
+                assertEquals(stats.getRejected(), deserializedStats.getRejected());
+                assertEquals(stats.getLargest(), deserializedStats.getLargest());
+                assertEquals(stats.getCompleted(), deserializedStats.getCompleted());
+                if (version.onOrAfter(Version.V_6_8_5)) {
+                    assertEquals(stats.getSize(), deserializedStats.getSize());
+                } else {
+                    assertEquals(-1, deserializedStats.getSize());
+                }
+            }
+        }
+    }
+
     public void testThreadPoolStatsToXContent() throws IOException {
         try (BytesStreamOutput os = new BytesStreamOutput()) {
 
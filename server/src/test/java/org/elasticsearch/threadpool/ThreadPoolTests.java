@@ -19,6 +19,8 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.test.ESTestCase;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -46,6 +48,25 @@ public class ThreadPoolTests extends ESTestCase {
         assertThat(ThreadPool.boundedBy(value, min, max), equalTo(value));
     }
 
+    public void testIoThreadPoolSize() {
+        assertThat(ThreadPool.ioThreadPoolSize(1), equalTo(32));
+        assertThat(ThreadPool.ioThreadPoolSize(16), equalTo(64));
+        assertThat(ThreadPool.ioThreadPoolSize(128), equalTo(256));
+        final int processors = randomIntBetween(1, 128);
+        assertTrue(ThreadPool.ioThreadPoolSize(processors) >= processors);
+    }
+
+    public void testSearchFetchThreadPool() {
+        TestThreadPool threadPool = new TestThreadPool("test");
+        try {
+            ThreadPool.Info info = threadPool.info(ThreadPool.Names.SEARCH_FETCH);
+            assertThat(info.getThreadPoolType(), equalTo(ThreadPool.ThreadPoolType.FIXED));
+            assertThat(info.getMax(), equalTo(ThreadPool.ioThreadPoolSize(EsExecutors.numberOfProcessors(Settings.EMPTY))));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
     public void testAbsoluteTime() throws Exception {
         TestThreadPool threadPool = new TestThreadPool("test");
         try {
@@ -86,6 +86,31 @@ public class CompressibleBytesOutputStreamTests extends ESTestCase {
         }
     }
 
+    public void testStreamWithLz4Compression() throws IOException {
+        BytesStream bStream = new ZeroOutOnCloseStream();
+        CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, true, CompressorFactory.LZ4_COMPRESSOR);
+
+        byte[] expectedBytes = randomBytes(randomInt(100_000));
+        stream.write(expectedBytes);
+
+        BytesReference bytesRef = stream.materializeBytes();
+        stream.close();
+        assertEquals(expectedBytes.length, stream.uncompressedLength());
+
+        assertTrue(CompressorFactory.LZ4_COMPRESSOR.isCompressed(bytesRef));
+        assertFalse(CompressorFactory.COMPRESSOR.isCompressed(bytesRef));
+        assertSame(CompressorFactory.LZ4_COMPRESSOR, CompressorFactory.compressor(bytesRef));
+
+        StreamInput streamInput = CompressorFactory.LZ4_COMPRESSOR.streamInput(bytesRef.streamInput());
+        byte[] actualBytes = new byte[expectedBytes.length];
+        streamInput.readBytes(actualBytes, 0, expectedBytes.length);
+
+        assertEquals(-1, streamInput.read());
+        assertArrayEquals(expectedBytes, actualBytes);
+
+        bStream.close();
+    }
+
     public void testCompressionWithCallingMaterializeFails() throws IOException {
         BytesStream bStream = new ZeroOutOnCloseStream();
         CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bStream, true);
@@ -88,6 +88,25 @@ public abstract class AbstractBytesReferenceTestCase extends ESTestCase {
         }
     }
 
+    public void testIndexOf() throws IOException {
+        for (int length : new int[] {0, 1, randomIntBetween(2, PAGE_SIZE), randomIntBetween(PAGE_SIZE + 1, 3 * PAGE_SIZE)}) {
+            BytesReference pbr = newBytesReference(length);
+            BytesReference slice = pbr.slice(length / 3, length - length / 3);
+            for (BytesReference reference : new BytesReference[] {pbr, slice}) {
+                final byte marker = reference.length() == 0 ? 0 : reference.get(randomIntBetween(0, reference.length() - 1));
+                final int from = randomIntBetween(0, reference.length());
+                int expected = -1;
+                for (int i = from; i < reference.length(); i++) {
+                    if (reference.get(i) == marker) {
+                        expected = i;
+                        break;
+                    }
+                }
+                assertEquals(expected, reference.indexOf(marker, from));
+            }
+        }
+    }
+
     public void testStreamInput() throws IOException {
         int length = randomIntBetween(10, scaledRandomIntBetween(PAGE_SIZE * 2, PAGE_SIZE * 20));
         BytesReference pbr = newBytesReference(length);